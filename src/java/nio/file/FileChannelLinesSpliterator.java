@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.nio.file;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A file-based lines spliterator, leveraging a shared file channel, for
+ * files encoded in a charset in which the bytes of the line terminators
+ * {@code '\n'} and {@code '\r'} never occur within the encoding of another
+ * character, namely UTF-8, US-ASCII and ISO-8859-1.
+ *
+ * <p>The spliterator covers a range of bytes of the file.  It splits by
+ * probing, from the middle of its range, for the next line terminator and
+ * dividing the range just past it, so each range holds whole lines.  A
+ * range is traversed by a {@link BufferedReader} reading the range from
+ * the channel, with a decoder that reports malformed input, as by the
+ * {@code BufferedReader} otherwise used by
+ * {@link Files#lines(Path, Charset)}.  The file is read, not memory mapped,
+ * so a file truncated during traversal ends the range early rather than
+ * faulting, and nothing outlives the stream but the channel, which is
+ * closed with it.
+ *
+ * <p>Once traversal has started, the spliterator no longer splits, as
+ * the reader has read ahead of the line last returned.
+ *
+ * @since 1.8
+ */
+final class FileChannelLinesSpliterator implements Spliterator<String> {
+
+    static final Set<String> SUPPORTED_CHARSET_NAMES;
+    static {
+        SUPPORTED_CHARSET_NAMES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+                StandardCharsets.UTF_8.name(),
+                StandardCharsets.ISO_8859_1.name(),
+                StandardCharsets.US_ASCII.name())));
+    }
+
+    /** Number of bytes read at a time when probing for a line terminator */
+    private static final int PROBE_SIZE = 1 << 13;
+
+    /** Ranges shorter than this are not split */
+    private static final long MIN_SPLIT_SIZE = PROBE_SIZE;
+
+    private final FileChannel fc;
+    private final Charset cs;
+    private long index;
+    private final long fence;
+
+    // Non-null once traversal has started
+    private BufferedReader reader;
+
+    FileChannelLinesSpliterator(FileChannel fc, Charset cs, long index, long fence) {
+        this.fc = fc;
+        this.cs = cs;
+        this.index = index;
+        this.fence = fence;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super String> action) {
+        if (action == null)
+            throw new NullPointerException();
+        String line = readLine();
+        if (line == null)
+            return false;
+        action.accept(line);
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super String> action) {
+        if (action == null)
+            throw new NullPointerException();
+        String line;
+        while ((line = readLine()) != null)
+            action.accept(line);
+    }
+
+    private String readLine() {
+        if (reader == null)
+            reader = getBufferedReader();
+        try {
+            return reader.readLine();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns a reader of the range {@code [index, fence)}, reading the
+     * channel at explicit positions so that the channel may be shared by
+     * the spliterators of the other ranges.
+     */
+    private BufferedReader getBufferedReader() {
+        ReadableByteChannel rrbc = new ReadableByteChannel() {
+            @Override
+            public int read(ByteBuffer dst) throws IOException {
+                long bytesToRead = fence - index;
+                if (bytesToRead <= 0)
+                    return -1;
+
+                int bytesRead;
+                if (bytesToRead < dst.remaining()) {
+                    // The channel may only read up to the fence
+                    int oldLimit = dst.limit();
+                    dst.limit(dst.position() + (int) bytesToRead);
+                    bytesRead = fc.read(dst, index);
+                    dst.limit(oldLimit);
+                }
+                else {
+                    bytesRead = fc.read(dst, index);
+                }
+                if (bytesRead == -1) {
+                    // The file was truncated, end the range
+                    index = fence;
+                    return bytesRead;
+                }
+
+                index += bytesRead;
+                return bytesRead;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return fc.isOpen();
+            }
+
+            @Override
+            public void close() throws IOException {
+                fc.close();
+            }
+        };
+        return new BufferedReader(Channels.newReader(rrbc, cs.newDecoder(), -1));
+    }
+
+    /**
+     * Returns the offset just past the first line terminator at or after
+     * {@code position} and before the fence, or -1 if there is none.
+     */
+    private long probeLineEnd(long position) {
+        ByteBuffer b = ByteBuffer.allocate(PROBE_SIZE);
+        long hi = fence;
+        boolean sawCR = false;
+        for (long p = position; p < hi; ) {
+            b.clear();
+            if (hi - p < PROBE_SIZE)
+                b.limit((int) (hi - p));
+            int n;
+            try {
+                n = fc.read(b, p);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (n <= 0)
+                return -1;
+            for (int i = 0; i < n; i++) {
+                byte c = b.get(i);
+                if (sawCR)
+                    return (c == '\n') ? p + i + 1 : p + i;
+                if (c == '\n')
+                    return p + i + 1;
+                sawCR = (c == '\r');
+            }
+            p += n;
+        }
+        return sawCR ? hi : -1;
+    }
+
+    @Override
+    public Spliterator<String> trySplit() {
+        // Cannot split after partial traversal
+        if (reader != null)
+            return null;
+
+        long lo = index, hi = fence;
+        if (hi - lo < MIN_SPLIT_SIZE)
+            return null;
+        long mid = probeLineEnd((lo + hi) >>> 1);
+        if (mid <= lo || mid >= hi)
+            return null;
+        index = mid;
+        return new FileChannelLinesSpliterator(fc, cs, lo, mid);
+    }
+
+    @Override
+    public long estimateSize() {
+        // Use the number of bytes as an estimate, which is an upper bound
+        // on the number of lines
+        return fence - index;
+    }
+
+    @Override
+    public long getExactSizeIfKnown() {
+        return -1;
+    }
+
+    @Override
+    public int characteristics() {
+        return Spliterator.ORDERED | Spliterator.NONNULL;
+    }
+}
@@ -3720,6 +3720,29 @@ public final class Files {
      * {@link Stream#close close} method is invoked after the stream operations
      * are completed.
      *
+     * @implNote
+     * This implementation supports good parallel stream performance for the
+     * standard charsets {@link StandardCharsets#UTF_8 UTF-8},
+     * {@link StandardCharsets#US_ASCII US-ASCII} and
+     * {@link StandardCharsets#ISO_8859_1 ISO-8859-1}, when the file is
+     * located on the default file system.  Such line-optimal charsets have
+     * the property that the encoded bytes of a line feed ('\n') or a carriage
+     * return ('\r') are efficiently identifiable from other encoded characters
+     * when randomly accessing the bytes of the file.  The file is then
+     * split on line boundaries, found by reading the file around the point
+     * of each split, and each part is read and decoded independently, in
+     * place of the encapsulated {@code Reader}.
+     *
+     * <p> For non-line-optimal charsets the stream source's spliterator has
+     * poor splitting properties, similar to that of a spliterator associated
+     * with an iterator or that associated with a stream returned from
+     * {@link BufferedReader#lines()}.  Poor splitting properties can result
+     * in poor parallel stream performance.
+     *
+     * <p> For line-optimal charsets the stream source's spliterator has good
+     * splitting properties, assuming the file contains a regular sequence of
+     * lines.  Good splitting properties can result in good parallel stream
+     * performance.
      *
      * @param   path
      *          the path to the file
@@ -3741,7 +3764,50 @@ public final class Files {
      * @since   1.8
      */
     public static Stream<String> lines(Path path, Charset cs) throws IOException {
-        BufferedReader br = Files.newBufferedReader(path, cs);
+        // Use the good splitting spliterator if:
+        // 1) the path is associated with the default file system;
+        // 2) the character set is supported; and
+        // 3) the file is not empty
+        if (path.getFileSystem() == FileSystems.getDefault() &&
+            FileChannelLinesSpliterator.SUPPORTED_CHARSET_NAMES.contains(cs.name())) {
+            FileChannel fc = FileChannel.open(path, StandardOpenOption.READ);
+
+            Stream<String> lines = createFileChannelLinesStream(fc, cs);
+            if (lines != null) {
+                return lines;
+            }
+            fc.close();
+        }
+
+        return createBufferedReaderLinesStream(Files.newBufferedReader(path, cs));
+    }
+
+    private static Stream<String> createFileChannelLinesStream(FileChannel fc, Charset cs)
+        throws IOException
+    {
+        try {
+            // Files of any size are supported, as the file is read by
+            // positional reads of the channel rather than mapped
+            long length = fc.size();
+            if (length > 0) {
+                Spliterator<String> s = new FileChannelLinesSpliterator(fc, cs, 0, length);
+                return StreamSupport.stream(s, false)
+                        .onClose(asUncheckedRunnable(fc));
+            }
+        } catch (Error|RuntimeException|IOException e) {
+            try {
+                fc.close();
+            } catch (IOException ex) {
+                try {
+                    e.addSuppressed(ex);
+                } catch (Throwable ignore) {}
+            }
+            throw e;
+        }
+        return null;
+    }
+
+    private static Stream<String> createBufferedReaderLinesStream(BufferedReader br) {
         try {
             return br.lines().onClose(asUncheckedRunnable(br));
         } catch (Error|RuntimeException e) {
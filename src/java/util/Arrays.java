@@ -36,6 +36,8 @@ import java.util.function.IntToDoubleFunction;
 import java.util.function.IntToLongFunction;
 import java.util.function.IntUnaryOperator;
 import java.util.function.LongBinaryOperator;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 import java.util.function.UnaryOperator;
 import java.util.stream.DoubleStream;
 import java.util.stream.IntStream;
@@ -78,6 +80,15 @@ public class Arrays {
      */
     private static final int MIN_ARRAY_SORT_GRAN = 1 << 13;
 
+    /**
+     * The minimum array length at which the parallel sorts of int, long,
+     * float and double arrays switch from merge sort to radix sort.
+     * Radix sort makes a fixed number of linear passes regardless of key
+     * order, so it overtakes comparison sorting once the array is much
+     * larger than the 256-bucket histograms it maintains per pass.
+     */
+    private static final int MIN_ARRAY_RADIX_SORT = 1 << 17;
+
     // Suppresses default constructor, ensuring non-instantiability.
     private Arrays() {}
 
@@ -665,13 +676,22 @@ public class Arrays {
      * {@link ForkJoinPool#commonPool() ForkJoin common pool} is used to
      * execute any parallel tasks.
      *
+     * <p>If the length of the specified array is at least {@value
+     * #MIN_ARRAY_RADIX_SORT},
+     * it is instead sorted by a stable least-significant-digit radix sort
+     * that distributes each digit pass across the common pool, which
+     * avoids comparisons altogether and likewise requires a working
+     * space no greater than the size of the original array.
+     *
      * @param a the array to be sorted
      *
      * @since 1.8
      */
     public static void parallelSort(int[] a) {
         int n = a.length, p, g;
-        if (n <= MIN_ARRAY_SORT_GRAN ||
+        if (n >= MIN_ARRAY_RADIX_SORT)
+            ArraysRadixSort.sort(a, 0, n, true);
+        else if (n <= MIN_ARRAY_SORT_GRAN ||
             (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
             DualPivotQuicksort.sort(a, 0, n - 1, null, 0, 0);
         else
@@ -698,6 +718,13 @@ public class Arrays {
      * array. The {@link ForkJoinPool#commonPool() ForkJoin common pool} is
      * used to execute any parallel tasks.
      *
+     * <p>If the length of the range to be sorted is at least {@value
+     * #MIN_ARRAY_RADIX_SORT},
+     * it is instead sorted by a stable least-significant-digit radix sort
+     * that distributes each digit pass across the common pool, which
+     * avoids comparisons altogether and likewise requires a working
+     * space no greater than the size of the original array.
+     *
      * @param a the array to be sorted
      * @param fromIndex the index of the first element, inclusive, to be sorted
      * @param toIndex the index of the last element, exclusive, to be sorted
@@ -711,7 +738,9 @@ public class Arrays {
     public static void parallelSort(int[] a, int fromIndex, int toIndex) {
         rangeCheck(a.length, fromIndex, toIndex);
         int n = toIndex - fromIndex, p, g;
-        if (n <= MIN_ARRAY_SORT_GRAN ||
+        if (n >= MIN_ARRAY_RADIX_SORT)
+            ArraysRadixSort.sort(a, fromIndex, toIndex, true);
+        else if (n <= MIN_ARRAY_SORT_GRAN ||
             (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
             DualPivotQuicksort.sort(a, fromIndex, toIndex - 1, null, 0, 0);
         else
@@ -735,13 +764,22 @@ public class Arrays {
      * {@link ForkJoinPool#commonPool() ForkJoin common pool} is used to
      * execute any parallel tasks.
      *
+     * <p>If the length of the specified array is at least {@value
+     * #MIN_ARRAY_RADIX_SORT},
+     * it is instead sorted by a stable least-significant-digit radix sort
+     * that distributes each digit pass across the common pool, which
+     * avoids comparisons altogether and likewise requires a working
+     * space no greater than the size of the original array.
+     *
      * @param a the array to be sorted
      *
      * @since 1.8
      */
     public static void parallelSort(long[] a) {
         int n = a.length, p, g;
-        if (n <= MIN_ARRAY_SORT_GRAN ||
+        if (n >= MIN_ARRAY_RADIX_SORT)
+            ArraysRadixSort.sort(a, 0, n, true);
+        else if (n <= MIN_ARRAY_SORT_GRAN ||
             (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
             DualPivotQuicksort.sort(a, 0, n - 1, null, 0, 0);
         else
@@ -768,6 +806,13 @@ public class Arrays {
      * array. The {@link ForkJoinPool#commonPool() ForkJoin common pool} is
      * used to execute any parallel tasks.
      *
+     * <p>If the length of the range to be sorted is at least {@value
+     * #MIN_ARRAY_RADIX_SORT},
+     * it is instead sorted by a stable least-significant-digit radix sort
+     * that distributes each digit pass across the common pool, which
+     * avoids comparisons altogether and likewise requires a working
+     * space no greater than the size of the original array.
+     *
      * @param a the array to be sorted
      * @param fromIndex the index of the first element, inclusive, to be sorted
      * @param toIndex the index of the last element, exclusive, to be sorted
@@ -781,7 +826,9 @@ public class Arrays {
     public static void parallelSort(long[] a, int fromIndex, int toIndex) {
         rangeCheck(a.length, fromIndex, toIndex);
         int n = toIndex - fromIndex, p, g;
-        if (n <= MIN_ARRAY_SORT_GRAN ||
+        if (n >= MIN_ARRAY_RADIX_SORT)
+            ArraysRadixSort.sort(a, fromIndex, toIndex, true);
+        else if (n <= MIN_ARRAY_SORT_GRAN ||
             (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
             DualPivotQuicksort.sort(a, fromIndex, toIndex - 1, null, 0, 0);
         else
@@ -813,13 +860,23 @@ public class Arrays {
      * {@link ForkJoinPool#commonPool() ForkJoin common pool} is used to
      * execute any parallel tasks.
      *
+     * <p>If the length of the specified array is at least {@value
+     * #MIN_ARRAY_RADIX_SORT},
+     * it is instead sorted by a stable least-significant-digit radix sort
+     * that distributes each digit pass across the common pool, which
+     * avoids comparisons altogether.  It sorts the bits of the values
+     * in a separate array, and so requires a working space of up to
+     * twice the size of the original array.
+     *
      * @param a the array to be sorted
      *
      * @since 1.8
      */
     public static void parallelSort(float[] a) {
         int n = a.length, p, g;
-        if (n <= MIN_ARRAY_SORT_GRAN ||
+        if (n >= MIN_ARRAY_RADIX_SORT)
+            ArraysRadixSort.sort(a, 0, n, true);
+        else if (n <= MIN_ARRAY_SORT_GRAN ||
             (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
             DualPivotQuicksort.sort(a, 0, n - 1, null, 0, 0);
         else
@@ -854,6 +911,14 @@ public class Arrays {
      * array. The {@link ForkJoinPool#commonPool() ForkJoin common pool} is
      * used to execute any parallel tasks.
      *
+     * <p>If the length of the range to be sorted is at least {@value
+     * #MIN_ARRAY_RADIX_SORT},
+     * it is instead sorted by a stable least-significant-digit radix sort
+     * that distributes each digit pass across the common pool, which
+     * avoids comparisons altogether.  It sorts the bits of the values
+     * in a separate array, and so requires a working space of up to
+     * twice the size of the original array.
+     *
      * @param a the array to be sorted
      * @param fromIndex the index of the first element, inclusive, to be sorted
      * @param toIndex the index of the last element, exclusive, to be sorted
@@ -867,7 +932,9 @@ public class Arrays {
     public static void parallelSort(float[] a, int fromIndex, int toIndex) {
         rangeCheck(a.length, fromIndex, toIndex);
         int n = toIndex - fromIndex, p, g;
-        if (n <= MIN_ARRAY_SORT_GRAN ||
+        if (n >= MIN_ARRAY_RADIX_SORT)
+            ArraysRadixSort.sort(a, fromIndex, toIndex, true);
+        else if (n <= MIN_ARRAY_SORT_GRAN ||
             (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
             DualPivotQuicksort.sort(a, fromIndex, toIndex - 1, null, 0, 0);
         else
@@ -899,13 +966,23 @@ public class Arrays {
      * {@link ForkJoinPool#commonPool() ForkJoin common pool} is used to
      * execute any parallel tasks.
      *
+     * <p>If the length of the specified array is at least {@value
+     * #MIN_ARRAY_RADIX_SORT},
+     * it is instead sorted by a stable least-significant-digit radix sort
+     * that distributes each digit pass across the common pool, which
+     * avoids comparisons altogether.  It sorts the bits of the values
+     * in a separate array, and so requires a working space of up to
+     * twice the size of the original array.
+     *
      * @param a the array to be sorted
      *
      * @since 1.8
      */
     public static void parallelSort(double[] a) {
         int n = a.length, p, g;
-        if (n <= MIN_ARRAY_SORT_GRAN ||
+        if (n >= MIN_ARRAY_RADIX_SORT)
+            ArraysRadixSort.sort(a, 0, n, true);
+        else if (n <= MIN_ARRAY_SORT_GRAN ||
             (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
             DualPivotQuicksort.sort(a, 0, n - 1, null, 0, 0);
         else
@@ -940,6 +1017,14 @@ public class Arrays {
      * array. The {@link ForkJoinPool#commonPool() ForkJoin common pool} is
      * used to execute any parallel tasks.
      *
+     * <p>If the length of the range to be sorted is at least {@value
+     * #MIN_ARRAY_RADIX_SORT},
+     * it is instead sorted by a stable least-significant-digit radix sort
+     * that distributes each digit pass across the common pool, which
+     * avoids comparisons altogether.  It sorts the bits of the values
+     * in a separate array, and so requires a working space of up to
+     * twice the size of the original array.
+     *
      * @param a the array to be sorted
      * @param fromIndex the index of the first element, inclusive, to be sorted
      * @param toIndex the index of the last element, exclusive, to be sorted
@@ -953,7 +1038,9 @@ public class Arrays {
     public static void parallelSort(double[] a, int fromIndex, int toIndex) {
         rangeCheck(a.length, fromIndex, toIndex);
         int n = toIndex - fromIndex, p, g;
-        if (n <= MIN_ARRAY_SORT_GRAN ||
+        if (n >= MIN_ARRAY_RADIX_SORT)
+            ArraysRadixSort.sort(a, fromIndex, toIndex, true);
+        else if (n <= MIN_ARRAY_SORT_GRAN ||
             (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
             DualPivotQuicksort.sort(a, fromIndex, toIndex - 1, null, 0, 0);
         else
@@ -1180,6 +1267,125 @@ public class Arrays {
                  MIN_ARRAY_SORT_GRAN : g, cmp).invoke();
     }
 
+    /**
+     * Sorts the specified array of objects into ascending order of the
+     * {@code int} keys computed by the given key extractor.  The key of
+     * each element is extracted exactly once.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  equal elements will
+     * not be reordered as a result of the sort.
+     *
+     * @implNote The keys are extracted into a temporary array that is sorted,
+     * together with the elements, by a least-significant-digit radix sort.
+     * Digits on which all keys agree are skipped, so the number of passes
+     * depends on the spread of the keys rather than on their count.  Small
+     * arrays are sorted by insertion sort.  The algorithm requires a working
+     * space of about three times the size of the original array.
+     *
+     * @param <T> the class of the objects to be sorted
+     * @param a the array to be sorted
+     * @param keyExtractor the function used to extract the sort key
+     * @throws NullPointerException if the key extractor is null
+     *
+     * @since 1.8
+     */
+    public static <T> void sortByIntKey(T[] a,
+                                        ToIntFunction<? super T> keyExtractor) {
+        sortByIntKey(a, keyExtractor, false);
+    }
+
+    /**
+     * Sorts the specified array of objects into ascending order of the
+     * {@code long} keys computed by the given key extractor.  The key of
+     * each element is extracted exactly once.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  equal elements will
+     * not be reordered as a result of the sort.
+     *
+     * @implNote As for {@link #sortByIntKey(Object[], ToIntFunction)}, the
+     * keys are extracted into a temporary array and sorted by a
+     * least-significant-digit radix sort together with the elements.
+     *
+     * @param <T> the class of the objects to be sorted
+     * @param a the array to be sorted
+     * @param keyExtractor the function used to extract the sort key
+     * @throws NullPointerException if the key extractor is null
+     *
+     * @since 1.8
+     */
+    public static <T> void sortByLongKey(T[] a,
+                                         ToLongFunction<? super T> keyExtractor) {
+        sortByLongKey(a, keyExtractor, false);
+    }
+
+    /**
+     * Sorts the specified array of objects into ascending order of the
+     * {@code int} keys computed by the given key extractor, in the same
+     * manner as {@link #sortByIntKey(Object[], ToIntFunction)} except that
+     * the digit passes of a large array are distributed across the
+     * {@link ForkJoinPool#commonPool() ForkJoin common pool}.  The key
+     * extractor is invoked from the calling thread only.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  equal elements will
+     * not be reordered as a result of the sort.
+     *
+     * @param <T> the class of the objects to be sorted
+     * @param a the array to be sorted
+     * @param keyExtractor the function used to extract the sort key
+     * @throws NullPointerException if the key extractor is null
+     *
+     * @since 1.8
+     */
+    public static <T> void parallelSortByIntKey(T[] a,
+                                                ToIntFunction<? super T> keyExtractor) {
+        sortByIntKey(a, keyExtractor, true);
+    }
+
+    /**
+     * Sorts the specified array of objects into ascending order of the
+     * {@code long} keys computed by the given key extractor, in the same
+     * manner as {@link #sortByLongKey(Object[], ToLongFunction)} except that
+     * the digit passes of a large array are distributed across the
+     * {@link ForkJoinPool#commonPool() ForkJoin common pool}.  The key
+     * extractor is invoked from the calling thread only.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  equal elements will
+     * not be reordered as a result of the sort.
+     *
+     * @param <T> the class of the objects to be sorted
+     * @param a the array to be sorted
+     * @param keyExtractor the function used to extract the sort key
+     * @throws NullPointerException if the key extractor is null
+     *
+     * @since 1.8
+     */
+    public static <T> void parallelSortByLongKey(T[] a,
+                                                 ToLongFunction<? super T> keyExtractor) {
+        sortByLongKey(a, keyExtractor, true);
+    }
+
+    private static <T> void sortByIntKey(T[] a,
+                                         ToIntFunction<? super T> keyExtractor,
+                                         boolean parallel) {
+        Objects.requireNonNull(keyExtractor);
+        int n = a.length;
+        int[] keys = new int[n];
+        for (int i = 0; i < n; i++)
+            keys[i] = keyExtractor.applyAsInt(a[i]);
+        ArraysRadixSort.sortByKey(keys, a, 0, n, parallel);
+    }
+
+    private static <T> void sortByLongKey(T[] a,
+                                          ToLongFunction<? super T> keyExtractor,
+                                          boolean parallel) {
+        Objects.requireNonNull(keyExtractor);
+        int n = a.length;
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++)
+            keys[i] = keyExtractor.applyAsLong(a[i]);
+        ArraysRadixSort.sortByKey(keys, a, 0, n, parallel);
+    }
+
     /*
      * Sorting of complex type arrays.
      */
@@ -0,0 +1,441 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Least-significant-digit radix sorts backing the large-array paths of
+ * Arrays.parallelSort for int, long, float and double arrays, and the
+ * Arrays.sortBy{Int,Long}Key / parallelSortBy{Int,Long}Key methods.
+ *
+ * Keys are sorted 8 bits at a time using counting passes that scatter
+ * between the array and a workspace array of the same length.  Each
+ * pass is stable, so the whole sort is stable, which is what allows
+ * objects to be carried along with their extracted keys.  Signed keys
+ * are ordered by flipping the sign bit when extracting digits; float
+ * and double keys are first mapped to integers whose unsigned order
+ * matches Float.compare/Double.compare order for non-NaN values, NaNs
+ * having been moved to the end beforehand as DualPivotQuicksort does.
+ *
+ * A single counting pass over the input computes the histograms of all
+ * digits; any digit in which all keys agree (common when keys occupy a
+ * small range, such as ids or timestamps) is skipped entirely.
+ *
+ * Parallel sorts split the range into a number of chunks, proportional
+ * to common pool parallelism, that count and scatter independently.
+ * Per-chunk histograms give each chunk a disjoint set of output
+ * positions in every bucket, preserving stability without any
+ * synchronization beyond joining the chunk tasks between passes.
+ */
+/*package*/ final class ArraysRadixSort {
+
+    private ArraysRadixSort() {}
+
+    /** Bits per digit. */
+    static final int RADIX_BITS = 8;
+
+    /** Buckets per digit. */
+    static final int RADIX = 1 << RADIX_BITS;
+
+    /** Digit mask. */
+    static final int DIGIT_MASK = RADIX - 1;
+
+    /**
+     * The minimum number of elements per chunk in a parallel sort.
+     * Smaller chunks spend more time combining histograms than
+     * scattering.
+     */
+    static final int MIN_CHUNK = 1 << 14;
+
+    /**
+     * Below this length, keyed object sorts use insertion sort.
+     */
+    static final int INSERTION_SORT_THRESHOLD = 48;
+
+    /**
+     * Returns the number of chunks to use for n elements.
+     */
+    static int chunkCount(int n, boolean parallel) {
+        if (!parallel)
+            return 1;
+        int p = ForkJoinPool.getCommonPoolParallelism();
+        if (p <= 1)
+            return 1;
+        return Math.max(1, Math.min(p << 2, n / MIN_CHUNK));
+    }
+
+    /** Returns the start index (relative) of chunk c of n elements. */
+    static int chunkStart(int c, int chunks, int n) {
+        return (int)((long)c * n / chunks);
+    }
+
+    /**
+     * Runs body for each chunk index, in parallel if there is more than
+     * one chunk.
+     */
+    static void forEachChunk(int chunks, IntConsumer body) {
+        if (chunks == 1)
+            body.accept(0);
+        else
+            new ChunkTask(body, 0, chunks).invoke();
+    }
+
+    static final class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 6128451913542037415L;
+        final IntConsumer body;
+        final int lo, hi;
+        ChunkTask(IntConsumer body, int lo, int hi) {
+            this.body = body; this.lo = lo; this.hi = hi;
+        }
+        protected void compute() {
+            if (hi - lo == 1)
+                body.accept(lo);
+            else {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new ChunkTask(body, lo, mid),
+                          new ChunkTask(body, mid, hi));
+            }
+        }
+    }
+
+    /**
+     * Computes bucket start positions for digit d from per-chunk
+     * histograms: chunk c's keys with digit b go to pos[c][b] onwards.
+     */
+    static int[][] offsets(int[][] counts, int d, int chunks) {
+        int[][] pos = new int[chunks][RADIX];
+        int base = d << RADIX_BITS, run = 0;
+        for (int b = 0; b < RADIX; ++b) {
+            for (int c = 0; c < chunks; ++c) {
+                pos[c][b] = run;
+                run += counts[c][base + b];
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * Returns true if all n keys share digit d, according to the
+     * global histogram.
+     */
+    static boolean trivial(int[] global, int d, int n) {
+        int base = d << RADIX_BITS;
+        for (int b = 0; b < RADIX; ++b) {
+            int k = global[base + b];
+            if (k != 0)
+                return k == n;
+        }
+        return true;
+    }
+
+    static int[] sum(int[][] counts, int width) {
+        int[] global = new int[width];
+        for (int[] cnt : counts)
+            for (int i = 0; i < width; ++i)
+                global[i] += cnt[i];
+        return global;
+    }
+
+    /* ---------------- int keys -------------- */
+
+    /**
+     * Sorts a[lo, lo + n) ascending by the unsigned value of
+     * {@code key ^ flip}, carrying the corresponding elements of objs
+     * (if non-null) along.  flip is Integer.MIN_VALUE for signed order.
+     */
+    static void sort(int[] a, Object[] objs, int lo, int n, int flip,
+                     boolean parallel) {
+        final int digits = 4;
+        final int chunks = chunkCount(n, parallel);
+        final int[][] counts = new int[chunks][digits << RADIX_BITS];
+        forEachChunk(chunks, c -> {
+            int[] cnt = counts[c];
+            for (int i = lo + chunkStart(c, chunks, n),
+                     e = lo + chunkStart(c + 1, chunks, n); i < e; ++i) {
+                int v = a[i] ^ flip;
+                cnt[v & DIGIT_MASK]++;
+                cnt[RADIX + ((v >>> 8) & DIGIT_MASK)]++;
+                cnt[2 * RADIX + ((v >>> 16) & DIGIT_MASK)]++;
+                cnt[3 * RADIX + (v >>> 24)]++;
+            }
+        });
+        int[] global = (chunks == 1) ? counts[0] : sum(counts, digits << RADIX_BITS);
+
+        int[] src = a, dst = null;
+        Object[] osrc = objs, odst = null;
+        int srcOff = lo, dstOff = 0;
+        boolean fresh = true; // chunk histograms describe src
+        for (int d = 0; d < digits; ++d) {
+            if (trivial(global, d, n))
+                continue;
+            if (dst == null) {
+                dst = new int[n];
+                if (objs != null)
+                    odst = new Object[n];
+            }
+            final int shift = d * RADIX_BITS, base = d << RADIX_BITS;
+            final int[] s = src, t = dst;
+            final Object[] os = osrc, ot = odst;
+            final int so = srcOff, to = dstOff;
+            if (!fresh && chunks > 1) {
+                forEachChunk(chunks, c -> {
+                    int[] cnt = counts[c];
+                    Arrays.fill(cnt, base, base + RADIX, 0);
+                    for (int i = so + chunkStart(c, chunks, n),
+                             e = so + chunkStart(c + 1, chunks, n); i < e; ++i)
+                        cnt[base + (((s[i] ^ flip) >>> shift) & DIGIT_MASK)]++;
+                });
+            }
+            final int[][] pos = offsets(counts, d, chunks);
+            forEachChunk(chunks, c -> {
+                int[] p = pos[c];
+                for (int i = so + chunkStart(c, chunks, n),
+                         e = so + chunkStart(c + 1, chunks, n); i < e; ++i) {
+                    int v = s[i];
+                    int j = to + p[((v ^ flip) >>> shift) & DIGIT_MASK]++;
+                    t[j] = v;
+                    if (os != null)
+                        ot[j] = os[i];
+                }
+            });
+            fresh = false;
+            src = t; dst = s; srcOff = to; dstOff = so;
+            osrc = ot; odst = os;
+        }
+        if (src != a) {
+            final int[] s = src;
+            final Object[] os = osrc;
+            forEachChunk(chunks, c -> {
+                int b = chunkStart(c, chunks, n), e = chunkStart(c + 1, chunks, n);
+                System.arraycopy(s, b, a, lo + b, e - b);
+                if (os != null)
+                    System.arraycopy(os, b, objs, lo + b, e - b);
+            });
+        }
+    }
+
+    /* ---------------- long keys -------------- */
+
+    /**
+     * Sorts a[lo, lo + n) ascending by the unsigned value of
+     * {@code key ^ flip}, carrying the corresponding elements of objs
+     * (if non-null) along.  flip is Long.MIN_VALUE for signed order.
+     */
+    static void sort(long[] a, Object[] objs, int lo, int n, long flip,
+                     boolean parallel) {
+        final int digits = 8;
+        final int chunks = chunkCount(n, parallel);
+        final int[][] counts = new int[chunks][digits << RADIX_BITS];
+        forEachChunk(chunks, c -> {
+            int[] cnt = counts[c];
+            for (int i = lo + chunkStart(c, chunks, n),
+                     e = lo + chunkStart(c + 1, chunks, n); i < e; ++i) {
+                long v = a[i] ^ flip;
+                for (int d = 0; d < digits; ++d, v >>>= RADIX_BITS)
+                    cnt[(d << RADIX_BITS) + ((int)v & DIGIT_MASK)]++;
+            }
+        });
+        int[] global = (chunks == 1) ? counts[0] : sum(counts, digits << RADIX_BITS);
+
+        long[] src = a, dst = null;
+        Object[] osrc = objs, odst = null;
+        int srcOff = lo, dstOff = 0;
+        boolean fresh = true;
+        for (int d = 0; d < digits; ++d) {
+            if (trivial(global, d, n))
+                continue;
+            if (dst == null) {
+                dst = new long[n];
+                if (objs != null)
+                    odst = new Object[n];
+            }
+            final int shift = d * RADIX_BITS, base = d << RADIX_BITS;
+            final long[] s = src, t = dst;
+            final Object[] os = osrc, ot = odst;
+            final int so = srcOff, to = dstOff;
+            if (!fresh && chunks > 1) {
+                forEachChunk(chunks, c -> {
+                    int[] cnt = counts[c];
+                    Arrays.fill(cnt, base, base + RADIX, 0);
+                    for (int i = so + chunkStart(c, chunks, n),
+                             e = so + chunkStart(c + 1, chunks, n); i < e; ++i)
+                        cnt[base + ((int)((s[i] ^ flip) >>> shift) & DIGIT_MASK)]++;
+                });
+            }
+            final int[][] pos = offsets(counts, d, chunks);
+            forEachChunk(chunks, c -> {
+                int[] p = pos[c];
+                for (int i = so + chunkStart(c, chunks, n),
+                         e = so + chunkStart(c + 1, chunks, n); i < e; ++i) {
+                    long v = s[i];
+                    int j = to + p[(int)((v ^ flip) >>> shift) & DIGIT_MASK]++;
+                    t[j] = v;
+                    if (os != null)
+                        ot[j] = os[i];
+                }
+            });
+            fresh = false;
+            src = t; dst = s; srcOff = to; dstOff = so;
+            osrc = ot; odst = os;
+        }
+        if (src != a) {
+            final long[] s = src;
+            final Object[] os = osrc;
+            forEachChunk(chunks, c -> {
+                int b = chunkStart(c, chunks, n), e = chunkStart(c + 1, chunks, n);
+                System.arraycopy(s, b, a, lo + b, e - b);
+                if (os != null)
+                    System.arraycopy(os, b, objs, lo + b, e - b);
+            });
+        }
+    }
+
+    /* ---------------- Entry points -------------- */
+
+    static void sort(int[] a, int fromIndex, int toIndex, boolean parallel) {
+        sort(a, null, fromIndex, toIndex - fromIndex, Integer.MIN_VALUE, parallel);
+    }
+
+    static void sort(long[] a, int fromIndex, int toIndex, boolean parallel) {
+        sort(a, null, fromIndex, toIndex - fromIndex, Long.MIN_VALUE, parallel);
+    }
+
+    /**
+     * Sorts float values by mapping them to ints whose unsigned order is
+     * the Float.compare order: negative values have all bits inverted,
+     * non-negative values have the sign bit set.  NaNs go to the end.
+     */
+    static void sort(float[] a, int fromIndex, int toIndex, boolean parallel) {
+        int end = toIndex;
+        for (int k = toIndex - 1; k >= fromIndex; k--) {
+            float ak = a[k];
+            if (ak != ak) { // a[k] is NaN
+                a[k] = a[--end];
+                a[end] = ak;
+            }
+        }
+        final int n = end - fromIndex, lo = fromIndex;
+        final int chunks = chunkCount(n, parallel);
+        final int[] bits = new int[n];
+        forEachChunk(chunks, c -> {
+            for (int i = chunkStart(c, chunks, n),
+                     e = chunkStart(c + 1, chunks, n); i < e; ++i) {
+                int b = Float.floatToRawIntBits(a[lo + i]);
+                bits[i] = (b < 0) ? ~b : b ^ Integer.MIN_VALUE;
+            }
+        });
+        sort(bits, null, 0, n, 0, parallel);
+        forEachChunk(chunks, c -> {
+            for (int i = chunkStart(c, chunks, n),
+                     e = chunkStart(c + 1, chunks, n); i < e; ++i) {
+                int b = bits[i];
+                a[lo + i] = Float.intBitsToFloat((b < 0) ? b ^ Integer.MIN_VALUE : ~b);
+            }
+        });
+    }
+
+    /**
+     * Sorts double values as for floats, through their long bits.
+     */
+    static void sort(double[] a, int fromIndex, int toIndex, boolean parallel) {
+        int end = toIndex;
+        for (int k = toIndex - 1; k >= fromIndex; k--) {
+            double ak = a[k];
+            if (ak != ak) { // a[k] is NaN
+                a[k] = a[--end];
+                a[end] = ak;
+            }
+        }
+        final int n = end - fromIndex, lo = fromIndex;
+        final int chunks = chunkCount(n, parallel);
+        final long[] bits = new long[n];
+        forEachChunk(chunks, c -> {
+            for (int i = chunkStart(c, chunks, n),
+                     e = chunkStart(c + 1, chunks, n); i < e; ++i) {
+                long b = Double.doubleToRawLongBits(a[lo + i]);
+                bits[i] = (b < 0) ? ~b : b ^ Long.MIN_VALUE;
+            }
+        });
+        sort(bits, null, 0, n, 0L, parallel);
+        forEachChunk(chunks, c -> {
+            for (int i = chunkStart(c, chunks, n),
+                     e = chunkStart(c + 1, chunks, n); i < e; ++i) {
+                long b = bits[i];
+                a[lo + i] = Double.longBitsToDouble((b < 0) ? b ^ Long.MIN_VALUE : ~b);
+            }
+        });
+    }
+
+    /**
+     * Stably sorts objs[fromIndex, toIndex) by the given int keys, which
+     * are parallel to objs.
+     */
+    static void sortByKey(int[] keys, Object[] objs, int fromIndex, int toIndex,
+                          boolean parallel) {
+        int n = toIndex - fromIndex;
+        if (n < INSERTION_SORT_THRESHOLD) {
+            for (int i = fromIndex + 1; i < toIndex; ++i) {
+                int k = keys[i];
+                Object o = objs[i];
+                int j = i - 1;
+                for (; j >= fromIndex && keys[j] > k; --j) {
+                    keys[j + 1] = keys[j];
+                    objs[j + 1] = objs[j];
+                }
+                keys[j + 1] = k;
+                objs[j + 1] = o;
+            }
+        }
+        else
+            sort(keys, objs, fromIndex, n, Integer.MIN_VALUE, parallel);
+    }
+
+    /**
+     * Stably sorts objs[fromIndex, toIndex) by the given long keys, which
+     * are parallel to objs.
+     */
+    static void sortByKey(long[] keys, Object[] objs, int fromIndex, int toIndex,
+                          boolean parallel) {
+        int n = toIndex - fromIndex;
+        if (n < INSERTION_SORT_THRESHOLD) {
+            for (int i = fromIndex + 1; i < toIndex; ++i) {
+                long k = keys[i];
+                Object o = objs[i];
+                int j = i - 1;
+                for (; j >= fromIndex && keys[j] > k; --j) {
+                    keys[j + 1] = keys[j];
+                    objs[j + 1] = objs[j];
+                }
+                keys[j + 1] = k;
+                objs[j + 1] = o;
+            }
+        }
+        else
+            sort(keys, objs, fromIndex, n, Long.MIN_VALUE, parallel);
+    }
+}
@@ -0,0 +1,1727 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.Serializable;
+import java.util.function.BiConsumer;
+
+/**
+ * A B+-tree based {@link NavigableMap} implementation, intended as a
+ * cache-friendlier alternative to {@link TreeMap} for large maps.
+ *
+ * <p>Mappings are held in wide leaf nodes of up to {@value #NODE_SIZE}
+ * keys and values stored in parallel arrays, and leaves are chained in
+ * both directions.  Interior nodes hold only separator keys and child
+ * references.  Compared with the one-{@code Entry}-per-key layout of a
+ * red-black tree, this removes the per-mapping node header and its
+ * parent/left/right/color fields, and lookups touch a handful of
+ * contiguous arrays instead of chasing a pointer per level.  Range scans,
+ * including descending ones, walk the leaf chain and read consecutive
+ * array slots.
+ *
+ * <p>The map is sorted according to the {@linkplain Comparable natural
+ * ordering} of its keys, or by a {@link Comparator} provided at map
+ * creation time, exactly as for {@code TreeMap}, and the same remarks
+ * about consistency with {@code equals} apply.  This implementation
+ * provides guaranteed log(n) time cost for the {@code containsKey},
+ * {@code get}, {@code put} and {@code remove} operations.  Constructing a
+ * map from a {@link SortedMap}, or calling {@link #putAll} on an empty map
+ * with a {@code SortedMap} of the same ordering, bulk-loads the tree
+ * bottom-up in linear time.  The {@code size} of a submap view is
+ * computed by summing leaf counts rather than visiting every mapping.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * The iterators returned by the collection views are <em>fail-fast</em>
+ * as described for {@code TreeMap}.  All {@code Map.Entry} pairs returned
+ * by methods in this class and its views represent snapshots of mappings
+ * at the time they were produced and do not support
+ * {@code Entry.setValue}, except for entries returned by entry-set
+ * iterators, which write through to the map.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ *
+ * @see TreeMap
+ * @see BTreeSet
+ * @since 1.8
+ */
+public class BTreeMap<K,V>
+    extends AbstractMap<K,V>
+    implements NavigableMap<K,V>, Cloneable, Serializable
+{
+    private static final long serialVersionUID = 5873471390162712385L;
+
+    /**
+     * Maximum number of keys in a leaf and of children in an interior
+     * node.  Must be even and at least 4.
+     */
+    static final int NODE_SIZE = 64;
+
+    /**
+     * Minimum occupancy of a non-root node; below this a node borrows
+     * from or merges with a sibling.
+     */
+    static final int MIN_SIZE = NODE_SIZE / 2;
+
+    /**
+     * The comparator used to maintain order in this map, or null if it
+     * uses the natural ordering of its keys.
+     *
+     * @serial
+     */
+    private final Comparator<? super K> comparator;
+
+    /**
+     * Root node, or null if the map is empty.
+     */
+    private transient Node root;
+
+    /**
+     * First and last leaves in key order.
+     */
+    private transient Leaf first, last;
+
+    /**
+     * Number of levels above the leaves.
+     */
+    private transient int height;
+
+    /**
+     * The number of entries in the tree.
+     */
+    private transient int size = 0;
+
+    /**
+     * The number of structural modifications to the tree.
+     */
+    private transient int modCount = 0;
+
+    /**
+     * Constructs a new, empty map, using the natural ordering of its
+     * keys.  All keys inserted into the map must implement the
+     * {@link Comparable} interface and be mutually comparable.
+     */
+    public BTreeMap() {
+        comparator = null;
+    }
+
+    /**
+     * Constructs a new, empty map, ordered according to the given
+     * comparator.
+     *
+     * @param comparator the comparator that will be used to order this map.
+     *        If {@code null}, the {@linkplain Comparable natural
+     *        ordering} of the keys will be used.
+     */
+    public BTreeMap(Comparator<? super K> comparator) {
+        this.comparator = comparator;
+    }
+
+    /**
+     * Constructs a new map containing the same mappings as the given
+     * map, ordered according to the natural ordering of its keys.
+     *
+     * @param  m the map whose mappings are to be placed in this map
+     * @throws ClassCastException if the keys in m are not {@link Comparable},
+     *         or are not mutually comparable
+     * @throws NullPointerException if the specified map is null
+     */
+    public BTreeMap(Map<? extends K, ? extends V> m) {
+        comparator = null;
+        putAll(m);
+    }
+
+    /**
+     * Constructs a new map containing the same mappings and using the
+     * same ordering as the specified sorted map.  The tree is bulk-loaded
+     * in linear time.
+     *
+     * @param  m the sorted map whose mappings are to be placed in this map,
+     *         and whose comparator is to be used to sort this map
+     * @throws NullPointerException if the specified map is null
+     */
+    public BTreeMap(SortedMap<K, ? extends V> m) {
+        comparator = m.comparator();
+        buildFromSorted(m.size(), m.entrySet().iterator());
+    }
+
+    /* ---------------- Nodes -------------- */
+
+    /**
+     * Tree node.  In a leaf, {@code n} is the number of keys; in an
+     * interior node it is the number of children, and {@code keys[i]} is
+     * a separator no greater than any key under {@code kids[i + 1]} and
+     * greater than every key under {@code kids[i]}.
+     */
+    abstract static class Node {
+        final Object[] keys;
+        int n;
+
+        Node(int keyCapacity) {
+            keys = new Object[keyCapacity];
+        }
+    }
+
+    static final class Leaf extends Node {
+        final Object[] vals = new Object[NODE_SIZE];
+        Leaf prev, next;
+
+        Leaf() {
+            super(NODE_SIZE);
+        }
+    }
+
+    static final class Inner extends Node {
+        final Node[] kids = new Node[NODE_SIZE];
+
+        Inner() {
+            super(NODE_SIZE - 1);
+        }
+    }
+
+    /**
+     * Position of a mapping: a leaf and an index into it.
+     */
+    static final class Cursor {
+        Leaf leaf;
+        int index;
+
+        Cursor(Leaf leaf, int index) {
+            this.leaf = leaf;
+            this.index = index;
+        }
+
+        Object key() {
+            return leaf.keys[index];
+        }
+
+        /** Moves to the next mapping; returns false at the end. */
+        boolean advance() {
+            if (++index < leaf.n)
+                return true;
+            Leaf l = leaf.next;
+            if (l == null)
+                return false;
+            leaf = l;
+            index = 0;
+            return true;
+        }
+
+        /** Moves to the previous mapping; returns false at the start. */
+        boolean retreat() {
+            if (--index >= 0)
+                return true;
+            Leaf l = leaf.prev;
+            if (l == null)
+                return false;
+            leaf = l;
+            index = l.n - 1;
+            return true;
+        }
+    }
+
+    /* ---------------- Comparison and search -------------- */
+
+    /**
+     * Compares two keys using the correct comparison method for this map.
+     */
+    @SuppressWarnings("unchecked")
+    final int compare(Object k1, Object k2) {
+        return comparator == null ? ((Comparable<? super K>)k1).compareTo((K)k2)
+            : comparator.compare((K)k1, (K)k2);
+    }
+
+    /**
+     * Binary search over {@code keys[0, len)}; returns the index of the
+     * key, or {@code -(insertion point) - 1}.
+     */
+    @SuppressWarnings("unchecked")
+    final int search(Object[] keys, int len, Object key) {
+        int lo = 0, hi = len - 1;
+        Comparator<? super K> cpr = comparator;
+        if (cpr == null) {
+            if (key == null)
+                throw new NullPointerException();
+            Comparable<? super K> k = (Comparable<? super K>) key;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int c = k.compareTo((K)keys[mid]);
+                if (c > 0)
+                    lo = mid + 1;
+                else if (c < 0)
+                    hi = mid - 1;
+                else
+                    return mid;
+            }
+        }
+        else {
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int c = cpr.compare((K)key, (K)keys[mid]);
+                if (c > 0)
+                    lo = mid + 1;
+                else if (c < 0)
+                    hi = mid - 1;
+                else
+                    return mid;
+            }
+        }
+        return -(lo + 1);
+    }
+
+    /**
+     * Returns the index of the child of {@code x} whose range holds key.
+     */
+    final int childIndex(Inner x, Object key) {
+        int i = search(x.keys, x.n - 1, key);
+        return (i >= 0) ? i + 1 : -i - 1;
+    }
+
+    /**
+     * Returns the leaf whose range holds the key, or null if empty.
+     */
+    final Leaf leafFor(Object key) {
+        Node x = root;
+        if (x == null) {
+            if (key == null && comparator == null)
+                throw new NullPointerException();
+            return null;
+        }
+        for (int h = height; h > 0; --h) {
+            Inner in = (Inner)x;
+            x = in.kids[childIndex(in, key)];
+        }
+        return (Leaf)x;
+    }
+
+    static final int CEILING = 0, HIGHER = 1, FLOOR = 2, LOWER = 3;
+
+    /**
+     * Returns the cursor for the mapping with the least key greater
+     * than or equal to (CEILING), greater than (HIGHER), or the greatest
+     * key less than or equal to (FLOOR), less than (LOWER) the given key;
+     * or null if there is no such mapping.
+     */
+    final Cursor seek(Object key, int rel) {
+        Leaf l = leafFor(key);
+        if (l == null)
+            return null;
+        int i = search(l.keys, l.n, key);
+        if (i >= 0) {
+            if (rel == CEILING || rel == FLOOR)
+                return new Cursor(l, i);
+            if (rel == HIGHER)
+                ++i;
+            else
+                --i;
+        }
+        else {
+            i = -i - 1;
+            if (rel == FLOOR || rel == LOWER)
+                --i;
+        }
+        if (i >= l.n) {
+            if ((l = l.next) == null)
+                return null;
+            i = 0;
+        }
+        else if (i < 0) {
+            if ((l = l.prev) == null)
+                return null;
+            i = l.n - 1;
+        }
+        return new Cursor(l, i);
+    }
+
+    final Cursor firstCursor() {
+        return (first == null) ? null : new Cursor(first, 0);
+    }
+
+    final Cursor lastCursor() {
+        Leaf l = last;
+        return (l == null) ? null : new Cursor(l, l.n - 1);
+    }
+
+    /**
+     * Returns the number of mappings from {@code a} through {@code b}
+     * inclusive, walking leaf counts rather than mappings.
+     */
+    static int countBetween(Cursor a, Cursor b) {
+        if (a.leaf == b.leaf)
+            return Math.max(0, b.index - a.index + 1);
+        int n = a.leaf.n - a.index;
+        for (Leaf l = a.leaf.next; l != b.leaf; l = l.next)
+            n += l.n;
+        return n + b.index + 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    final Map.Entry<K,V> exportEntry(Cursor c) {
+        return (c == null) ? null :
+            new AbstractMap.SimpleImmutableEntry<>((K)c.leaf.keys[c.index],
+                                                   (V)c.leaf.vals[c.index]);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K> K keyOrNull(Cursor c) {
+        return (c == null) ? null : (K)c.key();
+    }
+
+    static <K> K key(Cursor c) {
+        if (c == null)
+            throw new NoSuchElementException();
+        @SuppressWarnings("unchecked") K k = (K)c.key();
+        return k;
+    }
+
+    /* ---------------- Query operations -------------- */
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the
+     * specified key.
+     *
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public boolean containsKey(Object key) {
+        Leaf l = leafFor(key);
+        return l != null && search(l.keys, l.n, key) >= 0;
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * specified value.  This operation scans the leaves in order.
+     */
+    public boolean containsValue(Object value) {
+        for (Leaf l = first; l != null; l = l.next) {
+            for (int i = 0; i < l.n; ++i)
+                if (Objects.equals(value, l.vals[i]))
+                    return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code null} if this map contains no mapping for the key.
+     *
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        Leaf l = leafFor(key);
+        int i;
+        return (l != null && (i = search(l.keys, l.n, key)) >= 0) ?
+            (V)l.vals[i] : null;
+    }
+
+    public Comparator<? super K> comparator() {
+        return comparator;
+    }
+
+    /**
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public K firstKey() {
+        return key(firstCursor());
+    }
+
+    /**
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public K lastKey() {
+        return key(lastCursor());
+    }
+
+    /* ---------------- Modification -------------- */
+
+    /**
+     * Path of interior nodes and child indices from the last descent,
+     * reused by {@link #put} and {@link #remove} to rebalance upwards.
+     */
+    private transient Inner[] pathNodes;
+    private transient int[] pathIndex;
+
+    /**
+     * Descends to the leaf for key, recording the path.
+     */
+    private Leaf descend(Object key) {
+        int h = height;
+        if (pathNodes == null || pathNodes.length < h) {
+            pathNodes = new Inner[h + 4];
+            pathIndex = new int[h + 4];
+        }
+        Node x = root;
+        for (int d = 0; d < h; ++d) {
+            Inner in = (Inner)x;
+            int c = childIndex(in, key);
+            pathNodes[d] = in;
+            pathIndex[d] = c;
+            x = in.kids[c];
+        }
+        return (Leaf)x;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     *
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}.
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        if (root == null) {
+            compare(key, key); // type (and possibly null) check
+            Leaf l = new Leaf();
+            l.keys[0] = key;
+            l.vals[0] = value;
+            l.n = 1;
+            root = first = last = l;
+            height = 0;
+            size = 1;
+            modCount++;
+            return null;
+        }
+        Leaf l = descend(key);
+        int i = search(l.keys, l.n, key);
+        if (i >= 0) {
+            Object old = l.vals[i];
+            l.vals[i] = value;
+            return (V)old;
+        }
+        insert(l, -i - 1, key, value);
+        return null;
+    }
+
+    /**
+     * Inserts a new mapping at index {@code i} of leaf {@code l}, reached
+     * by the last {@link #descend}, splitting nodes upwards as needed.
+     */
+    private void insert(Leaf l, int i, Object key, Object value) {
+        size++;
+        modCount++;
+        if (l.n < NODE_SIZE) {
+            insertAt(l, i, key, value);
+            return;
+        }
+        // split the full leaf in half
+        Leaf r = new Leaf();
+        int h = NODE_SIZE / 2;
+        System.arraycopy(l.keys, h, r.keys, 0, NODE_SIZE - h);
+        System.arraycopy(l.vals, h, r.vals, 0, NODE_SIZE - h);
+        Arrays.fill(l.keys, h, NODE_SIZE, null);
+        Arrays.fill(l.vals, h, NODE_SIZE, null);
+        r.n = NODE_SIZE - h;
+        l.n = h;
+        if ((r.next = l.next) != null)
+            r.next.prev = r;
+        else
+            last = r;
+        r.prev = l;
+        l.next = r;
+        if (i <= h)
+            insertAt(l, i, key, value);
+        else
+            insertAt(r, i - h, key, value);
+
+        Object sep = r.keys[0];
+        Node right = r;
+        for (int d = height - 1; d >= 0; --d) {
+            Inner p = pathNodes[d];
+            int c = pathIndex[d];
+            if (p.n < NODE_SIZE) {
+                insertChild(p, c, sep, right);
+                return;
+            }
+            // split full interior node around the new child
+            Object[] ks = new Object[NODE_SIZE];
+            Node[] cs = new Node[NODE_SIZE + 1];
+            System.arraycopy(p.keys, 0, ks, 0, c);
+            ks[c] = sep;
+            System.arraycopy(p.keys, c, ks, c + 1, NODE_SIZE - 1 - c);
+            System.arraycopy(p.kids, 0, cs, 0, c + 1);
+            cs[c + 1] = right;
+            System.arraycopy(p.kids, c + 1, cs, c + 2, NODE_SIZE - 1 - c);
+            int lk = (NODE_SIZE + 1) / 2; // children kept on the left
+            Inner q = new Inner();
+            Arrays.fill(p.keys, null);
+            Arrays.fill(p.kids, null);
+            System.arraycopy(ks, 0, p.keys, 0, lk - 1);
+            System.arraycopy(cs, 0, p.kids, 0, lk);
+            p.n = lk;
+            sep = ks[lk - 1];
+            System.arraycopy(ks, lk, q.keys, 0, NODE_SIZE - lk);
+            System.arraycopy(cs, lk, q.kids, 0, NODE_SIZE + 1 - lk);
+            q.n = NODE_SIZE + 1 - lk;
+            right = q;
+        }
+        Inner nr = new Inner();
+        nr.kids[0] = root;
+        nr.kids[1] = right;
+        nr.keys[0] = sep;
+        nr.n = 2;
+        root = nr;
+        height++;
+    }
+
+    private static void insertAt(Leaf l, int i, Object key, Object value) {
+        int n = l.n;
+        System.arraycopy(l.keys, i, l.keys, i + 1, n - i);
+        System.arraycopy(l.vals, i, l.vals, i + 1, n - i);
+        l.keys[i] = key;
+        l.vals[i] = value;
+        l.n = n + 1;
+    }
+
+    /**
+     * Inserts child {@code x} after child {@code c} of {@code p}, with
+     * separator {@code sep}.
+     */
+    private static void insertChild(Inner p, int c, Object sep, Node x) {
+        int n = p.n;
+        System.arraycopy(p.keys, c, p.keys, c + 1, n - 1 - c);
+        System.arraycopy(p.kids, c + 1, p.kids, c + 2, n - 1 - c);
+        p.keys[c] = sep;
+        p.kids[c + 1] = x;
+        p.n = n + 1;
+    }
+
+    /**
+     * Removes the mapping for this key from this map if present.
+     *
+     * @param  key key for which mapping should be removed
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}.
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        if (root == null) {
+            if (key == null && comparator == null)
+                throw new NullPointerException();
+            return null;
+        }
+        Leaf l = descend(key);
+        int i = search(l.keys, l.n, key);
+        if (i < 0)
+            return null;
+        Object old = l.vals[i];
+        delete(l, i);
+        return (V)old;
+    }
+
+    /**
+     * Deletes index {@code i} of leaf {@code l}, reached by the last
+     * {@link #descend}, rebalancing upwards as needed.
+     */
+    private void delete(Leaf l, int i) {
+        size--;
+        modCount++;
+        int n = --l.n;
+        System.arraycopy(l.keys, i + 1, l.keys, i, n - i);
+        System.arraycopy(l.vals, i + 1, l.vals, i, n - i);
+        l.keys[n] = null;
+        l.vals[n] = null;
+
+        Node x = l;
+        for (int d = height - 1; d >= 0 && x.n < MIN_SIZE; --d) {
+            Inner p = pathNodes[d];
+            int c = pathIndex[d];
+            if (x instanceof Leaf)
+                rebalanceLeaf(p, c, (Leaf)x);
+            else
+                rebalanceInner(p, c, (Inner)x);
+            x = p;
+        }
+        Node r = root;
+        if (height > 0 && r.n == 1) {
+            root = ((Inner)r).kids[0];
+            height--;
+        }
+        else if (height == 0 && r.n == 0)
+            root = first = last = null;
+    }
+
+    private void rebalanceLeaf(Inner p, int c, Leaf x) {
+        Leaf left = (c > 0) ? (Leaf)p.kids[c - 1] : null;
+        Leaf right = (c < p.n - 1) ? (Leaf)p.kids[c + 1] : null;
+        if (left != null && left.n > MIN_SIZE) {
+            int ln = --left.n;
+            insertAt(x, 0, left.keys[ln], left.vals[ln]);
+            left.keys[ln] = left.vals[ln] = null;
+            p.keys[c - 1] = x.keys[0];
+        }
+        else if (right != null && right.n > MIN_SIZE) {
+            x.keys[x.n] = right.keys[0];
+            x.vals[x.n++] = right.vals[0];
+            int rn = --right.n;
+            System.arraycopy(right.keys, 1, right.keys, 0, rn);
+            System.arraycopy(right.vals, 1, right.vals, 0, rn);
+            right.keys[rn] = right.vals[rn] = null;
+            p.keys[c] = right.keys[0];
+        }
+        else if (left != null) {
+            mergeLeaves(left, x);
+            removeChild(p, c);
+        }
+        else if (right != null) {
+            mergeLeaves(x, right);
+            removeChild(p, c + 1);
+        }
+    }
+
+    /**
+     * Appends the contents of leaf {@code b} to its predecessor {@code a}
+     * and unlinks {@code b}.
+     */
+    private void mergeLeaves(Leaf a, Leaf b) {
+        System.arraycopy(b.keys, 0, a.keys, a.n, b.n);
+        System.arraycopy(b.vals, 0, a.vals, a.n, b.n);
+        a.n += b.n;
+        if ((a.next = b.next) != null)
+            a.next.prev = a;
+        else
+            last = a;
+    }
+
+    private static void rebalanceInner(Inner p, int c, Inner x) {
+        Inner left = (c > 0) ? (Inner)p.kids[c - 1] : null;
+        Inner right = (c < p.n - 1) ? (Inner)p.kids[c + 1] : null;
+        if (left != null && left.n > MIN_SIZE) {
+            int n = x.n;
+            System.arraycopy(x.keys, 0, x.keys, 1, n - 1);
+            System.arraycopy(x.kids, 0, x.kids, 1, n);
+            x.keys[0] = p.keys[c - 1];
+            x.kids[0] = left.kids[left.n - 1];
+            x.n = n + 1;
+            p.keys[c - 1] = left.keys[left.n - 2];
+            left.keys[left.n - 2] = null;
+            left.kids[--left.n] = null;
+        }
+        else if (right != null && right.n > MIN_SIZE) {
+            x.keys[x.n - 1] = p.keys[c];
+            x.kids[x.n++] = right.kids[0];
+            p.keys[c] = right.keys[0];
+            int rn = --right.n;
+            System.arraycopy(right.keys, 1, right.keys, 0, rn - 1);
+            System.arraycopy(right.kids, 1, right.kids, 0, rn);
+            right.keys[rn - 1] = null;
+            right.kids[rn] = null;
+        }
+        else if (left != null) {
+            mergeInner(left, p.keys[c - 1], x);
+            removeChild(p, c);
+        }
+        else if (right != null) {
+            mergeInner(x, p.keys[c], right);
+            removeChild(p, c + 1);
+        }
+    }
+
+    private static void mergeInner(Inner a, Object sep, Inner b) {
+        int n = a.n;
+        a.keys[n - 1] = sep;
+        System.arraycopy(b.keys, 0, a.keys, n, b.n - 1);
+        System.arraycopy(b.kids, 0, a.kids, n, b.n);
+        a.n = n + b.n;
+    }
+
+    /**
+     * Removes child {@code c} (c > 0) and the separator to its left.
+     */
+    private static void removeChild(Inner p, int c) {
+        int n = --p.n;
+        System.arraycopy(p.keys, c, p.keys, c - 1, n - c);
+        System.arraycopy(p.kids, c + 1, p.kids, c, n - c);
+        p.keys[n - 1] = null;
+        p.kids[n] = null;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     */
+    public void clear() {
+        modCount++;
+        size = 0;
+        height = 0;
+        root = first = last = null;
+        pathNodes = null;
+        pathIndex = null;
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this map.
+     * If this map is empty and the specified map is a {@code SortedMap}
+     * with the same ordering, the tree is bulk-loaded in linear time.
+     *
+     * @param  map mappings to be stored in this map
+     * @throws ClassCastException if the class of a key or value in
+     *         the specified map prevents it from being stored in this map
+     * @throws NullPointerException if the specified map is null or
+     *         the specified map contains a null key and this map does not
+     *         permit null keys
+     */
+    public void putAll(Map<? extends K, ? extends V> map) {
+        int mapSize = map.size();
+        if (size == 0 && mapSize != 0 && map instanceof SortedMap) {
+            Comparator<?> c = ((SortedMap<?,?>)map).comparator();
+            if (c == comparator || (c != null && c.equals(comparator))) {
+                ++modCount;
+                buildFromSorted(mapSize, map.entrySet().iterator());
+                return;
+            }
+        }
+        super.putAll(map);
+    }
+
+    /**
+     * Bulk-loads the tree from {@code n} entries in ascending key order,
+     * filling leaves evenly and building interior levels bottom-up.
+     * {@code it} yields either {@code Map.Entry}s or, for sets, keys, in
+     * which case {@code defaultVal} is used as every value.
+     */
+    @SuppressWarnings("unchecked")
+    final void buildFromSorted(int n, Iterator<?> it, java.io.ObjectInputStream str,
+                               V defaultVal)
+        throws IOException, ClassNotFoundException {
+        root = first = last = null;
+        height = 0;
+        size = 0;
+        if (n <= 0)
+            return;
+        int nodes = (n + NODE_SIZE - 1) / NODE_SIZE;
+        Node[] level = new Node[nodes];
+        Object[] mins = new Object[nodes];
+        Leaf prev = null;
+        for (int j = 0, done = 0; j < nodes; ++j) {
+            Leaf l = new Leaf();
+            int cnt = (n - done) / (nodes - j);
+            for (int i = 0; i < cnt; ++i) {
+                Object key, value;
+                if (it != null) {
+                    Object e = it.next();
+                    if (defaultVal == null) {
+                        Map.Entry<?,?> entry = (Map.Entry<?,?>)e;
+                        key = entry.getKey();
+                        value = entry.getValue();
+                    } else {
+                        key = e;
+                        value = defaultVal;
+                    }
+                } else { // use stream
+                    key = str.readObject();
+                    value = (defaultVal != null ? defaultVal : str.readObject());
+                }
+                l.keys[i] = key;
+                l.vals[i] = value;
+            }
+            l.n = cnt;
+            done += cnt;
+            if ((l.prev = prev) != null)
+                prev.next = l;
+            else
+                first = l;
+            prev = l;
+            level[j] = l;
+            mins[j] = l.keys[0];
+        }
+        last = prev;
+        while (nodes > 1) {
+            int parents = (nodes + NODE_SIZE - 1) / NODE_SIZE;
+            Node[] up = new Node[parents];
+            Object[] upMins = new Object[parents];
+            for (int j = 0, done = 0; j < parents; ++j) {
+                Inner in = new Inner();
+                int cnt = (nodes - done) / (parents - j);
+                for (int i = 0; i < cnt; ++i) {
+                    in.kids[i] = level[done + i];
+                    if (i > 0)
+                        in.keys[i - 1] = mins[done + i];
+                }
+                in.n = cnt;
+                up[j] = in;
+                upMins[j] = mins[done];
+                done += cnt;
+            }
+            level = up;
+            mins = upMins;
+            nodes = parents;
+            height++;
+        }
+        root = level[0];
+        size = n;
+    }
+
+    private void buildFromSorted(int n, Iterator<?> it) {
+        try {
+            buildFromSorted(n, it, null, null);
+        } catch (IOException | ClassNotFoundException cannotHappen) {
+        }
+    }
+
+    /* ---------------- Navigation -------------- */
+
+    public Map.Entry<K,V> firstEntry() {
+        return exportEntry(firstCursor());
+    }
+
+    public Map.Entry<K,V> lastEntry() {
+        return exportEntry(lastCursor());
+    }
+
+    public Map.Entry<K,V> pollFirstEntry() {
+        Map.Entry<K,V> result = firstEntry();
+        if (result != null)
+            remove(result.getKey());
+        return result;
+    }
+
+    public Map.Entry<K,V> pollLastEntry() {
+        Map.Entry<K,V> result = lastEntry();
+        if (result != null)
+            remove(result.getKey());
+        return result;
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public Map.Entry<K,V> lowerEntry(K key) {
+        return exportEntry(seek(key, LOWER));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public K lowerKey(K key) {
+        return keyOrNull(seek(key, LOWER));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public Map.Entry<K,V> floorEntry(K key) {
+        return exportEntry(seek(key, FLOOR));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public K floorKey(K key) {
+        return keyOrNull(seek(key, FLOOR));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public Map.Entry<K,V> ceilingEntry(K key) {
+        return exportEntry(seek(key, CEILING));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public K ceilingKey(K key) {
+        return keyOrNull(seek(key, CEILING));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public Map.Entry<K,V> higherEntry(K key) {
+        return exportEntry(seek(key, HIGHER));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public K higherKey(K key) {
+        return keyOrNull(seek(key, HIGHER));
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        Objects.requireNonNull(action);
+        int expectedModCount = modCount;
+        for (Leaf l = first; l != null; l = l.next) {
+            for (int i = 0; i < l.n; ++i)
+                action.accept((K)l.keys[i], (V)l.vals[i]);
+            if (expectedModCount != modCount)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    /* ---------------- Views -------------- */
+
+    private transient NavigableMap<K,V> fullView;
+
+    /**
+     * Returns the view covering the whole map, which implements the
+     * collection views and descending map.
+     */
+    private NavigableMap<K,V> fullView() {
+        NavigableMap<K,V> v = fullView;
+        return (v != null) ? v : (fullView =
+            new SubMap<>(this, true, null, true, true, null, true, false));
+    }
+
+    /**
+     * Returns a {@link Set} view of the keys contained in this map, in
+     * ascending order.
+     */
+    public Set<K> keySet() {
+        return navigableKeySet();
+    }
+
+    public NavigableSet<K> navigableKeySet() {
+        return fullView().navigableKeySet();
+    }
+
+    public NavigableSet<K> descendingKeySet() {
+        return descendingMap().navigableKeySet();
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in this
+     * map, in ascending order of the corresponding keys.
+     */
+    public Collection<V> values() {
+        return fullView().values();
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map,
+     * in ascending key order.  Entries returned by its iterator support
+     * {@code setValue}.
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        return fullView().entrySet();
+    }
+
+    public NavigableMap<K, V> descendingMap() {
+        return fullView().descendingMap();
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} or {@code toKey} is
+     *         null and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public NavigableMap<K,V> subMap(K fromKey, boolean fromInclusive,
+                                    K toKey,   boolean toInclusive) {
+        return new SubMap<>(this,
+                            false, fromKey, fromInclusive,
+                            false, toKey,   toInclusive, false);
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code toKey} is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public NavigableMap<K,V> headMap(K toKey, boolean inclusive) {
+        return new SubMap<>(this,
+                            true,  null,  true,
+                            false, toKey, inclusive, false);
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public NavigableMap<K,V> tailMap(K fromKey, boolean inclusive) {
+        return new SubMap<>(this,
+                            false, fromKey, inclusive,
+                            true,  null,    true, false);
+    }
+
+    public SortedMap<K,V> subMap(K fromKey, K toKey) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    public SortedMap<K,V> headMap(K toKey) {
+        return headMap(toKey, false);
+    }
+
+    public SortedMap<K,V> tailMap(K fromKey) {
+        return tailMap(fromKey, true);
+    }
+
+    /**
+     * A bounded and optionally descending view of the map.  Bounds are
+     * kept in ascending terms; the {@code abs*} methods answer in
+     * ascending terms and the {@code NavigableMap} methods swap them when
+     * the view is descending.
+     */
+    static final class SubMap<K,V> extends AbstractMap<K,V>
+        implements NavigableMap<K,V>, Serializable {
+        private static final long serialVersionUID = -6520786458950516097L;
+
+        final BTreeMap<K,V> m;
+        final K lo, hi;
+        final boolean fromStart, toEnd;
+        final boolean loInclusive, hiInclusive;
+        final boolean descending;
+
+        SubMap(BTreeMap<K,V> m,
+               boolean fromStart, K lo, boolean loInclusive,
+               boolean toEnd,     K hi, boolean hiInclusive,
+               boolean descending) {
+            if (!fromStart && !toEnd) {
+                if (m.compare(lo, hi) > 0)
+                    throw new IllegalArgumentException("fromKey > toKey");
+            } else {
+                if (!fromStart) // type check
+                    m.compare(lo, lo);
+                if (!toEnd)
+                    m.compare(hi, hi);
+            }
+            this.m = m;
+            this.fromStart = fromStart;
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.toEnd = toEnd;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+            this.descending = descending;
+        }
+
+        /* ----- range checks ----- */
+
+        final boolean tooLow(Object key) {
+            if (!fromStart) {
+                int c = m.compare(key, lo);
+                if (c < 0 || (c == 0 && !loInclusive))
+                    return true;
+            }
+            return false;
+        }
+
+        final boolean tooHigh(Object key) {
+            if (!toEnd) {
+                int c = m.compare(key, hi);
+                if (c > 0 || (c == 0 && !hiInclusive))
+                    return true;
+            }
+            return false;
+        }
+
+        final boolean inRange(Object key) {
+            return !tooLow(key) && !tooHigh(key);
+        }
+
+        final boolean inClosedRange(Object key) {
+            return (fromStart || m.compare(key, lo) >= 0)
+                && (toEnd || m.compare(hi, key) >= 0);
+        }
+
+        final boolean inRange(Object key, boolean inclusive) {
+            return inclusive ? inRange(key) : inClosedRange(key);
+        }
+
+        /* ----- absolute (ascending) navigation ----- */
+
+        final Cursor absLowest() {
+            Cursor c = fromStart ? m.firstCursor() :
+                m.seek(lo, loInclusive ? CEILING : HIGHER);
+            return (c == null || tooHigh(c.key())) ? null : c;
+        }
+
+        final Cursor absHighest() {
+            Cursor c = toEnd ? m.lastCursor() :
+                m.seek(hi, hiInclusive ? FLOOR : LOWER);
+            return (c == null || tooLow(c.key())) ? null : c;
+        }
+
+        final Cursor absCeiling(Object key) {
+            if (tooLow(key))
+                return absLowest();
+            Cursor c = m.seek(key, CEILING);
+            return (c == null || tooHigh(c.key())) ? null : c;
+        }
+
+        final Cursor absHigher(Object key) {
+            if (tooLow(key))
+                return absLowest();
+            Cursor c = m.seek(key, HIGHER);
+            return (c == null || tooHigh(c.key())) ? null : c;
+        }
+
+        final Cursor absFloor(Object key) {
+            if (tooHigh(key))
+                return absHighest();
+            Cursor c = m.seek(key, FLOOR);
+            return (c == null || tooLow(c.key())) ? null : c;
+        }
+
+        final Cursor absLower(Object key) {
+            if (tooHigh(key))
+                return absHighest();
+            Cursor c = m.seek(key, LOWER);
+            return (c == null || tooLow(c.key())) ? null : c;
+        }
+
+        /* ----- relative (view-order) navigation ----- */
+
+        final Cursor lowest()  { return descending ? absHighest() : absLowest(); }
+        final Cursor highest() { return descending ? absLowest() : absHighest(); }
+        final Cursor ceiling(Object k) { return descending ? absFloor(k) : absCeiling(k); }
+        final Cursor higher(Object k)  { return descending ? absLower(k) : absHigher(k); }
+        final Cursor floor(Object k)   { return descending ? absCeiling(k) : absFloor(k); }
+        final Cursor lower(Object k)   { return descending ? absHigher(k) : absLower(k); }
+
+        /* ----- Map methods ----- */
+
+        public boolean isEmpty() {
+            return (fromStart && toEnd) ? m.isEmpty() : absLowest() == null;
+        }
+
+        public int size() {
+            if (fromStart && toEnd)
+                return m.size();
+            Cursor a = absLowest(), b;
+            return (a == null || (b = absHighest()) == null) ? 0 :
+                countBetween(a, b);
+        }
+
+        public final boolean containsKey(Object key) {
+            return inRange(key) && m.containsKey(key);
+        }
+
+        public final V put(K key, V value) {
+            if (!inRange(key))
+                throw new IllegalArgumentException("key out of range");
+            return m.put(key, value);
+        }
+
+        public final V get(Object key) {
+            return !inRange(key) ? null :  m.get(key);
+        }
+
+        public final V remove(Object key) {
+            return !inRange(key) ? null : m.remove(key);
+        }
+
+        public void clear() {
+            if (fromStart && toEnd) {
+                m.clear();
+                return;
+            }
+            for (Iterator<K> it = keyIterator(false); it.hasNext(); ) {
+                it.next();
+                it.remove();
+            }
+        }
+
+        public Comparator<? super K> comparator() {
+            Comparator<? super K> cmp = m.comparator();
+            if (!descending)
+                return cmp;
+            return (cmp == null) ? Collections.reverseOrder() :
+                Collections.reverseOrder(cmp);
+        }
+
+        public final K firstKey() { return key(lowest()); }
+        public final K lastKey()  { return key(highest()); }
+        public final Map.Entry<K,V> firstEntry() { return m.exportEntry(lowest()); }
+        public final Map.Entry<K,V> lastEntry()  { return m.exportEntry(highest()); }
+        public final Map.Entry<K,V> ceilingEntry(K key) { return m.exportEntry(ceiling(key)); }
+        public final K ceilingKey(K key) { return keyOrNull(ceiling(key)); }
+        public final Map.Entry<K,V> higherEntry(K key) { return m.exportEntry(higher(key)); }
+        public final K higherKey(K key) { return keyOrNull(higher(key)); }
+        public final Map.Entry<K,V> floorEntry(K key) { return m.exportEntry(floor(key)); }
+        public final K floorKey(K key) { return keyOrNull(floor(key)); }
+        public final Map.Entry<K,V> lowerEntry(K key) { return m.exportEntry(lower(key)); }
+        public final K lowerKey(K key) { return keyOrNull(lower(key)); }
+
+        public final Map.Entry<K,V> pollFirstEntry() {
+            Map.Entry<K,V> result = firstEntry();
+            if (result != null)
+                m.remove(result.getKey());
+            return result;
+        }
+
+        public final Map.Entry<K,V> pollLastEntry() {
+            Map.Entry<K,V> result = lastEntry();
+            if (result != null)
+                m.remove(result.getKey());
+            return result;
+        }
+
+        /* ----- views ----- */
+
+        transient KeySet<K> navigableKeySetView;
+        transient Set<Map.Entry<K,V>> entrySetView;
+        transient Collection<V> valuesView;
+        transient NavigableMap<K,V> descendingMapView;
+
+        public final NavigableSet<K> navigableKeySet() {
+            KeySet<K> nksv = navigableKeySetView;
+            return (nksv != null) ? nksv :
+                (navigableKeySetView = new KeySet<>(this));
+        }
+
+        public final Set<K> keySet() {
+            return navigableKeySet();
+        }
+
+        public NavigableSet<K> descendingKeySet() {
+            return descendingMap().navigableKeySet();
+        }
+
+        public Collection<V> values() {
+            Collection<V> vs = valuesView;
+            return (vs != null) ? vs : (valuesView = new AbstractCollection<V>() {
+                public Iterator<V> iterator() { return valueIterator(); }
+                public int size() { return SubMap.this.size(); }
+                public boolean isEmpty() { return SubMap.this.isEmpty(); }
+                public void clear() { SubMap.this.clear(); }
+                public Spliterator<V> spliterator() {
+                    return Spliterators.spliterator(this, Spliterator.ORDERED);
+                }
+            });
+        }
+
+        public Set<Map.Entry<K,V>> entrySet() {
+            Set<Map.Entry<K,V>> es = entrySetView;
+            return (es != null) ? es : (entrySetView = new EntrySetView());
+        }
+
+        public NavigableMap<K,V> descendingMap() {
+            NavigableMap<K,V> mv = descendingMapView;
+            return (mv != null) ? mv :
+                (descendingMapView =
+                 new SubMap<>(m, fromStart, lo, loInclusive,
+                              toEnd, hi, hiInclusive, !descending));
+        }
+
+        public NavigableMap<K,V> subMap(K fromKey, boolean fromInclusive,
+                                        K toKey,   boolean toInclusive) {
+            if (descending) {
+                K t = fromKey; fromKey = toKey; toKey = t;
+                boolean b = fromInclusive; fromInclusive = toInclusive; toInclusive = b;
+            }
+            if (!inRange(fromKey, fromInclusive))
+                throw new IllegalArgumentException("fromKey out of range");
+            if (!inRange(toKey, toInclusive))
+                throw new IllegalArgumentException("toKey out of range");
+            return new SubMap<>(m, false, fromKey, fromInclusive,
+                                false, toKey, toInclusive, descending);
+        }
+
+        public NavigableMap<K,V> headMap(K toKey, boolean inclusive) {
+            if (!inRange(toKey, inclusive))
+                throw new IllegalArgumentException("toKey out of range");
+            return descending ?
+                new SubMap<>(m, false, toKey, inclusive,
+                             toEnd, hi, hiInclusive, true) :
+                new SubMap<>(m, fromStart, lo, loInclusive,
+                             false, toKey, inclusive, false);
+        }
+
+        public NavigableMap<K,V> tailMap(K fromKey, boolean inclusive) {
+            if (!inRange(fromKey, inclusive))
+                throw new IllegalArgumentException("fromKey out of range");
+            return descending ?
+                new SubMap<>(m, fromStart, lo, loInclusive,
+                             false, fromKey, inclusive, true) :
+                new SubMap<>(m, false, fromKey, inclusive,
+                             toEnd, hi, hiInclusive, false);
+        }
+
+        public SortedMap<K,V> subMap(K fromKey, K toKey) {
+            return subMap(fromKey, true, toKey, false);
+        }
+
+        public SortedMap<K,V> headMap(K toKey) {
+            return headMap(toKey, false);
+        }
+
+        public SortedMap<K,V> tailMap(K fromKey) {
+            return tailMap(fromKey, true);
+        }
+
+        final class EntrySetView extends AbstractSet<Map.Entry<K,V>> {
+            public Iterator<Map.Entry<K,V>> iterator() {
+                return new ViewIterator<Map.Entry<K,V>>(descending) {
+                    Map.Entry<K,V> element(Cursor c) {
+                        return new LeafEntry<>(m, c.leaf, c.index);
+                    }
+                };
+            }
+
+            public int size() { return SubMap.this.size(); }
+            public boolean isEmpty() { return SubMap.this.isEmpty(); }
+            public void clear() { SubMap.this.clear(); }
+
+            public boolean contains(Object o) {
+                if (!(o instanceof Map.Entry))
+                    return false;
+                Map.Entry<?,?> entry = (Map.Entry<?,?>)o;
+                Object key = entry.getKey();
+                if (!inRange(key))
+                    return false;
+                Cursor c = m.seek(key, CEILING);
+                return c != null && m.compare(c.key(), key) == 0 &&
+                    Objects.equals(c.leaf.vals[c.index], entry.getValue());
+            }
+
+            public boolean remove(Object o) {
+                if (contains(o)) {
+                    m.remove(((Map.Entry<?,?>)o).getKey());
+                    return true;
+                }
+                return false;
+            }
+
+            public Spliterator<Map.Entry<K,V>> spliterator() {
+                return Spliterators.spliterator(this, Spliterator.ORDERED |
+                                                Spliterator.DISTINCT);
+            }
+        }
+
+        Iterator<K> keyIterator(boolean reverse) {
+            return new ViewIterator<K>(descending ^ reverse) {
+                @SuppressWarnings("unchecked")
+                K element(Cursor c) { return (K)c.key(); }
+            };
+        }
+
+        Iterator<V> valueIterator() {
+            return new ViewIterator<V>(descending) {
+                @SuppressWarnings("unchecked")
+                V element(Cursor c) { return (V)c.leaf.vals[c.index]; }
+            };
+        }
+
+        /**
+         * Iterator walking the leaf chain in either direction, stopping
+         * at the far bound of the view.  Removal re-seeks from the
+         * removed key, since the tree may have been rebalanced.
+         */
+        abstract class ViewIterator<T> implements Iterator<T> {
+            final boolean reverse;
+            Cursor next;
+            Object lastReturned;
+            boolean hasLast;
+            int expectedModCount;
+
+            ViewIterator(boolean reverse) {
+                this.reverse = reverse;
+                this.expectedModCount = m.modCount;
+                this.next = reverse ? absHighest() : absLowest();
+            }
+
+            abstract T element(Cursor c);
+
+            public final boolean hasNext() {
+                return next != null;
+            }
+
+            public final T next() {
+                Cursor c = next;
+                if (c == null)
+                    throw new NoSuchElementException();
+                if (m.modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+                T result = element(c);
+                lastReturned = c.key();
+                hasLast = true;
+                Cursor n = new Cursor(c.leaf, c.index);
+                if (reverse ? (!n.retreat() || tooLow(n.key()))
+                            : (!n.advance() || tooHigh(n.key())))
+                    n = null;
+                next = n;
+                return result;
+            }
+
+            public final void remove() {
+                if (!hasLast)
+                    throw new IllegalStateException();
+                if (m.modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+                hasLast = false;
+                m.remove(lastReturned);
+                if (next != null)
+                    next = reverse ? absLower(lastReturned) : absHigher(lastReturned);
+                expectedModCount = m.modCount;
+            }
+        }
+    }
+
+    /**
+     * Entry returned by entry-set iterators; writes through to the map.
+     */
+    static final class LeafEntry<K,V> implements Map.Entry<K,V> {
+        final BTreeMap<K,V> m;
+        final K key;
+        final Leaf leaf;
+        final int index;
+
+        @SuppressWarnings("unchecked")
+        LeafEntry(BTreeMap<K,V> m, Leaf leaf, int index) {
+            this.m = m;
+            this.leaf = leaf;
+            this.index = index;
+            this.key = (K)leaf.keys[index];
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        @SuppressWarnings("unchecked")
+        public V getValue() {
+            return (index < leaf.n && leaf.keys[index] == key) ?
+                (V)leaf.vals[index] : m.get(key);
+        }
+
+        @SuppressWarnings("unchecked")
+        public V setValue(V value) {
+            if (index < leaf.n && leaf.keys[index] == key) {
+                Object old = leaf.vals[index];
+                leaf.vals[index] = value;
+                return (V)old;
+            }
+            if (!m.containsKey(key))
+                throw new IllegalStateException("Entry was removed");
+            return m.put(key, value);
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            return Objects.equals(key, e.getKey()) &&
+                Objects.equals(getValue(), e.getValue());
+        }
+
+        public int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(getValue());
+        }
+
+        public String toString() {
+            return key + "=" + getValue();
+        }
+    }
+
+    /**
+     * Navigable key set view over a {@link SubMap}.
+     */
+    static final class KeySet<E> extends AbstractSet<E> implements NavigableSet<E> {
+        private final SubMap<E, ?> m;
+        KeySet(SubMap<E,?> map) { m = map; }
+
+        public Iterator<E> iterator() { return m.keyIterator(false); }
+        public Iterator<E> descendingIterator() { return m.keyIterator(true); }
+        public int size() { return m.size(); }
+        public boolean isEmpty() { return m.isEmpty(); }
+        public boolean contains(Object o) { return m.containsKey(o); }
+        public void clear() { m.clear(); }
+        public E lower(E e) { return m.lowerKey(e); }
+        public E floor(E e) { return m.floorKey(e); }
+        public E ceiling(E e) { return m.ceilingKey(e); }
+        public E higher(E e) { return m.higherKey(e); }
+        public E first() { return m.firstKey(); }
+        public E last() { return m.lastKey(); }
+        public Comparator<? super E> comparator() { return m.comparator(); }
+        public E pollFirst() {
+            Map.Entry<E,?> e = m.pollFirstEntry();
+            return (e == null) ? null : e.getKey();
+        }
+        public E pollLast() {
+            Map.Entry<E,?> e = m.pollLastEntry();
+            return (e == null) ? null : e.getKey();
+        }
+        public boolean remove(Object o) {
+            if (!m.containsKey(o))
+                return false;
+            m.remove(o);
+            return true;
+        }
+        public NavigableSet<E> subSet(E fromElement, boolean fromInclusive,
+                                      E toElement,   boolean toInclusive) {
+            return m.subMap(fromElement, fromInclusive,
+                            toElement,   toInclusive).navigableKeySet();
+        }
+        public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+            return m.headMap(toElement, inclusive).navigableKeySet();
+        }
+        public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+            return m.tailMap(fromElement, inclusive).navigableKeySet();
+        }
+        public SortedSet<E> subSet(E fromElement, E toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+        public SortedSet<E> headSet(E toElement) {
+            return headSet(toElement, false);
+        }
+        public SortedSet<E> tailSet(E fromElement) {
+            return tailSet(fromElement, true);
+        }
+        public NavigableSet<E> descendingSet() {
+            return m.descendingMap().navigableKeySet();
+        }
+        public Spliterator<E> spliterator() {
+            int chars = Spliterator.ORDERED | Spliterator.DISTINCT;
+            if (!m.descending && m.m.comparator == null)
+                chars |= Spliterator.SORTED;
+            return Spliterators.spliterator(this, chars);
+        }
+    }
+
+    /* ---------------- Cloning and serialization -------------- */
+
+    /**
+     * Returns a shallow copy of this {@code BTreeMap} instance.  (The keys
+     * and values themselves are not cloned.)
+     *
+     * @return a shallow copy of this map
+     */
+    public Object clone() {
+        BTreeMap<?,?> clone;
+        try {
+            clone = (BTreeMap<?,?>) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+        clone.fullView = null;
+        clone.pathNodes = null;
+        clone.pathIndex = null;
+        clone.modCount = 0;
+        clone.buildFromSorted(size, entrySet().iterator());
+        return clone;
+    }
+
+    /**
+     * Save the state of the {@code BTreeMap} instance to a stream (i.e.,
+     * serialize it).
+     *
+     * @serialData The <em>size</em> of the BTreeMap (the number of key-value
+     *             mappings) is emitted (int), followed by the key (Object)
+     *             and value (Object) for each key-value mapping represented
+     *             by the BTreeMap. The key-value mappings are emitted in
+     *             key-order (as determined by the BTreeMap's Comparator,
+     *             or by the keys' natural ordering if the BTreeMap has no
+     *             Comparator).
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        s.defaultWriteObject();
+        s.writeInt(size);
+        for (Leaf l = first; l != null; l = l.next) {
+            for (int i = 0; i < l.n; ++i) {
+                s.writeObject(l.keys[i]);
+                s.writeObject(l.vals[i]);
+            }
+        }
+    }
+
+    /**
+     * Reconstitute the {@code BTreeMap} instance from a stream (i.e.,
+     * deserialize it).
+     */
+    private void readObject(final java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        int size = s.readInt();
+        if (size < 0)
+            throw new InvalidObjectException("Illegal size: " + size);
+        buildFromSorted(size, null, s, null);
+    }
+
+    /** Intended to be called only from BTreeSet.readObject */
+    void readTreeSet(int size, java.io.ObjectInputStream s, V defaultVal)
+        throws java.io.IOException, ClassNotFoundException {
+        buildFromSorted(size, null, s, defaultVal);
+    }
+
+    /** Intended to be called only from BTreeSet.addAll */
+    void addAllForTreeSet(SortedSet<? extends K> set, V defaultVal) {
+        try {
+            buildFromSorted(set.size(), set.iterator(), null, defaultVal);
+        } catch (java.io.IOException | ClassNotFoundException cannotHappen) {
+        }
+    }
+}
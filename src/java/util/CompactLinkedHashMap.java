@@ -0,0 +1,855 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.Serializable;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * A hash table based implementation of the {@code Map} interface with
+ * predictable iteration order, intended as a lower-footprint alternative
+ * to {@link LinkedHashMap}.
+ *
+ * <p>Rather than threading {@code before}/{@code after} links through a
+ * node per entry, this map stores its entries in dense parallel arrays
+ * (hashes, keys and values) in iteration order, and locates them through
+ * a separate open-addressed index table of {@code int} positions.  A
+ * mapping therefore costs one {@code int} hash, two references and, on
+ * average, two {@code int} index slots, with no per-entry object, which is
+ * well below the size of a {@code LinkedHashMap.Entry}.  Iteration is a
+ * linear scan of the entry arrays.
+ *
+ * <p>Removing an entry leaves a hole in the entry arrays; holes are
+ * skipped by iteration and reclaimed, by compacting the arrays in place,
+ * the next time an insertion finds the arrays full.
+ *
+ * <p>Like {@code LinkedHashMap}, this map can be created in
+ * <i>access-order</i> (see {@link #CompactLinkedHashMap(int, boolean)}),
+ * in which an access to an entry moves it to the end of the iteration
+ * order, and supports the {@link #removeEldestEntry} hook, which makes it
+ * well-suited to building LRU caches.  Permits {@code null} keys and
+ * values.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * In access-ordered maps, merely querying the map with {@code get} is a
+ * structural modification.  The iterators returned by the collection
+ * views are <em>fail-fast</em> in the same manner as those of
+ * {@link HashMap}.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ *
+ * @see LinkedHashMap
+ * @since 1.8
+ */
+public class CompactLinkedHashMap<K,V>
+    extends AbstractMap<K,V>
+    implements Map<K,V>, Cloneable, Serializable
+{
+    private static final long serialVersionUID = -1795012391476546437L;
+
+    /**
+     * The default entry capacity - MUST be a power of two.
+     */
+    static final int DEFAULT_INITIAL_CAPACITY = 8;
+
+    /**
+     * The maximum entry capacity.  The index table is twice as large.
+     */
+    static final int MAXIMUM_CAPACITY = 1 << 29;
+
+    /**
+     * Marker stored in {@link #keys} for a removed entry.
+     */
+    static final Object REMOVED = new Object();
+
+    /**
+     * The index table: each slot holds an entry position plus one, or
+     * {@code 0} if free.  Its length is always twice the entry capacity,
+     * so it is never more than half full.
+     */
+    transient int[] index;
+
+    /**
+     * Spread hash of each entry, as computed by {@link HashMap#hash}.
+     */
+    transient int[] hashes;
+
+    /**
+     * Entry keys, in iteration order; {@link #REMOVED} marks a hole.
+     */
+    transient Object[] keys;
+
+    /**
+     * Entry values, parallel to {@link #keys}.
+     */
+    transient Object[] vals;
+
+    /**
+     * The number of entry positions in use, including holes.
+     */
+    transient int used;
+
+    /**
+     * The position of the eldest live entry, or {@link #used} if empty.
+     */
+    transient int head;
+
+    /**
+     * The number of key-value mappings contained in this map.
+     */
+    transient int size;
+
+    /**
+     * The number of structural modifications, for fail-fast iterators.
+     */
+    transient int modCount;
+
+    /**
+     * The iteration ordering method: {@code true} for access-order,
+     * {@code false} for insertion-order.
+     */
+    final boolean accessOrder;
+
+    transient Set<Map.Entry<K,V>> entrySet;
+    transient Set<K> keySet;
+    transient Collection<V> values;
+
+    /**
+     * Constructs an empty insertion-ordered map with the default initial
+     * capacity.
+     */
+    public CompactLinkedHashMap() {
+        this(DEFAULT_INITIAL_CAPACITY, false);
+    }
+
+    /**
+     * Constructs an empty insertion-ordered map able to hold the
+     * specified number of mappings without resizing.
+     *
+     * @param  initialCapacity the initial capacity
+     * @throws IllegalArgumentException if the initial capacity is negative
+     */
+    public CompactLinkedHashMap(int initialCapacity) {
+        this(initialCapacity, false);
+    }
+
+    /**
+     * Constructs an empty map with the specified initial capacity and
+     * ordering mode.
+     *
+     * @param  initialCapacity the initial capacity
+     * @param  accessOrder the ordering mode - {@code true} for
+     *         access-order, {@code false} for insertion-order
+     * @throws IllegalArgumentException if the initial capacity is negative
+     */
+    public CompactLinkedHashMap(int initialCapacity, boolean accessOrder) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        this.accessOrder = accessOrder;
+        allocate(capacityFor(initialCapacity));
+    }
+
+    /**
+     * Constructs an insertion-ordered map with the same mappings as the
+     * specified map.
+     *
+     * @param  m the map whose mappings are to be placed in this map
+     * @throws NullPointerException if the specified map is null
+     */
+    public CompactLinkedHashMap(Map<? extends K, ? extends V> m) {
+        this(m.size(), false);
+        putAll(m);
+    }
+
+    /**
+     * Returns the power-of-two entry capacity able to hold {@code n}
+     * entries.
+     */
+    static int capacityFor(int n) {
+        if (n >= MAXIMUM_CAPACITY)
+            return MAXIMUM_CAPACITY;
+        return (n <= DEFAULT_INITIAL_CAPACITY) ? DEFAULT_INITIAL_CAPACITY :
+            Integer.highestOneBit(n - 1) << 1;
+    }
+
+    private void allocate(int cap) {
+        index = new int[cap << 1];
+        hashes = new int[cap];
+        keys = new Object[cap];
+        vals = new Object[cap];
+    }
+
+    /* ---------------- Index table -------------- */
+
+    /**
+     * Returns the index slot holding the entry for the given key, or -1
+     * if there is none.
+     */
+    final int slotOf(Object key, int hash) {
+        int[] tab = index;
+        int m = tab.length - 1, i = hash & m, e;
+        while ((e = tab[i]) != 0) {
+            int p = e - 1;
+            Object k;
+            if (hashes[p] == hash &&
+                ((k = keys[p]) == key || (key != null && key.equals(k))))
+                return i;
+            i = (i + 1) & m;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index slot that refers to entry position {@code p}.
+     */
+    final int slotOfPosition(int p) {
+        int[] tab = index;
+        int m = tab.length - 1, i = hashes[p] & m;
+        while (tab[i] != p + 1)
+            i = (i + 1) & m;
+        return i;
+    }
+
+    /**
+     * Frees index slot {@code i}, shifting later colliding slots backward
+     * so that probe sequences stay unbroken.
+     */
+    final void freeSlot(int i) {
+        int[] tab = index;
+        int[] hs = hashes;
+        int m = tab.length - 1;
+        for (int last = i, j = i;;) {
+            j = (j + 1) & m;
+            int e = tab[j];
+            if (e == 0) {
+                tab[last] = 0;
+                return;
+            }
+            int home = hs[e - 1] & m;
+            if (last <= j ? (home <= last || home > j)
+                          : (home <= last && home > j)) {
+                tab[last] = e;
+                last = j;
+            }
+        }
+    }
+
+    /**
+     * Makes room for one more entry at the end of the entry arrays,
+     * compacting away holes and, if the arrays are still mostly full,
+     * doubling them.  Rebuilds the index table.
+     */
+    final void ensureAppendable() {
+        if (used < keys.length)
+            return;
+        int cap = keys.length;
+        if (size >= (cap >>> 1) + (cap >>> 2)) {
+            if (cap >= MAXIMUM_CAPACITY) {
+                if (size == cap)
+                    throw new IllegalStateException("Map capacity exceeded");
+            }
+            else
+                cap <<= 1;
+        }
+        int[] oldHashes = hashes;
+        Object[] oldKeys = keys, oldVals = vals;
+        int n = used;
+        if (cap != oldKeys.length)
+            allocate(cap);
+        else
+            Arrays.fill(index, 0);
+        int[] tab = index, hs = hashes;
+        Object[] ks = keys, vs = vals;
+        int m = tab.length - 1, j = 0;
+        for (int p = head; p < n; ++p) {
+            Object k = oldKeys[p];
+            if (k != REMOVED) {
+                int h = oldHashes[p];
+                hs[j] = h;
+                ks[j] = k;
+                vs[j] = oldVals[p];
+                int i = h & m;
+                while (tab[i] != 0)
+                    i = (i + 1) & m;
+                tab[i] = ++j;
+            }
+        }
+        if (ks == oldKeys) { // compacted in place; clear the tail
+            Arrays.fill(ks, j, n, null);
+            Arrays.fill(vs, j, n, null);
+        }
+        used = j;
+        head = 0;
+    }
+
+    /**
+     * Appends an entry and links it into the index, returning its
+     * position.  The caller must have called {@link #ensureAppendable}.
+     */
+    private int append(int hash, Object key, Object value) {
+        int p = used++;
+        hashes[p] = hash;
+        keys[p] = key;
+        vals[p] = value;
+        int[] tab = index;
+        int m = tab.length - 1, i = hash & m;
+        while (tab[i] != 0)
+            i = (i + 1) & m;
+        tab[i] = p + 1;
+        return p;
+    }
+
+    /**
+     * Removes the entry at position {@code p} whose index slot is
+     * {@code slot}.  Never moves other entries, so iterator positions stay
+     * valid.
+     */
+    final void removeAt(int p, int slot) {
+        freeSlot(slot);
+        keys[p] = REMOVED;
+        vals[p] = null;
+        if (p == used - 1) {
+            do {} while (--used > head && keys[used - 1] == REMOVED);
+            if (used == head)
+                used = head = 0;
+        }
+        else if (p == head) {
+            do {} while (keys[++head] == REMOVED);
+        }
+        ++modCount;
+        --size;
+    }
+
+    /**
+     * Moves the entry in index slot {@code slot} to the end of the
+     * iteration order, as in {@link LinkedHashMap}'s access-ordered mode.
+     * Returns the entry's new position.
+     */
+    final int moveToEnd(int slot) {
+        int p = index[slot] - 1;
+        if (p == used - 1)
+            return p;
+        Object k = keys[p];
+        if (used == keys.length) {
+            ensureAppendable();
+            p = index[slot = slotOf(k, HashMap.hash(k))] - 1;
+            if (p == used - 1)
+                return p;
+        }
+        int q = used++;
+        hashes[q] = hashes[p];
+        keys[q] = k;
+        vals[q] = vals[p];
+        keys[p] = REMOVED;
+        vals[p] = null;
+        index[slot] = q + 1;
+        if (p == head) {
+            do {} while (keys[++head] == REMOVED);
+        }
+        ++modCount;
+        return q;
+    }
+
+    /* ---------------- Map operations -------------- */
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(Object key) {
+        return slotOf(key, HashMap.hash(key)) >= 0;
+    }
+
+    public boolean containsValue(Object value) {
+        Object[] ks = keys, vs = vals;
+        for (int p = head, n = used; p < n; ++p) {
+            if (ks[p] != REMOVED && Objects.equals(vs[p], value))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code null} if this map contains no mapping for the key.  In an
+     * access-ordered map, a successful lookup moves the entry to the end
+     * of the iteration order.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        int slot = slotOf(key, HashMap.hash(key));
+        if (slot < 0)
+            return null;
+        int p = accessOrder ? moveToEnd(slot) : index[slot] - 1;
+        return (V)vals[p];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(Object key, V defaultValue) {
+        int slot = slotOf(key, HashMap.hash(key));
+        if (slot < 0)
+            return defaultValue;
+        int p = accessOrder ? moveToEnd(slot) : index[slot] - 1;
+        return (V)vals[p];
+    }
+
+    public V put(K key, V value) {
+        return putVal(key, value, false, true);
+    }
+
+    public V putIfAbsent(K key, V value) {
+        return putVal(key, value, true, true);
+    }
+
+    /**
+     * Implements put and related methods.
+     *
+     * @param onlyIfAbsent if true, don't change existing value
+     * @param evict if false, {@link #removeEldestEntry} is not consulted
+     * @return previous value, or null if none
+     */
+    @SuppressWarnings("unchecked")
+    final V putVal(K key, V value, boolean onlyIfAbsent, boolean evict) {
+        int hash = HashMap.hash(key);
+        int slot = slotOf(key, hash);
+        if (slot >= 0) {
+            int p = accessOrder ? moveToEnd(slot) : index[slot] - 1;
+            Object old = vals[p];
+            if (!onlyIfAbsent || old == null)
+                vals[p] = value;
+            return (V)old;
+        }
+        ensureAppendable();
+        append(hash, key, value);
+        ++modCount;
+        ++size;
+        if (evict && removeEldestEntry(new EntryRef(head)))
+            remove(keys[head]);
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        int slot = slotOf(key, HashMap.hash(key));
+        if (slot < 0)
+            return null;
+        int p = index[slot] - 1;
+        Object old = vals[p];
+        removeAt(p, slot);
+        return (V)old;
+    }
+
+    public void clear() {
+        if (size > 0 || used > 0) {
+            Arrays.fill(index, 0);
+            Arrays.fill(keys, 0, used, null);
+            Arrays.fill(vals, 0, used, null);
+            used = head = size = 0;
+        }
+        ++modCount;
+    }
+
+    /**
+     * Returns {@code true} if this map should remove its eldest entry.
+     * This method is invoked by {@code put} and {@code putAll} after
+     * inserting a new entry into the map, exactly as
+     * {@link LinkedHashMap#removeEldestEntry} is, and the same
+     * implementation patterns apply.  The default implementation returns
+     * {@code false}.
+     *
+     * @param  eldest the least recently inserted entry in the map, or if
+     *         this is an access-ordered map, the least recently accessed
+     *         entry
+     * @return {@code true} if the eldest entry should be removed from the
+     *         map; {@code false} if it should be retained
+     */
+    protected boolean removeEldestEntry(Map.Entry<K,V> eldest) {
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        if (action == null)
+            throw new NullPointerException();
+        int mc = modCount;
+        Object[] ks = keys, vs = vals;
+        for (int p = head, n = used; p < n && modCount == mc; ++p) {
+            Object k = ks[p];
+            if (k != REMOVED)
+                action.accept((K)k, (V)vs[p]);
+        }
+        if (modCount != mc)
+            throw new ConcurrentModificationException();
+    }
+
+    @SuppressWarnings("unchecked")
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        if (function == null)
+            throw new NullPointerException();
+        int mc = modCount;
+        Object[] ks = keys, vs = vals;
+        for (int p = head, n = used; p < n && modCount == mc; ++p) {
+            Object k = ks[p];
+            if (k != REMOVED)
+                vs[p] = function.apply((K)k, (V)vs[p]);
+        }
+        if (modCount != mc)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Returns a shallow copy of this map: the keys and values themselves
+     * are not cloned.  The copy is compacted.
+     *
+     * @return a shallow copy of this map
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public Object clone() {
+        CompactLinkedHashMap<K,V> result;
+        try {
+            result = (CompactLinkedHashMap<K,V>)super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+        result.entrySet = null;
+        result.keySet = null;
+        result.values = null;
+        result.modCount = 0;
+        result.size = result.used = result.head = 0;
+        result.allocate(capacityFor(size));
+        forEach((k, v) -> {
+            result.ensureAppendable();
+            result.append(HashMap.hash(k), k, v);
+            result.size++;
+        });
+        return result;
+    }
+
+    /* ---------------- Views -------------- */
+
+    /**
+     * Map entry bound to an entry position.  If the map has since moved
+     * the entry, accessors fall back to looking the key up again.
+     */
+    final class EntryRef implements Map.Entry<K,V> {
+        final K key;
+        int pos;
+
+        @SuppressWarnings("unchecked")
+        EntryRef(int pos) {
+            this.pos = pos;
+            this.key = (K)keys[pos];
+        }
+
+        private int position() {
+            int p = pos;
+            if (p >= used || keys[p] != key) {
+                int slot = slotOf(key, HashMap.hash(key));
+                if (slot < 0)
+                    throw new IllegalStateException("Entry was removed");
+                pos = p = index[slot] - 1;
+            }
+            return p;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        @SuppressWarnings("unchecked")
+        public V getValue() {
+            return (V)vals[position()];
+        }
+
+        @SuppressWarnings("unchecked")
+        public V setValue(V value) {
+            int p = position();
+            Object old = vals[p];
+            vals[p] = value;
+            return (V)old;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            return Objects.equals(key, e.getKey()) &&
+                Objects.equals(getValue(), e.getValue());
+        }
+
+        public int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(getValue());
+        }
+
+        public String toString() {
+            return key + "=" + getValue();
+        }
+    }
+
+    /**
+     * Base iterator: a linear scan over entry positions, skipping holes.
+     */
+    abstract class ArrayIterator {
+        int next;              // position of next entry to return
+        int lastReturned;      // position of last entry returned, or -1
+        int expectedModCount;  // for fast-fail
+
+        ArrayIterator() {
+            expectedModCount = modCount;
+            lastReturned = -1;
+            next = head;
+            advance();
+        }
+
+        private void advance() {
+            Object[] ks = keys;
+            int n = used;
+            while (next < n && ks[next] == REMOVED)
+                ++next;
+        }
+
+        public final boolean hasNext() {
+            return next < used;
+        }
+
+        final int nextPosition() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            int p = next;
+            if (p >= used)
+                throw new NoSuchElementException();
+            lastReturned = p;
+            ++next;
+            advance();
+            return p;
+        }
+
+        public final void remove() {
+            int p = lastReturned;
+            if (p < 0)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            lastReturned = -1;
+            removeAt(p, slotOfPosition(p));
+            expectedModCount = modCount;
+        }
+    }
+
+    final class KeyIterator extends ArrayIterator implements Iterator<K> {
+        @SuppressWarnings("unchecked")
+        public K next() { return (K)keys[nextPosition()]; }
+    }
+
+    final class ValueIterator extends ArrayIterator implements Iterator<V> {
+        @SuppressWarnings("unchecked")
+        public V next() { return (V)vals[nextPosition()]; }
+    }
+
+    final class EntryIterator extends ArrayIterator
+        implements Iterator<Map.Entry<K,V>> {
+        public Map.Entry<K,V> next() { return new EntryRef(nextPosition()); }
+    }
+
+    /**
+     * Returns a {@link Set} view of the keys contained in this map, in
+     * iteration order.  The set is backed by the map and supports element
+     * removal, but not {@code add} or {@code addAll}.
+     *
+     * @return a set view of the keys contained in this map
+     */
+    public Set<K> keySet() {
+        Set<K> ks = keySet;
+        if (ks == null) {
+            ks = new KeySet();
+            keySet = ks;
+        }
+        return ks;
+    }
+
+    final class KeySet extends AbstractSet<K> {
+        public final int size()                 { return size; }
+        public final void clear()               { CompactLinkedHashMap.this.clear(); }
+        public final Iterator<K> iterator()     { return new KeyIterator(); }
+        public final boolean contains(Object o) { return containsKey(o); }
+        public final boolean remove(Object key) {
+            int slot = slotOf(key, HashMap.hash(key));
+            if (slot < 0)
+                return false;
+            removeAt(index[slot] - 1, slot);
+            return true;
+        }
+        public final Spliterator<K> spliterator()  {
+            return Spliterators.spliterator(this, Spliterator.SIZED |
+                                            Spliterator.ORDERED |
+                                            Spliterator.DISTINCT);
+        }
+        public final void forEach(Consumer<? super K> action) {
+            if (action == null)
+                throw new NullPointerException();
+            CompactLinkedHashMap.this.forEach((k, v) -> action.accept(k));
+        }
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in this
+     * map, in iteration order.  The collection is backed by the map and
+     * supports element removal, but not {@code add} or {@code addAll}.
+     *
+     * @return a view of the values contained in this map
+     */
+    public Collection<V> values() {
+        Collection<V> vs = values;
+        if (vs == null) {
+            vs = new Values();
+            values = vs;
+        }
+        return vs;
+    }
+
+    final class Values extends AbstractCollection<V> {
+        public final int size()                 { return size; }
+        public final void clear()               { CompactLinkedHashMap.this.clear(); }
+        public final Iterator<V> iterator()     { return new ValueIterator(); }
+        public final boolean contains(Object o) { return containsValue(o); }
+        public final Spliterator<V> spliterator() {
+            return Spliterators.spliterator(this, Spliterator.SIZED |
+                                            Spliterator.ORDERED);
+        }
+        public final void forEach(Consumer<? super V> action) {
+            if (action == null)
+                throw new NullPointerException();
+            CompactLinkedHashMap.this.forEach((k, v) -> action.accept(v));
+        }
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map,
+     * in iteration order.  The set is backed by the map and supports
+     * element removal, but not {@code add} or {@code addAll}.
+     *
+     * @return a set view of the mappings contained in this map
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        Set<Map.Entry<K,V>> es = entrySet;
+        if (es == null) {
+            es = new EntrySet();
+            entrySet = es;
+        }
+        return es;
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        public final int size()                 { return size; }
+        public final void clear()               { CompactLinkedHashMap.this.clear(); }
+        public final Iterator<Map.Entry<K,V>> iterator() {
+            return new EntryIterator();
+        }
+        public final boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            Object key = e.getKey();
+            int slot = slotOf(key, HashMap.hash(key));
+            return slot >= 0 &&
+                Objects.equals(vals[index[slot] - 1], e.getValue());
+        }
+        public final boolean remove(Object o) {
+            if (o instanceof Map.Entry) {
+                Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+                Object key = e.getKey();
+                int slot = slotOf(key, HashMap.hash(key));
+                int p;
+                if (slot >= 0 &&
+                    Objects.equals(vals[p = index[slot] - 1], e.getValue())) {
+                    removeAt(p, slot);
+                    return true;
+                }
+            }
+            return false;
+        }
+        public final Spliterator<Map.Entry<K,V>> spliterator() {
+            return Spliterators.spliterator(this, Spliterator.SIZED |
+                                            Spliterator.ORDERED |
+                                            Spliterator.DISTINCT);
+        }
+    }
+
+    /* ---------------- Serialization -------------- */
+
+    /**
+     * Saves this map to a stream.
+     *
+     * @serialData The number of key-value mappings (<tt>int</tt>),
+     *             followed by the key (Object) and value (Object) for each
+     *             mapping, in iteration order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws IOException {
+        s.defaultWriteObject();
+        s.writeInt(size);
+        Object[] ks = keys, vs = vals;
+        for (int p = head, n = used; p < n; ++p) {
+            if (ks[p] != REMOVED) {
+                s.writeObject(ks[p]);
+                s.writeObject(vs[p]);
+            }
+        }
+    }
+
+    /**
+     * Reconstitutes this map from a stream.
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(java.io.ObjectInputStream s)
+        throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        int mappings = s.readInt();
+        if (mappings < 0)
+            throw new InvalidObjectException("Illegal mappings count: " +
+                                             mappings);
+        allocate(capacityFor(mappings));
+        for (int i = 0; i < mappings; i++) {
+            K key = (K) s.readObject();
+            V value = (V) s.readObject();
+            putVal(key, value, false, false);
+        }
+    }
+}
@@ -0,0 +1,514 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.util.function.Consumer;
+
+/**
+ * A priority queue of elements with {@code double} priorities, based on a
+ * d-ary heap, that hands out a {@link Handle} for every inserted element
+ * through which its priority can later be changed, or the element
+ * removed, in logarithmic time.  The element with the lowest priority is
+ * at the head of the queue; ties are broken arbitrarily.
+ *
+ * <p>This is the primitive specialization of {@link IndexedPriorityQueue}.
+ * Priorities are held in a {@code double[]} parallel to the heap, so that
+ * sifting compares adjacent primitive values rather than dereferencing
+ * and comparing boxed or {@link Comparable} objects.  Elements serve only
+ * as payload and may be {@code null}.  Priorities are compared
+ * numerically, so {@code -0.0} and {@code 0.0} are equal; {@code NaN}
+ * priorities are rejected.
+ *
+ * <p>Implementation note: this implementation provides O(log n) time for
+ * {@code insert}, {@code poll}, {@code remove}, {@code decreaseKey},
+ * {@code increaseKey} and {@code changeKey}, and constant time for
+ * {@code peek}, {@code peekPriority} and {@code size}.  The iterator
+ * traverses the handles in no particular order.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ *
+ * @param <E> the type of elements held in this queue
+ * @see IndexedPriorityQueue
+ * @see LongIndexedPriorityQueue
+ * @since 1.8
+ */
+public class DoubleIndexedPriorityQueue<E>
+    implements Iterable<DoubleIndexedPriorityQueue.Handle<E>> {
+
+    /**
+     * A reference to an element inserted into a {@code
+     * DoubleIndexedPriorityQueue}.  A handle remains valid until its element
+     * is removed from the queue, whether by {@code poll}, {@code remove}
+     * or {@code clear}.
+     *
+     * @param <E> the type of the element
+     */
+    public static final class Handle<E> {
+        final E element;
+        double priority;
+        int index;
+        DoubleIndexedPriorityQueue<E> owner;
+
+        Handle(DoubleIndexedPriorityQueue<E> owner, E element, double priority) {
+            this.owner = owner;
+            this.element = element;
+            this.priority = priority;
+        }
+
+        /**
+         * Returns the element of this handle.
+         *
+         * @return the element
+         */
+        public E getElement() {
+            return element;
+        }
+
+        /**
+         * Returns the priority of the element of this handle, or the last
+         * priority it had if it is no longer queued.
+         *
+         * @return the priority
+         */
+        public double getPriority() {
+            return priority;
+        }
+
+        public String toString() {
+            return element + "=" + priority;
+        }
+    }
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 11;
+
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * The heap of handles: the children of queue[n] are queue[d*n+1]
+     * through queue[d*n+d].  keys[n] is the priority of queue[n].
+     */
+    Handle<E>[] queue; // non-private to simplify nested class access
+
+    /**
+     * The priorities of the handles in queue, at the same positions.
+     */
+    private double[] keys;
+
+    /**
+     * The number of elements in the priority queue.
+     */
+    int size;
+
+    /**
+     * The number of children of each node.
+     */
+    private final int arity;
+
+    /**
+     * The number of times this priority queue has been modified.
+     */
+    int modCount; // non-private to simplify nested class access
+
+    /**
+     * Creates a {@code DoubleIndexedPriorityQueue} with the default initial
+     * capacity (11) and arity (4).
+     */
+    public DoubleIndexedPriorityQueue() {
+        this(DEFAULT_INITIAL_CAPACITY, IndexedPriorityQueue.DEFAULT_ARITY);
+    }
+
+    /**
+     * Creates a {@code DoubleIndexedPriorityQueue} with the specified
+     * initial capacity and arity.
+     *
+     * @param  initialCapacity the initial capacity for this priority queue
+     * @param  arity the number of children of each node of the heap
+     * @throws IllegalArgumentException if {@code initialCapacity} is
+     *         less than 1, or {@code arity} is less than 2 or greater
+     *         than 64
+     */
+    @SuppressWarnings("unchecked")
+    public DoubleIndexedPriorityQueue(int initialCapacity, int arity) {
+        if (initialCapacity < 1 || arity < 2 ||
+            arity > IndexedPriorityQueue.MAX_ARITY)
+            throw new IllegalArgumentException();
+        this.queue = (Handle<E>[])new Handle<?>[initialCapacity];
+        this.keys = new double[initialCapacity];
+        this.arity = arity;
+    }
+
+    private void grow(int minCapacity) {
+        int oldCapacity = queue.length;
+        // Double size if small; else grow by 50%
+        int newCapacity = oldCapacity + ((oldCapacity < 64) ?
+                                         (oldCapacity + 2) :
+                                         (oldCapacity >> 1));
+        // overflow-conscious code
+        if (newCapacity - MAX_ARRAY_SIZE > 0) {
+            if (minCapacity < 0) // overflow
+                throw new OutOfMemoryError();
+            newCapacity = (minCapacity > MAX_ARRAY_SIZE) ?
+                Integer.MAX_VALUE : MAX_ARRAY_SIZE;
+        }
+        queue = Arrays.copyOf(queue, newCapacity);
+        keys = Arrays.copyOf(keys, newCapacity);
+    }
+
+    /**
+     * Inserts the specified element with the specified priority and
+     * returns a handle through which it can later be re-prioritized or
+     * removed.
+     *
+     * @param e the element to add, possibly {@code null}
+     * @param priority the priority of the element
+     * @return the handle of the inserted element
+     * @throws IllegalArgumentException if {@code priority} is NaN
+     */
+    public Handle<E> insert(E e, double priority) {
+        checkPriority(priority);
+        modCount++;
+        int i = size;
+        if (i >= queue.length)
+            grow(i + 1);
+        Handle<E> h = new Handle<E>(this, e, priority);
+        size = i + 1;
+        siftUp(i, h, priority);
+        return h;
+    }
+
+    /**
+     * Retrieves, but does not remove, the handle of the head of this
+     * queue, or returns {@code null} if this queue is empty.
+     *
+     * @return the handle of the head of this queue, or {@code null} if
+     *         this queue is empty
+     */
+    public Handle<E> peek() {
+        return (size == 0) ? null : queue[0];
+    }
+
+    /**
+     * Returns the lowest priority in this queue.
+     *
+     * @return the priority of the head of this queue
+     * @throws NoSuchElementException if this queue is empty
+     */
+    public double peekPriority() {
+        if (size == 0)
+            throw new NoSuchElementException();
+        return keys[0];
+    }
+
+    /**
+     * Retrieves and removes the handle of the head of this queue, or
+     * returns {@code null} if this queue is empty.
+     *
+     * @return the handle of the head of this queue, or {@code null} if
+     *         this queue is empty
+     */
+    public Handle<E> poll() {
+        if (size == 0)
+            return null;
+        int s = --size;
+        modCount++;
+        Handle<E> result = queue[0];
+        Handle<E> x = queue[s];
+        queue[s] = null;
+        if (s != 0)
+            siftDown(0, x, keys[s]);
+        detach(result);
+        return result;
+    }
+
+    /**
+     * Returns {@code true} if the specified handle refers to an element
+     * that is still in this queue.
+     *
+     * @param h the handle
+     * @return {@code true} if the element of the handle is in this queue
+     */
+    public boolean contains(Handle<?> h) {
+        return h != null && h.owner == this;
+    }
+
+    /**
+     * Removes the element of the specified handle from this queue, if it
+     * is present.
+     *
+     * @param h the handle of the element to be removed
+     * @return {@code true} if the element was removed, or {@code false}
+     *         if it had already left this queue
+     */
+    public boolean remove(Handle<?> h) {
+        if (h == null || h.owner != this)
+            return false;
+        modCount++;
+        int i = h.index;
+        int s = --size;
+        detach(h);
+        if (s == i)
+            queue[i] = null;
+        else {
+            Handle<E> moved = queue[s];
+            double key = keys[s];
+            queue[s] = null;
+            siftDown(i, moved, key);
+            if (queue[i] == moved)
+                siftUp(i, moved, key);
+        }
+        return true;
+    }
+
+    /**
+     * Lowers the priority of the element of the specified handle, moving
+     * it towards the head of the queue.
+     *
+     * @param h the handle of an element of this queue
+     * @param priority the new priority
+     * @throws IllegalArgumentException if the handle does not refer to an
+     *         element of this queue, if {@code priority} is greater
+     *         than the current priority of the handle, or if it is NaN
+     * @throws NullPointerException if the handle is null
+     */
+    public void decreaseKey(Handle<E> h, double priority) {
+        checkHandle(h);
+        checkPriority(priority);
+        if (priority > h.priority)
+            throw new IllegalArgumentException("key increased");
+        modCount++;
+        h.priority = priority;
+        siftUp(h.index, h, priority);
+    }
+
+    /**
+     * Raises the priority of the element of the specified handle, moving
+     * it away from the head of the queue.
+     *
+     * @param h the handle of an element of this queue
+     * @param priority the new priority
+     * @throws IllegalArgumentException if the handle does not refer to an
+     *         element of this queue, if {@code priority} is less than
+     *         the current priority of the handle, or if it is NaN
+     * @throws NullPointerException if the handle is null
+     */
+    public void increaseKey(Handle<E> h, double priority) {
+        checkHandle(h);
+        checkPriority(priority);
+        if (priority < h.priority)
+            throw new IllegalArgumentException("key decreased");
+        modCount++;
+        h.priority = priority;
+        siftDown(h.index, h, priority);
+    }
+
+    /**
+     * Changes the priority of the element of the specified handle, moving
+     * it in whichever direction its new position requires.
+     *
+     * @param h the handle of an element of this queue
+     * @param priority the new priority
+     * @throws IllegalArgumentException if the handle does not refer to an
+     *         element of this queue, or if {@code priority} is NaN
+     * @throws NullPointerException if the handle is null
+     */
+    public void changeKey(Handle<E> h, double priority) {
+        checkHandle(h);
+        checkPriority(priority);
+        double old = h.priority;
+        modCount++;
+        h.priority = priority;
+        if (priority < old)
+            siftUp(h.index, h, priority);
+        else
+            siftDown(h.index, h, priority);
+    }
+
+    private void checkHandle(Handle<E> h) {
+        if (h.owner != this)
+            throw new IllegalArgumentException("handle not in queue");
+    }
+
+    private static void checkPriority(double priority) {
+        if (priority != priority)
+            throw new IllegalArgumentException("NaN priority");
+    }
+
+    /**
+     * Returns the number of elements in this queue.
+     *
+     * @return the number of elements in this queue
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this queue contains no elements.
+     *
+     * @return {@code true} if this queue contains no elements
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all of the elements from this priority queue.  The handles
+     * of the removed elements are no longer valid.
+     */
+    public void clear() {
+        modCount++;
+        for (int i = 0; i < size; i++) {
+            detach(queue[i]);
+            queue[i] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * Returns the number of children of each node of the heap.
+     *
+     * @return the arity of this queue
+     */
+    public int arity() {
+        return arity;
+    }
+
+    /**
+     * Returns an iterator over the handles in this queue, in no
+     * particular order.  The iterator does not support removal; use
+     * {@link #remove(DoubleIndexedPriorityQueue.Handle) remove(Handle)}
+     * once iteration is complete.
+     *
+     * @return an iterator over the handles in this queue
+     */
+    public Iterator<Handle<E>> iterator() {
+        return new Itr();
+    }
+
+    final class Itr implements Iterator<Handle<E>> {
+        private int cursor;
+        private final int expectedModCount = modCount;
+
+        public boolean hasNext() {
+            return cursor < size;
+        }
+
+        public Handle<E> next() {
+            if (expectedModCount != modCount)
+                throw new ConcurrentModificationException();
+            if (cursor >= size)
+                throw new NoSuchElementException();
+            return queue[cursor++];
+        }
+
+        public void forEachRemaining(Consumer<? super Handle<E>> action) {
+            Objects.requireNonNull(action);
+            Handle<E>[] q = queue;
+            int i = cursor, n = size;
+            cursor = n;
+            for (; i < n; i++)
+                action.accept(q[i]);
+            if (expectedModCount != modCount)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0)
+                sb.append(", ");
+            sb.append(queue[i]);
+        }
+        return sb.append(']').toString();
+    }
+
+    /** Invalidates the handle of an element leaving the queue. */
+    private static void detach(Handle<?> h) {
+        h.owner = null;
+        h.index = -1;
+    }
+
+    /**
+     * Inserts handle h with priority key at position k, promoting it up
+     * the tree until its priority is no less than that of its parent.
+     */
+    private void siftUp(int k, Handle<E> h, double key) {
+        Handle<E>[] q = queue;
+        double[] ks = keys;
+        int d = arity;
+        while (k > 0) {
+            int parent = (k - 1) / d;
+            double pk = ks[parent];
+            if (key >= pk)
+                break;
+            Handle<E> p = q[parent];
+            q[k] = p;
+            ks[k] = pk;
+            p.index = k;
+            k = parent;
+        }
+        q[k] = h;
+        ks[k] = key;
+        h.index = k;
+    }
+
+    /**
+     * Inserts handle h with priority key at position k, demoting it down
+     * the tree until its priority is no greater than those of its
+     * children.
+     */
+    private void siftDown(int k, Handle<E> h, double key) {
+        Handle<E>[] q = queue;
+        double[] ks = keys;
+        int n = size, d = arity;
+        if (n > 1) {
+            int lastParent = (n - 2) / d;
+            while (k <= lastParent) {
+                int c = d * k + 1;
+                int end = Math.min(c + d, n);
+                double bk = ks[c];
+                for (int j = c + 1; j < end; j++) {
+                    double jk = ks[j];
+                    if (jk < bk) {
+                        c = j;
+                        bk = jk;
+                    }
+                }
+                if (key <= bk)
+                    break;
+                Handle<E> best = q[c];
+                q[k] = best;
+                ks[k] = bk;
+                best.index = k;
+                k = c;
+            }
+        }
+        q[k] = h;
+        ks[k] = key;
+        h.index = k;
+    }
+}
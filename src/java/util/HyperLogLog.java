@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util;
+
+import java.util.function.DoubleConsumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * A state object for estimating the number of distinct values in a large
+ * collection of values, using the HyperLogLog algorithm.  The estimate is
+ * computed from a fixed number of small registers, so memory use does not
+ * grow with the number of values.
+ *
+ * <p>The <em>precision</em> {@code p} of a sketch determines its number of
+ * registers, {@code 2^p}, which are each one byte.  The relative standard
+ * error of the estimate is about {@code 1.04 / sqrt(2^p)}; the default
+ * precision of {@value #DEFAULT_PRECISION} uses 16 kilobytes and gives an
+ * error of about 0.8%.
+ *
+ * <p>This class is designed to work with (though does not require)
+ * {@linkplain java.util.stream streams}.  Sketches of the same precision can
+ * be combined, so a sketch can be computed in parallel.  For example, you can
+ * estimate the number of distinct values in a stream of longs with:
+ * <pre> {@code
+ * HyperLogLog sketch = longStream.collect(HyperLogLog::new,
+ *                                         HyperLogLog::accept,
+ *                                         HyperLogLog::combine);
+ * long distinct = sketch.estimate();
+ * }</pre>
+ *
+ * <p>Objects are distinguished by their {@link Object#hashCode() hash code},
+ * so objects with equal hash codes are counted once and the estimate for a
+ * collection of many more than 2<sup>32</sup> distinct objects will be low.
+ * Primitive values are distinguished by value, and {@code double} values as
+ * by {@link Double#equals(Object)}.
+ *
+ * @implNote This implementation is not thread safe. However, it is safe to use
+ * {@link java.util.stream.Collectors#countingDistinctApproximately(int)
+ * Collectors.countingDistinctApproximately()} on a parallel stream, because
+ * the parallel implementation of {@link java.util.stream.Stream#collect
+ * Stream.collect()} provides the necessary partitioning, isolation, and
+ * merging of results for safe and efficient parallel execution.
+ *
+ * @see java.util.stream.Collectors#countingDistinctApproximately(int)
+ * @see java.util.stream.IntStream#countDistinctApproximately(int)
+ * @since 1.8
+ */
+public class HyperLogLog implements IntConsumer, LongConsumer, DoubleConsumer {
+    /** The minimum precision of a sketch. */
+    public static final int MIN_PRECISION = 4;
+
+    /** The maximum precision of a sketch. */
+    public static final int MAX_PRECISION = 18;
+
+    /** The precision of a sketch constructed without one. */
+    public static final int DEFAULT_PRECISION = 14;
+
+    private final int p;
+    private final byte[] registers;
+
+    /**
+     * Constructs an empty sketch with the default precision.
+     */
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * Constructs an empty sketch with the given precision.
+     *
+     * @param precision the precision, between {@link #MIN_PRECISION} and
+     *        {@link #MAX_PRECISION} inclusive
+     * @throws IllegalArgumentException if {@code precision} is out of range
+     */
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION)
+            throw new IllegalArgumentException("Illegal precision: " + precision);
+        this.p = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Spreads a value over 64 bits (Stafford variant 13 of the MurmurHash3
+     * finalizer, as used by {@link SplittableRandom}).
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private void addHash(long h) {
+        int index = (int) (h >>> (64 - p));
+        // Rank of the first set bit of the remaining bits, bounded by a
+        // sentinel bit so that it is at most 64 - p + 1
+        int rank = Long.numberOfLeadingZeros((h << p) | (1L << (p - 1))) + 1;
+        if (rank > registers[index])
+            registers[index] = (byte) rank;
+    }
+
+    /**
+     * Records an object, by its hash code, into this sketch.  A {@code null}
+     * object is recorded with a hash code of zero.
+     *
+     * @param o the object to record
+     */
+    public void add(Object o) {
+        addHash(mix64(Objects.hashCode(o)));
+    }
+
+    /**
+     * Records an {@code int} value into this sketch.  The value is recorded
+     * as if by {@code accept((long) value)}.
+     *
+     * @param value the input value
+     */
+    @Override
+    public void accept(int value) {
+        accept((long) value);
+    }
+
+    /**
+     * Records a {@code long} value into this sketch.
+     *
+     * @param value the input value
+     */
+    @Override
+    public void accept(long value) {
+        addHash(mix64(value));
+    }
+
+    /**
+     * Records a {@code double} value into this sketch.  Values are
+     * distinguished by {@link Double#doubleToLongBits(double)}.
+     *
+     * @param value the input value
+     */
+    @Override
+    public void accept(double value) {
+        addHash(mix64(Double.doubleToLongBits(value)));
+    }
+
+    /**
+     * Combines the state of another sketch into this one.  The combined
+     * sketch estimates the number of distinct values recorded into either.
+     *
+     * @param other another {@code HyperLogLog}
+     * @throws IllegalArgumentException if the precision of {@code other} is
+     *         not that of this sketch
+     * @throws NullPointerException if {@code other} is null
+     */
+    public void combine(HyperLogLog other) {
+        if (other.p != p)
+            throw new IllegalArgumentException("Precision mismatch: " + other.p + " != " + p);
+        byte[] rs = registers, os = other.registers;
+        for (int i = 0; i < rs.length; i++) {
+            if (os[i] > rs[i])
+                rs[i] = os[i];
+        }
+    }
+
+    /**
+     * Returns the precision of this sketch.
+     *
+     * @return the precision
+     */
+    public final int getPrecision() {
+        return p;
+    }
+
+    /**
+     * Returns the relative standard error of the estimates of this sketch.
+     *
+     * @return the relative standard error
+     */
+    public final double getStandardError() {
+        return 1.04 / Math.sqrt(registers.length);
+    }
+
+    /**
+     * Returns an estimate of the number of distinct values recorded, or zero
+     * if no values have been recorded.
+     *
+     * @return the estimated number of distinct values
+     */
+    public final long estimate() {
+        byte[] rs = registers;
+        int m = rs.length, zeros = 0;
+        double sum = 0.0;
+        for (byte r : rs) {
+            if (r == 0)
+                zeros++;
+            sum += Double.longBitsToDouble((1023L - r) << 52); // 2^-r
+        }
+        double alpha;
+        switch (m) {
+            case 16: alpha = 0.673; break;
+            case 32: alpha = 0.697; break;
+            case 64: alpha = 0.709; break;
+            default: alpha = 0.7213 / (1.0 + 1.079 / m); break;
+        }
+        double e = alpha * m * m / sum;
+        // Small range correction by linear counting.  Hashes are 64 bits
+        // wide so no large range correction is needed.
+        if (e <= 2.5 * m && zeros != 0)
+            e = m * Math.log((double) m / zeros);
+        return Math.round(e);
+    }
+
+    @Override
+    /**
+     * {@inheritDoc}
+     *
+     * Returns a non-empty string representation of this object suitable for
+     * debugging. The exact presentation format is unspecified and may vary
+     * between implementations and versions.
+     */
+    public String toString() {
+        return String.format(
+            "%s{precision=%d, estimate=%d}",
+            this.getClass().getSimpleName(),
+            getPrecision(),
+            estimate());
+    }
+}
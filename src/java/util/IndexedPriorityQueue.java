@@ -0,0 +1,664 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.util.function.Consumer;
+
+/**
+ * An unbounded priority {@linkplain Queue queue} based on a d-ary heap
+ * that hands out a {@link Handle} for every inserted element, through
+ * which that element can later be re-prioritized or removed in
+ * logarithmic time.  The elements are ordered according to their
+ * {@linkplain Comparable natural ordering}, or by a {@link Comparator}
+ * provided at queue construction time, exactly as for {@link
+ * PriorityQueue}.  A priority queue does not permit {@code null}
+ * elements.
+ *
+ * <p>Since the element <em>is</em> its own priority, changing a priority
+ * means replacing the element associated with a handle: {@link
+ * #decreaseKey decreaseKey} installs an element that orders no later than
+ * the one it replaces, {@link #increaseKey increaseKey} one that orders no
+ * earlier, and {@link #changeKey changeKey} accepts either.  Each of these
+ * methods, as well as {@link #remove(IndexedPriorityQueue.Handle)
+ * remove(Handle)}, runs in O(log n) time, where {@code PriorityQueue}
+ * would need a linear {@code remove(Object)} followed by a re-insertion.
+ *
+ * <p>Each node of the heap has {@code arity} children.  Wider nodes make
+ * the heap shallower, so insertions and decrease-key operations move
+ * elements fewer times, at the cost of more comparisons per level when
+ * removing the head.  The default arity of 4 keeps all the children of a
+ * node within a cache line or two and is usually faster than a binary
+ * heap.
+ *
+ * <p>Implementation note: this implementation provides O(log n) time for
+ * the enqueuing and dequeuing methods ({@code offer}, {@code poll},
+ * {@code remove()} and {@code add}) and for the handle-based methods;
+ * linear time for the {@code remove(Object)} and {@code contains(Object)}
+ * methods; and constant time for the retrieval methods ({@code peek},
+ * {@code element}, and {@code size}).  The iterator traverses the
+ * elements in no particular order.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ *
+ * @param <E> the type of elements held in this collection
+ * @see PriorityQueue
+ * @see LongIndexedPriorityQueue
+ * @see DoubleIndexedPriorityQueue
+ * @since 1.8
+ */
+public class IndexedPriorityQueue<E> extends AbstractQueue<E> {
+
+    /**
+     * A reference to an element inserted into an {@code
+     * IndexedPriorityQueue}.  A handle remains valid until its element
+     * is removed from the queue, whether by {@code poll}, by one of the
+     * {@code remove} methods, by an iterator or by {@code clear}.
+     *
+     * @param <E> the type of the element
+     */
+    public static final class Handle<E> {
+        E element;
+        int index;
+        IndexedPriorityQueue<E> owner;
+
+        Handle(IndexedPriorityQueue<E> owner, E element) {
+            this.owner = owner;
+            this.element = element;
+        }
+
+        /**
+         * Returns the element currently associated with this handle.
+         *
+         * @return the element
+         */
+        public E getElement() {
+            return element;
+        }
+
+        public String toString() {
+            return String.valueOf(element);
+        }
+    }
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 11;
+
+    /** The arity of the heap unless otherwise specified. */
+    static final int DEFAULT_ARITY = 4;
+
+    /**
+     * The largest arity accepted; wider nodes make poll scan more
+     * children than the depth they save is worth.
+     */
+    static final int MAX_ARITY = 64;
+
+    /**
+     * The maximum size of array to allocate.
+     * Some VMs reserve some header words in an array.
+     * Attempts to allocate larger arrays may result in
+     * OutOfMemoryError: Requested array size exceeds VM limit
+     */
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * Priority queue represented as a balanced d-ary heap: the children
+     * of queue[n] are queue[d*n+1] through queue[d*n+d].  Each handle
+     * records its own position in index, which is kept up to date as
+     * the handles are moved.  The handle of the lowest element is in
+     * queue[0], assuming the queue is nonempty.
+     */
+    Handle<E>[] queue; // non-private to simplify nested class access
+
+    /**
+     * The number of elements in the priority queue.
+     */
+    int size;
+
+    /**
+     * The number of children of each node.
+     */
+    private final int arity;
+
+    /**
+     * The comparator, or null if priority queue uses elements'
+     * natural ordering.
+     */
+    private final Comparator<? super E> comparator;
+
+    /**
+     * The number of times this priority queue has been modified,
+     * including changes of priority, which reorder the heap.
+     */
+    int modCount; // non-private to simplify nested class access
+
+    /**
+     * Creates an {@code IndexedPriorityQueue} with the default initial
+     * capacity (11) and arity (4) that orders its elements according to
+     * their {@linkplain Comparable natural ordering}.
+     */
+    public IndexedPriorityQueue() {
+        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_ARITY, null);
+    }
+
+    /**
+     * Creates an {@code IndexedPriorityQueue} with the default initial
+     * capacity and arity whose elements are ordered according to the
+     * specified comparator.
+     *
+     * @param  comparator the comparator that will be used to order this
+     *         priority queue.  If {@code null}, the {@linkplain Comparable
+     *         natural ordering} of the elements will be used.
+     */
+    public IndexedPriorityQueue(Comparator<? super E> comparator) {
+        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_ARITY, comparator);
+    }
+
+    /**
+     * Creates an {@code IndexedPriorityQueue} with the specified initial
+     * capacity and arity whose elements are ordered according to the
+     * specified comparator.
+     *
+     * @param  initialCapacity the initial capacity for this priority queue
+     * @param  arity the number of children of each node of the heap
+     * @param  comparator the comparator that will be used to order this
+     *         priority queue.  If {@code null}, the {@linkplain Comparable
+     *         natural ordering} of the elements will be used.
+     * @throws IllegalArgumentException if {@code initialCapacity} is
+     *         less than 1, or {@code arity} is less than 2 or greater
+     *         than 64
+     */
+    @SuppressWarnings("unchecked")
+    public IndexedPriorityQueue(int initialCapacity, int arity,
+                                Comparator<? super E> comparator) {
+        if (initialCapacity < 1 || arity < 2 || arity > MAX_ARITY)
+            throw new IllegalArgumentException();
+        this.queue = (Handle<E>[])new Handle<?>[initialCapacity];
+        this.arity = arity;
+        this.comparator = comparator;
+    }
+
+    /**
+     * Increases the capacity of the array.
+     *
+     * @param minCapacity the desired minimum capacity
+     */
+    private void grow(int minCapacity) {
+        int oldCapacity = queue.length;
+        // Double size if small; else grow by 50%
+        int newCapacity = oldCapacity + ((oldCapacity < 64) ?
+                                         (oldCapacity + 2) :
+                                         (oldCapacity >> 1));
+        // overflow-conscious code
+        if (newCapacity - MAX_ARRAY_SIZE > 0)
+            newCapacity = hugeCapacity(minCapacity);
+        queue = Arrays.copyOf(queue, newCapacity);
+    }
+
+    private static int hugeCapacity(int minCapacity) {
+        if (minCapacity < 0) // overflow
+            throw new OutOfMemoryError();
+        return (minCapacity > MAX_ARRAY_SIZE) ?
+            Integer.MAX_VALUE :
+            MAX_ARRAY_SIZE;
+    }
+
+    /**
+     * Inserts the specified element into this priority queue.
+     *
+     * @return {@code true} (as specified by {@link Queue#offer})
+     * @throws ClassCastException if the specified element cannot be
+     *         compared with elements currently in this priority queue
+     *         according to the priority queue's ordering
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e) {
+        insert(e);
+        return true;
+    }
+
+    /**
+     * Inserts the specified element into this priority queue and returns
+     * a handle through which it can later be re-prioritized or removed.
+     *
+     * @param e the element to add
+     * @return the handle of the inserted element
+     * @throws ClassCastException if the specified element cannot be
+     *         compared with elements currently in this priority queue
+     *         according to the priority queue's ordering
+     * @throws NullPointerException if the specified element is null
+     */
+    public Handle<E> insert(E e) {
+        if (e == null)
+            throw new NullPointerException();
+        modCount++;
+        int i = size;
+        if (i >= queue.length)
+            grow(i + 1);
+        Handle<E> h = new Handle<E>(this, e);
+        size = i + 1;
+        if (i == 0) {
+            if (comparator == null)  // type check, as in PriorityQueue
+                compare(e, e);
+            queue[0] = h;
+        }
+        else
+            siftUp(i, h);
+        return h;
+    }
+
+    public E peek() {
+        return (size == 0) ? null : queue[0].element;
+    }
+
+    /**
+     * Retrieves, but does not remove, the handle of the head of this
+     * queue, or returns {@code null} if this queue is empty.
+     *
+     * @return the handle of the head of this queue, or {@code null} if
+     *         this queue is empty
+     */
+    public Handle<E> peekHandle() {
+        return (size == 0) ? null : queue[0];
+    }
+
+    public E poll() {
+        if (size == 0)
+            return null;
+        int s = --size;
+        modCount++;
+        Handle<E> result = queue[0];
+        Handle<E> x = queue[s];
+        queue[s] = null;
+        if (s != 0)
+            siftDown(0, x);
+        detach(result);
+        return result.element;
+    }
+
+    /**
+     * Returns {@code true} if the specified handle refers to an element
+     * that is still in this queue.
+     *
+     * @param h the handle
+     * @return {@code true} if the element of the handle is in this queue
+     */
+    public boolean contains(Handle<?> h) {
+        return h != null && h.owner == this;
+    }
+
+    /**
+     * Removes the element of the specified handle from this queue, if it
+     * is present.
+     *
+     * @param h the handle of the element to be removed
+     * @return {@code true} if the element was removed, or {@code false}
+     *         if it had already left this queue
+     */
+    public boolean remove(Handle<?> h) {
+        if (h == null || h.owner != this)
+            return false;
+        removeAt(h.index);
+        return true;
+    }
+
+    /**
+     * Replaces the element of the specified handle with one that orders
+     * no later than it, moving it towards the head of the queue.
+     *
+     * @param h the handle of an element of this queue
+     * @param e the new element
+     * @throws IllegalArgumentException if the handle does not refer to an
+     *         element of this queue, or if {@code e} orders after the
+     *         current element of the handle
+     * @throws ClassCastException if the specified element cannot be
+     *         compared with elements currently in this priority queue
+     * @throws NullPointerException if either argument is null
+     */
+    public void decreaseKey(Handle<E> h, E e) {
+        checkHandle(h, e);
+        if (compare(e, h.element) > 0)
+            throw new IllegalArgumentException("key increased");
+        modCount++;
+        h.element = e;
+        siftUp(h.index, h);
+    }
+
+    /**
+     * Replaces the element of the specified handle with one that orders
+     * no earlier than it, moving it away from the head of the queue.
+     *
+     * @param h the handle of an element of this queue
+     * @param e the new element
+     * @throws IllegalArgumentException if the handle does not refer to an
+     *         element of this queue, or if {@code e} orders before the
+     *         current element of the handle
+     * @throws ClassCastException if the specified element cannot be
+     *         compared with elements currently in this priority queue
+     * @throws NullPointerException if either argument is null
+     */
+    public void increaseKey(Handle<E> h, E e) {
+        checkHandle(h, e);
+        if (compare(e, h.element) < 0)
+            throw new IllegalArgumentException("key decreased");
+        modCount++;
+        h.element = e;
+        siftDown(h.index, h);
+    }
+
+    /**
+     * Replaces the element of the specified handle, moving it in
+     * whichever direction its new position requires.
+     *
+     * @param h the handle of an element of this queue
+     * @param e the new element
+     * @throws IllegalArgumentException if the handle does not refer to an
+     *         element of this queue
+     * @throws ClassCastException if the specified element cannot be
+     *         compared with elements currently in this priority queue
+     * @throws NullPointerException if either argument is null
+     */
+    public void changeKey(Handle<E> h, E e) {
+        checkHandle(h, e);
+        modCount++;
+        h.element = e;
+        int i = h.index;
+        siftUp(i, h);
+        if (queue[i] == h)
+            siftDown(i, h);
+    }
+
+    private void checkHandle(Handle<E> h, E e) {
+        if (e == null)
+            throw new NullPointerException();
+        if (h.owner != this)
+            throw new IllegalArgumentException("handle not in queue");
+    }
+
+    public boolean contains(Object o) {
+        return indexOf(o) != -1;
+    }
+
+    /**
+     * Removes a single instance of the specified element from this queue,
+     * if it is present.  This takes linear time; prefer {@link
+     * #remove(IndexedPriorityQueue.Handle) remove(Handle)} when the handle
+     * is at hand.
+     *
+     * @param o element to be removed from this queue, if present
+     * @return {@code true} if this queue changed as a result of the call
+     */
+    public boolean remove(Object o) {
+        int i = indexOf(o);
+        if (i == -1)
+            return false;
+        removeAt(i);
+        return true;
+    }
+
+    private int indexOf(Object o) {
+        if (o != null) {
+            for (int i = 0; i < size; i++)
+                if (o.equals(queue[i].element))
+                    return i;
+        }
+        return -1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all of the elements from this priority queue.  The handles
+     * of the removed elements are no longer valid.
+     */
+    public void clear() {
+        modCount++;
+        for (int i = 0; i < size; i++) {
+            detach(queue[i]);
+            queue[i] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * Returns the comparator used to order the elements in this
+     * queue, or {@code null} if this queue is sorted according to
+     * the {@linkplain Comparable natural ordering} of its elements.
+     *
+     * @return the comparator used to order this queue, or
+     *         {@code null} if this queue is sorted according to the
+     *         natural ordering of its elements
+     */
+    public Comparator<? super E> comparator() {
+        return comparator;
+    }
+
+    /**
+     * Returns the number of children of each node of the heap.
+     *
+     * @return the arity of this queue
+     */
+    public int arity() {
+        return arity;
+    }
+
+    /**
+     * Returns an iterator over the elements in this queue. The iterator
+     * does not return the elements in any particular order.
+     *
+     * @return an iterator over the elements in this queue
+     */
+    public Iterator<E> iterator() {
+        return new Itr();
+    }
+
+    private final class Itr implements Iterator<E> {
+        /**
+         * Index (into queue array) of element to be returned by
+         * subsequent call to next.
+         */
+        private int cursor;
+
+        /**
+         * Index of element returned by most recent call to next,
+         * unless that element came from the forgetMeNot list.
+         * Set to -1 if element is deleted by a call to remove.
+         */
+        private int lastRet = -1;
+
+        /**
+         * A queue of handles that were moved from the unvisited portion of
+         * the heap into the visited portion as a result of "unlucky"
+         * element removals during the iteration, as in PriorityQueue.
+         */
+        private ArrayDeque<Handle<E>> forgetMeNot;
+
+        /**
+         * Handle returned by the most recent call to next iff that
+         * element was drawn from the forgetMeNot list.
+         */
+        private Handle<E> lastRetElt;
+
+        private int expectedModCount = modCount;
+
+        public boolean hasNext() {
+            return cursor < size ||
+                (forgetMeNot != null && !forgetMeNot.isEmpty());
+        }
+
+        public E next() {
+            if (expectedModCount != modCount)
+                throw new ConcurrentModificationException();
+            if (cursor < size)
+                return queue[lastRet = cursor++].element;
+            if (forgetMeNot != null) {
+                lastRet = -1;
+                lastRetElt = forgetMeNot.poll();
+                if (lastRetElt != null)
+                    return lastRetElt.element;
+            }
+            throw new NoSuchElementException();
+        }
+
+        public void remove() {
+            if (expectedModCount != modCount)
+                throw new ConcurrentModificationException();
+            if (lastRet != -1) {
+                Handle<E> moved = removeAt(lastRet);
+                lastRet = -1;
+                if (moved == null)
+                    cursor--;
+                else {
+                    if (forgetMeNot == null)
+                        forgetMeNot = new ArrayDeque<>();
+                    forgetMeNot.add(moved);
+                }
+            } else if (lastRetElt != null) {
+                if (lastRetElt.owner == IndexedPriorityQueue.this)
+                    removeAt(lastRetElt.index);
+                lastRetElt = null;
+            } else {
+                throw new IllegalStateException();
+            }
+            expectedModCount = modCount;
+        }
+
+        public void forEachRemaining(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+            while (hasNext())
+                action.accept(next());
+        }
+    }
+
+    /**
+     * Removes the ith element from queue.
+     *
+     * Normally this method leaves the elements at up to i-1,
+     * inclusive, untouched.  Under these circumstances, it returns
+     * null.  Occasionally, in order to maintain the heap invariant,
+     * it must swap a later element of the list with one earlier than
+     * i.  Under these circumstances, this method returns the handle
+     * that was previously at the end of the list and is now at some
+     * position before i. This fact is used by iterator.remove so as to
+     * avoid missing traversing elements.
+     */
+    private Handle<E> removeAt(int i) {
+        modCount++;
+        int s = --size;
+        Handle<E> removed = queue[i];
+        detach(removed);
+        if (s == i) // removed last element
+            queue[i] = null;
+        else {
+            Handle<E> moved = queue[s];
+            queue[s] = null;
+            siftDown(i, moved);
+            if (queue[i] == moved) {
+                siftUp(i, moved);
+                if (queue[i] != moved)
+                    return moved;
+            }
+        }
+        return null;
+    }
+
+    /** Invalidates the handle of an element leaving the queue. */
+    private static void detach(Handle<?> h) {
+        h.owner = null;
+        h.index = -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(E a, E b) {
+        return (comparator == null) ?
+            ((Comparable<? super E>)a).compareTo(b) :
+            comparator.compare(a, b);
+    }
+
+    /**
+     * Inserts handle h at position k, maintaining heap invariant by
+     * promoting h up the tree until its element is greater than or equal
+     * to that of its parent, or it becomes the root.  Each handle moved
+     * has its index updated.
+     *
+     * @param k the position to fill
+     * @param h the handle to insert
+     */
+    private void siftUp(int k, Handle<E> h) {
+        Handle<E>[] q = queue;
+        int d = arity;
+        E e = h.element;
+        while (k > 0) {
+            int parent = (k - 1) / d;
+            Handle<E> p = q[parent];
+            if (compare(e, p.element) >= 0)
+                break;
+            q[k] = p;
+            p.index = k;
+            k = parent;
+        }
+        q[k] = h;
+        h.index = k;
+    }
+
+    /**
+     * Inserts handle h at position k, maintaining heap invariant by
+     * demoting h down the tree repeatedly until its element is less than
+     * or equal to those of all its children or it is a leaf.
+     *
+     * @param k the position to fill
+     * @param h the handle to insert
+     */
+    private void siftDown(int k, Handle<E> h) {
+        Handle<E>[] q = queue;
+        int n = size, d = arity;
+        E e = h.element;
+        if (n > 1) {
+            int lastParent = (n - 2) / d;
+            while (k <= lastParent) {
+                int c = d * k + 1;
+                int end = Math.min(c + d, n);
+                Handle<E> best = q[c];
+                E be = best.element;
+                for (int j = c + 1; j < end; j++) {
+                    Handle<E> o = q[j];
+                    if (compare(o.element, be) < 0) {
+                        c = j;
+                        best = o;
+                        be = o.element;
+                    }
+                }
+                if (compare(e, be) <= 0)
+                    break;
+                q[k] = best;
+                best.index = k;
+                k = c;
+            }
+        }
+        q[k] = h;
+        h.index = k;
+    }
+}
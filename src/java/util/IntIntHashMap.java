@@ -0,0 +1,760 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntConsumer;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A hash map from primitive {@code int} keys to primitive {@code int}
+ * values, backed by open addressing over parallel {@code int[]} arrays.
+ *
+ * <p>Unlike {@code HashMap<Integer,Integer>}, this map allocates no
+ * per-entry objects: there are no boxed keys or values and no
+ * {@code Node} per mapping, so each mapping costs two {@code int} slots
+ * of table space (divided by the load factor).  Collisions are resolved
+ * by linear probing, and removal uses backward-shift deletion, so the
+ * table never accumulates tombstones.  Resizing allocates only the two
+ * new arrays.
+ *
+ * <p>The key {@code 0} is used internally to mark free slots, so a
+ * mapping for key {@code 0} is held outside the table.  Methods that
+ * return a value return {@code 0} when no mapping is present; use
+ * {@link #containsKey} or {@link #getOrDefault} to distinguish an absent
+ * key from a key mapped to {@code 0}.  {@link #addTo} makes this map
+ * suitable as a counter table.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * The spliterators returned by {@link #keySpliterator} and
+ * {@link #valueSpliterator} are <em>late-binding</em> and
+ * <em>fail-fast</em> in the same manner as those of {@link HashMap}.
+ *
+ * @see IntObjectHashMap
+ * @see LongLongHashMap
+ * @since 1.8
+ */
+public class IntIntHashMap implements Cloneable {
+
+    /**
+     * The default initial capacity - MUST be a power of two.
+     */
+    static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    /**
+     * The load factor used when none specified in constructor.
+     */
+    static final float DEFAULT_LOAD_FACTOR = 0.5f;
+
+    /**
+     * The key table; {@code 0} marks a free slot.  Length is always a
+     * power of two.
+     */
+    transient int[] keys;
+
+    /**
+     * The value table, parallel to {@link #keys}.
+     */
+    transient int[] vals;
+
+    /**
+     * Whether a mapping for key {@code 0} is present.
+     */
+    transient boolean hasZeroKey;
+
+    /**
+     * The value mapped to key {@code 0}, if {@link #hasZeroKey}.
+     */
+    transient int zeroVal;
+
+    /**
+     * The number of key-value mappings, including any zero key.
+     */
+    transient int size;
+
+    /**
+     * The number of structural modifications, for fail-fast spliterators.
+     */
+    transient int modCount;
+
+    /**
+     * The number of table entries at which the table is resized.
+     */
+    int threshold;
+
+    /**
+     * The load factor for the hash table.
+     */
+    final float loadFactor;
+
+    /**
+     * Constructs an empty map with the default initial capacity (16)
+     * and the default load factor (0.5).
+     */
+    public IntIntHashMap() {
+        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty map able to hold the specified number of
+     * mappings without resizing, using the default load factor (0.5).
+     *
+     * @param  expectedSize the expected number of mappings
+     * @throws IllegalArgumentException if the expected size is negative
+     */
+    public IntIntHashMap(int expectedSize) {
+        this(expectedSize, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty map able to hold the specified number of
+     * mappings without resizing, using the given load factor.
+     *
+     * @param  expectedSize the expected number of mappings
+     * @param  loadFactor the load factor, in the range {@code (0, 1)}
+     * @throws IllegalArgumentException if the expected size is negative
+     *         or the load factor is out of range
+     */
+    public IntIntHashMap(int expectedSize, float loadFactor) {
+        if (expectedSize < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               expectedSize);
+        if (!(loadFactor > 0.0f && loadFactor < 1.0f))
+            throw new IllegalArgumentException("Illegal load factor: " +
+                                               loadFactor);
+        this.loadFactor = loadFactor;
+        int cap = IntObjectHashMap.tableSizeFor(expectedSize, loadFactor);
+        keys = new int[cap];
+        vals = new int[cap];
+        threshold = IntObjectHashMap.thresholdFor(cap, loadFactor);
+    }
+
+    /* ---------------- Query operations -------------- */
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this map contains no key-value mappings.
+     *
+     * @return {@code true} if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the table slot holding the key, or -1 if absent.  Does not
+     * handle the zero key.
+     */
+    final int indexOf(int key) {
+        int[] ks = keys;
+        int m = ks.length - 1, i = IntObjectHashMap.mix(key) & m, k;
+        while ((k = ks[i]) != 0) {
+            if (k == key)
+                return i;
+            i = (i + 1) & m;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the
+     * specified key.
+     *
+     * @param  key the key whose presence is to be tested
+     * @return {@code true} if this map contains a mapping for the key
+     */
+    public boolean containsKey(int key) {
+        return (key == 0) ? hasZeroKey : indexOf(key) >= 0;
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * specified value.  This operation requires a scan of the table.
+     *
+     * @param  value value whose presence is to be tested
+     * @return {@code true} if this map maps one or more keys to the value
+     */
+    public boolean containsValue(int value) {
+        if (hasZeroKey && zeroVal == value)
+            return true;
+        int[] ks = keys, vs = vals;
+        for (int i = 0; i < ks.length; ++i) {
+            if (ks[i] != 0 && vs[i] == value)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code 0} if this map contains no mapping for the key.
+     *
+     * @param  key the key whose associated value is to be returned
+     * @return the mapped value, or {@code 0} if none
+     */
+    public int get(int key) {
+        return getOrDefault(key, 0);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code defaultValue} if this map contains no mapping for the key.
+     *
+     * @param  key the key whose associated value is to be returned
+     * @param  defaultValue the default mapping of the key
+     * @return the mapped value, or {@code defaultValue} if none
+     */
+    public int getOrDefault(int key, int defaultValue) {
+        if (key == 0)
+            return hasZeroKey ? zeroVal : defaultValue;
+        int[] ks = keys;
+        int m = ks.length - 1, i = IntObjectHashMap.mix(key) & m, k;
+        while ((k = ks[i]) != 0) {
+            if (k == key)
+                return vals[i];
+            i = (i + 1) & m;
+        }
+        return defaultValue;
+    }
+
+    /* ---------------- Modification operations -------------- */
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     *
+     * @param  key key with which the specified value is to be associated
+     * @param  value value to be associated with the specified key
+     * @return the previous value associated with {@code key}, or
+     *         {@code 0} if there was no mapping for {@code key}
+     */
+    public int put(int key, int value) {
+        int i = slotFor(key);
+        if (i < 0) {
+            int old = zeroVal;
+            zeroVal = value;
+            return old;
+        }
+        int old = vals[i];
+        vals[i] = value;
+        return old;
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * associates it with the given value.
+     *
+     * @param  key key with which the specified value is to be associated
+     * @param  value value to be associated with the specified key
+     * @return the current value associated with {@code key}, or
+     *         {@code 0} if there was no mapping for {@code key}
+     */
+    public int putIfAbsent(int key, int value) {
+        int mc = modCount;
+        int i = slotFor(key);
+        if (i < 0) {
+            if (modCount != mc)
+                zeroVal = value;
+            return (modCount != mc) ? 0 : zeroVal;
+        }
+        if (modCount != mc) {
+            vals[i] = value;
+            return 0;
+        }
+        return vals[i];
+    }
+
+    /**
+     * Adds the given delta to the value mapped to the key, treating an
+     * absent key as mapped to {@code 0}.
+     *
+     * @param  key the key whose value is to be incremented
+     * @param  delta the value to add
+     * @return the updated value
+     */
+    public int addTo(int key, int delta) {
+        int i = slotFor(key);
+        return (i < 0) ? (zeroVal += delta) : (vals[i] += delta);
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * associates it with the given value; otherwise replaces the value
+     * with the result of the given remapping function.
+     *
+     * @param  key key with which the resulting value is to be associated
+     * @param  value the value to be merged with the existing value
+     * @param  remappingFunction the function to recompute a value if present
+     * @return the new value associated with the specified key
+     * @throws NullPointerException if the remapping function is null
+     */
+    public int merge(int key, int value, IntBinaryOperator remappingFunction) {
+        if (remappingFunction == null)
+            throw new NullPointerException();
+        int mc = modCount;
+        int i = slotFor(key);
+        boolean added = modCount != mc;
+        int v = added ? value :
+            remappingFunction.applyAsInt((i < 0) ? zeroVal : vals[i], value);
+        if (i < 0)
+            zeroVal = v;
+        else
+            vals[i] = v;
+        return v;
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * computes its value using the given mapping function and enters it
+     * into this map.
+     *
+     * @param  key key with which the specified value is to be associated
+     * @param  mappingFunction the function to compute a value
+     * @return the current (existing or computed) value associated with
+     *         the specified key
+     * @throws NullPointerException if the mapping function is null
+     */
+    public int computeIfAbsent(int key, IntUnaryOperator mappingFunction) {
+        if (mappingFunction == null)
+            throw new NullPointerException();
+        if (key == 0) {
+            if (hasZeroKey)
+                return zeroVal;
+        }
+        else {
+            int i = indexOf(key);
+            if (i >= 0)
+                return vals[i];
+        }
+        int v = mappingFunction.applyAsInt(key);
+        put(key, v);
+        return v;
+    }
+
+    /**
+     * Returns the slot for the key, inserting it with value {@code 0} if
+     * absent, or -1 for the zero key.  Insertion bumps {@link #modCount},
+     * which callers use to detect whether the key was added.
+     */
+    final int slotFor(int key) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                zeroVal = 0;
+                ++modCount;
+                ++size;
+            }
+            return -1;
+        }
+        int[] ks = keys;
+        int m = ks.length - 1, i = IntObjectHashMap.mix(key) & m, k;
+        while ((k = ks[i]) != 0) {
+            if (k == key)
+                return i;
+            i = (i + 1) & m;
+        }
+        ks[i] = key;
+        vals[i] = 0;
+        ++modCount;
+        if (++size > threshold) {
+            resize(ks.length << 1);
+            i = indexOf(key);
+        }
+        return i;
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param  key key whose mapping is to be removed from the map
+     * @return the previous value associated with {@code key}, or
+     *         {@code 0} if there was no mapping for {@code key}
+     */
+    public int remove(int key) {
+        if (key == 0) {
+            int old = zeroVal;
+            if (hasZeroKey) {
+                hasZeroKey = false;
+                zeroVal = 0;
+                ++modCount;
+                --size;
+            }
+            return old;
+        }
+        int i = indexOf(key);
+        if (i < 0)
+            return 0;
+        int old = vals[i];
+        removeAt(i);
+        return old;
+    }
+
+    /**
+     * Removes the table entry at slot {@code i} and closes the probe
+     * sequence gap by shifting later colliding entries backward.
+     */
+    final void removeAt(int i) {
+        int[] ks = keys, vs = vals;
+        int m = ks.length - 1;
+        for (int last = i, j = i;;) {
+            j = (j + 1) & m;
+            int k = ks[j];
+            if (k == 0) {
+                ks[last] = 0;
+                vs[last] = 0;
+                break;
+            }
+            int home = IntObjectHashMap.mix(k) & m;
+            // move k back only if its home slot is not within (last, j]
+            if (last <= j ? (home <= last || home > j)
+                          : (home <= last && home > j)) {
+                ks[last] = k;
+                vs[last] = vs[j];
+                last = j;
+            }
+        }
+        ++modCount;
+        --size;
+    }
+
+    /**
+     * Removes all of the mappings from this map.  The table keeps its
+     * current capacity.
+     */
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(keys, 0);
+            Arrays.fill(vals, 0);
+            hasZeroKey = false;
+            zeroVal = 0;
+            size = 0;
+        }
+        ++modCount;
+    }
+
+    /**
+     * Rehashes the table into a new table of the given capacity.
+     */
+    final void resize(int newCap) {
+        int[] oldKeys = keys, oldVals = vals;
+        if (oldKeys.length >= IntObjectHashMap.MAXIMUM_CAPACITY) {
+            if (size >= IntObjectHashMap.MAXIMUM_CAPACITY - 1)
+                throw new IllegalStateException("Map capacity exceeded");
+            return;
+        }
+        int[] ks = new int[newCap], vs = new int[newCap];
+        int m = newCap - 1;
+        for (int j = 0; j < oldKeys.length; ++j) {
+            int k = oldKeys[j];
+            if (k != 0) {
+                int i = IntObjectHashMap.mix(k) & m;
+                while (ks[i] != 0)
+                    i = (i + 1) & m;
+                ks[i] = k;
+                vs[i] = oldVals[j];
+            }
+        }
+        keys = ks;
+        vals = vs;
+        threshold = IntObjectHashMap.thresholdFor(newCap, loadFactor);
+    }
+
+    /* ---------------- Bulk operations and views -------------- */
+
+    /**
+     * Represents an operation that accepts an {@code int} key and its
+     * mapped {@code int} value.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        /**
+         * Performs this operation on the given mapping.
+         *
+         * @param key the key
+         * @param value the mapped value
+         */
+        void accept(int key, int value);
+    }
+
+    /**
+     * Performs the given action for each mapping in this map.
+     *
+     * @param  action the action to be performed for each mapping
+     * @throws NullPointerException if the action is null
+     * @throws ConcurrentModificationException if the map is structurally
+     *         modified during iteration
+     */
+    public void forEach(EntryConsumer action) {
+        if (action == null)
+            throw new NullPointerException();
+        int mc = modCount;
+        if (hasZeroKey)
+            action.accept(0, zeroVal);
+        int[] ks = keys, vs = vals;
+        for (int i = 0; i < ks.length && modCount == mc; ++i) {
+            int k = ks[i];
+            if (k != 0)
+                action.accept(k, vs[i]);
+        }
+        if (modCount != mc)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Returns a {@link Spliterator.OfInt} over the keys of this map.  The
+     * spliterator reports {@link Spliterator#SIZED} (when unsplit) and
+     * {@link Spliterator#DISTINCT}, and splits by halving the range of
+     * table slots.
+     *
+     * @return a spliterator over the keys of this map
+     */
+    public Spliterator.OfInt keySpliterator() {
+        return new TableSpliterator(this, true, 0, -1, 0, 0);
+    }
+
+    /**
+     * Returns a {@link Spliterator.OfInt} over the values of this map.
+     *
+     * @return a spliterator over the values of this map
+     */
+    public Spliterator.OfInt valueSpliterator() {
+        return new TableSpliterator(this, false, 0, -1, 0, 0);
+    }
+
+    /**
+     * Returns a sequential {@code IntStream} of the keys of this map.
+     * Call {@link IntStream#parallel} on the result for a parallel stream.
+     *
+     * @return a stream of the keys of this map
+     */
+    public IntStream keyStream() {
+        return StreamSupport.intStream(keySpliterator(), false);
+    }
+
+    /**
+     * Returns a sequential {@code IntStream} of the values of this map.
+     *
+     * @return a stream of the values of this map
+     */
+    public IntStream valueStream() {
+        return StreamSupport.intStream(valueSpliterator(), false);
+    }
+
+    /* ---------------- Object methods -------------- */
+
+    /**
+     * Returns a copy of this map.
+     *
+     * @return a copy of this map
+     */
+    @Override
+    public IntIntHashMap clone() {
+        IntIntHashMap result;
+        try {
+            result = (IntIntHashMap)super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+        result.keys = keys.clone();
+        result.vals = vals.clone();
+        result.modCount = 0;
+        return result;
+    }
+
+    /**
+     * Compares the specified object with this map for equality.  Returns
+     * {@code true} if the given object is also an {@code IntIntHashMap}
+     * and the two maps represent the same mappings.
+     *
+     * @param  o object to be compared for equality with this map
+     * @return {@code true} if the specified object is equal to this map
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof IntIntHashMap))
+            return false;
+        IntIntHashMap m = (IntIntHashMap)o;
+        if (m.size != size || m.hasZeroKey != hasZeroKey)
+            return false;
+        if (hasZeroKey && zeroVal != m.zeroVal)
+            return false;
+        int[] ks = keys, vs = vals;
+        for (int i = 0; i < ks.length; ++i) {
+            int k = ks[i], j;
+            if (k != 0 && ((j = m.indexOf(k)) < 0 || vs[i] != m.vals[j]))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the hash code value for this map, defined as the sum of
+     * {@code key ^ value} over all mappings, which matches
+     * {@code HashMap<Integer,Integer>.hashCode()} for the same mappings.
+     *
+     * @return the hash code value for this map
+     */
+    @Override
+    public int hashCode() {
+        int h = hasZeroKey ? zeroVal : 0;
+        int[] ks = keys, vs = vals;
+        for (int i = 0; i < ks.length; ++i) {
+            int k = ks[i];
+            if (k != 0)
+                h += k ^ vs[i];
+        }
+        return h;
+    }
+
+    /**
+     * Returns a string representation of this map, in the same form as
+     * {@link AbstractMap#toString}.
+     *
+     * @return a string representation of this map
+     */
+    @Override
+    public String toString() {
+        if (size == 0)
+            return "{}";
+        StringBuilder sb = new StringBuilder().append('{');
+        forEach((k, v) -> {
+            if (sb.length() > 1)
+                sb.append(", ");
+            sb.append(k).append('=').append(v);
+        });
+        return sb.append('}').toString();
+    }
+
+    /* ---------------- Spliterators -------------- */
+
+    /**
+     * Spliterator over either keys or values.  Slot indices
+     * {@code [0, n)} address the table; the virtual slot {@code n}
+     * addresses the zero key, so the zero key is traversed by exactly
+     * one split.
+     */
+    static final class TableSpliterator implements Spliterator.OfInt {
+        final IntIntHashMap map;
+        final boolean keys;         // true for keys, false for values
+        int index;                  // current slot, modified on advance/split
+        int fence;                  // one past last slot, or -1 until bound
+        int est;                    // size estimate
+        int expectedModCount;       // for comodification checks
+
+        TableSpliterator(IntIntHashMap m, boolean keys, int origin, int fence,
+                         int est, int expectedModCount) {
+            this.map = m;
+            this.keys = keys;
+            this.index = origin;
+            this.fence = fence;
+            this.est = est;
+            this.expectedModCount = expectedModCount;
+        }
+
+        final int getFence() { // initialize fence and size on first use
+            int hi;
+            if ((hi = fence) < 0) {
+                IntIntHashMap m = map;
+                est = m.size;
+                expectedModCount = m.modCount;
+                hi = fence = m.keys.length + 1;
+            }
+            return hi;
+        }
+
+        public long estimateSize() {
+            getFence(); // force init
+            return (long) est;
+        }
+
+        public TableSpliterator trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null :
+                new TableSpliterator(map, keys, lo, index = mid, est >>>= 1,
+                                     expectedModCount);
+        }
+
+        /**
+         * Advances to the next occupied slot below {@code hi}, returning
+         * its key or value through {@code action}.
+         */
+        private boolean advance(int hi, IntConsumer action) {
+            IntIntHashMap m = map;
+            int[] ks = m.keys, src = keys ? ks : m.vals;
+            int n = ks.length;
+            if (n + 1 < hi)
+                throw new ConcurrentModificationException();
+            for (int i; (i = index) < hi; ) {
+                index = i + 1;
+                if (i < n) {
+                    if (ks[i] != 0) {
+                        action.accept(src[i]);
+                        return true;
+                    }
+                }
+                else if (m.hasZeroKey) {
+                    action.accept(keys ? 0 : m.zeroVal);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public boolean tryAdvance(IntConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            boolean advanced = advance(getFence(), action);
+            if (map.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            return advanced;
+        }
+
+        public void forEachRemaining(IntConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            int hi = getFence();
+            while (advance(hi, action)) { }
+            if (map.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        public int characteristics() {
+            return (fence < 0 || est == map.size ? Spliterator.SIZED : 0) |
+                (keys ? Spliterator.DISTINCT : 0);
+        }
+    }
+}
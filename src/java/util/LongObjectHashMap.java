@@ -0,0 +1,822 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A hash map from primitive {@code long} keys to object values, backed by
+ * open addressing over parallel {@code long[]} key and {@code Object[]}
+ * value arrays.
+ *
+ * <p>Unlike {@code HashMap<Long,V>}, this map allocates no per-entry
+ * objects: there is no boxed key and no {@code Node} (or {@code TreeNode})
+ * per mapping, so each mapping costs one {@code long} and one reference
+ * slot of table space (divided by the load factor).  Collisions are
+ * resolved by linear probing, and removal uses backward-shift deletion,
+ * so the table never accumulates tombstones.  Resizing allocates only the
+ * two new arrays and reinserts keys in place.
+ *
+ * <p>The key {@code 0} is used internally to mark free slots, so a
+ * mapping for key {@code 0} is held outside the table.  Values may be
+ * {@code null}; use {@link #containsKey} to distinguish an absent key
+ * from a key mapped to {@code null}.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * The spliterators returned by {@link #keySpliterator} and
+ * {@link #valueSpliterator} are <em>late-binding</em> and
+ * <em>fail-fast</em> in the same manner as those of {@link HashMap}.
+ *
+ * @param <V> the type of mapped values
+ * @see HashMap
+ * @see IntObjectHashMap
+ * @since 1.8
+ */
+public class LongObjectHashMap<V> implements Cloneable {
+
+    /**
+     * The default initial capacity - MUST be a power of two.
+     */
+    static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    /**
+     * The maximum table capacity.
+     */
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /**
+     * The load factor used when none specified in constructor.  Linear
+     * probing degrades quickly as the table fills, so the default is
+     * lower than that of {@link HashMap}.
+     */
+    static final float DEFAULT_LOAD_FACTOR = 0.5f;
+
+    /**
+     * The key table; {@code 0} marks a free slot.  Length is always a
+     * power of two.
+     */
+    transient long[] keys;
+
+    /**
+     * The value table, parallel to {@link #keys}.
+     */
+    transient Object[] vals;
+
+    /**
+     * Whether a mapping for key {@code 0} is present.
+     */
+    transient boolean hasZeroKey;
+
+    /**
+     * The value mapped to key {@code 0}, if {@link #hasZeroKey}.
+     */
+    transient Object zeroVal;
+
+    /**
+     * The number of key-value mappings, including any zero key.
+     */
+    transient int size;
+
+    /**
+     * The number of structural modifications, for fail-fast spliterators.
+     */
+    transient int modCount;
+
+    /**
+     * The number of table entries at which the table is resized.
+     */
+    int threshold;
+
+    /**
+     * The load factor for the hash table.
+     */
+    final float loadFactor;
+
+    /**
+     * Constructs an empty map with the default initial capacity (16)
+     * and the default load factor (0.5).
+     */
+    public LongObjectHashMap() {
+        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty map able to hold the specified number of
+     * mappings without resizing, using the default load factor (0.5).
+     *
+     * @param  expectedSize the expected number of mappings
+     * @throws IllegalArgumentException if the expected size is negative
+     */
+    public LongObjectHashMap(int expectedSize) {
+        this(expectedSize, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty map able to hold the specified number of
+     * mappings without resizing, using the given load factor.
+     *
+     * @param  expectedSize the expected number of mappings
+     * @param  loadFactor the load factor, in the range {@code (0, 1)}
+     * @throws IllegalArgumentException if the expected size is negative
+     *         or the load factor is out of range
+     */
+    public LongObjectHashMap(int expectedSize, float loadFactor) {
+        if (expectedSize < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               expectedSize);
+        if (!(loadFactor > 0.0f && loadFactor < 1.0f))
+            throw new IllegalArgumentException("Illegal load factor: " +
+                                               loadFactor);
+        this.loadFactor = loadFactor;
+        int cap = tableSizeFor(expectedSize, loadFactor);
+        keys = new long[cap];
+        vals = new Object[cap];
+        threshold = thresholdFor(cap, loadFactor);
+    }
+
+    /* ---------------- Static utilities -------------- */
+
+    /**
+     * Spreads the bits of a key so that sequential or strided ids do not
+     * cluster under the power-of-two mask.  Uses Fibonacci hashing; the
+     * high half is folded down because only the low bits are indexed.
+     */
+    static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        return (int)(h ^ (h >>> 16));
+    }
+
+    /**
+     * Returns the power-of-two table size that holds {@code expected}
+     * mappings at the given load factor.
+     */
+    static int tableSizeFor(int expected, float loadFactor) {
+        long need = (long)Math.ceil(expected / (double)loadFactor);
+        if (need >= MAXIMUM_CAPACITY)
+            return MAXIMUM_CAPACITY;
+        int n = Math.max(2, (int)need);
+        return Integer.highestOneBit(n - 1) << 1;
+    }
+
+    /**
+     * Returns the resize threshold for a table of the given capacity.
+     */
+    static int thresholdFor(int cap, float loadFactor) {
+        return (cap == MAXIMUM_CAPACITY) ? MAXIMUM_CAPACITY - 1 :
+            Math.min(cap - 1, (int)Math.ceil(cap * loadFactor));
+    }
+
+    /* ---------------- Query operations -------------- */
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this map contains no key-value mappings.
+     *
+     * @return {@code true} if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the table slot holding the key, or -1 if absent.  Does not
+     * handle the zero key.
+     */
+    final int indexOf(long key) {
+        long[] ks = keys;
+        int m = ks.length - 1, i = mix(key) & m;
+        long k;
+        while ((k = ks[i]) != 0) {
+            if (k == key)
+                return i;
+            i = (i + 1) & m;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the
+     * specified key.
+     *
+     * @param  key the key whose presence is to be tested
+     * @return {@code true} if this map contains a mapping for the key
+     */
+    public boolean containsKey(long key) {
+        return (key == 0) ? hasZeroKey : indexOf(key) >= 0;
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * specified value.  This operation requires a scan of the table.
+     *
+     * @param  value value whose presence is to be tested
+     * @return {@code true} if this map maps one or more keys to the value
+     */
+    public boolean containsValue(Object value) {
+        if (hasZeroKey && Objects.equals(zeroVal, value))
+            return true;
+        long[] ks = keys;
+        Object[] vs = vals;
+        for (int i = 0; i < ks.length; ++i) {
+            if (ks[i] != 0 && Objects.equals(vs[i], value))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code null} if this map contains no mapping for the key.
+     *
+     * @param  key the key whose associated value is to be returned
+     * @return the mapped value, or {@code null} if none
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == 0)
+            return (V)zeroVal;
+        long[] ks = keys;
+        int m = ks.length - 1, i = mix(key) & m;
+        long k;
+        while ((k = ks[i]) != 0) {
+            if (k == key)
+                return (V)vals[i];
+            i = (i + 1) & m;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code defaultValue} if this map contains no mapping for the key.
+     *
+     * @param  key the key whose associated value is to be returned
+     * @param  defaultValue the default mapping of the key
+     * @return the mapped value, or {@code defaultValue} if none
+     */
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(long key, V defaultValue) {
+        if (key == 0)
+            return hasZeroKey ? (V)zeroVal : defaultValue;
+        int i = indexOf(key);
+        return (i >= 0) ? (V)vals[i] : defaultValue;
+    }
+
+    /* ---------------- Modification operations -------------- */
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     *
+     * @param  key key with which the specified value is to be associated
+     * @param  value value to be associated with the specified key
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     */
+    public V put(long key, V value) {
+        return putVal(key, value, false);
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * associates it with the given value.
+     *
+     * @param  key key with which the specified value is to be associated
+     * @param  value value to be associated with the specified key
+     * @return the current value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     */
+    public V putIfAbsent(long key, V value) {
+        return putVal(key, value, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    final V putVal(long key, V value, boolean onlyIfAbsent) {
+        if (key == 0) {
+            Object old = zeroVal;
+            if (hasZeroKey) {
+                if (!onlyIfAbsent)
+                    zeroVal = value;
+                return (V)old;
+            }
+            hasZeroKey = true;
+            zeroVal = value;
+            ++modCount;
+            ++size;
+            return null;
+        }
+        long[] ks = keys;
+        int m = ks.length - 1, i = mix(key) & m;
+        long k;
+        while ((k = ks[i]) != 0) {
+            if (k == key) {
+                Object old = vals[i];
+                if (!onlyIfAbsent)
+                    vals[i] = value;
+                return (V)old;
+            }
+            i = (i + 1) & m;
+        }
+        ks[i] = key;
+        vals[i] = value;
+        ++modCount;
+        if (++size > threshold)
+            resize(ks.length << 1);
+        return null;
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * attempts to compute its value using the given mapping function
+     * and enters it into this map unless {@code null}.
+     *
+     * @param  key key with which the specified value is to be associated
+     * @param  mappingFunction the function to compute a value
+     * @return the current (existing or computed) value associated with
+     *         the specified key, or null if the computed value is null
+     * @throws NullPointerException if the mapping function is null
+     */
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(long key, LongFunction<? extends V> mappingFunction) {
+        if (mappingFunction == null)
+            throw new NullPointerException();
+        if (key == 0) {
+            if (hasZeroKey && zeroVal != null)
+                return (V)zeroVal;
+        }
+        else {
+            int i = indexOf(key);
+            if (i >= 0 && vals[i] != null)
+                return (V)vals[i];
+        }
+        V v = mappingFunction.apply(key);
+        if (v != null)
+            put(key, v);
+        return v;
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param  key key whose mapping is to be removed from the map
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (key == 0) {
+            Object old = zeroVal;
+            if (hasZeroKey) {
+                hasZeroKey = false;
+                zeroVal = null;
+                ++modCount;
+                --size;
+            }
+            return (V)old;
+        }
+        int i = indexOf(key);
+        if (i < 0)
+            return null;
+        Object old = vals[i];
+        removeAt(i);
+        return (V)old;
+    }
+
+    /**
+     * Removes the table entry at slot {@code i} and closes the probe
+     * sequence gap by shifting later colliding entries backward.
+     */
+    final void removeAt(int i) {
+        long[] ks = keys;
+        Object[] vs = vals;
+        int m = ks.length - 1;
+        for (int last = i, j = i;;) {
+            j = (j + 1) & m;
+            long k = ks[j];
+            if (k == 0) {
+                ks[last] = 0;
+                vs[last] = null;
+                break;
+            }
+            int home = mix(k) & m;
+            // move k back only if its home slot is not within (last, j]
+            if (last <= j ? (home <= last || home > j)
+                          : (home <= last && home > j)) {
+                ks[last] = k;
+                vs[last] = vs[j];
+                last = j;
+            }
+        }
+        ++modCount;
+        --size;
+    }
+
+    /**
+     * Removes all of the mappings from this map.  The table keeps its
+     * current capacity.
+     */
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(keys, 0);
+            Arrays.fill(vals, null);
+            hasZeroKey = false;
+            zeroVal = null;
+            size = 0;
+        }
+        ++modCount;
+    }
+
+    /**
+     * Rehashes the table into a new table of the given capacity.
+     */
+    final void resize(int newCap) {
+        long[] oldKeys = keys;
+        Object[] oldVals = vals;
+        if (oldKeys.length >= MAXIMUM_CAPACITY) {
+            if (size >= MAXIMUM_CAPACITY - 1)
+                throw new IllegalStateException("Map capacity exceeded");
+            return;
+        }
+        long[] ks = new long[newCap];
+        Object[] vs = new Object[newCap];
+        int m = newCap - 1;
+        for (int j = 0; j < oldKeys.length; ++j) {
+            long k = oldKeys[j];
+            if (k != 0) {
+                int i = mix(k) & m;
+                while (ks[i] != 0)
+                    i = (i + 1) & m;
+                ks[i] = k;
+                vs[i] = oldVals[j];
+            }
+        }
+        keys = ks;
+        vals = vs;
+        threshold = thresholdFor(newCap, loadFactor);
+    }
+
+    /* ---------------- Bulk operations and views -------------- */
+
+    /**
+     * Represents an operation that accepts a {@code long} key and its
+     * mapped value.
+     *
+     * @param <V> the type of mapped values
+     */
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        /**
+         * Performs this operation on the given mapping.
+         *
+         * @param key the key
+         * @param value the mapped value
+         */
+        void accept(long key, V value);
+    }
+
+    /**
+     * Performs the given action for each mapping in this map.
+     *
+     * @param  action the action to be performed for each mapping
+     * @throws NullPointerException if the action is null
+     * @throws ConcurrentModificationException if the map is structurally
+     *         modified during iteration
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<? super V> action) {
+        if (action == null)
+            throw new NullPointerException();
+        int mc = modCount;
+        if (hasZeroKey)
+            action.accept(0, (V)zeroVal);
+        long[] ks = keys;
+        Object[] vs = vals;
+        for (int i = 0; i < ks.length && modCount == mc; ++i) {
+            long k = ks[i];
+            if (k != 0)
+                action.accept(k, (V)vs[i]);
+        }
+        if (modCount != mc)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Returns a {@link Spliterator.OfLong} over the keys of this map.  The
+     * spliterator reports {@link Spliterator#SIZED} (when unsplit) and
+     * {@link Spliterator#DISTINCT}, and splits by halving the range of
+     * table slots.
+     *
+     * @return a spliterator over the keys of this map
+     */
+    public Spliterator.OfLong keySpliterator() {
+        return new KeySpliterator<>(this, 0, -1, 0, 0);
+    }
+
+    /**
+     * Returns a {@link Spliterator} over the values of this map.
+     *
+     * @return a spliterator over the values of this map
+     */
+    public Spliterator<V> valueSpliterator() {
+        return new ValueSpliterator<>(this, 0, -1, 0, 0);
+    }
+
+    /**
+     * Returns a sequential {@code LongStream} of the keys of this map.
+     * Call {@link LongStream#parallel} on the result for a parallel stream.
+     *
+     * @return a stream of the keys of this map
+     */
+    public LongStream keyStream() {
+        return StreamSupport.longStream(keySpliterator(), false);
+    }
+
+    /**
+     * Returns a sequential {@code Stream} of the values of this map.
+     *
+     * @return a stream of the values of this map
+     */
+    public Stream<V> valueStream() {
+        return StreamSupport.stream(valueSpliterator(), false);
+    }
+
+    /* ---------------- Object methods -------------- */
+
+    /**
+     * Returns a shallow copy of this map: the keys and values themselves
+     * are not cloned.
+     *
+     * @return a shallow copy of this map
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public LongObjectHashMap<V> clone() {
+        LongObjectHashMap<V> result;
+        try {
+            result = (LongObjectHashMap<V>)super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+        result.keys = keys.clone();
+        result.vals = vals.clone();
+        result.modCount = 0;
+        return result;
+    }
+
+    /**
+     * Compares the specified object with this map for equality.  Returns
+     * {@code true} if the given object is also an {@code LongObjectHashMap}
+     * and the two maps represent the same mappings.
+     *
+     * @param  o object to be compared for equality with this map
+     * @return {@code true} if the specified object is equal to this map
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof LongObjectHashMap))
+            return false;
+        LongObjectHashMap<?> m = (LongObjectHashMap<?>)o;
+        if (m.size != size || m.hasZeroKey != hasZeroKey)
+            return false;
+        if (hasZeroKey && !Objects.equals(zeroVal, m.zeroVal))
+            return false;
+        long[] ks = keys;
+        Object[] vs = vals;
+        for (int i = 0; i < ks.length; ++i) {
+            long k = ks[i];
+            int j;
+            if (k != 0 && ((j = m.indexOf(k)) < 0 ||
+                           !Objects.equals(vs[i], m.vals[j])))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the hash code value for this map, defined as the sum of
+     * {@code Long.hashCode(key) ^ Objects.hashCode(value)} over all mappings, which
+     * matches {@code HashMap<Long,V>.hashCode()} for the same mappings.
+     *
+     * @return the hash code value for this map
+     */
+    @Override
+    public int hashCode() {
+        int h = hasZeroKey ? Objects.hashCode(zeroVal) : 0;
+        long[] ks = keys;
+        Object[] vs = vals;
+        for (int i = 0; i < ks.length; ++i) {
+            long k = ks[i];
+            if (k != 0)
+                h += (int)(k ^ (k >>> 32)) ^ Objects.hashCode(vs[i]);
+        }
+        return h;
+    }
+
+    /**
+     * Returns a string representation of this map, in the same form as
+     * {@link AbstractMap#toString}.
+     *
+     * @return a string representation of this map
+     */
+    @Override
+    public String toString() {
+        if (size == 0)
+            return "{}";
+        StringBuilder sb = new StringBuilder().append('{');
+        forEach((k, v) -> {
+            if (sb.length() > 1)
+                sb.append(", ");
+            sb.append(k).append('=').append(v == this ? "(this Map)" : v);
+        });
+        return sb.append('}').toString();
+    }
+
+    /* ---------------- Spliterators -------------- */
+
+    /**
+     * Base of key and value spliterators.  Slot indices {@code [0, n)}
+     * address the table; the virtual slot {@code n} addresses the zero
+     * key, so the zero key is traversed by exactly one split.
+     */
+    static class TableSpliterator<V> {
+        final LongObjectHashMap<V> map;
+        int index;                  // current slot, modified on advance/split
+        int fence;                  // one past last slot, or -1 until bound
+        int est;                    // size estimate
+        int expectedModCount;       // for comodification checks
+
+        TableSpliterator(LongObjectHashMap<V> m, int origin, int fence,
+                         int est, int expectedModCount) {
+            this.map = m;
+            this.index = origin;
+            this.fence = fence;
+            this.est = est;
+            this.expectedModCount = expectedModCount;
+        }
+
+        final int getFence() { // initialize fence and size on first use
+            int hi;
+            if ((hi = fence) < 0) {
+                LongObjectHashMap<V> m = map;
+                est = m.size;
+                expectedModCount = m.modCount;
+                hi = fence = m.keys.length + 1;
+            }
+            return hi;
+        }
+
+        public final long estimateSize() {
+            getFence(); // force init
+            return (long) est;
+        }
+
+        /**
+         * Advances to the next occupied slot below {@code hi}, returning
+         * it, or -1 if none remain.
+         */
+        final int nextSlot(int hi) {
+            LongObjectHashMap<V> m = map;
+            long[] ks = m.keys;
+            int n = ks.length;
+            if (ks.length + 1 < hi)
+                throw new ConcurrentModificationException();
+            for (int i; (i = index) < hi; ) {
+                index = i + 1;
+                if (i < n ? ks[i] != 0 : m.hasZeroKey)
+                    return i;
+            }
+            return -1;
+        }
+
+        final void checkForComodification() {
+            if (map.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    static final class KeySpliterator<V>
+        extends TableSpliterator<V>
+        implements Spliterator.OfLong {
+        KeySpliterator(LongObjectHashMap<V> m, int origin, int fence, int est,
+                       int expectedModCount) {
+            super(m, origin, fence, est, expectedModCount);
+        }
+
+        public KeySpliterator<V> trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null :
+                new KeySpliterator<>(map, lo, index = mid, est >>>= 1,
+                                     expectedModCount);
+        }
+
+        public boolean tryAdvance(LongConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            int i = nextSlot(getFence());
+            if (i < 0)
+                return false;
+            long[] ks = map.keys;
+            action.accept(i < ks.length ? ks[i] : 0);
+            checkForComodification();
+            return true;
+        }
+
+        public void forEachRemaining(LongConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            int hi = getFence();
+            long[] ks = map.keys;
+            for (int i; (i = nextSlot(hi)) >= 0; )
+                action.accept(i < ks.length ? ks[i] : 0);
+            checkForComodification();
+        }
+
+        public int characteristics() {
+            return (fence < 0 || est == map.size ? Spliterator.SIZED : 0) |
+                Spliterator.DISTINCT;
+        }
+    }
+
+    static final class ValueSpliterator<V>
+        extends TableSpliterator<V>
+        implements Spliterator<V> {
+        ValueSpliterator(LongObjectHashMap<V> m, int origin, int fence, int est,
+                         int expectedModCount) {
+            super(m, origin, fence, est, expectedModCount);
+        }
+
+        public ValueSpliterator<V> trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null :
+                new ValueSpliterator<>(map, lo, index = mid, est >>>= 1,
+                                       expectedModCount);
+        }
+
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super V> action) {
+            if (action == null)
+                throw new NullPointerException();
+            int i = nextSlot(getFence());
+            if (i < 0)
+                return false;
+            LongObjectHashMap<V> m = map;
+            action.accept((V)(i < m.vals.length ? m.vals[i] : m.zeroVal));
+            checkForComodification();
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        public void forEachRemaining(Consumer<? super V> action) {
+            if (action == null)
+                throw new NullPointerException();
+            int hi = getFence();
+            LongObjectHashMap<V> m = map;
+            Object[] vs = m.vals;
+            for (int i; (i = nextSlot(hi)) >= 0; )
+                action.accept((V)(i < vs.length ? vs[i] : m.zeroVal));
+            checkForComodification();
+        }
+
+        public int characteristics() {
+            return (fence < 0 || est == map.size ? Spliterator.SIZED : 0);
+        }
+    }
+}
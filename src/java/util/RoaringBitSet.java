@@ -0,0 +1,1554 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.io.*;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A compressed set of non-negative {@code int} indices, offering the
+ * principal operations of {@link BitSet} with a footprint proportional to
+ * the number of set bits rather than to the largest index.
+ *
+ * <p>The index space is divided into chunks of 2<sup>16</sup> bits keyed by
+ * the high 16 bits of the index.  Each non-empty chunk is held in one of
+ * three containers, chosen by density:
+ * <ul>
+ * <li>an <em>array</em> container, a sorted {@code char[]} of the low 16
+ *     bits, used for chunks of at most 4096 set bits;
+ * <li>a <em>bitmap</em> container, a {@code long[1024]}, used for denser
+ *     chunks;
+ * <li>a <em>run</em> container, a sorted list of (start, length) runs,
+ *     produced by {@link #set(int, int)} over whole chunks and by
+ *     {@link #runOptimize}.
+ * </ul>
+ * Chunks with no set bits occupy no space, so a sparse set of large
+ * indices costs a few bytes per set bit, and the bitwise operations
+ * {@link #and}, {@link #or}, {@link #xor} and {@link #andNot} only visit
+ * chunks present in one or both operands.  {@link #andCardinality}
+ * computes the size of an intersection without materializing it.
+ *
+ * <p>{@link #stream} returns a stream whose spliterator splits across
+ * chunks, so parallel traversal does not go through a sequential iterator
+ * as {@code BitSet.stream()} does.  {@link #toByteArray} and
+ * {@link #valueOf(byte[])} define a portable serialized form, which is
+ * also used by Java serialization.
+ *
+ * <p>Unless otherwise noted, passing a null parameter to any of the
+ * methods in a {@code RoaringBitSet} will result in a
+ * {@code NullPointerException}.
+ *
+ * <p>A {@code RoaringBitSet} is not safe for multithreaded use without
+ * external synchronization.
+ *
+ * @see BitSet
+ * @since 1.8
+ */
+public class RoaringBitSet implements Cloneable, Serializable {
+
+    private static final long serialVersionUID = -4273860744569312840L;
+
+    /**
+     * Maximum cardinality of an array container.  Above this a bitmap
+     * container (8 kB) is smaller.
+     */
+    static final int ARRAY_MAX = 4096;
+
+    /**
+     * Number of 64-bit words in a bitmap container.
+     */
+    static final int BITMAP_WORDS = 1024;
+
+    /**
+     * Leading cookie of the serialized form.
+     */
+    static final int SERIAL_COOKIE = 0x524f4152; // "ROAR"
+
+    /**
+     * Container kinds, as recorded in the serialized form.
+     */
+    static final byte ARRAY = 0, BITMAP = 1, RUN = 2;
+
+    /**
+     * High 16 bits of each chunk, in ascending order.
+     */
+    transient char[] keys;
+
+    /**
+     * Container for each entry of {@link #keys}.
+     */
+    transient Container[] containers;
+
+    /**
+     * Number of chunks in use.
+     */
+    transient int size;
+
+    /**
+     * Creates a new, empty set.
+     */
+    public RoaringBitSet() {
+        keys = new char[4];
+        containers = new Container[4];
+    }
+
+    /**
+     * Returns a new set containing the set bits of the given
+     * {@code BitSet}.
+     *
+     * @param  bs a bit set
+     * @return a {@code RoaringBitSet} with the same set bits
+     */
+    public static RoaringBitSet valueOf(BitSet bs) {
+        RoaringBitSet r = new RoaringBitSet();
+        for (int i = bs.nextSetBit(0); i >= 0; i = bs.nextSetBit(i + 1)) {
+            int end = bs.nextClearBit(i);
+            r.set(i, end);
+            if ((i = end) < 0)
+                break;
+        }
+        return r;
+    }
+
+    /**
+     * Returns a new {@code BitSet} containing the set bits of this set.
+     *
+     * @return a {@code BitSet} with the same set bits
+     */
+    public BitSet toBitSet() {
+        BitSet bs = new BitSet(length());
+        for (int k = 0; k < size; ++k) {
+            int base = keys[k] << 16;
+            containers[k].forEach(base, bs::set);
+        }
+        return bs;
+    }
+
+    /* ---------------- Chunk table -------------- */
+
+    private static int highBits(int x) {
+        return x >>> 16;
+    }
+
+    private static char lowBits(int x) {
+        return (char)x;
+    }
+
+    /**
+     * Returns the position of the chunk for the given key, or
+     * {@code -(insertion point) - 1} if absent.
+     */
+    final int chunkIndex(int key) {
+        int lo = 0, hi = size - 1;
+        // fast path for appending in index order
+        if (hi >= 0 && keys[hi] == key)
+            return hi;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int k = keys[mid];
+            if (k < key)
+                lo = mid + 1;
+            else if (k > key)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+        return -(lo + 1);
+    }
+
+    private void insertChunk(int pos, int key, Container c) {
+        if (size == keys.length) {
+            int n = size + (size >> 1) + 1;
+            keys = Arrays.copyOf(keys, n);
+            containers = Arrays.copyOf(containers, n);
+        }
+        System.arraycopy(keys, pos, keys, pos + 1, size - pos);
+        System.arraycopy(containers, pos, containers, pos + 1, size - pos);
+        keys[pos] = (char)key;
+        containers[pos] = c;
+        ++size;
+    }
+
+    private void removeChunk(int pos) {
+        System.arraycopy(keys, pos + 1, keys, pos, size - pos - 1);
+        System.arraycopy(containers, pos + 1, containers, pos, size - pos - 1);
+        containers[--size] = null;
+    }
+
+    /**
+     * Stores {@code c} at chunk {@code pos}, removing the chunk if
+     * {@code c} is empty.
+     */
+    private void setChunk(int pos, Container c) {
+        if (c == null || c.cardinality() == 0)
+            removeChunk(pos);
+        else
+            containers[pos] = c;
+    }
+
+    private static void checkIndex(int bitIndex) {
+        if (bitIndex < 0)
+            throw new IndexOutOfBoundsException("bitIndex < 0: " + bitIndex);
+    }
+
+    private static void checkRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0)
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        if (toIndex < 0)
+            throw new IndexOutOfBoundsException("toIndex < 0: " + toIndex);
+        if (fromIndex > toIndex)
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex +
+                                                " > toIndex: " + toIndex);
+    }
+
+    /* ---------------- Single-bit operations -------------- */
+
+    /**
+     * Sets the bit at the specified index to {@code true}.
+     *
+     * @param  bitIndex a bit index
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public void set(int bitIndex) {
+        checkIndex(bitIndex);
+        int key = highBits(bitIndex);
+        int pos = chunkIndex(key);
+        if (pos >= 0)
+            containers[pos] = containers[pos].add(lowBits(bitIndex));
+        else
+            insertChunk(-pos - 1, key,
+                        new ArrayContainer().add(lowBits(bitIndex)));
+    }
+
+    /**
+     * Sets the bit at the specified index to the specified value.
+     *
+     * @param  bitIndex a bit index
+     * @param  value a boolean value to set
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public void set(int bitIndex, boolean value) {
+        if (value)
+            set(bitIndex);
+        else
+            clear(bitIndex);
+    }
+
+    /**
+     * Sets the bits from the specified {@code fromIndex} (inclusive) to the
+     * specified {@code toIndex} (exclusive) to {@code true}.  Whole chunks
+     * in the range are stored as single runs.
+     *
+     * @param  fromIndex index of the first bit to be set
+     * @param  toIndex index after the last bit to be set
+     * @throws IndexOutOfBoundsException if {@code fromIndex} is negative,
+     *         or {@code toIndex} is negative, or {@code fromIndex} is
+     *         larger than {@code toIndex}
+     */
+    public void set(int fromIndex, int toIndex) {
+        checkRange(fromIndex, toIndex);
+        if (fromIndex == toIndex)
+            return;
+        int last = toIndex - 1;
+        for (int key = highBits(fromIndex); key <= highBits(last); ++key) {
+            int lo = (key == highBits(fromIndex)) ? lowBits(fromIndex) : 0;
+            int hi = (key == highBits(last)) ? lowBits(last) + 1 : 1 << 16;
+            int pos = chunkIndex(key);
+            if (pos >= 0)
+                containers[pos] = containers[pos].addRange(lo, hi);
+            else
+                insertChunk(-pos - 1, key, RunContainer.ofRange(lo, hi));
+        }
+    }
+
+    /**
+     * Sets the bit specified by the index to {@code false}.
+     *
+     * @param  bitIndex the index of the bit to be cleared
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public void clear(int bitIndex) {
+        checkIndex(bitIndex);
+        int pos = chunkIndex(highBits(bitIndex));
+        if (pos >= 0)
+            setChunk(pos, containers[pos].remove(lowBits(bitIndex)));
+    }
+
+    /**
+     * Sets all of the bits in this set to {@code false}.
+     */
+    public void clear() {
+        Arrays.fill(containers, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Sets the bit at the specified index to the complement of its
+     * current value.
+     *
+     * @param  bitIndex the index of the bit to flip
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public void flip(int bitIndex) {
+        if (get(bitIndex))
+            clear(bitIndex);
+        else
+            set(bitIndex);
+    }
+
+    /**
+     * Returns the value of the bit with the specified index.
+     *
+     * @param  bitIndex the bit index
+     * @return the value of the bit with the specified index
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public boolean get(int bitIndex) {
+        checkIndex(bitIndex);
+        int pos = chunkIndex(highBits(bitIndex));
+        return pos >= 0 && containers[pos].contains(lowBits(bitIndex));
+    }
+
+    /* ---------------- Searching -------------- */
+
+    /**
+     * Returns the index of the first bit that is set to {@code true}
+     * that occurs on or after the specified starting index.  If no such
+     * bit exists then {@code -1} is returned.
+     *
+     * @param  fromIndex the index to start checking from (inclusive)
+     * @return the index of the next set bit, or {@code -1} if there
+     *         is no such bit
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public int nextSetBit(int fromIndex) {
+        if (fromIndex < 0)
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        int key = highBits(fromIndex);
+        int pos = chunkIndex(key);
+        if (pos >= 0) {
+            int r = containers[pos].nextSetBit(lowBits(fromIndex));
+            if (r >= 0)
+                return (key << 16) | r;
+            ++pos;
+        }
+        else
+            pos = -pos - 1;
+        return (pos < size) ?
+            (keys[pos] << 16) | containers[pos].nextSetBit(0) : -1;
+    }
+
+    /**
+     * Returns the index of the first bit that is set to {@code false}
+     * that occurs on or after the specified starting index.
+     *
+     * @param  fromIndex the index to start checking from (inclusive)
+     * @return the index of the next clear bit
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public int nextClearBit(int fromIndex) {
+        if (fromIndex < 0)
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        int key = highBits(fromIndex);
+        int pos = chunkIndex(key);
+        if (pos < 0)
+            return fromIndex;
+        int low = lowBits(fromIndex);
+        for (;;) {
+            int r = containers[pos].nextClearBit(low);
+            if (r < (1 << 16))
+                return (key << 16) | r;
+            // chunk is full from low onwards; continue in the next chunk
+            if (++pos >= size || keys[pos] != ++key)
+                return key << 16;
+            low = 0;
+        }
+    }
+
+    /**
+     * Returns the index of the nearest bit that is set to {@code true}
+     * that occurs on or before the specified starting index.  If no such
+     * bit exists, or if {@code -1} is given as the starting index, then
+     * {@code -1} is returned.
+     *
+     * @param  fromIndex the index to start checking from (inclusive)
+     * @return the index of the previous set bit, or {@code -1} if there
+     *         is no such bit
+     * @throws IndexOutOfBoundsException if the specified index is less
+     *         than {@code -1}
+     */
+    public int previousSetBit(int fromIndex) {
+        if (fromIndex < 0) {
+            if (fromIndex == -1)
+                return -1;
+            throw new IndexOutOfBoundsException(
+                "fromIndex < -1: " + fromIndex);
+        }
+        int key = highBits(fromIndex);
+        int pos = chunkIndex(key);
+        if (pos >= 0) {
+            int r = containers[pos].previousSetBit(lowBits(fromIndex));
+            if (r >= 0)
+                return (key << 16) | r;
+            --pos;
+        }
+        else
+            pos = -pos - 2;
+        return (pos >= 0) ?
+            (keys[pos] << 16) | containers[pos].previousSetBit(0xFFFF) : -1;
+    }
+
+    /**
+     * Returns the "logical size" of this set: the index of the highest
+     * set bit plus one.  Returns zero if the set contains no set bits.
+     *
+     * @return the logical size of this set
+     */
+    public int length() {
+        if (size == 0)
+            return 0;
+        return ((keys[size - 1] << 16) |
+                containers[size - 1].previousSetBit(0xFFFF)) + 1;
+    }
+
+    /**
+     * Returns true if this set contains no bits that are set to
+     * {@code true}.
+     *
+     * @return boolean indicating whether this set is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of bits set to {@code true} in this set.
+     *
+     * @return the number of bits set to {@code true} in this set
+     */
+    public int cardinality() {
+        int n = 0;
+        for (int k = 0; k < size; ++k)
+            n += containers[k].cardinality();
+        return n;
+    }
+
+    /* ---------------- Bulk operations -------------- */
+
+    /**
+     * Returns true if the specified set has any bits set to {@code true}
+     * that are also set to {@code true} in this set.
+     *
+     * @param  set set to intersect with
+     * @return boolean indicating whether this set intersects the
+     *         specified set
+     */
+    public boolean intersects(RoaringBitSet set) {
+        for (int i = 0, j = 0; i < size && j < set.size; ) {
+            int a = keys[i], b = set.keys[j];
+            if (a < b)
+                ++i;
+            else if (a > b)
+                ++j;
+            else if (Container.andCardinality(containers[i++],
+                                              set.containers[j++]) > 0)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of bits set in both this set and the argument,
+     * without modifying either set or allocating the intersection.
+     *
+     * @param  set a bit set
+     * @return the cardinality of the intersection of the two sets
+     */
+    public int andCardinality(RoaringBitSet set) {
+        int n = 0;
+        for (int i = 0, j = 0; i < size && j < set.size; ) {
+            int a = keys[i], b = set.keys[j];
+            if (a < b)
+                ++i;
+            else if (a > b)
+                ++j;
+            else
+                n += Container.andCardinality(containers[i++],
+                                              set.containers[j++]);
+        }
+        return n;
+    }
+
+    /**
+     * Performs a logical <b>AND</b> of this target set with the argument
+     * set.  Chunks absent from either set are dropped without being
+     * visited.
+     *
+     * @param set a bit set
+     */
+    public void and(RoaringBitSet set) {
+        int n = 0;
+        for (int i = 0, j = 0; i < size && j < set.size; ) {
+            int a = keys[i], b = set.keys[j];
+            if (a < b)
+                ++i;
+            else if (a > b)
+                ++j;
+            else {
+                Container c = Container.and(containers[i++],
+                                            set.containers[j++]);
+                if (c != null) {
+                    keys[n] = (char)a;
+                    containers[n++] = c;
+                }
+            }
+        }
+        Arrays.fill(containers, n, size, null);
+        size = n;
+    }
+
+    /**
+     * Performs a logical <b>OR</b> of this set with the argument set.
+     *
+     * @param set a bit set
+     */
+    public void or(RoaringBitSet set) {
+        merge(set, OR);
+    }
+
+    /**
+     * Performs a logical <b>XOR</b> of this set with the argument set.
+     *
+     * @param set a bit set
+     */
+    public void xor(RoaringBitSet set) {
+        merge(set, XOR);
+    }
+
+    /**
+     * Clears all of the bits in this set whose corresponding bit is set
+     * in the specified set.
+     *
+     * @param set the set with which to mask this set
+     */
+    public void andNot(RoaringBitSet set) {
+        int n = 0;
+        for (int i = 0, j = 0; i < size; ) {
+            int a = keys[i];
+            while (j < set.size && set.keys[j] < a)
+                ++j;
+            Container c = containers[i++];
+            if (j < set.size && set.keys[j] == a)
+                c = Container.andNot(c, set.containers[j++]);
+            if (c != null) {
+                keys[n] = (char)a;
+                containers[n++] = c;
+            }
+        }
+        Arrays.fill(containers, n, size, null);
+        size = n;
+    }
+
+    private static final int OR = 0, XOR = 1;
+
+    /**
+     * Merges the chunks of {@code set} into this set, combining chunks
+     * present in both with the given operation.
+     */
+    private void merge(RoaringBitSet set, int op) {
+        if (set == this) {
+            if (op == XOR)
+                clear();
+            return;
+        }
+        int cap = size + set.size;
+        char[] ks = new char[Math.max(cap, 4)];
+        Container[] cs = new Container[ks.length];
+        int n = 0, i = 0, j = 0;
+        while (i < size || j < set.size) {
+            int a = (i < size) ? keys[i] : Integer.MAX_VALUE;
+            int b = (j < set.size) ? set.keys[j] : Integer.MAX_VALUE;
+            Container c;
+            int key;
+            if (a < b) {
+                key = a;
+                c = containers[i++];
+            }
+            else if (a > b) {
+                key = b;
+                c = set.containers[j++].copy();
+            }
+            else {
+                key = a;
+                c = (op == OR) ?
+                    Container.or(containers[i++], set.containers[j++]) :
+                    Container.xor(containers[i++], set.containers[j++]);
+            }
+            if (c != null) {
+                ks[n] = (char)key;
+                cs[n++] = c;
+            }
+        }
+        keys = ks;
+        containers = cs;
+        size = n;
+    }
+
+    /**
+     * Converts each container to whichever of the array, bitmap and run
+     * representations is smallest.  Useful for sets made of long runs of
+     * consecutive indices, before serializing or retaining them.
+     *
+     * @return {@code true} if any container was converted to a run
+     *         container
+     */
+    public boolean runOptimize() {
+        boolean changed = false;
+        for (int k = 0; k < size; ++k) {
+            Container c = containers[k], r = c.runOptimize();
+            if (r != c) {
+                containers[k] = r;
+                changed |= r instanceof RunContainer;
+            }
+        }
+        return changed;
+    }
+
+    /* ---------------- Streams -------------- */
+
+    /**
+     * Returns a stream of indices for which this set contains a bit in
+     * the set state, in order from lowest to highest.  The stream's
+     * spliterator is {@link Spliterator#SIZED SIZED} and
+     * {@link Spliterator#SUBSIZED SUBSIZED}, and splits at chunk
+     * boundaries, so parallel operations scale with the number of chunks.
+     *
+     * <p>The set must remain constant during the execution of the
+     * terminal stream operation.  Otherwise, the result of the terminal
+     * stream operation is undefined.
+     *
+     * @return a stream of integers representing set indices
+     */
+    public IntStream stream() {
+        return StreamSupport.intStream(
+                () -> new ChunkSpliterator(this, 0, size, -1),
+                ChunkSpliterator.CHARACTERISTICS,
+                false);
+    }
+
+    /**
+     * Spliterator over chunks {@code [index, fence)}.  Splits halve the
+     * chunk range; sizes are exact since cardinalities are cheap to sum.
+     */
+    static final class ChunkSpliterator implements Spliterator.OfInt {
+        static final int CHARACTERISTICS =
+            Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.ORDERED |
+            Spliterator.DISTINCT | Spliterator.SORTED | Spliterator.NONNULL;
+
+        final RoaringBitSet set;
+        int index;       // current chunk
+        final int fence; // one past last chunk
+        int next;        // low bits of next candidate in current chunk
+        long est;        // exact remaining size, or -1 until computed
+
+        ChunkSpliterator(RoaringBitSet set, int origin, int fence, long est) {
+            this.set = set;
+            this.index = origin;
+            this.fence = fence;
+            this.est = est;
+        }
+
+        public long estimateSize() {
+            long n = est;
+            if (n < 0) {
+                n = 0;
+                for (int k = index; k < fence; ++k)
+                    n += set.containers[k].cardinality();
+                est = n;
+            }
+            return n;
+        }
+
+        public OfInt trySplit() {
+            int lo = index, mid = (lo + fence) >>> 1;
+            if (next != 0 || lo >= mid)
+                return null;
+            index = mid;
+            est = -1;
+            return new ChunkSpliterator(set, lo, mid, -1);
+        }
+
+        public boolean tryAdvance(IntConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            estimateSize(); // bind size before consuming
+            while (index < fence) {
+                int r = (next < (1 << 16)) ?
+                    set.containers[index].nextSetBit(next) : -1;
+                if (r >= 0) {
+                    next = r + 1;
+                    if (est > 0)
+                        --est;
+                    action.accept((set.keys[index] << 16) | r);
+                    return true;
+                }
+                ++index;
+                next = 0;
+            }
+            return false;
+        }
+
+        public void forEachRemaining(IntConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            if (next != 0 && index < fence) { // finish partial chunk
+                Container c = set.containers[index];
+                int base = set.keys[index++] << 16;
+                for (int r = next; r < (1 << 16) && (r = c.nextSetBit(r)) >= 0; ++r)
+                    action.accept(base | r);
+                next = 0;
+            }
+            for (int k = index, hi = fence; k < hi; ++k)
+                set.containers[k].forEach(set.keys[k] << 16, action);
+            index = fence;
+            est = 0;
+        }
+
+        public int characteristics() {
+            return CHARACTERISTICS;
+        }
+
+        public Comparator<? super Integer> getComparator() {
+            return null;
+        }
+    }
+
+    /* ---------------- Serialized form -------------- */
+
+    /**
+     * Returns the serialized size, in bytes, of this set.
+     *
+     * @return the number of bytes written by {@link #writeTo}
+     */
+    public int serializedSizeInBytes() {
+        int n = 8;
+        for (int k = 0; k < size; ++k)
+            n += 7 + containers[k].serializedDataBytes();
+        return n;
+    }
+
+    /**
+     * Writes this set in its portable serialized form: an {@code int}
+     * cookie, an {@code int} chunk count, and for each chunk its 16-bit key,
+     * a one-byte container kind, an {@code int} element count (values for
+     * array containers, words for bitmaps, runs for run containers), and
+     * the container data as big-endian 16-bit or 64-bit values.
+     *
+     * @param  out the output to write to
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(SERIAL_COOKIE);
+        out.writeInt(size);
+        for (int k = 0; k < size; ++k) {
+            out.writeShort(keys[k]);
+            containers[k].writeTo(out);
+        }
+    }
+
+    /**
+     * Reads a set in the form written by {@link #writeTo}.
+     *
+     * @param  in the input to read from
+     * @return the set read
+     * @throws IOException if an I/O error occurs or the input is not a
+     *         valid serialized set
+     */
+    public static RoaringBitSet readFrom(DataInput in) throws IOException {
+        if (in.readInt() != SERIAL_COOKIE)
+            throw new InvalidObjectException("Not a serialized RoaringBitSet");
+        int n = in.readInt();
+        if (n < 0 || n > (1 << 15))
+            throw new InvalidObjectException("Illegal chunk count: " + n);
+        RoaringBitSet r = new RoaringBitSet();
+        r.keys = new char[Math.max(n, 4)];
+        r.containers = new Container[r.keys.length];
+        int prev = -1;
+        for (int k = 0; k < n; ++k) {
+            int key = in.readUnsignedShort();
+            if (key <= prev || key >= (1 << 15))
+                throw new InvalidObjectException("Chunk keys out of order");
+            r.keys[k] = (char)(prev = key);
+            r.containers[k] = Container.readFrom(in);
+        }
+        r.size = n;
+        return r;
+    }
+
+    /**
+     * Returns a new byte array containing the serialized form of this
+     * set, as written by {@link #writeTo}.
+     *
+     * @return a byte array containing this set
+     */
+    public byte[] toByteArray() {
+        ByteArrayOutputStream bos =
+            new ByteArrayOutputStream(serializedSizeInBytes());
+        try {
+            writeTo(new DataOutputStream(bos));
+        } catch (IOException e) {
+            throw new InternalError(e);
+        }
+        return bos.toByteArray();
+    }
+
+    /**
+     * Returns a new set read from the serialized form in the given bytes.
+     *
+     * @param  bytes a byte array as returned by {@link #toByteArray}
+     * @return the set read
+     * @throws IllegalArgumentException if the bytes are not a valid
+     *         serialized set
+     */
+    public static RoaringBitSet valueOf(byte[] bytes) {
+        try {
+            return readFrom(new DataInputStream(new ByteArrayInputStream(bytes)));
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Save the state of the {@code RoaringBitSet} instance to a stream
+     * (i.e., serialize it).
+     *
+     * @serialData the portable form written by {@link #writeTo}
+     */
+    private void writeObject(ObjectOutputStream s) throws IOException {
+        s.defaultWriteObject();
+        writeTo(s);
+    }
+
+    /**
+     * Reconstitute the {@code RoaringBitSet} instance from a stream
+     * (i.e., deserialize it).
+     */
+    private void readObject(ObjectInputStream s)
+        throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        RoaringBitSet r = readFrom(s);
+        keys = r.keys;
+        containers = r.containers;
+        size = r.size;
+    }
+
+    /* ---------------- Object methods -------------- */
+
+    /**
+     * Cloning this {@code RoaringBitSet} produces a new set equal to it.
+     *
+     * @return a clone of this set
+     */
+    public Object clone() {
+        RoaringBitSet result;
+        try {
+            result = (RoaringBitSet) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+        result.keys = keys.clone();
+        result.containers = containers.clone();
+        for (int k = 0; k < size; ++k)
+            result.containers[k] = containers[k].copy();
+        return result;
+    }
+
+    /**
+     * Compares this object against the specified object.  The result is
+     * {@code true} if and only if the argument is a {@code RoaringBitSet}
+     * with exactly the same set bits, regardless of container choice.
+     *
+     * @param  obj the object to compare with
+     * @return {@code true} if the objects are the same; {@code false}
+     *         otherwise
+     */
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof RoaringBitSet))
+            return false;
+        RoaringBitSet set = (RoaringBitSet) obj;
+        if (size != set.size)
+            return false;
+        for (int k = 0; k < size; ++k) {
+            Container a = containers[k], b = set.containers[k];
+            if (keys[k] != set.keys[k] || a.cardinality() != b.cardinality() ||
+                Container.andCardinality(a, b) != a.cardinality())
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the hash code value for this set, computed as
+     * {@link BitSet#hashCode} would be for a {@code BitSet} with the same
+     * set bits.
+     *
+     * @return the hash code value for this set
+     */
+    public int hashCode() {
+        long h = 1234;
+        for (int k = 0; k < size; ++k) {
+            long[] words = containers[k].toBitmap();
+            long base = (long)keys[k] * BITMAP_WORDS;
+            for (int w = 0; w < BITMAP_WORDS; ++w)
+                if (words[w] != 0)
+                    h ^= words[w] * (base + w + 1);
+        }
+        return (int)((h >> 32) ^ h);
+    }
+
+    /**
+     * Returns a string representation of this set in the same form as
+     * {@link BitSet#toString}.
+     *
+     * @return a string representation of this set
+     */
+    public String toString() {
+        StringBuilder b = new StringBuilder("{");
+        for (int k = 0; k < size; ++k) {
+            containers[k].forEach(keys[k] << 16, i -> {
+                if (b.length() > 1)
+                    b.append(", ");
+                b.append(i);
+            });
+        }
+        return b.append('}').toString();
+    }
+
+    /* ---------------- Containers -------------- */
+
+    /**
+     * Set of 16-bit values for one chunk.  Mutators return the container
+     * that now holds the values, which differs from the receiver when the
+     * representation changes.
+     */
+    abstract static class Container {
+        abstract int cardinality();
+        abstract boolean contains(char x);
+        abstract Container add(char x);
+        abstract Container remove(char x);
+        /** Adds values in {@code [lo, hi)}. */
+        abstract Container addRange(int lo, int hi);
+        /** Returns the least value {@code >= from}, or -1. */
+        abstract int nextSetBit(int from);
+        /** Returns the least absent value {@code >= from}, or 65536. */
+        abstract int nextClearBit(int from);
+        /** Returns the greatest value {@code <= from}, or -1. */
+        abstract int previousSetBit(int from);
+        /** Passes {@code base | value} for each value, in order. */
+        abstract void forEach(int base, IntConsumer action);
+        /** Returns the values as a (possibly shared) bitmap. */
+        abstract long[] toBitmap();
+        abstract byte kind();
+        abstract int serializedDataBytes();
+        abstract void writeData(DataOutput out) throws IOException;
+        abstract Container copy();
+
+        final void writeTo(DataOutput out) throws IOException {
+            out.writeByte(kind());
+            writeData(out);
+        }
+
+        static Container readFrom(DataInput in) throws IOException {
+            byte kind = in.readByte();
+            int n = in.readInt();
+            switch (kind) {
+            case ARRAY: {
+                if (n <= 0 || n > ARRAY_MAX)
+                    throw new InvalidObjectException("Bad array container");
+                char[] vs = new char[n];
+                for (int i = 0; i < n; ++i) {
+                    vs[i] = in.readChar();
+                    if (i > 0 && vs[i] <= vs[i - 1])
+                        throw new InvalidObjectException("Bad array container");
+                }
+                return new ArrayContainer(vs, n);
+            }
+            case BITMAP: {
+                if (n != BITMAP_WORDS)
+                    throw new InvalidObjectException("Bad bitmap container");
+                long[] words = new long[BITMAP_WORDS];
+                for (int i = 0; i < n; ++i)
+                    words[i] = in.readLong();
+                return BitmapContainer.of(words);
+            }
+            case RUN: {
+                if (n <= 0 || n > (1 << 15))
+                    throw new InvalidObjectException("Bad run container");
+                char[] runs = new char[n << 1];
+                int end = -1;
+                for (int i = 0; i < runs.length; i += 2) {
+                    runs[i] = in.readChar();
+                    runs[i + 1] = in.readChar();
+                    if (runs[i] <= end || runs[i] + runs[i + 1] > 0xFFFF)
+                        throw new InvalidObjectException("Bad run container");
+                    end = runs[i] + runs[i + 1];
+                }
+                return new RunContainer(runs, n);
+            }
+            default:
+                throw new InvalidObjectException("Bad container kind: " + kind);
+            }
+        }
+
+        /**
+         * Returns the cheapest of the array and bitmap forms for the values
+         * of a bitmap with the given cardinality, or null if empty.
+         */
+        static Container ofBitmap(long[] words, int card) {
+            if (card == 0)
+                return null;
+            if (card > ARRAY_MAX)
+                return new BitmapContainer(words, card);
+            char[] vs = new char[card];
+            int n = 0;
+            for (int w = 0; w < BITMAP_WORDS; ++w) {
+                for (long word = words[w]; word != 0; word &= word - 1)
+                    vs[n++] = (char)((w << 6) + Long.numberOfTrailingZeros(word));
+            }
+            return new ArrayContainer(vs, n);
+        }
+
+        static int andCardinality(Container a, Container b) {
+            if (b instanceof ArrayContainer) {
+                Container t = a; a = b; b = t;
+            }
+            if (a instanceof ArrayContainer) {
+                ArrayContainer x = (ArrayContainer)a;
+                int n = 0;
+                if (b instanceof ArrayContainer) {
+                    ArrayContainer y = (ArrayContainer)b;
+                    for (int i = 0, j = 0; i < x.card && j < y.card; ) {
+                        char p = x.content[i], q = y.content[j];
+                        if (p < q)
+                            ++i;
+                        else if (p > q)
+                            ++j;
+                        else {
+                            ++n; ++i; ++j;
+                        }
+                    }
+                }
+                else {
+                    for (int i = 0; i < x.card; ++i)
+                        if (b.contains(x.content[i]))
+                            ++n;
+                }
+                return n;
+            }
+            long[] x = a.toBitmap(), y = b.toBitmap();
+            int n = 0;
+            for (int w = 0; w < BITMAP_WORDS; ++w)
+                n += Long.bitCount(x[w] & y[w]);
+            return n;
+        }
+
+        static Container and(Container a, Container b) {
+            if (b instanceof ArrayContainer) {
+                Container t = a; a = b; b = t;
+            }
+            if (a instanceof ArrayContainer) {
+                ArrayContainer x = (ArrayContainer)a;
+                char[] vs = new char[x.card];
+                int n = 0;
+                for (int i = 0; i < x.card; ++i)
+                    if (b.contains(x.content[i]))
+                        vs[n++] = x.content[i];
+                return (n == 0) ? null : new ArrayContainer(vs, n);
+            }
+            long[] x = a.toBitmap(), y = b.toBitmap(), r = new long[BITMAP_WORDS];
+            int card = 0;
+            for (int w = 0; w < BITMAP_WORDS; ++w)
+                card += Long.bitCount(r[w] = x[w] & y[w]);
+            return ofBitmap(r, card);
+        }
+
+        static Container or(Container a, Container b) {
+            if (a instanceof ArrayContainer && b instanceof ArrayContainer &&
+                a.cardinality() + b.cardinality() <= ARRAY_MAX) {
+                ArrayContainer x = (ArrayContainer)a, y = (ArrayContainer)b;
+                char[] vs = new char[x.card + y.card];
+                int n = 0, i = 0, j = 0;
+                while (i < x.card && j < y.card) {
+                    char p = x.content[i], q = y.content[j];
+                    if (p <= q) {
+                        vs[n++] = p;
+                        ++i;
+                        if (p == q)
+                            ++j;
+                    }
+                    else {
+                        vs[n++] = q;
+                        ++j;
+                    }
+                }
+                while (i < x.card)
+                    vs[n++] = x.content[i++];
+                while (j < y.card)
+                    vs[n++] = y.content[j++];
+                return new ArrayContainer(vs, n);
+            }
+            long[] x = a.toBitmap(), y = b.toBitmap(), r = new long[BITMAP_WORDS];
+            int card = 0;
+            for (int w = 0; w < BITMAP_WORDS; ++w)
+                card += Long.bitCount(r[w] = x[w] | y[w]);
+            return ofBitmap(r, card);
+        }
+
+        static Container xor(Container a, Container b) {
+            long[] x = a.toBitmap(), y = b.toBitmap(), r = new long[BITMAP_WORDS];
+            int card = 0;
+            for (int w = 0; w < BITMAP_WORDS; ++w)
+                card += Long.bitCount(r[w] = x[w] ^ y[w]);
+            return ofBitmap(r, card);
+        }
+
+        static Container andNot(Container a, Container b) {
+            if (a instanceof ArrayContainer) {
+                ArrayContainer x = (ArrayContainer)a;
+                char[] vs = new char[x.card];
+                int n = 0;
+                for (int i = 0; i < x.card; ++i)
+                    if (!b.contains(x.content[i]))
+                        vs[n++] = x.content[i];
+                return (n == 0) ? null : new ArrayContainer(vs, n);
+            }
+            long[] x = a.toBitmap(), y = b.toBitmap(), r = new long[BITMAP_WORDS];
+            int card = 0;
+            for (int w = 0; w < BITMAP_WORDS; ++w)
+                card += Long.bitCount(r[w] = x[w] & ~y[w]);
+            return ofBitmap(r, card);
+        }
+
+        /**
+         * Returns the smallest representation of this container.
+         */
+        Container runOptimize() {
+            int runs = 0;
+            for (int v = nextSetBit(0); v >= 0; ) {
+                int end = nextClearBit(v);
+                ++runs;
+                v = (end < (1 << 16)) ? nextSetBit(end) : -1;
+            }
+            int runBytes = runs << 2;
+            if (runBytes >= serializedDataBytes())
+                return this;
+            char[] rs = new char[runs << 1];
+            int n = 0;
+            for (int v = nextSetBit(0); v >= 0; ) {
+                int end = nextClearBit(v);
+                rs[n++] = (char)v;
+                rs[n++] = (char)(end - v - 1);
+                v = (end < (1 << 16)) ? nextSetBit(end) : -1;
+            }
+            return new RunContainer(rs, runs);
+        }
+    }
+
+    /**
+     * Sorted array of values, for sparse chunks.
+     */
+    static final class ArrayContainer extends Container {
+        char[] content;
+        int card;
+
+        ArrayContainer() {
+            content = new char[4];
+        }
+
+        ArrayContainer(char[] content, int card) {
+            this.content = content;
+            this.card = card;
+        }
+
+        int cardinality() { return card; }
+
+        private int search(char x) {
+            return Arrays.binarySearch(content, 0, card, x);
+        }
+
+        boolean contains(char x) { return search(x) >= 0; }
+
+        Container add(char x) {
+            int i = search(x);
+            if (i >= 0)
+                return this;
+            if (card == ARRAY_MAX)
+                return toBitmapContainer().add(x);
+            i = -i - 1;
+            if (card == content.length)
+                content = Arrays.copyOf(content,
+                                        Math.min(ARRAY_MAX, card + (card >> 1) + 4));
+            System.arraycopy(content, i, content, i + 1, card - i);
+            content[i] = x;
+            ++card;
+            return this;
+        }
+
+        Container remove(char x) {
+            int i = search(x);
+            if (i >= 0) {
+                System.arraycopy(content, i + 1, content, i, card - i - 1);
+                --card;
+            }
+            return this;
+        }
+
+        Container addRange(int lo, int hi) {
+            if (card + (hi - lo) > ARRAY_MAX)
+                return toBitmapContainer().addRange(lo, hi);
+            Container c = this;
+            for (int v = lo; v < hi; ++v)
+                c = c.add((char)v);
+            return c;
+        }
+
+        BitmapContainer toBitmapContainer() {
+            return new BitmapContainer(toBitmap(), card);
+        }
+
+        int nextSetBit(int from) {
+            int i = search((char)from);
+            if (i < 0)
+                i = -i - 1;
+            return (i < card) ? content[i] : -1;
+        }
+
+        int nextClearBit(int from) {
+            int i = search((char)from);
+            if (i < 0)
+                return from;
+            int v = from;
+            while (i < card && content[i] == v) {
+                ++i;
+                ++v;
+            }
+            return v;
+        }
+
+        int previousSetBit(int from) {
+            int i = search((char)from);
+            if (i < 0)
+                i = -i - 2;
+            return (i >= 0) ? content[i] : -1;
+        }
+
+        void forEach(int base, IntConsumer action) {
+            char[] vs = content;
+            for (int i = 0, n = card; i < n; ++i)
+                action.accept(base | vs[i]);
+        }
+
+        long[] toBitmap() {
+            long[] words = new long[BITMAP_WORDS];
+            for (int i = 0; i < card; ++i) {
+                char v = content[i];
+                words[v >>> 6] |= 1L << v;
+            }
+            return words;
+        }
+
+        byte kind() { return ARRAY; }
+
+        int serializedDataBytes() { return 4 + (card << 1); }
+
+        void writeData(DataOutput out) throws IOException {
+            out.writeInt(card);
+            for (int i = 0; i < card; ++i)
+                out.writeChar(content[i]);
+        }
+
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(content, card), card);
+        }
+    }
+
+    /**
+     * Uncompressed bitmap, for dense chunks.
+     */
+    static final class BitmapContainer extends Container {
+        final long[] words;
+        int card;
+
+        BitmapContainer(long[] words, int card) {
+            this.words = words;
+            this.card = card;
+        }
+
+        static BitmapContainer of(long[] words) {
+            int card = 0;
+            for (long w : words)
+                card += Long.bitCount(w);
+            return new BitmapContainer(words, card);
+        }
+
+        int cardinality() { return card; }
+
+        boolean contains(char x) {
+            return (words[x >>> 6] & (1L << x)) != 0;
+        }
+
+        Container add(char x) {
+            long w = words[x >>> 6], m = 1L << x;
+            if ((w & m) == 0) {
+                words[x >>> 6] = w | m;
+                ++card;
+            }
+            return this;
+        }
+
+        Container remove(char x) {
+            long w = words[x >>> 6], m = 1L << x;
+            if ((w & m) != 0) {
+                words[x >>> 6] = w & ~m;
+                if (--card <= ARRAY_MAX)
+                    return ofBitmap(words, card);
+            }
+            return this;
+        }
+
+        Container addRange(int lo, int hi) {
+            int first = lo >>> 6, last = (hi - 1) >>> 6;
+            long firstMask = -1L << lo, lastMask = -1L >>> -hi;
+            for (int w = first; w <= last; ++w) {
+                long m = -1L;
+                if (w == first)
+                    m &= firstMask;
+                if (w == last)
+                    m &= lastMask;
+                card += Long.bitCount(m & ~words[w]);
+                words[w] |= m;
+            }
+            return this;
+        }
+
+        int nextSetBit(int from) {
+            int u = from >>> 6;
+            long word = words[u] & (-1L << from);
+            for (;;) {
+                if (word != 0)
+                    return (u << 6) + Long.numberOfTrailingZeros(word);
+                if (++u == BITMAP_WORDS)
+                    return -1;
+                word = words[u];
+            }
+        }
+
+        int nextClearBit(int from) {
+            int u = from >>> 6;
+            long word = ~words[u] & (-1L << from);
+            for (;;) {
+                if (word != 0)
+                    return (u << 6) + Long.numberOfTrailingZeros(word);
+                if (++u == BITMAP_WORDS)
+                    return 1 << 16;
+                word = ~words[u];
+            }
+        }
+
+        int previousSetBit(int from) {
+            int u = from >>> 6;
+            long word = words[u] & (-1L >>> -(from + 1));
+            for (;;) {
+                if (word != 0)
+                    return ((u + 1) << 6) - 1 - Long.numberOfLeadingZeros(word);
+                if (u-- == 0)
+                    return -1;
+                word = words[u];
+            }
+        }
+
+        void forEach(int base, IntConsumer action) {
+            long[] ws = words;
+            for (int w = 0; w < BITMAP_WORDS; ++w) {
+                for (long word = ws[w]; word != 0; word &= word - 1)
+                    action.accept(base | ((w << 6) +
+                                          Long.numberOfTrailingZeros(word)));
+            }
+        }
+
+        long[] toBitmap() { return words; }
+
+        byte kind() { return BITMAP; }
+
+        int serializedDataBytes() { return 4 + (BITMAP_WORDS << 3); }
+
+        void writeData(DataOutput out) throws IOException {
+            out.writeInt(BITMAP_WORDS);
+            for (long w : words)
+                out.writeLong(w);
+        }
+
+        Container copy() {
+            return new BitmapContainer(words.clone(), card);
+        }
+    }
+
+    /**
+     * Sorted, non-adjacent runs stored as (start, length - 1) pairs, for
+     * chunks made of long stretches of consecutive values.  Mutations
+     * other than range additions that extend a single full run convert to
+     * an array or bitmap container.
+     */
+    static final class RunContainer extends Container {
+        final char[] runs;
+        final int nruns;
+
+        RunContainer(char[] runs, int nruns) {
+            this.runs = runs;
+            this.nruns = nruns;
+        }
+
+        static RunContainer ofRange(int lo, int hi) {
+            return new RunContainer(new char[] { (char)lo, (char)(hi - lo - 1) }, 1);
+        }
+
+        private int start(int i) { return runs[i << 1]; }
+        private int end(int i) { return runs[i << 1] + runs[(i << 1) + 1]; }
+
+        /**
+         * Returns the index of the last run starting at or before
+         * {@code x}, or -1.
+         */
+        private int runFor(int x) {
+            int lo = 0, hi = nruns - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (start(mid) <= x)
+                    lo = mid + 1;
+                else
+                    hi = mid - 1;
+            }
+            return hi;
+        }
+
+        int cardinality() {
+            int n = nruns;
+            for (int i = 0; i < nruns; ++i)
+                n += runs[(i << 1) + 1];
+            return n;
+        }
+
+        boolean contains(char x) {
+            int i = runFor(x);
+            return i >= 0 && x <= end(i);
+        }
+
+        private Container mutable() {
+            return ofBitmap(toBitmap(), cardinality());
+        }
+
+        Container add(char x) {
+            return contains(x) ? this : mutable().add(x);
+        }
+
+        Container remove(char x) {
+            return contains(x) ? mutable().remove(x) : this;
+        }
+
+        Container addRange(int lo, int hi) {
+            if (nruns == 1 && lo <= start(0) && hi - 1 >= end(0))
+                return ofRange(lo, hi);
+            return toBitmapContainer().addRange(lo, hi);
+        }
+
+        private BitmapContainer toBitmapContainer() {
+            return new BitmapContainer(toBitmap(), cardinality());
+        }
+
+        int nextSetBit(int from) {
+            int i = runFor(from);
+            if (i >= 0 && from <= end(i))
+                return from;
+            return (i + 1 < nruns) ? start(i + 1) : -1;
+        }
+
+        int nextClearBit(int from) {
+            int i = runFor(from);
+            return (i >= 0 && from <= end(i)) ? end(i) + 1 : from;
+        }
+
+        int previousSetBit(int from) {
+            int i = runFor(from);
+            return (i < 0) ? -1 : Math.min(from, end(i));
+        }
+
+        void forEach(int base, IntConsumer action) {
+            for (int i = 0; i < nruns; ++i) {
+                for (int v = start(i), e = end(i); v <= e; ++v)
+                    action.accept(base | v);
+            }
+        }
+
+        long[] toBitmap() {
+            long[] words = new long[BITMAP_WORDS];
+            for (int i = 0; i < nruns; ++i) {
+                int lo = start(i), hi = end(i) + 1;
+                int first = lo >>> 6, last = (hi - 1) >>> 6;
+                for (int w = first; w <= last; ++w) {
+                    long m = -1L;
+                    if (w == first)
+                        m &= -1L << lo;
+                    if (w == last)
+                        m &= -1L >>> -hi;
+                    words[w] |= m;
+                }
+            }
+            return words;
+        }
+
+        Container runOptimize() {
+            return this;
+        }
+
+        byte kind() { return RUN; }
+
+        int serializedDataBytes() { return 4 + (nruns << 2); }
+
+        void writeData(DataOutput out) throws IOException {
+            out.writeInt(nruns);
+            for (int i = 0; i < nruns << 1; ++i)
+                out.writeChar(runs[i]);
+        }
+
+        Container copy() {
+            return new RunContainer(Arrays.copyOf(runs, nruns << 1), nruns);
+        }
+    }
+}
@@ -0,0 +1,1196 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * A bounded, thread-safe cache backed by a {@link ConcurrentHashMap},
+ * whose entries are evicted once a maximum size or total weight is
+ * exceeded, and optionally expire a fixed time after they were written
+ * or last read.  Caches are configured and created with a {@link
+ * Builder}:
+ *
+ * <pre> {@code
+ * BoundedConcurrentCache<Key, Graph> graphs =
+ *     new BoundedConcurrentCache.Builder<Key, Graph>()
+ *         .maximumSize(10_000)
+ *         .expireAfterWrite(10, TimeUnit.MINUTES)
+ *         .build();
+ * Graph g = graphs.computeIfAbsent(key, k -> createExpensiveGraph(k));}</pre>
+ *
+ * <p>Neither keys nor values may be {@code null}.
+ *
+ * <p><b>Eviction policy.</b> The cache uses W-TinyLFU.  New entries are
+ * admitted into a small LRU <em>window</em> (1% of the maximum weight).
+ * An entry that overflows the window becomes a candidate for the
+ * segmented-LRU <em>main</em> space, and is admitted only if it has been
+ * used more often than the entry the main space would evict in its
+ * place.  Use frequencies are estimated, for all recently seen keys
+ * including those no longer present, by a compact count-min sketch of
+ * 4-bit counters that is periodically halved so that the estimates
+ * favour recent history.  This retains frequently used entries that a
+ * plain LRU policy would lose to a scan of one-time keys.
+ *
+ * <p><b>Concurrency.</b> Reads are served directly from the backing
+ * map and never take a lock.  The policy's bookkeeping is deferred: a
+ * read records the entry in a lossy, striped ring buffer, and a write
+ * queues a task, and both are replayed in batches by whichever thread
+ * next acquires the policy lock with {@code tryLock}.  Dropping a read
+ * when its buffer is full only loses a hint to the policy.  Entries may
+ * therefore briefly exceed the maximum, or remain in the map after
+ * expiring (though expired entries are never returned); {@link
+ * #cleanUp} performs any pending maintenance immediately.
+ *
+ * <p>{@link #computeIfAbsent computeIfAbsent} runs the mapping function
+ * inside {@link ConcurrentHashMap#compute}, so concurrent loads of the
+ * same key wait for a single computation, while reads of any key, and
+ * writes of keys in other bins of the map, proceed.
+ *
+ * <p>Hit, miss, load and eviction counts are kept in {@link LongAdder}s
+ * and reported by {@link #stats}.
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of cached values
+ * @see ConcurrentHashMap
+ * @since 1.8
+ */
+public class BoundedConcurrentCache<K,V> {
+
+    /**
+     * Creates {@link BoundedConcurrentCache} instances.  By default a
+     * cache is unbounded and its entries do not expire; at least one of
+     * the limits is expected to be configured.
+     *
+     * @param <K> the type of keys of the cache
+     * @param <V> the type of values of the cache
+     */
+    public static final class Builder<K,V> {
+        long maximum = UNBOUNDED;
+        ToIntBiFunction<? super K, ? super V> weigher;
+        long expireAfterWriteNanos = UNBOUNDED;
+        long expireAfterAccessNanos = UNBOUNDED;
+        int initialCapacity = 16;
+
+        /**
+         * Creates a builder with no limits.
+         */
+        public Builder() {
+        }
+
+        /**
+         * Limits the cache to the given number of entries.
+         *
+         * @param maximumSize the maximum number of entries
+         * @return this builder
+         * @throws IllegalArgumentException if {@code maximumSize} is negative
+         * @throws IllegalStateException if a maximum size or weight has
+         *         already been set
+         */
+        public Builder<K,V> maximumSize(long maximumSize) {
+            if (maximumSize < 0)
+                throw new IllegalArgumentException();
+            if (maximum != UNBOUNDED)
+                throw new IllegalStateException("maximum already set");
+            maximum = maximumSize;
+            return this;
+        }
+
+        /**
+         * Limits the total weight of the entries of the cache, where the
+         * weight of each entry is computed by {@code weigher} when it is
+         * written.  Weights must not be negative.
+         *
+         * @param maximumWeight the maximum total weight
+         * @param weigher the function computing the weight of an entry
+         * @return this builder
+         * @throws IllegalArgumentException if {@code maximumWeight} is negative
+         * @throws IllegalStateException if a maximum size or weight has
+         *         already been set
+         * @throws NullPointerException if {@code weigher} is null
+         */
+        public Builder<K,V> maximumWeight(long maximumWeight,
+                                          ToIntBiFunction<? super K, ? super V> weigher) {
+            if (maximumWeight < 0)
+                throw new IllegalArgumentException();
+            if (maximum != UNBOUNDED)
+                throw new IllegalStateException("maximum already set");
+            this.weigher = Objects.requireNonNull(weigher);
+            maximum = maximumWeight;
+            return this;
+        }
+
+        /**
+         * Expires each entry once the given duration has elapsed since
+         * its value was last written.
+         *
+         * @param duration the time to retain an entry after a write
+         * @param unit the unit of {@code duration}
+         * @return this builder
+         * @throws IllegalArgumentException if {@code duration} is negative
+         */
+        public Builder<K,V> expireAfterWrite(long duration, TimeUnit unit) {
+            if (duration < 0)
+                throw new IllegalArgumentException();
+            expireAfterWriteNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * Expires each entry once the given duration has elapsed since
+         * it was last read or written.
+         *
+         * @param duration the time to retain an entry after an access
+         * @param unit the unit of {@code duration}
+         * @return this builder
+         * @throws IllegalArgumentException if {@code duration} is negative
+         */
+        public Builder<K,V> expireAfterAccess(long duration, TimeUnit unit) {
+            if (duration < 0)
+                throw new IllegalArgumentException();
+            expireAfterAccessNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * Sets the initial capacity of the backing map.
+         *
+         * @param initialCapacity the initial capacity
+         * @return this builder
+         * @throws IllegalArgumentException if {@code initialCapacity} is
+         *         negative
+         */
+        public Builder<K,V> initialCapacity(int initialCapacity) {
+            if (initialCapacity < 0)
+                throw new IllegalArgumentException();
+            this.initialCapacity = initialCapacity;
+            return this;
+        }
+
+        /**
+         * Creates a cache with the settings of this builder.
+         *
+         * @param <K1> the type of keys of the cache
+         * @param <V1> the type of values of the cache
+         * @return a new, empty cache
+         */
+        public <K1 extends K, V1 extends V> BoundedConcurrentCache<K1,V1> build() {
+            return new BoundedConcurrentCache<K1,V1>(this);
+        }
+    }
+
+    /**
+     * A snapshot of the counters of a cache, as returned by {@link
+     * BoundedConcurrentCache#stats}.  The counts are cumulative since
+     * the cache was created.
+     */
+    public static final class Stats {
+        private final long hitCount, missCount, loadSuccessCount,
+            loadFailureCount, totalLoadTime, evictionCount, evictionWeight;
+
+        Stats(long hitCount, long missCount, long loadSuccessCount,
+              long loadFailureCount, long totalLoadTime,
+              long evictionCount, long evictionWeight) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.loadSuccessCount = loadSuccessCount;
+            this.loadFailureCount = loadFailureCount;
+            this.totalLoadTime = totalLoadTime;
+            this.evictionCount = evictionCount;
+            this.evictionWeight = evictionWeight;
+        }
+
+        /** @return the number of lookups that found a live entry */
+        public long hitCount() { return hitCount; }
+
+        /** @return the number of lookups that found no live entry */
+        public long missCount() { return missCount; }
+
+        /**
+         * @return the ratio of hits to lookups, or 1.0 if there have been
+         *         no lookups
+         */
+        public double hitRate() {
+            long requests = hitCount + missCount;
+            return (requests == 0) ? 1.0 : (double)hitCount / requests;
+        }
+
+        /** @return the number of mapping function calls that produced a value */
+        public long loadSuccessCount() { return loadSuccessCount; }
+
+        /**
+         * @return the number of mapping function calls that returned
+         *         {@code null} or threw an exception
+         */
+        public long loadFailureCount() { return loadFailureCount; }
+
+        /** @return the total time spent in mapping functions, in nanoseconds */
+        public long totalLoadTime() { return totalLoadTime; }
+
+        /**
+         * @return the number of entries evicted by the size or weight
+         *         limit, or by expiration
+         */
+        public long evictionCount() { return evictionCount; }
+
+        /** @return the total weight of the evicted entries */
+        public long evictionWeight() { return evictionWeight; }
+
+        public String toString() {
+            return "Stats[hits=" + hitCount + ", misses=" + missCount +
+                ", loadSuccesses=" + loadSuccessCount +
+                ", loadFailures=" + loadFailureCount +
+                ", totalLoadTime=" + totalLoadTime +
+                ", evictions=" + evictionCount +
+                ", evictionWeight=" + evictionWeight + "]";
+        }
+    }
+
+    /*
+     * Overview:
+     *
+     * The map holds Nodes, each carrying its key, value, weight and
+     * timestamps.  The policy (the three access-ordered deques, the
+     * write-ordered deque, the sketch and the weight totals) is guarded
+     * by evictionLock and touched only during maintenance.  Readers
+     * publish nodes into readBuffers; writers update the map under its
+     * own bin locks and then append a task to writeBuffer.  Maintenance
+     * replays the read buffers, then the write tasks, then expires and
+     * evicts.
+     *
+     * Every write task is guaranteed to run: a writer that fails to
+     * acquire the lock relies on the holder, which re-checks writeBuffer
+     * after unlocking (see scheduleDrain).  Write tasks for a node may
+     * run out of order with respect to each other (an add can be queued
+     * after the removal of the same node), so each task checks the
+     * node's state: a node is linked into the policy (queue != NONE)
+     * only while it is live in the map, and the weight totals only ever
+     * include linked nodes.
+     */
+
+    static final long UNBOUNDED = Long.MAX_VALUE;
+
+    /** Queue types of a node; NONE when not linked into the policy. */
+    static final int NONE = 0, WINDOW = 1, PROBATION = 2, PROTECTED = 3;
+
+    /** Number of slots in each read buffer; must be a power of two. */
+    static final int READ_BUFFER_SIZE = 16;
+
+    /** Maximum number of read buffer stripes. */
+    static final int MAX_READ_BUFFERS =
+        Math.min(64, Integer.highestOneBit(
+                     Runtime.getRuntime().availableProcessors() * 2 - 1) << 1);
+
+    static final class Node<K,V> {
+        final K key;
+        volatile V value;
+        volatile int weight;
+        volatile long writeTime;
+        volatile long accessTime;
+        /** Set under the map's bin lock when the node leaves the map. */
+        volatile boolean retired;
+
+        // Guarded by evictionLock
+        int queue;
+        int policyWeight;
+        Node<K,V> prev, next;               // access order
+        Node<K,V> prevWrite, nextWrite;     // write order
+
+        Node(K key, V value, int weight, long now) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.writeTime = now;
+            this.accessTime = now;
+        }
+    }
+
+    /** A doubly linked, access-ordered list of nodes. */
+    static final class AccessDeque<K,V> {
+        Node<K,V> first, last;
+
+        void addLast(Node<K,V> n) {
+            Node<K,V> l = last;
+            n.prev = l;
+            n.next = null;
+            last = n;
+            if (l == null)
+                first = n;
+            else
+                l.next = n;
+        }
+
+        void unlink(Node<K,V> n) {
+            Node<K,V> p = n.prev, s = n.next;
+            if (p == null)
+                first = s;
+            else
+                p.next = s;
+            if (s == null)
+                last = p;
+            else
+                s.prev = p;
+            n.prev = n.next = null;
+        }
+
+        void moveToBack(Node<K,V> n) {
+            if (n != last) {
+                unlink(n);
+                addLast(n);
+            }
+        }
+    }
+
+    /** A doubly linked, write-ordered list of nodes. */
+    static final class WriteDeque<K,V> {
+        Node<K,V> first, last;
+
+        void addLast(Node<K,V> n) {
+            Node<K,V> l = last;
+            n.prevWrite = l;
+            n.nextWrite = null;
+            last = n;
+            if (l == null)
+                first = n;
+            else
+                l.nextWrite = n;
+        }
+
+        void unlink(Node<K,V> n) {
+            Node<K,V> p = n.prevWrite, s = n.nextWrite;
+            if (p == null)
+                first = s;
+            else
+                p.nextWrite = s;
+            if (s == null)
+                last = p;
+            else
+                s.prevWrite = p;
+            n.prevWrite = n.nextWrite = null;
+        }
+
+        void moveToBack(Node<K,V> n) {
+            if (n != last) {
+                unlink(n);
+                addLast(n);
+            }
+        }
+    }
+
+    /**
+     * A lossy bounded buffer of nodes that have been read.  Any number
+     * of threads may offer; only the holder of evictionLock drains.
+     * A slot is claimed by advancing writeCounter and then filled; the
+     * drainer stops at a claimed slot that has not been filled yet.
+     */
+    static final class ReadBuffer<K,V> {
+        final AtomicLong writeCounter = new AtomicLong();
+        volatile long readCounter;
+        final AtomicReferenceArray<Node<K,V>> slots =
+            new AtomicReferenceArray<Node<K,V>>(READ_BUFFER_SIZE);
+
+        /**
+         * Records the node, returning false if the buffer was full and
+         * should be drained.  A lost race for a slot drops the read.
+         */
+        boolean offer(Node<K,V> n) {
+            long head = readCounter;
+            long tail = writeCounter.get();
+            if (tail - head >= READ_BUFFER_SIZE)
+                return false;
+            if (writeCounter.compareAndSet(tail, tail + 1))
+                slots.lazySet((int)tail & (READ_BUFFER_SIZE - 1), n);
+            return true;
+        }
+
+        void drainTo(BoundedConcurrentCache<K,V> cache) {
+            long head = readCounter;
+            long tail = writeCounter.get();
+            for (; head < tail; head++) {
+                int i = (int)head & (READ_BUFFER_SIZE - 1);
+                Node<K,V> n = slots.get(i);
+                if (n == null)
+                    break;
+                slots.lazySet(i, null);
+                cache.onAccess(n);
+            }
+            readCounter = head;
+        }
+    }
+
+    /**
+     * A count-min sketch of 4-bit counters, four per key, packed sixteen
+     * to a long.  The counters of a key all lie in one long of each of
+     * four rows chosen by independent hashes.  Once the number of
+     * increments reaches ten times the table size, every counter is
+     * halved, so that the estimates age.
+     */
+    static final class FrequencySketch {
+        static final long[] SEED = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+            0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+        static final long RESET_MASK = 0x7777777777777777L;
+        static final long ONE_MASK = 0x1111111111111111L;
+
+        long[] table;
+        int tableMask;
+        int sampleSize;
+        int size;
+
+        /** Sizes the sketch for the given number of entries. */
+        void ensureCapacity(long maximumSize) {
+            int n = (int)Math.min(Math.max(maximumSize, 16L), 1L << 30);
+            if (table != null && table.length >= n)
+                return;
+            n = (n & (n - 1)) == 0 ? n : Integer.highestOneBit(n) << 1;
+            table = new long[n];
+            tableMask = n - 1;
+            sampleSize = (n <= Integer.MAX_VALUE / 10) ?
+                10 * n : Integer.MAX_VALUE;
+            size = 0;
+        }
+
+        int frequency(Object key) {
+            int hash = spread(key.hashCode());
+            int start = (hash & 3) << 2;
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(hash, i);
+                int count = (int)((table[index] >>> ((start + i) << 2)) & 0xfL);
+                frequency = Math.min(frequency, count);
+            }
+            return frequency;
+        }
+
+        void increment(Object key) {
+            int hash = spread(key.hashCode());
+            int start = (hash & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; i++)
+                added |= incrementAt(indexOf(hash, i), start + i);
+            if (added && ++size >= sampleSize)
+                reset();
+        }
+
+        private boolean incrementAt(int i, int j) {
+            int offset = j << 2;
+            long mask = 0xfL << offset;
+            long t = table[i];
+            if ((t & mask) != mask) {
+                table[i] = t + (1L << offset);
+                return true;
+            }
+            return false;
+        }
+
+        /** Halves every counter, accounting for the truncated halves. */
+        private void reset() {
+            int odd = 0;
+            long[] t = table;
+            for (int i = 0; i < t.length; i++) {
+                odd += Long.bitCount(t[i] & ONE_MASK);
+                t[i] = (t[i] >>> 1) & RESET_MASK;
+            }
+            size = (size >>> 1) - (odd >>> 2);
+        }
+
+        private int indexOf(int item, int i) {
+            long hash = (item + SEED[i]) * SEED[i];
+            hash += hash >>> 32;
+            return (int)hash & tableMask;
+        }
+
+        private static int spread(int x) {
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            return (x >>> 16) ^ x;
+        }
+    }
+
+    final ConcurrentHashMap<K,Node<K,V>> data;
+    final ToIntBiFunction<? super K, ? super V> weigher;
+    final long expireAfterWriteNanos;
+    final long expireAfterAccessNanos;
+    final ReentrantLock evictionLock = new ReentrantLock();
+    final ConcurrentLinkedQueue<Runnable> writeBuffer =
+        new ConcurrentLinkedQueue<Runnable>();
+    final AtomicReferenceArray<ReadBuffer<K,V>> readBuffers =
+        new AtomicReferenceArray<ReadBuffer<K,V>>(MAX_READ_BUFFERS);
+
+    // Guarded by evictionLock
+    final long maximum;
+    final long windowMaximum;
+    final long protectedMaximum;
+    long weightedSize;
+    long windowWeightedSize;
+    long protectedWeightedSize;
+    final AccessDeque<K,V> window = new AccessDeque<K,V>();
+    final AccessDeque<K,V> probation = new AccessDeque<K,V>();
+    final AccessDeque<K,V> protectedDeque = new AccessDeque<K,V>();
+    final WriteDeque<K,V> writeOrder = new WriteDeque<K,V>();
+    final FrequencySketch sketch = new FrequencySketch();
+
+    final LongAdder hitCount = new LongAdder();
+    final LongAdder missCount = new LongAdder();
+    final LongAdder loadSuccessCount = new LongAdder();
+    final LongAdder loadFailureCount = new LongAdder();
+    final LongAdder totalLoadTime = new LongAdder();
+    final LongAdder evictionCount = new LongAdder();
+    final LongAdder evictionWeight = new LongAdder();
+
+    BoundedConcurrentCache(Builder<? super K, ? super V> builder) {
+        this.data = new ConcurrentHashMap<K,Node<K,V>>(builder.initialCapacity);
+        this.weigher = builder.weigher;
+        this.expireAfterWriteNanos = builder.expireAfterWriteNanos;
+        this.expireAfterAccessNanos = builder.expireAfterAccessNanos;
+        long max = builder.maximum;
+        this.maximum = max;
+        long w = (max == UNBOUNDED) ? UNBOUNDED : Math.max(1L, max / 100);
+        this.windowMaximum = Math.min(w, max);
+        this.protectedMaximum = (max == UNBOUNDED) ? UNBOUNDED :
+            (max - windowMaximum) / 5 * 4;
+        sketch.ensureCapacity(Math.min(max, builder.initialCapacity));
+    }
+
+    // Reads
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code null} if this cache has no live mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value, or {@code null} if there is no live mapping
+     * @throws NullPointerException if the specified key is null
+     */
+    public V get(Object key) {
+        Node<K,V> n = data.get(key);
+        if (n == null) {
+            missCount.increment();
+            return null;
+        }
+        V v = n.value;
+        long now = expires() ? System.nanoTime() : 0L;
+        if (n.retired || hasExpired(n, now)) {
+            missCount.increment();
+            scheduleDrain();
+            return null;
+        }
+        hitCount.increment();
+        afterRead(n, now);
+        return v;
+    }
+
+    /**
+     * Returns {@code true} if this cache has a live mapping for the
+     * specified key.  This does not count as a use of the entry.
+     *
+     * @param key the key
+     * @return {@code true} if there is a live mapping for the key
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean containsKey(Object key) {
+        Node<K,V> n = data.get(key);
+        return n != null && !n.retired &&
+            !hasExpired(n, expires() ? System.nanoTime() : 0L);
+    }
+
+    // Writes
+
+    /**
+     * Associates the specified value with the specified key, replacing
+     * any previous value.
+     *
+     * @param key the key
+     * @param value the value
+     * @return the previous live value, or {@code null} if there was none
+     * @throws NullPointerException if the key or value is null
+     * @throws IllegalArgumentException if the weigher returns a negative
+     *         weight
+     */
+    public V put(K key, V value) {
+        return put(key, value, false);
+    }
+
+    /**
+     * Associates the specified value with the specified key unless a
+     * live mapping for the key is present.  Finding the present value
+     * counts as a use of its entry.
+     *
+     * @param key the key
+     * @param value the value
+     * @return the present live value, or {@code null} if there was none
+     * @throws NullPointerException if the key or value is null
+     * @throws IllegalArgumentException if the weigher returns a negative
+     *         weight
+     */
+    public V putIfAbsent(K key, V value) {
+        return put(key, value, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V put(K key, V value, boolean onlyIfAbsent) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        int weight = weigh(key, value);
+        long now = expires() ? System.nanoTime() : 0L;
+        // [0] = previous value, [1] = replaced node, [2] = added node,
+        // [3] = updated node
+        Object[] r = new Object[4];
+        data.compute(key, (k, old) -> {
+            if (old != null && !hasExpired(old, now)) {
+                r[0] = old.value;
+                if (onlyIfAbsent)
+                    return old;
+                old.value = value;
+                old.weight = weight;
+                old.writeTime = now;
+                old.accessTime = now;
+                r[3] = old;
+                return old;
+            }
+            if (old != null) {
+                old.retired = true;
+                r[1] = old;
+            }
+            Node<K,V> n = new Node<K,V>(k, value, weight, now);
+            r[2] = n;
+            return n;
+        });
+        Node<K,V> replaced = (Node<K,V>)r[1];
+        Node<K,V> added = (Node<K,V>)r[2];
+        Node<K,V> updated = (Node<K,V>)r[3];
+        if (replaced != null)
+            writeBuffer.add(() -> onRemove(replaced, true));
+        if (added != null)
+            writeBuffer.add(() -> onAdd(added));
+        else if (updated != null)
+            writeBuffer.add(() -> onUpdate(updated));
+        else if (r[0] != null) {
+            afterRead(data.get(key), now);
+            return (V)r[0];
+        }
+        scheduleDrain();
+        return (V)r[0];
+    }
+
+    /**
+     * Removes the mapping for a key from this cache if it is present.
+     *
+     * @param key the key
+     * @return the previous live value, or {@code null} if there was none
+     * @throws NullPointerException if the specified key is null
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        long now = expires() ? System.nanoTime() : 0L;
+        Object[] r = new Object[1];
+        data.computeIfPresent((K)key, (k, old) -> {
+            old.retired = true;
+            r[0] = old;
+            return null;
+        });
+        Node<K,V> removed = (Node<K,V>)r[0];
+        if (removed == null)
+            return null;
+        V v = removed.value;
+        boolean expired = hasExpired(removed, now);
+        writeBuffer.add(() -> onRemove(removed, expired));
+        scheduleDrain();
+        return expired ? null : v;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, first
+     * computing it with the given mapping function and entering it into
+     * this cache if there is no live mapping.  The entire invocation is
+     * performed atomically, so the function is applied at most once per
+     * key.  Other threads attempting to update the same key (or keys in
+     * the same bin of the backing map) wait for the computation, while
+     * reads, and updates of other keys, proceed.  The function must not
+     * attempt to update any other mapping of this cache.
+     *
+     * @param key the key
+     * @param mappingFunction the function to compute a value
+     * @return the current (existing or computed) value associated with
+     *         the specified key, or null if the computed value is null
+     * @throws NullPointerException if the specified key or
+     *         mappingFunction is null
+     * @throws IllegalArgumentException if the weigher returns a negative
+     *         weight
+     * @throws RuntimeException or Error if the mappingFunction does so,
+     *         in which case the mapping is left unchanged
+     */
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(K key,
+                             Function<? super K, ? extends V> mappingFunction) {
+        if (key == null || mappingFunction == null)
+            throw new NullPointerException();
+        long now = expires() ? System.nanoTime() : 0L;
+        Node<K,V> n = data.get(key);
+        V v;
+        if (n != null && (v = n.value) != null && !n.retired &&
+            !hasExpired(n, now)) {
+            hitCount.increment();
+            afterRead(n, now);
+            return v;
+        }
+        // [0] = present node, [1] = replaced node, [2] = added node
+        Object[] r = new Object[3];
+        long[] loadTime = new long[1];
+        try {
+            data.compute(key, (k, old) -> {
+                if (old != null && !hasExpired(old, now)) {
+                    r[0] = old;
+                    return old;
+                }
+                long start = System.nanoTime();
+                V value;
+                try {
+                    value = mappingFunction.apply(k);
+                } finally {
+                    loadTime[0] = System.nanoTime() - start;
+                }
+                if (value == null)
+                    return old;   // leave an expired entry to maintenance
+                if (old != null) {
+                    old.retired = true;
+                    r[1] = old;
+                }
+                Node<K,V> added = new Node<K,V>(k, value, weigh(k, value),
+                                                expires() ? System.nanoTime() : 0L);
+                r[2] = added;
+                return added;
+            });
+        } catch (RuntimeException | Error ex) {
+            missCount.increment();
+            loadFailureCount.increment();
+            totalLoadTime.add(loadTime[0]);
+            throw ex;
+        }
+        Node<K,V> present = (Node<K,V>)r[0];
+        if (present != null) {
+            hitCount.increment();
+            afterRead(present, now);
+            return present.value;
+        }
+        missCount.increment();
+        totalLoadTime.add(loadTime[0]);
+        Node<K,V> added = (Node<K,V>)r[2];
+        if (added == null) {
+            loadFailureCount.increment();
+            return null;
+        }
+        loadSuccessCount.increment();
+        Node<K,V> replaced = (Node<K,V>)r[1];
+        if (replaced != null)
+            writeBuffer.add(() -> onRemove(replaced, true));
+        writeBuffer.add(() -> onAdd(added));
+        scheduleDrain();
+        return added.value;
+    }
+
+    /**
+     * Removes all of the mappings from this cache.  Mappings added
+     * concurrently may or may not be removed.
+     */
+    public void invalidateAll() {
+        for (K key : data.keySet())
+            remove(key);
+    }
+
+    /**
+     * Returns the approximate number of entries in this cache, which may
+     * include entries that have expired but not yet been removed.
+     *
+     * @return the estimated number of entries
+     */
+    public long estimatedSize() {
+        return data.mappingCount();
+    }
+
+    /**
+     * Returns the total weight of the entries currently accounted for by
+     * the eviction policy, after performing any pending maintenance.
+     * Without a weigher, this is the number of entries.
+     *
+     * @return the weighted size of this cache
+     */
+    public long weightedSize() {
+        evictionLock.lock();
+        try {
+            maintenance();
+            return weightedSize;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Performs any pending maintenance: replays buffered reads and
+     * writes into the eviction policy, then removes expired entries and
+     * evicts entries until the cache is within its maximum.  This is
+     * otherwise done incrementally by the threads using the cache.
+     */
+    public void cleanUp() {
+        evictionLock.lock();
+        try {
+            maintenance();
+        } finally {
+            evictionLock.unlock();
+        }
+        if (!writeBuffer.isEmpty())
+            scheduleDrain();
+    }
+
+    /**
+     * Returns a snapshot of the counters of this cache.
+     *
+     * @return the current statistics
+     */
+    public Stats stats() {
+        return new Stats(hitCount.sum(), missCount.sum(),
+                         loadSuccessCount.sum(), loadFailureCount.sum(),
+                         totalLoadTime.sum(), evictionCount.sum(),
+                         evictionWeight.sum());
+    }
+
+    public String toString() {
+        return "BoundedConcurrentCache[size=" + data.mappingCount() +
+            ", maximum=" + (maximum == UNBOUNDED ? "unbounded" : maximum) +
+            "]";
+    }
+
+    // Helpers for the read and write paths
+
+    final boolean expires() {
+        return expireAfterWriteNanos != UNBOUNDED ||
+            expireAfterAccessNanos != UNBOUNDED;
+    }
+
+    final boolean hasExpired(Node<K,V> n, long now) {
+        return (expireAfterWriteNanos != UNBOUNDED &&
+                now - n.writeTime >= expireAfterWriteNanos) ||
+            (expireAfterAccessNanos != UNBOUNDED &&
+             now - n.accessTime >= expireAfterAccessNanos);
+    }
+
+    private int weigh(K key, V value) {
+        if (weigher == null)
+            return 1;
+        int w = weigher.applyAsInt(key, value);
+        if (w < 0)
+            throw new IllegalArgumentException("negative weight");
+        return w;
+    }
+
+    /**
+     * Records a read of node n in the read buffer of the current
+     * thread's stripe, draining the buffers if it is full.
+     */
+    private void afterRead(Node<K,V> n, long now) {
+        if (n == null)
+            return;
+        if (expireAfterAccessNanos != UNBOUNDED)
+            n.accessTime = now;
+        if (maximum == UNBOUNDED && expireAfterAccessNanos == UNBOUNDED)
+            return;     // reads do not affect the policy
+        int h;
+        if ((h = ThreadLocalRandom.getProbe()) == 0) {
+            ThreadLocalRandom.localInit();
+            h = ThreadLocalRandom.getProbe();
+        }
+        int i = h & (MAX_READ_BUFFERS - 1);
+        ReadBuffer<K,V> buffer = readBuffers.get(i);
+        if (buffer == null) {
+            readBuffers.compareAndSet(i, null, new ReadBuffer<K,V>());
+            buffer = readBuffers.get(i);
+        }
+        if (!buffer.offer(n)) {
+            ThreadLocalRandom.advanceProbe(h);
+            scheduleDrain();
+        }
+    }
+
+    /**
+     * Runs maintenance if the policy lock is free.  A thread that finds
+     * it held relies on the holder: writeBuffer is re-checked after
+     * every release, so a write task queued while the lock was held is
+     * never stranded.
+     */
+    final void scheduleDrain() {
+        do {
+            if (!evictionLock.tryLock())
+                return;
+            try {
+                maintenance();
+            } finally {
+                evictionLock.unlock();
+            }
+        } while (!writeBuffer.isEmpty());
+    }
+
+    // Policy; all methods below run while holding evictionLock
+
+    private void maintenance() {
+        for (int i = 0; i < MAX_READ_BUFFERS; i++) {
+            ReadBuffer<K,V> buffer = readBuffers.get(i);
+            if (buffer != null)
+                buffer.drainTo(this);
+        }
+        Runnable task;
+        while ((task = writeBuffer.poll()) != null)
+            task.run();
+        sketch.ensureCapacity(Math.min(maximum, data.mappingCount()));
+        if (expires())
+            expireEntries(System.nanoTime());
+        evictEntries();
+    }
+
+    void onAccess(Node<K,V> n) {
+        sketch.increment(n.key);
+        switch (n.queue) {
+        case WINDOW:
+            window.moveToBack(n);
+            break;
+        case PROBATION:
+            probation.unlink(n);
+            n.queue = PROTECTED;
+            protectedDeque.addLast(n);
+            protectedWeightedSize += n.policyWeight;
+            demoteFromProtected();
+            break;
+        case PROTECTED:
+            protectedDeque.moveToBack(n);
+            break;
+        default:        // not yet added, or already removed
+            break;
+        }
+    }
+
+    private void onAdd(Node<K,V> n) {
+        sketch.increment(n.key);
+        if (n.retired || n.queue != NONE)
+            return;
+        int w = n.weight;
+        n.policyWeight = w;
+        n.queue = WINDOW;
+        window.addLast(n);
+        writeOrder.addLast(n);
+        windowWeightedSize += w;
+        weightedSize += w;
+    }
+
+    private void onUpdate(Node<K,V> n) {
+        if (n.queue == NONE)
+            return;
+        int delta = n.weight - n.policyWeight;
+        if (delta != 0) {
+            n.policyWeight += delta;
+            weightedSize += delta;
+            if (n.queue == WINDOW)
+                windowWeightedSize += delta;
+            else if (n.queue == PROTECTED) {
+                protectedWeightedSize += delta;
+                demoteFromProtected();
+            }
+        }
+        writeOrder.moveToBack(n);
+        onAccess(n);
+    }
+
+    /**
+     * Unlinks a node that has left the map; counts it as an eviction
+     * if it left because it expired.
+     */
+    private void onRemove(Node<K,V> n, boolean expired) {
+        int w = n.policyWeight;
+        boolean wasLinked = n.queue != NONE;
+        unlink(n);
+        if (expired) {
+            evictionCount.increment();
+            evictionWeight.add(wasLinked ? w : n.weight);
+        }
+    }
+
+    private void unlink(Node<K,V> n) {
+        int w = n.policyWeight;
+        switch (n.queue) {
+        case WINDOW:
+            window.unlink(n);
+            windowWeightedSize -= w;
+            break;
+        case PROBATION:
+            probation.unlink(n);
+            break;
+        case PROTECTED:
+            protectedDeque.unlink(n);
+            protectedWeightedSize -= w;
+            break;
+        default:
+            return;
+        }
+        writeOrder.unlink(n);
+        weightedSize -= w;
+        n.queue = NONE;
+    }
+
+    /** Moves the least recently used protected entries to probation. */
+    private void demoteFromProtected() {
+        Node<K,V> n;
+        while (protectedWeightedSize > protectedMaximum &&
+               (n = protectedDeque.first) != null) {
+            protectedDeque.unlink(n);
+            protectedWeightedSize -= n.policyWeight;
+            n.queue = PROBATION;
+            probation.addLast(n);
+        }
+    }
+
+    /**
+     * Removes node n from the map if it is still mapped, and then from
+     * the policy.  An entry that is no longer expired (because it was
+     * written concurrently) is kept when evicting for expiry.
+     *
+     * @return true if the node was removed from the policy
+     */
+    private boolean evict(Node<K,V> n, boolean forExpiry, long now) {
+        // [0] = kept, [1] = removed by this call
+        boolean[] r = new boolean[2];
+        data.computeIfPresent(n.key, (k, v) -> {
+            if (v != n)
+                return v;
+            if (forExpiry && !hasExpired(v, now)) {
+                r[0] = true;
+                return v;
+            }
+            v.retired = true;
+            r[1] = true;
+            return null;
+        });
+        if (r[0])
+            return false;
+        int w = n.policyWeight;
+        unlink(n);
+        if (r[1]) {   // otherwise a pending task accounts for the removal
+            evictionCount.increment();
+            evictionWeight.add(w);
+        }
+        return true;
+    }
+
+    private void expireEntries(long now) {
+        if (expireAfterAccessNanos != UNBOUNDED) {
+            expireFrom(window, now);
+            expireFrom(probation, now);
+            expireFrom(protectedDeque, now);
+        }
+        if (expireAfterWriteNanos != UNBOUNDED) {
+            Node<K,V> n;
+            while ((n = writeOrder.first) != null &&
+                   now - n.writeTime >= expireAfterWriteNanos) {
+                if (!evict(n, true, now)) {
+                    writeOrder.moveToBack(n);
+                    break;
+                }
+            }
+        }
+    }
+
+    private void expireFrom(AccessDeque<K,V> deque, long now) {
+        Node<K,V> n;
+        while ((n = deque.first) != null &&
+               now - n.accessTime >= expireAfterAccessNanos) {
+            if (!evict(n, true, now)) {
+                deque.moveToBack(n);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Moves the overflow of the window into probation as candidates for
+     * the main space, then evicts until within the maximum, each time
+     * choosing between the oldest remaining candidate and the victim at
+     * the head of probation by their estimated frequencies.
+     */
+    private void evictEntries() {
+        if (maximum == UNBOUNDED)
+            return;
+        Node<K,V> candidate = null, n;
+        while (windowWeightedSize > windowMaximum &&
+               (n = window.first) != null) {
+            window.unlink(n);
+            windowWeightedSize -= n.policyWeight;
+            n.queue = PROBATION;
+            probation.addLast(n);
+            if (candidate == null)
+                candidate = n;
+        }
+        while (weightedSize > maximum) {
+            Node<K,V> victim = probation.first;
+            if (victim != null && victim == candidate)
+                candidate = candidate.next;
+            if (victim == null)
+                victim = protectedDeque.first;
+            if (victim == null)
+                victim = window.first;
+            if (victim == null)
+                break;
+            if (candidate == null) {
+                evict(victim, false, 0L);
+                continue;
+            }
+            Node<K,V> next = candidate.next;
+            if (admit(candidate.key, victim.key))
+                evict(victim, false, 0L);
+            else
+                evict(candidate, false, 0L);
+            candidate = next;
+        }
+    }
+
+    /**
+     * Returns true if the candidate should replace the victim.  A
+     * candidate that is only moderately popular is occasionally admitted
+     * regardless, so that an attacker cannot pin a victim in the cache by
+     * flooding the sketch with colliding keys.
+     */
+    private boolean admit(K candidateKey, K victimKey) {
+        int candidateFreq = sketch.frequency(candidateKey);
+        int victimFreq = sketch.frequency(victimKey);
+        if (candidateFreq > victimFreq)
+            return true;
+        if (candidateFreq <= 5)
+            return false;
+        return (ThreadLocalRandom.current().nextInt() & 127) == 0;
+    }
+}
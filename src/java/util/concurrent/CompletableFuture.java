@@ -34,6 +34,9 @@
  */
 
 package java.util.concurrent;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.function.Supplier;
 import java.util.function.Consumer;
 import java.util.function.BiConsumer;
@@ -1256,63 +1259,6 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
         return d;
     }
 
-    @SuppressWarnings("serial")
-    static final class BiRelay<T,U> extends BiCompletion<T,U,Void> { // for And
-        BiRelay(CompletableFuture<Void> dep,
-                CompletableFuture<T> src,
-                CompletableFuture<U> snd) {
-            super(null, dep, src, snd);
-        }
-        final CompletableFuture<Void> tryFire(int mode) {
-            CompletableFuture<Void> d;
-            CompletableFuture<T> a;
-            CompletableFuture<U> b;
-            if ((d = dep) == null || !d.biRelay(a = src, b = snd))
-                return null;
-            src = null; snd = null; dep = null;
-            return d.postFire(a, b, mode);
-        }
-    }
-
-    boolean biRelay(CompletableFuture<?> a, CompletableFuture<?> b) {
-        Object r, s; Throwable x;
-        if (a == null || (r = a.result) == null ||
-            b == null || (s = b.result) == null)
-            return false;
-        if (result == null) {
-            if (r instanceof AltResult && (x = ((AltResult)r).ex) != null)
-                completeThrowable(x, r);
-            else if (s instanceof AltResult && (x = ((AltResult)s).ex) != null)
-                completeThrowable(x, s);
-            else
-                completeNull();
-        }
-        return true;
-    }
-
-    /** Recursively constructs a tree of completions. */
-    static CompletableFuture<Void> andTree(CompletableFuture<?>[] cfs,
-                                           int lo, int hi) {
-        CompletableFuture<Void> d = new CompletableFuture<Void>();
-        if (lo > hi) // empty
-            d.result = NIL;
-        else {
-            CompletableFuture<?> a, b;
-            int mid = (lo + hi) >>> 1;
-            if ((a = (lo == mid ? cfs[lo] :
-                      andTree(cfs, lo, mid))) == null ||
-                (b = (lo == hi ? a : (hi == mid+1) ? cfs[hi] :
-                      andTree(cfs, mid+1, hi)))  == null)
-                throw new NullPointerException();
-            if (!d.biRelay(a, b)) {
-                BiRelay<?,?> c = new BiRelay<>(d, a, b);
-                a.bipush(b, c);
-                c.tryFire(SYNC);
-            }
-        }
-        return d;
-    }
-
     /* ------------- Projected (Ored) BiCompletions -------------- */
 
     /** Pushes completion to this and b unless either done. */
@@ -1519,51 +1465,165 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
         return d;
     }
 
+    /* ------------- Flat aggregates of many inputs -------------- */
+
+    /*
+     * allOf, anyOf and their variants give each source a single
+     * AggregateRelay, all sharing one Aggregate that counts down the
+     * sources not yet complete, instead of relaying pairwise through
+     * a balanced tree of intermediate CompletableFutures.  The
+     * dependent is completed by the arrival that decides it: the last
+     * one, or for fail-fast and "any" forms possibly an earlier one.
+     * An AggregateRelease pushed on the dependent before any relay
+     * runs when it completes by any means (including direct
+     * completion or cancellation by users) and then either cancels
+     * the sources not yet complete or unlinks the relays that are no
+     * longer live from them.
+     */
+
+    // Kinds of aggregate
+    static final int ALL       = 0; // all complete; reports lowest failed
+    static final int FAIL_FAST = 1; // all complete normally or any fails
+    static final int ANY       = 2; // any completes
+
+    static final class Aggregate<V> {
+        final CompletableFuture<V> dep;
+        final CompletableFuture<?>[] srcs;
+        final Object[] results;          // non-null if collecting values
+        final int kind;
+        final boolean cancelRemaining;
+        volatile int remaining;          // sources not yet arrived
+        volatile int failed;             // lowest failed index, for ALL
+
+        Aggregate(CompletableFuture<V> dep, CompletableFuture<?>[] srcs,
+                  Object[] results, int kind, boolean cancelRemaining) {
+            this.dep = dep; this.srcs = srcs; this.results = results;
+            this.kind = kind; this.cancelRemaining = cancelRemaining;
+            this.failed = Integer.MAX_VALUE;
+            this.remaining = srcs.length;
+        }
+
+        /**
+         * Records result r of source i.  Returns dep if this call
+         * completed it, else null.
+         */
+        @SuppressWarnings("unchecked")
+        final CompletableFuture<V> arrive(int i, Object r) {
+            CompletableFuture<V> d = dep;
+            Throwable x = (r instanceof AltResult) ? ((AltResult)r).ex : null;
+            boolean done = false;
+            if (kind == ANY)
+                done = d.completeRelay(r);
+            else if (x == null) {
+                if (results != null)
+                    results[i] = (r == NIL) ? null : r;
+            }
+            else if (kind == FAIL_FAST)
+                done = d.completeThrowable(x, r);
+            else {
+                for (int f; i < (f = failed) &&
+                         !UNSAFE.compareAndSwapInt(this, FAILED, f, i);)
+                    ;
+            }
+            if (UNSAFE.getAndAddInt(this, REMAINING, -1) == 1 &&
+                kind != ANY && d.result == null) {
+                int f; Object s;
+                if ((f = failed) < srcs.length)
+                    done = d.completeThrowable
+                        (((AltResult)(s = srcs[f].result)).ex, s);
+                else
+                    done = d.completeValue
+                        (results == null ? null : (V)Arrays.asList(results));
+            }
+            return done ? d : null;
+        }
+
+        /** Called once when dep completes. */
+        final void release() {
+            if (remaining != 0) {
+                for (CompletableFuture<?> b : srcs) {
+                    if (b.result == null) {
+                        if (cancelRemaining)
+                            b.cancel(false);
+                        else if (b.stack != null)
+                            b.cleanStack();
+                    }
+                }
+            }
+        }
+    }
+
     @SuppressWarnings("serial")
-    static final class OrRelay<T,U> extends BiCompletion<T,U,Object> { // for Or
-        OrRelay(CompletableFuture<Object> dep, CompletableFuture<T> src,
-                CompletableFuture<U> snd) {
-            super(null, dep, src, snd);
+    static final class AggregateRelay extends Completion {
+        Aggregate<?> agg;
+        CompletableFuture<?> src;
+        final int index;
+        AggregateRelay(Aggregate<?> agg, CompletableFuture<?> src,
+                       int index) {
+            this.agg = agg; this.src = src; this.index = index;
         }
-        final CompletableFuture<Object> tryFire(int mode) {
-            CompletableFuture<Object> d;
-            CompletableFuture<T> a;
-            CompletableFuture<U> b;
-            if ((d = dep) == null || !d.orRelay(a = src, b = snd))
+        final CompletableFuture<?> tryFire(int mode) {
+            Aggregate<?> g; CompletableFuture<?> a, d; Object r;
+            if ((g = agg) == null || (a = src) == null ||
+                (r = a.result) == null ||
+                !compareAndSetForkJoinTaskTag((short)0, (short)1))
                 return null;
-            src = null; snd = null; dep = null;
-            return d.postFire(a, b, mode);
+            agg = null; src = null;
+            if ((d = g.arrive(index, r)) == null)
+                return null;
+            return d.postFire(a, mode);
+        }
+        final boolean isLive() {
+            Aggregate<?> g = agg;
+            return g != null && g.dep.result == null;
         }
     }
 
-    final boolean orRelay(CompletableFuture<?> a, CompletableFuture<?> b) {
-        Object r;
-        if (a == null || b == null ||
-            ((r = a.result) == null && (r = b.result) == null))
-            return false;
-        if (result == null)
-            completeRelay(r);
-        return true;
+    @SuppressWarnings("serial")
+    static final class AggregateRelease extends Completion {
+        Aggregate<?> agg;
+        AggregateRelease(Aggregate<?> agg) { this.agg = agg; }
+        final CompletableFuture<?> tryFire(int mode) {
+            Aggregate<?> g;
+            if ((g = agg) != null) {
+                agg = null;
+                g.release();
+            }
+            return null;
+        }
+        final boolean isLive() { return agg != null; }
     }
 
-    /** Recursively constructs a tree of completions. */
-    static CompletableFuture<Object> orTree(CompletableFuture<?>[] cfs,
-                                            int lo, int hi) {
-        CompletableFuture<Object> d = new CompletableFuture<Object>();
-        if (lo <= hi) {
-            CompletableFuture<?> a, b;
-            int mid = (lo + hi) >>> 1;
-            if ((a = (lo == mid ? cfs[lo] :
-                      orTree(cfs, lo, mid))) == null ||
-                (b = (lo == hi ? a : (hi == mid+1) ? cfs[hi] :
-                      orTree(cfs, mid+1, hi)))  == null)
+    /** Constructs a flat aggregate of the given kind over cfs. */
+    static <V> CompletableFuture<V> aggregate(CompletableFuture<?>[] cfs,
+                                              int kind, boolean collect,
+                                              boolean cancelRemaining) {
+        int n = cfs.length;
+        for (CompletableFuture<?> a : cfs)
+            if (a == null)
                 throw new NullPointerException();
-            if (!d.orRelay(a, b)) {
-                OrRelay<?,?> c = new OrRelay<>(d, a, b);
-                a.orpush(b, c);
+        CompletableFuture<V> d = new CompletableFuture<V>();
+        Aggregate<V> g = new Aggregate<V>(d, cfs, collect ? new Object[n] : null,
+                                          kind, cancelRemaining);
+        if (n == 0) {
+            if (kind != ANY)
+                d.result = collect ? Arrays.asList(g.results) : NIL;
+            return d;
+        }
+        d.stack = new AggregateRelease(g); // not yet published
+        for (int i = 0; i < n && d.result == null; ++i) {
+            CompletableFuture<?> a = cfs[i]; Object r;
+            if ((r = a.result) != null)
+                g.arrive(i, r);
+            else {
+                AggregateRelay c = new AggregateRelay(g, a, i);
+                while (a.result == null && !a.tryPushStack(c))
+                    lazySetNext(c, null); // clear on failure
                 c.tryFire(SYNC);
             }
         }
+        if (d.result != null)
+            d.postComplete();
         return d;
     }
 
@@ -2222,7 +2282,62 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
      * {@code null}
      */
     public static CompletableFuture<Void> allOf(CompletableFuture<?>... cfs) {
-        return andTree(cfs, 0, cfs.length - 1);
+        return aggregate(cfs, ALL, false, false);
+    }
+
+    /**
+     * Returns a new CompletableFuture that is completed when all of
+     * the given CompletableFutures complete normally, or as soon as
+     * any of them completes exceptionally.  In the latter case the
+     * returned CompletableFuture also does so, with a
+     * CompletionException holding the first such exception as its
+     * cause, and if {@code cancelRemaining} is {@code true} the given
+     * CompletableFutures that have not yet completed are cancelled.
+     * If no CompletableFutures are provided, returns a
+     * CompletableFuture completed with the value {@code null}.
+     *
+     * @param cancelRemaining whether to cancel the given
+     * CompletableFutures not yet complete when the returned
+     * CompletableFuture completes, by any means
+     * @param cfs the CompletableFutures
+     * @return a new CompletableFuture that is completed when all of the
+     * given CompletableFutures complete normally or any completes
+     * exceptionally
+     * @throws NullPointerException if the array or any of its elements are
+     * {@code null}
+     * @since 1.8
+     */
+    public static CompletableFuture<Void> allOfFailFast(
+        boolean cancelRemaining, CompletableFuture<?>... cfs) {
+        return aggregate(cfs, FAIL_FAST, false, cancelRemaining);
+    }
+
+    /**
+     * Returns a new CompletableFuture that is completed with the list
+     * of results of the given CompletableFutures, in iteration order,
+     * when all of them complete normally, or exceptionally as soon as
+     * any of them completes exceptionally, as with {@link
+     * #allOfFailFast}.  The list is fixed-size but not otherwise
+     * protected against modification.  If no CompletableFutures are
+     * provided, returns a CompletableFuture completed with an empty
+     * list.
+     *
+     * @param cancelRemaining whether to cancel the given
+     * CompletableFutures not yet complete when the returned
+     * CompletableFuture completes, by any means
+     * @param cfs the CompletableFutures
+     * @param <T> the common result type
+     * @return a new CompletableFuture that is completed with the
+     * results of the given CompletableFutures
+     * @throws NullPointerException if the collection or any of its
+     * elements are {@code null}
+     * @since 1.8
+     */
+    public static <T> CompletableFuture<List<T>> allAsList(
+        boolean cancelRemaining,
+        Collection<? extends CompletableFuture<? extends T>> cfs) {
+        return aggregate(cfs.toArray(new CompletableFuture<?>[0]),
+                         FAIL_FAST, true, cancelRemaining);
     }
 
     /**
@@ -2241,7 +2356,29 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
      * {@code null}
      */
     public static CompletableFuture<Object> anyOf(CompletableFuture<?>... cfs) {
-        return orTree(cfs, 0, cfs.length - 1);
+        return aggregate(cfs, ANY, false, false);
+    }
+
+    /**
+     * Returns a new CompletableFuture that is completed when any of
+     * the given CompletableFutures complete, as with {@link
+     * #anyOf(CompletableFuture[])}, and if {@code cancelRemaining} is
+     * {@code true} then cancels those not yet complete.
+     *
+     * @param cancelRemaining whether to cancel the given
+     * CompletableFutures not yet complete when the returned
+     * CompletableFuture completes, by any means
+     * @param cfs the CompletableFutures
+     * @return a new CompletableFuture that is completed with the
+     * result or exception of any of the given CompletableFutures when
+     * one completes
+     * @throws NullPointerException if the array or any of its elements are
+     * {@code null}
+     * @since 1.8
+     */
+    public static CompletableFuture<Object> anyOf(
+        boolean cancelRemaining, CompletableFuture<?>... cfs) {
+        return aggregate(cfs, ANY, false, cancelRemaining);
     }
 
     /* ------------- Control and status methods -------------- */
@@ -2369,6 +2506,8 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
     private static final long RESULT;
     private static final long STACK;
     private static final long NEXT;
+    private static final long REMAINING;
+    private static final long FAILED;
     static {
         try {
             final sun.misc.Unsafe u;
@@ -2378,6 +2517,10 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
             STACK = u.objectFieldOffset(k.getDeclaredField("stack"));
             NEXT = u.objectFieldOffset
                 (Completion.class.getDeclaredField("next"));
+            REMAINING = u.objectFieldOffset
+                (Aggregate.class.getDeclaredField("remaining"));
+            FAILED = u.objectFieldOffset
+                (Aggregate.class.getDeclaredField("failed"));
         } catch (Exception x) {
             throw new Error(x);
         }
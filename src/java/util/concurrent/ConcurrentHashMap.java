@@ -322,6 +322,12 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
      */
     private transient volatile CounterCell[] counterCells;
 
+    /**
+     * Statistics, or null unless enabled by enableStatistics.  Read
+     * without synchronization; see ConcurrentHashMapStats.
+     */
+    private transient ConcurrentHashMapStats stats;
+
     // views
     private transient KeySetView<K,V> keySet;
     private transient ValuesView<K,V> values;
@@ -505,8 +511,11 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
             else if ((f = tabAt(tab, i = (n - 1) & hash)) == null) {//(n - 1) & hash)获取都到key所在的节点数组的下标 i等于这个下标
                 //直接cas把节点设置到数组对应的i下标位置
             	if (casTabAt(tab, i, null,
-                             new Node<K,V>(hash, key, value, null)))
-                    break;                
+                             new Node<K,V>(hash, key, value, null))) {
+                    if (stats != null)
+                        stats.emptyBinUpdated();
+                    break;
+                }
             }
             //节点正在移动的
             else if ((fh = f.hash) == MOVED)
@@ -515,7 +524,11 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
             else {
                 V oldVal = null;
                 //synchronized锁住该节点
+                ConcurrentHashMapStats st = stats;
+                long ws = (st == null) ? 0L : System.nanoTime();
                 synchronized (f) {
+                    if (st != null)
+                        st.binLocked(ws);
                 	//数组未发现变化
                     if (tabAt(tab, i) == f) {
                     	//hash值大于0说明节点处于链表上
@@ -552,6 +565,8 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
                         }
                     }
                 }
+                if (st != null)
+                    st.binUpdated(binCount, fh >= 0);
                 if (binCount != 0) {
                     if (binCount >= TREEIFY_THRESHOLD)
                         treeifyBin(tab, i);
@@ -608,7 +623,11 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
             else {
                 V oldVal = null;
                 boolean validated = false;
+                ConcurrentHashMapStats st = stats;
+                long ws = (st == null) ? 0L : System.nanoTime();
                 synchronized (f) {
+                    if (st != null)
+                        st.binLocked(ws);
                     if (tabAt(tab, i) == f) {
                         if (fh >= 0) {
                             validated = true;
@@ -1158,14 +1177,21 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
                         }
                     }
                 }
-                if (binCount != 0)
+                if (binCount != 0) {
+                    if (stats != null)
+                        stats.emptyBinUpdated();
                     break;
+                }
             }
             else if ((fh = f.hash) == MOVED)
                 tab = helpTransfer(tab, f);
             else {
                 boolean added = false;
+                ConcurrentHashMapStats st = stats;
+                long ws = (st == null) ? 0L : System.nanoTime();
                 synchronized (f) {
+                    if (st != null)
+                        st.binLocked(ws);
                     if (tabAt(tab, i) == f) {
                         if (fh >= 0) {
                             binCount = 1;
@@ -1201,6 +1227,8 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
                         }
                     }
                 }
+                if (st != null)
+                    st.binUpdated(binCount, fh >= 0);
                 if (binCount != 0) {
                     if (binCount >= TREEIFY_THRESHOLD)
                         treeifyBin(tab, i);
@@ -1251,7 +1279,11 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
             else if ((fh = f.hash) == MOVED)
                 tab = helpTransfer(tab, f);
             else {
+                ConcurrentHashMapStats st = stats;
+                long ws = (st == null) ? 0L : System.nanoTime();
                 synchronized (f) {
+                    if (st != null)
+                        st.binLocked(ws);
                     if (tabAt(tab, i) == f) {
                         if (fh >= 0) {
                             binCount = 1;
@@ -1296,6 +1328,8 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
                         }
                     }
                 }
+                if (st != null)
+                    st.binUpdated(binCount, fh >= 0);
                 if (binCount != 0)
                     break;
             }
@@ -1353,13 +1387,20 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
                         }
                     }
                 }
-                if (binCount != 0)
+                if (binCount != 0) {
+                    if (stats != null)
+                        stats.emptyBinUpdated();
                     break;
+                }
             }
             else if ((fh = f.hash) == MOVED)
                 tab = helpTransfer(tab, f);
             else {
+                ConcurrentHashMapStats st = stats;
+                long ws = (st == null) ? 0L : System.nanoTime();
                 synchronized (f) {
+                    if (st != null)
+                        st.binLocked(ws);
                     if (tabAt(tab, i) == f) {
                         if (fh >= 0) {
                             binCount = 1;
@@ -1419,6 +1460,8 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
                         }
                     }
                 }
+                if (st != null)
+                    st.binUpdated(binCount, fh >= 0);
                 if (binCount != 0) {
                     if (binCount >= TREEIFY_THRESHOLD)
                         treeifyBin(tab, i);
@@ -1464,6 +1507,8 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
                 tab = initTable();
             else if ((f = tabAt(tab, i = (n - 1) & h)) == null) {
                 if (casTabAt(tab, i, null, new Node<K,V>(h, key, value, null))) {
+                    if (stats != null)
+                        stats.emptyBinUpdated();
                     delta = 1;
                     val = value;
                     break;
@@ -1472,7 +1517,11 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
             else if ((fh = f.hash) == MOVED)
                 tab = helpTransfer(tab, f);
             else {
+                ConcurrentHashMapStats st = stats;
+                long ws = (st == null) ? 0L : System.nanoTime();
                 synchronized (f) {
+                    if (st != null)
+                        st.binLocked(ws);
                     if (tabAt(tab, i) == f) {
                         if (fh >= 0) {
                             binCount = 1;
@@ -1528,6 +1577,8 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
                         }
                     }
                 }
+                if (st != null)
+                    st.binUpdated(binCount, fh >= 0);
                 if (binCount != 0) {
                     if (binCount >= TREEIFY_THRESHOLD)
                         treeifyBin(tab, i);
@@ -1602,6 +1653,40 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
         return (n < 0L) ? 0L : n; // ignore transient negative values
     }
 
+    /**
+     * Enables the recording of statistics for this map, and returns
+     * the {@link ConcurrentHashMapMXBean} through which they are
+     * reported.  Statistics are disabled by default; once enabled,
+     * every bin update, resize and contended count update is recorded,
+     * at the cost of reading the clock around each acquisition of a
+     * bin lock.  Invoking this method again returns the same object.
+     * Statistics are not serialized.
+     *
+     * @return the statistics of this map
+     * @since 1.8
+     */
+    public ConcurrentHashMapMXBean enableStatistics() {
+        ConcurrentHashMapStats st;
+        while ((st = stats) == null) {
+            st = new ConcurrentHashMapStats(this);
+            if (U.compareAndSwapObject(this, STATS, null, st))
+                break;
+        }
+        return st;
+    }
+
+    /** Returns the current table length, for statistics. */
+    final int tableLength() {
+        Node<K,V>[] tab = table;
+        return (tab == null) ? 0 : tab.length;
+    }
+
+    /** Returns the current number of counter cells, for statistics. */
+    final int counterCellCount() {
+        CounterCell[] as = counterCells;
+        return (as == null) ? 0 : as.length;
+    }
+
     /**
      * Creates a new {@link Set} backed by a ConcurrentHashMap
      * from the given type to {@code Boolean.TRUE}.
@@ -1800,6 +1885,8 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
                     sc == rs + MAX_RESIZERS || transferIndex <= 0)
                     break;
                 if (U.compareAndSwapInt(this, SIZECTL, sc, sc + 1)) {
+                    if (stats != null)
+                        stats.helpedTransfer();
                     transfer(tab, nextTab);
                     break;
                 }
@@ -1874,6 +1961,8 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
             }
             nextTable = nextTab;
             transferIndex = n;
+            if (stats != null)
+                stats.resizeStarted();
         }
         int nextn = nextTab.length;
         ForwardingNode<K,V> fwd = new ForwardingNode<K,V>(nextTab);
@@ -1904,6 +1993,8 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
                     nextTable = null;
                     table = nextTab;
                     sizeCtl = (n << 1) - (n >>> 1);
+                    if (stats != null)
+                        stats.resizeFinished();
                     return;
                 }
                 if (U.compareAndSwapInt(this, SIZECTL, sc = sizeCtl, sc - 1)) {
@@ -2017,6 +2108,9 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
 
     // See LongAdder version for explanation
     private final void fullAddCount(long x, boolean wasUncontended) {
+        ConcurrentHashMapStats st = stats;
+        if (st != null)
+            st.counterContended();
         int h;
         if ((h = ThreadLocalRandom.getProbe()) == 0) {
             ThreadLocalRandom.localInit();      // force initialization
@@ -2067,6 +2161,8 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
                             for (int i = 0; i < n; ++i)
                                 rs[i] = as[i];
                             counterCells = rs;
+                            if (st != null)
+                                st.counterCellsExpanded();
                         }
                     } finally {
                         cellsBusy = 0;
@@ -2085,6 +2181,8 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
                         rs[h & 1] = new CounterCell(x);
                         counterCells = rs;
                         init = true;
+                        if (st != null)
+                            st.counterCellsExpanded();
                     }
                 } finally {
                     cellsBusy = 0;
@@ -2123,6 +2221,8 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
                             tl = p;
                         }
                         setTabAt(tab, index, new TreeBin<K,V>(hd));
+                        if (stats != null)
+                            stats.treeified();
                     }
                 }
             }
@@ -5776,6 +5876,7 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
     private static final long BASECOUNT;
     private static final long CELLSBUSY;
     private static final long CELLVALUE;
+    private static final long STATS;
     private static final long ABASE;
     private static final int ASHIFT;
 
@@ -5791,6 +5892,8 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
                 (k.getDeclaredField("baseCount"));
             CELLSBUSY = U.objectFieldOffset
                 (k.getDeclaredField("cellsBusy"));
+            STATS = U.objectFieldOffset
+                (k.getDeclaredField("stats"));
             Class<?> ck = CounterCell.class;
             CELLVALUE = U.objectFieldOffset
                 (ck.getDeclaredField("value"));
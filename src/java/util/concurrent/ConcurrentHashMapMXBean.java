@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+/**
+ * The management interface for the statistics of a {@link
+ * ConcurrentHashMap}, obtained from {@link
+ * ConcurrentHashMap#enableStatistics}.  Statistics are recorded only by
+ * maps for which they have been enabled, and are intended to tell apart
+ * the usual causes of a stalling map: contention on the locks of
+ * crowded bins, long resizes, and contention on the element count.
+ *
+ * <p>An instance of this interface is an MXBean and can be registered
+ * with a platform {@link javax.management.MBeanServer MBeanServer}
+ * under a name of the application's choosing:
+ *
+ * <pre> {@code
+ * ConcurrentHashMapMXBean stats = sessions.enableStatistics();
+ * ManagementFactory.getPlatformMBeanServer().registerMBean(
+ *     stats, new ObjectName("com.example:type=ConcurrentHashMap,name=sessions"));}</pre>
+ *
+ * <p>Counts are cumulative since statistics were enabled or last
+ * {@linkplain #reset reset}.  They are maintained without locking and
+ * may not reflect updates in progress.  Times are in nanoseconds.
+ *
+ * @see ConcurrentHashMap#enableStatistics
+ * @since 1.8
+ */
+public interface ConcurrentHashMapMXBean {
+
+    /**
+     * Returns the estimated number of mappings in the map.
+     *
+     * @return the estimated number of mappings
+     * @see ConcurrentHashMap#mappingCount
+     */
+    long getMappingCount();
+
+    /**
+     * Returns the current number of bins of the map, or zero if the
+     * table has not yet been allocated.
+     *
+     * @return the length of the table
+     */
+    int getTableLength();
+
+    /**
+     * Returns the number of insertions that found their bin empty and
+     * so completed with a single compare-and-set, without locking.
+     *
+     * @return the number of updates of empty bins
+     */
+    long getEmptyBinUpdateCount();
+
+    /**
+     * Returns the number of updates that found their bin occupied and
+     * therefore locked it.
+     *
+     * @return the number of bin collisions
+     */
+    long getBinCollisionCount();
+
+    /**
+     * Returns the number of times a bin was found to have been replaced
+     * (by a resize, or by conversion to or from a tree) while waiting
+     * for its lock, so that the update had to be retried.
+     *
+     * @return the number of retried bin updates
+     */
+    long getBinRetryCount();
+
+    /**
+     * Returns the total time spent waiting to acquire bin locks.
+     *
+     * @return the total bin lock wait time in nanoseconds
+     */
+    long getTotalBinLockWaitTime();
+
+    /**
+     * Returns the longest time spent waiting to acquire a bin lock.
+     *
+     * @return the maximum bin lock wait time in nanoseconds
+     */
+    long getMaxBinLockWaitTime();
+
+    /**
+     * Returns the mean number of nodes visited by updates of linked
+     * (non-tree) bins.
+     *
+     * @return the mean chain length visited, or zero if none
+     */
+    double getMeanChainLength();
+
+    /**
+     * Returns the largest number of nodes visited by an update of a
+     * linked bin.
+     *
+     * @return the maximum chain length visited
+     */
+    long getMaxChainLength();
+
+    /**
+     * Returns the number of updates of bins that had been converted to
+     * trees.
+     *
+     * @return the number of tree bin updates
+     */
+    long getTreeBinUpdateCount();
+
+    /**
+     * Returns the number of bins converted from linked lists to trees.
+     *
+     * @return the number of treeified bins
+     */
+    long getTreeifyCount();
+
+    /**
+     * Returns the number of completed resizes of the table.
+     *
+     * @return the number of resizes
+     */
+    long getResizeCount();
+
+    /**
+     * Returns the total time from the start to the end of each resize.
+     *
+     * @return the total resize time in nanoseconds
+     */
+    long getTotalResizeTime();
+
+    /**
+     * Returns the longest time taken by a resize.
+     *
+     * @return the maximum resize time in nanoseconds
+     */
+    long getMaxResizeTime();
+
+    /**
+     * Returns the number of times a thread updating the map found a
+     * resize in progress and joined it to help transfer bins.
+     *
+     * @return the number of helping transfers
+     */
+    long getHelpTransferCount();
+
+    /**
+     * Returns the number of updates of the element count that could
+     * not be made with an uncontended compare-and-set, and took the
+     * slow path that creates or expands counter cells.
+     *
+     * @return the number of contended count updates
+     */
+    long getCounterContentionCount();
+
+    /**
+     * Returns the number of times the table of counter cells was
+     * created or doubled.
+     *
+     * @return the number of counter cell expansions
+     */
+    long getCounterCellExpansionCount();
+
+    /**
+     * Returns the current number of counter cells.
+     *
+     * @return the length of the counter cell table, or zero if none
+     */
+    int getCounterCellCount();
+
+    /**
+     * Resets all counts, times and maxima to zero.
+     */
+    void reset();
+}
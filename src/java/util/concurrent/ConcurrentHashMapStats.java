@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The statistics recorded by a ConcurrentHashMap once enabled.  The
+ * map reads its (non-volatile) reference to this object once per
+ * operation and calls the recording methods only when it is non-null,
+ * so maps without statistics pay a field load and a branch.  All
+ * fields are final, so the object is safely published even through a
+ * racy read of that reference.
+ */
+final class ConcurrentHashMapStats implements ConcurrentHashMapMXBean {
+    private final ConcurrentHashMap<?,?> map;
+
+    private final LongAdder emptyBinUpdates = new LongAdder();
+    private final LongAdder binCollisions = new LongAdder();
+    private final LongAdder binRetries = new LongAdder();
+    private final LongAdder binLockWaitTime = new LongAdder();
+    private final LongAccumulator maxBinLockWaitTime =
+        new LongAccumulator(Math::max, 0L);
+    private final LongAdder chainUpdates = new LongAdder();
+    private final LongAdder chainLengths = new LongAdder();
+    private final LongAccumulator maxChainLength =
+        new LongAccumulator(Math::max, 0L);
+    private final LongAdder treeBinUpdates = new LongAdder();
+    private final LongAdder treeifications = new LongAdder();
+    private final LongAdder resizes = new LongAdder();
+    private final LongAdder resizeTime = new LongAdder();
+    private final LongAccumulator maxResizeTime =
+        new LongAccumulator(Math::max, 0L);
+    private final LongAdder helpTransfers = new LongAdder();
+    private final LongAdder counterContentions = new LongAdder();
+    private final LongAdder counterCellExpansions = new LongAdder();
+
+    /** Start time of the resize in progress; resizes do not overlap. */
+    private volatile long resizeStartTime;
+
+    ConcurrentHashMapStats(ConcurrentHashMap<?,?> map) {
+        this.map = map;
+    }
+
+    // Recording, called by ConcurrentHashMap
+
+    void emptyBinUpdated() {
+        emptyBinUpdates.increment();
+    }
+
+    /** Called on entering a bin lock requested at the given time. */
+    void binLocked(long requestTime) {
+        long wait = System.nanoTime() - requestTime;
+        binCollisions.increment();
+        binLockWaitTime.add(wait);
+        maxBinLockWaitTime.accumulate(wait);
+    }
+
+    /**
+     * Called after a locked bin update that visited binCount nodes of
+     * a linked (chained) or tree bin; zero if the bin had changed.
+     */
+    void binUpdated(int binCount, boolean chained) {
+        if (binCount == 0)
+            binRetries.increment();
+        else if (chained) {
+            chainUpdates.increment();
+            chainLengths.add(binCount);
+            maxChainLength.accumulate(binCount);
+        }
+        else
+            treeBinUpdates.increment();
+    }
+
+    void treeified() {
+        treeifications.increment();
+    }
+
+    void resizeStarted() {
+        resizeStartTime = System.nanoTime();
+    }
+
+    void resizeFinished() {
+        long time = System.nanoTime() - resizeStartTime;
+        resizes.increment();
+        resizeTime.add(time);
+        maxResizeTime.accumulate(time);
+    }
+
+    void helpedTransfer() {
+        helpTransfers.increment();
+    }
+
+    void counterContended() {
+        counterContentions.increment();
+    }
+
+    void counterCellsExpanded() {
+        counterCellExpansions.increment();
+    }
+
+    // ConcurrentHashMapMXBean
+
+    public long getMappingCount() {
+        return map.mappingCount();
+    }
+
+    public int getTableLength() {
+        return map.tableLength();
+    }
+
+    public long getEmptyBinUpdateCount() {
+        return emptyBinUpdates.sum();
+    }
+
+    public long getBinCollisionCount() {
+        return binCollisions.sum();
+    }
+
+    public long getBinRetryCount() {
+        return binRetries.sum();
+    }
+
+    public long getTotalBinLockWaitTime() {
+        return binLockWaitTime.sum();
+    }
+
+    public long getMaxBinLockWaitTime() {
+        return maxBinLockWaitTime.get();
+    }
+
+    public double getMeanChainLength() {
+        long n = chainUpdates.sum();
+        return (n == 0L) ? 0.0 : (double)chainLengths.sum() / n;
+    }
+
+    public long getMaxChainLength() {
+        return maxChainLength.get();
+    }
+
+    public long getTreeBinUpdateCount() {
+        return treeBinUpdates.sum();
+    }
+
+    public long getTreeifyCount() {
+        return treeifications.sum();
+    }
+
+    public long getResizeCount() {
+        return resizes.sum();
+    }
+
+    public long getTotalResizeTime() {
+        return resizeTime.sum();
+    }
+
+    public long getMaxResizeTime() {
+        return maxResizeTime.get();
+    }
+
+    public long getHelpTransferCount() {
+        return helpTransfers.sum();
+    }
+
+    public long getCounterContentionCount() {
+        return counterContentions.sum();
+    }
+
+    public long getCounterCellExpansionCount() {
+        return counterCellExpansions.sum();
+    }
+
+    public int getCounterCellCount() {
+        return map.counterCellCount();
+    }
+
+    public void reset() {
+        emptyBinUpdates.reset();
+        binCollisions.reset();
+        binRetries.reset();
+        binLockWaitTime.reset();
+        maxBinLockWaitTime.reset();
+        chainUpdates.reset();
+        chainLengths.reset();
+        maxChainLength.reset();
+        treeBinUpdates.reset();
+        treeifications.reset();
+        resizes.reset();
+        resizeTime.reset();
+        maxResizeTime.reset();
+        helpTransfers.reset();
+        counterContentions.reset();
+        counterCellExpansions.reset();
+    }
+
+    public String toString() {
+        return "ConcurrentHashMapStats[mappings=" + getMappingCount() +
+            ", tableLength=" + getTableLength() +
+            ", emptyBinUpdates=" + getEmptyBinUpdateCount() +
+            ", binCollisions=" + getBinCollisionCount() +
+            ", binRetries=" + getBinRetryCount() +
+            ", maxChainLength=" + getMaxChainLength() +
+            ", treeifications=" + getTreeifyCount() +
+            ", resizes=" + getResizeCount() +
+            ", helpTransfers=" + getHelpTransferCount() +
+            ", counterCells=" + getCounterCellCount() + "]";
+    }
+}
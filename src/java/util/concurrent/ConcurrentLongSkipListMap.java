@@ -0,0 +1,1807 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.OptionalLong;
+import java.util.PrimitiveIterator;
+import java.util.function.BiFunction;
+import java.util.function.LongFunction;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * A scalable concurrent navigable map from primitive {@code long}
+ * keys to values, sorted by the numerical order of the keys.  This
+ * class uses the same lock-free skip list algorithms as {@link
+ * ConcurrentSkipListMap}, with the same expected average
+ * <i>log(n)</i> time cost for the {@code containsKey}, {@code get},
+ * {@code put} and {@code remove} operations and their variants, but
+ * holds keys in unboxed form and compares them directly, so that
+ * neither searches nor updates box keys or dispatch through {@link
+ * Comparable}.  It is intended for maps that would otherwise be
+ * {@code ConcurrentSkipListMap<Long,V>}, such as indexes by
+ * timestamp or sequence number.
+ *
+ * <p>Since this class is not a {@link java.util.Map} (whose methods
+ * take object keys), it provides the corresponding methods of {@link
+ * ConcurrentNavigableMap} with {@code long} keys.  Navigation methods
+ * returning a key return an {@link OptionalLong}, empty if there is
+ * no such key, and those returning a mapping return an {@link Entry},
+ * or {@code null} if there is none.  The {@link #subMap}, {@link
+ * #headMap}, {@link #tailMap} and {@link #descendingMap} methods
+ * return views of a range of this map, in ascending or descending
+ * order, that are themselves {@code ConcurrentLongSkipListMap}s
+ * supporting all operations; attempts to insert a key outside the
+ * range of a view throw {@code IllegalArgumentException}.
+ *
+ * <p>Iterators are
+ * <a href="package-summary.html#Weakly"><i>weakly consistent</i></a>.
+ * Ascending views and their iterators are faster than descending
+ * ones.  As with {@code ConcurrentSkipListMap}, the {@code size}
+ * method is <em>not</em> a constant-time operation, and bulk
+ * operations are not guaranteed to be performed atomically.  Null
+ * values are not permitted.
+ *
+ * @param <V> the type of mapped values
+ * @since 1.8
+ */
+public class ConcurrentLongSkipListMap<V> implements java.io.Serializable {
+    /*
+     * This is a transcription of the algorithms of
+     * ConcurrentSkipListMap (see the explanation there) specialized
+     * to long keys.  Since no key value is free to stand for "none",
+     * marker and header nodes, which have null keys there, are
+     * identified by their values only (a marker's value is itself,
+     * the header's BASE_HEADER), and code passing over them checks
+     * values before keys.
+     *
+     * Rather than using a separate class for submaps, each instance
+     * is a view of a range of the skip list of a base map m (which is
+     * the instance itself for maps made by the constructor) between
+     * bounds lo and hi, ascending or descending.  For a base map the
+     * range is all longs, so the bounds checks in each operation
+     * cost only a couple of comparisons.
+     */
+
+    private static final long serialVersionUID = 2405146311294362893L;
+
+    /**
+     * Special value used to identify base-level header
+     */
+    private static final Object BASE_HEADER = new Object();
+
+    /**
+     * The topmost head index of the skiplist; used only in base maps.
+     */
+    private transient volatile HeadIndex<V> head;
+
+    /** The base map, holding the skip list. @serial */
+    final ConcurrentLongSkipListMap<V> m;
+    /** Lower bound key. @serial */
+    final long lo;
+    /** Upper bound key. @serial */
+    final long hi;
+    /** Inclusion flag for lo. @serial */
+    final boolean loInclusive;
+    /** Inclusion flag for hi. @serial */
+    final boolean hiInclusive;
+    /** Direction. @serial */
+    final boolean isDescending;
+
+    /**
+     * Initializes or resets state.
+     */
+    private void initialize() {
+        head = new HeadIndex<V>(new Node<V>(0L, BASE_HEADER, null),
+                                null, null, 1);
+    }
+
+    /**
+     * compareAndSet head node
+     */
+    private boolean casHead(HeadIndex<V> cmp, HeadIndex<V> val) {
+        return UNSAFE.compareAndSwapObject(this, headOffset, cmp, val);
+    }
+
+    /* ---------------- Nodes -------------- */
+
+    /**
+     * Nodes hold keys and values, and are singly linked in sorted
+     * order, possibly with some intervening marker nodes.  The value
+     * field is declared only as Object because it takes special non-V
+     * values for marker and header nodes.
+     */
+    static final class Node<V> {
+        final long key;
+        volatile Object value;
+        volatile Node<V> next;
+
+        /**
+         * Creates a new regular node.
+         */
+        Node(long key, Object value, Node<V> next) {
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+
+        /**
+         * Creates a new marker node, distinguished by having its
+         * value field point to itself.
+         */
+        Node(Node<V> next) {
+            this.key = 0L;
+            this.value = this;
+            this.next = next;
+        }
+
+        boolean casValue(Object cmp, Object val) {
+            return UNSAFE.compareAndSwapObject(this, valueOffset, cmp, val);
+        }
+
+        boolean casNext(Node<V> cmp, Node<V> val) {
+            return UNSAFE.compareAndSwapObject(this, nextOffset, cmp, val);
+        }
+
+        /**
+         * Returns true if this node is the header of base-level list.
+         */
+        boolean isBaseHeader() {
+            return value == BASE_HEADER;
+        }
+
+        /**
+         * Tries to append a deletion marker to this node.
+         */
+        boolean appendMarker(Node<V> f) {
+            return casNext(f, new Node<V>(f));
+        }
+
+        /**
+         * Helps out a deletion by appending marker or unlinking from
+         * predecessor.
+         */
+        void helpDelete(Node<V> b, Node<V> f) {
+            if (f == next && this == b.next) {
+                if (f == null || f.value != f) // not already marked
+                    casNext(f, new Node<V>(f));
+                else
+                    b.casNext(this, f.next);
+            }
+        }
+
+        /**
+         * Returns value if this node contains a valid key-value pair,
+         * else null.
+         */
+        V getValidValue() {
+            Object v = value;
+            if (v == this || v == BASE_HEADER)
+                return null;
+            @SuppressWarnings("unchecked") V vv = (V)v;
+            return vv;
+        }
+
+        /**
+         * Creates and returns a new Entry holding current mapping if
+         * this node holds a valid value, else null.
+         */
+        Entry<V> createSnapshot() {
+            Object v = value;
+            if (v == null || v == this || v == BASE_HEADER)
+                return null;
+            @SuppressWarnings("unchecked") V vv = (V)v;
+            return new Entry<V>(key, vv);
+        }
+
+        private static final sun.misc.Unsafe UNSAFE;
+        private static final long valueOffset;
+        private static final long nextOffset;
+
+        static {
+            try {
+                UNSAFE = sun.misc.Unsafe.getUnsafe();
+                Class<?> k = Node.class;
+                valueOffset = UNSAFE.objectFieldOffset
+                    (k.getDeclaredField("value"));
+                nextOffset = UNSAFE.objectFieldOffset
+                    (k.getDeclaredField("next"));
+            } catch (Exception e) {
+                throw new Error(e);
+            }
+        }
+    }
+
+    /* ---------------- Indexing -------------- */
+
+    /**
+     * Index nodes represent the levels of the skip list.
+     */
+    static class Index<V> {
+        final Node<V> node;
+        final Index<V> down;
+        volatile Index<V> right;
+
+        Index(Node<V> node, Index<V> down, Index<V> right) {
+            this.node = node;
+            this.down = down;
+            this.right = right;
+        }
+
+        final boolean casRight(Index<V> cmp, Index<V> val) {
+            return UNSAFE.compareAndSwapObject(this, rightOffset, cmp, val);
+        }
+
+        final boolean indexesDeletedNode() {
+            return node.value == null;
+        }
+
+        final boolean link(Index<V> succ, Index<V> newSucc) {
+            Node<V> n = node;
+            newSucc.right = succ;
+            return n.value != null && casRight(succ, newSucc);
+        }
+
+        final boolean unlink(Index<V> succ) {
+            return node.value != null && casRight(succ, succ.right);
+        }
+
+        private static final sun.misc.Unsafe UNSAFE;
+        private static final long rightOffset;
+        static {
+            try {
+                UNSAFE = sun.misc.Unsafe.getUnsafe();
+                Class<?> k = Index.class;
+                rightOffset = UNSAFE.objectFieldOffset
+                    (k.getDeclaredField("right"));
+            } catch (Exception e) {
+                throw new Error(e);
+            }
+        }
+    }
+
+    /**
+     * Nodes heading each level keep track of their level.
+     */
+    static final class HeadIndex<V> extends Index<V> {
+        final int level;
+        HeadIndex(Node<V> node, Index<V> down, Index<V> right, int level) {
+            super(node, down, right);
+            this.level = level;
+        }
+    }
+
+    /* ---------------- Entries -------------- */
+
+    /**
+     * An immutable snapshot of a mapping from a {@code long} key to a
+     * value, as returned by the navigation methods of {@link
+     * ConcurrentLongSkipListMap}.
+     *
+     * @param <V> the type of the value
+     */
+    public static final class Entry<V> implements java.io.Serializable {
+        private static final long serialVersionUID = -2791823463917428570L;
+
+        /** @serial */
+        private final long key;
+        /** @serial */
+        private final V value;
+
+        Entry(long key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        /**
+         * Returns the key.
+         *
+         * @return the key
+         */
+        public long getKey() {
+            return key;
+        }
+
+        /**
+         * Returns the value.
+         *
+         * @return the value
+         */
+        public V getValue() {
+            return value;
+        }
+
+        /**
+         * Returns {@code true} if the given object is an {@code Entry}
+         * with the same key and an equal value.
+         *
+         * @param o the object to compare
+         * @return {@code true} if o is an equal entry
+         */
+        public boolean equals(Object o) {
+            Entry<?> e;
+            return (o instanceof Entry &&
+                    (e = (Entry<?>)o).key == key &&
+                    value.equals(e.value));
+        }
+
+        /**
+         * Returns the hash code, computed as for a {@link
+         * java.util.Map.Entry} with the key boxed.
+         *
+         * @return the hash code
+         */
+        public int hashCode() {
+            return Long.hashCode(key) ^ value.hashCode();
+        }
+
+        /**
+         * Returns a String of the form key=value.
+         *
+         * @return a String representation of this entry
+         */
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    /* ---------------- Traversal -------------- */
+
+    /**
+     * Returns a base-level node with key strictly less than given key,
+     * or the base-level header if there is no such node.  Also
+     * unlinks indexes to deleted nodes found along the way.
+     */
+    private Node<V> findPredecessor(long key) {
+        for (;;) {
+            for (Index<V> q = head, r = q.right, d;;) {
+                if (r != null) {
+                    Node<V> n = r.node;
+                    long k = n.key;
+                    if (n.value == null) {
+                        if (!q.unlink(r))
+                            break;           // restart
+                        r = q.right;         // reread r
+                        continue;
+                    }
+                    if (key > k) {
+                        q = r;
+                        r = r.right;
+                        continue;
+                    }
+                }
+                if ((d = q.down) == null)
+                    return q.node;
+                q = d;
+                r = d.right;
+            }
+        }
+    }
+
+    /**
+     * Returns node holding key or null if no such, clearing out any
+     * deleted nodes seen along the way.
+     */
+    private Node<V> findNode(long key) {
+        outer: for (;;) {
+            for (Node<V> b = findPredecessor(key), n = b.next;;) {
+                Object v; long k;
+                if (n == null)
+                    break outer;
+                Node<V> f = n.next;
+                if (n != b.next)                // inconsistent read
+                    break;
+                if ((v = n.value) == null) {    // n is deleted
+                    n.helpDelete(b, f);
+                    break;
+                }
+                if (b.value == null || v == n)  // b is deleted
+                    break;
+                if ((k = n.key) == key)
+                    return n;
+                if (key < k)
+                    break outer;
+                b = n;
+                n = f;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets value for key. Almost the same as findNode, but returns
+     * the found value (to avoid retries during re-reads)
+     */
+    private V doGet(long key) {
+        outer: for (;;) {
+            for (Node<V> b = findPredecessor(key), n = b.next;;) {
+                Object v; long k;
+                if (n == null)
+                    break outer;
+                Node<V> f = n.next;
+                if (n != b.next)                // inconsistent read
+                    break;
+                if ((v = n.value) == null) {    // n is deleted
+                    n.helpDelete(b, f);
+                    break;
+                }
+                if (b.value == null || v == n)  // b is deleted
+                    break;
+                if ((k = n.key) == key) {
+                    @SuppressWarnings("unchecked") V vv = (V)v;
+                    return vv;
+                }
+                if (key < k)
+                    break outer;
+                b = n;
+                n = f;
+            }
+        }
+        return null;
+    }
+
+    /* ---------------- Insertion -------------- */
+
+    /**
+     * Main insertion method.  Adds element if not present, or
+     * replaces value if present and onlyIfAbsent is false.
+     * @return the old value, or null if newly inserted
+     */
+    private V doPut(long key, V value, boolean onlyIfAbsent) {
+        Node<V> z;             // added node
+        if (value == null)
+            throw new NullPointerException();
+        outer: for (;;) {
+            for (Node<V> b = findPredecessor(key), n = b.next;;) {
+                if (n != null) {
+                    Object v; long k;
+                    Node<V> f = n.next;
+                    if (n != b.next)               // inconsistent read
+                        break;
+                    if ((v = n.value) == null) {   // n is deleted
+                        n.helpDelete(b, f);
+                        break;
+                    }
+                    if (b.value == null || v == n) // b is deleted
+                        break;
+                    if (key > (k = n.key)) {
+                        b = n;
+                        n = f;
+                        continue;
+                    }
+                    if (key == k) {
+                        if (onlyIfAbsent || n.casValue(v, value)) {
+                            @SuppressWarnings("unchecked") V vv = (V)v;
+                            return vv;
+                        }
+                        break; // restart if lost race to replace value
+                    }
+                    // else key < k; fall through
+                }
+
+                z = new Node<V>(key, value, n);
+                if (!b.casNext(n, z))
+                    break;         // restart if lost race to append to b
+                break outer;
+            }
+        }
+
+        int rnd = ThreadLocalRandom.nextSecondarySeed();
+        if ((rnd & 0x80000001) == 0) { // test highest and lowest bits
+            int level = 1, max;
+            while (((rnd >>>= 1) & 1) != 0)
+                ++level;
+            Index<V> idx = null;
+            HeadIndex<V> h = head;
+            if (level <= (max = h.level)) {
+                for (int i = 1; i <= level; ++i)
+                    idx = new Index<V>(z, idx, null);
+            }
+            else { // try to grow by one level
+                level = max + 1;
+                @SuppressWarnings("unchecked") Index<V>[] idxs =
+                    (Index<V>[])new Index<?>[level+1];
+                for (int i = 1; i <= level; ++i)
+                    idxs[i] = idx = new Index<V>(z, idx, null);
+                for (;;) {
+                    h = head;
+                    int oldLevel = h.level;
+                    if (level <= oldLevel) // lost race to add level
+                        break;
+                    HeadIndex<V> newh = h;
+                    Node<V> oldbase = h.node;
+                    for (int j = oldLevel+1; j <= level; ++j)
+                        newh = new HeadIndex<V>(oldbase, newh, idxs[j], j);
+                    if (casHead(h, newh)) {
+                        h = newh;
+                        idx = idxs[level = oldLevel];
+                        break;
+                    }
+                }
+            }
+            // find insertion points and splice in
+            splice: for (int insertionLevel = level;;) {
+                int j = h.level;
+                for (Index<V> q = h, r = q.right, t = idx;;) {
+                    if (q == null || t == null)
+                        break splice;
+                    if (r != null) {
+                        Node<V> n = r.node;
+                        // compare before deletion check avoids needing recheck
+                        long k = n.key;
+                        if (n.value == null) {
+                            if (!q.unlink(r))
+                                break;
+                            r = q.right;
+                            continue;
+                        }
+                        if (key > k) {
+                            q = r;
+                            r = r.right;
+                            continue;
+                        }
+                    }
+
+                    if (j == insertionLevel) {
+                        if (!q.link(r, t))
+                            break; // restart
+                        if (t.node.value == null) {
+                            findNode(key);
+                            break splice;
+                        }
+                        if (--insertionLevel == 0)
+                            break splice;
+                    }
+
+                    if (--j >= insertionLevel && j < level)
+                        t = t.down;
+                    q = q.down;
+                    r = q.right;
+                }
+            }
+        }
+        return null;
+    }
+
+    /* ---------------- Deletion -------------- */
+
+    /**
+     * Main deletion method. Locates node, nulls value, appends a
+     * deletion marker, unlinks predecessor, removes associated index
+     * nodes, and possibly reduces head index level.
+     *
+     * @param value if non-null, the value that must be
+     * associated with key
+     * @return the node, or null if not found
+     */
+    final V doRemove(long key, Object value) {
+        outer: for (;;) {
+            for (Node<V> b = findPredecessor(key), n = b.next;;) {
+                Object v; long k;
+                if (n == null)
+                    break outer;
+                Node<V> f = n.next;
+                if (n != b.next)                    // inconsistent read
+                    break;
+                if ((v = n.value) == null) {        // n is deleted
+                    n.helpDelete(b, f);
+                    break;
+                }
+                if (b.value == null || v == n)      // b is deleted
+                    break;
+                if (key < (k = n.key))
+                    break outer;
+                if (key > k) {
+                    b = n;
+                    n = f;
+                    continue;
+                }
+                if (value != null && !value.equals(v))
+                    break outer;
+                if (!n.casValue(v, null))
+                    break;
+                if (!n.appendMarker(f) || !b.casNext(n, f))
+                    findNode(key);                  // retry via findNode
+                else {
+                    findPredecessor(key);           // clean index
+                    if (head.right == null)
+                        tryReduceLevel();
+                }
+                @SuppressWarnings("unchecked") V vv = (V)v;
+                return vv;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Possibly reduce head level if it has no nodes, as in
+     * ConcurrentSkipListMap.
+     */
+    private void tryReduceLevel() {
+        HeadIndex<V> h = head;
+        HeadIndex<V> d;
+        HeadIndex<V> e;
+        if (h.level > 3 &&
+            (d = (HeadIndex<V>)h.down) != null &&
+            (e = (HeadIndex<V>)d.down) != null &&
+            e.right == null &&
+            d.right == null &&
+            h.right == null &&
+            casHead(h, d) && // try to set
+            h.right != null) // recheck
+            casHead(d, h);   // try to backout
+    }
+
+    /* ---------------- Finding first and last elements -------------- */
+
+    /**
+     * Specialized variant of findNode to get first valid node.
+     * @return first node or null if empty
+     */
+    final Node<V> findFirst() {
+        for (Node<V> b, n;;) {
+            if ((n = (b = head.node).next) == null)
+                return null;
+            if (n.value != null)
+                return n;
+            n.helpDelete(b, n.next);
+        }
+    }
+
+    /**
+     * Specialized version of find to get last valid node.
+     * @return last node or null if empty
+     */
+    final Node<V> findLast() {
+        Index<V> q = head;
+        for (;;) {
+            Index<V> d, r;
+            if ((r = q.right) != null) {
+                if (r.indexesDeletedNode()) {
+                    q.unlink(r);
+                    q = head; // restart
+                }
+                else
+                    q = r;
+            } else if ((d = q.down) != null) {
+                q = d;
+            } else {
+                for (Node<V> b = q.node, n = b.next;;) {
+                    if (n == null)
+                        return b.isBaseHeader() ? null : b;
+                    Node<V> f = n.next;            // inconsistent read
+                    if (n != b.next)
+                        break;
+                    Object v = n.value;
+                    if (v == null) {                 // n is deleted
+                        n.helpDelete(b, f);
+                        break;
+                    }
+                    if (b.value == null || v == n)      // b is deleted
+                        break;
+                    b = n;
+                    n = f;
+                }
+                q = head; // restart
+            }
+        }
+    }
+
+    /* ---------------- Relational operations -------------- */
+
+    // Control values OR'ed as arguments to findNear
+
+    private static final int EQ = 1;
+    private static final int LT = 2;
+    private static final int GT = 0; // Actually checked as !LT
+
+    /**
+     * Utility for ceiling, floor, lower, higher methods.
+     * @param rel the relation -- OR'ed combination of EQ, LT, GT
+     * @return nearest node fitting relation, or null if no such
+     */
+    final Node<V> findNear(long key, int rel) {
+        for (;;) {
+            for (Node<V> b = findPredecessor(key), n = b.next;;) {
+                Object v;
+                if (n == null)
+                    return ((rel & LT) == 0 || b.isBaseHeader()) ? null : b;
+                Node<V> f = n.next;
+                if (n != b.next)                  // inconsistent read
+                    break;
+                if ((v = n.value) == null) {      // n is deleted
+                    n.helpDelete(b, f);
+                    break;
+                }
+                if (b.value == null || v == n)      // b is deleted
+                    break;
+                long k = n.key;
+                if ((key == k && (rel & EQ) != 0) ||
+                    (key <  k && (rel & LT) == 0))
+                    return n;
+                if (key <= k && (rel & LT) != 0)
+                    return b.isBaseHeader() ? null : b;
+                b = n;
+                n = f;
+            }
+        }
+    }
+
+    /* ---------------- Range utilities -------------- */
+
+    boolean tooLow(long key) {
+        return key < lo || (key == lo && !loInclusive);
+    }
+
+    boolean tooHigh(long key) {
+        return key > hi || (key == hi && !hiInclusive);
+    }
+
+    boolean inBounds(long key) {
+        return !tooLow(key) && !tooHigh(key);
+    }
+
+    void checkKeyBounds(long key) {
+        if (!inBounds(key))
+            throw new IllegalArgumentException("key out of range");
+    }
+
+    /**
+     * Returns true if node is not past the upper bound of range,
+     * passing by markers and headers.
+     */
+    boolean isBeforeEnd(Node<V> n) {
+        if (n == null)
+            return false;
+        Object v = n.value;
+        return v == n || v == BASE_HEADER || !tooHigh(n.key);
+    }
+
+    /**
+     * Returns lowest node. This node might not be in range, so
+     * most usages need to check bounds.
+     */
+    Node<V> loNode() {
+        if (lo == Long.MIN_VALUE && loInclusive)
+            return m.findFirst();
+        else if (loInclusive)
+            return m.findNear(lo, GT|EQ);
+        else
+            return m.findNear(lo, GT);
+    }
+
+    /**
+     * Returns highest node. This node might not be in range, so
+     * most usages need to check bounds.
+     */
+    Node<V> hiNode() {
+        if (hi == Long.MAX_VALUE && hiInclusive)
+            return m.findLast();
+        else if (hiInclusive)
+            return m.findNear(hi, LT|EQ);
+        else
+            return m.findNear(hi, LT);
+    }
+
+    /**
+     * Returns entry for lowest (ignoring directionality) valid node
+     * in range, or null if none.
+     */
+    Entry<V> lowestEntry() {
+        for (;;) {
+            Node<V> n = loNode();
+            if (!isBeforeEnd(n))
+                return null;
+            Entry<V> e = n.createSnapshot();
+            if (e != null)
+                return e;
+        }
+    }
+
+    /**
+     * Returns entry for highest (ignoring directionality) valid node
+     * in range, or null if none.
+     */
+    Entry<V> highestEntry() {
+        for (;;) {
+            Node<V> n = hiNode();
+            if (n == null || !inBounds(n.key))
+                return null;
+            Entry<V> e = n.createSnapshot();
+            if (e != null)
+                return e;
+        }
+    }
+
+    Entry<V> removeLowest() {
+        for (;;) {
+            Node<V> n = loNode();
+            if (n == null)
+                return null;
+            long k = n.key;
+            if (!inBounds(k))
+                return null;
+            V v = m.doRemove(k, null);
+            if (v != null)
+                return new Entry<V>(k, v);
+        }
+    }
+
+    Entry<V> removeHighest() {
+        for (;;) {
+            Node<V> n = hiNode();
+            if (n == null)
+                return null;
+            long k = n.key;
+            if (!inBounds(k))
+                return null;
+            V v = m.doRemove(k, null);
+            if (v != null)
+                return new Entry<V>(k, v);
+        }
+    }
+
+    /**
+     * Submap version of findNear: returns the nearest entry in range
+     * in the given relation, accounting for direction.
+     */
+    Entry<V> getNearEntry(long key, int rel) {
+        if (isDescending) { // adjust relation for direction
+            if ((rel & LT) == 0)
+                rel |= LT;
+            else
+                rel &= ~LT;
+        }
+        if (tooLow(key))
+            return ((rel & LT) != 0) ? null : lowestEntry();
+        if (tooHigh(key))
+            return ((rel & LT) != 0) ? highestEntry() : null;
+        for (;;) {
+            Node<V> n = m.findNear(key, rel);
+            if (n == null || !inBounds(n.key))
+                return null;
+            Entry<V> e = n.createSnapshot();
+            if (e != null)
+                return e;
+        }
+    }
+
+    /** Returns the key of the given entry, or empty if it is null. */
+    static OptionalLong keyOf(Entry<?> e) {
+        return (e == null) ? OptionalLong.empty() : OptionalLong.of(e.key);
+    }
+
+    /* ---------------- Constructors -------------- */
+
+    /**
+     * Constructs a new, empty map.
+     */
+    public ConcurrentLongSkipListMap() {
+        this.m = this;
+        this.lo = Long.MIN_VALUE;
+        this.hi = Long.MAX_VALUE;
+        this.loInclusive = this.hiInclusive = true;
+        this.isDescending = false;
+        initialize();
+    }
+
+    /**
+     * Constructs a new map containing the same mappings as the given
+     * map, in the same range.
+     *
+     * @param map the map whose mappings are to be placed in this map
+     * @throws NullPointerException if the specified map is null
+     */
+    public ConcurrentLongSkipListMap(ConcurrentLongSkipListMap<? extends V> map) {
+        this();
+        for (Iterator<? extends Entry<? extends V>> it = map.entryIterator();
+             it.hasNext(); ) {
+            Entry<? extends V> e = it.next();
+            doPut(e.key, e.value, false);
+        }
+    }
+
+    /**
+     * Creates a view, initializing all fields.
+     */
+    ConcurrentLongSkipListMap(ConcurrentLongSkipListMap<V> map,
+                              long fromKey, boolean fromInclusive,
+                              long toKey, boolean toInclusive,
+                              boolean isDescending) {
+        if (fromKey > toKey)
+            throw new IllegalArgumentException("inconsistent range");
+        this.m = map;
+        this.lo = fromKey;
+        this.hi = toKey;
+        this.loInclusive = fromInclusive;
+        this.hiInclusive = toInclusive;
+        this.isDescending = isDescending;
+    }
+
+    /* ---------------- Map API methods -------------- */
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the
+     * specified key.
+     *
+     * @param key key whose presence in this map is to be tested
+     * @return {@code true} if this map contains a mapping for the
+     *         specified key
+     */
+    public boolean containsKey(long key) {
+        return inBounds(key) && m.doGet(key) != null;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code null} if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value, or {@code null} if there is none
+     */
+    public V get(long key) {
+        return (!inBounds(key)) ? null : m.doGet(key);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or the given defaultValue if this map contains no mapping for
+     * the key.
+     *
+     * @param key the key
+     * @param defaultValue the value to return if this map contains
+     * no mapping for the given key
+     * @return the mapping for the key, if present; else the defaultValue
+     */
+    public V getOrDefault(long key, V defaultValue) {
+        V v;
+        return (v = get(key)) == null ? defaultValue : v;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this
+     * map.  If the map previously contained a mapping for the key,
+     * the old value is replaced.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with the specified key, or
+     *         {@code null} if there was no mapping for the key
+     * @throws IllegalArgumentException if the key is outside the
+     *         range of this view
+     * @throws NullPointerException if the specified value is null
+     */
+    public V put(long key, V value) {
+        checkKeyBounds(key);
+        return m.doPut(key, value, false);
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param key key for which mapping should be removed
+     * @return the previous value associated with the specified key, or
+     *         {@code null} if there was no mapping for the key
+     */
+    public V remove(long key) {
+        return (!inBounds(key)) ? null : m.doRemove(key, null);
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * specified value.  This operation requires time linear in the
+     * map size.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return {@code true} if a mapping to {@code value} exists
+     * @throws NullPointerException if the specified value is null
+     */
+    public boolean containsValue(Object value) {
+        if (value == null)
+            throw new NullPointerException();
+        for (Node<V> n = loNode(); isBeforeEnd(n); n = n.next) {
+            V v = n.getValidValue();
+            if (v != null && value.equals(v))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.  If this
+     * map contains more than {@code Integer.MAX_VALUE} elements, it
+     * returns {@code Integer.MAX_VALUE}.  Unlike in most collections,
+     * this method is <em>NOT</em> a constant-time operation.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        long count = 0;
+        for (Node<V> n = loNode(); isBeforeEnd(n); n = n.next) {
+            if (n.getValidValue() != null)
+                ++count;
+        }
+        return (count >= Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int)count;
+    }
+
+    /**
+     * Returns {@code true} if this map contains no key-value mappings.
+     *
+     * @return {@code true} if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return lowestEntry() == null;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     */
+    public void clear() {
+        for (Node<V> n = loNode(); isBeforeEnd(n); n = n.next) {
+            if (n.getValidValue() != null)
+                m.doRemove(n.key, null);
+        }
+    }
+
+    /* ------ ConcurrentMap API methods ------ */
+
+    /**
+     * If the specified key is not already associated with a value,
+     * associates it with the given value.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws IllegalArgumentException if the key is outside the
+     *         range of this view
+     * @throws NullPointerException if the specified value is null
+     */
+    public V putIfAbsent(long key, V value) {
+        checkKeyBounds(key);
+        return m.doPut(key, value, true);
+    }
+
+    /**
+     * Removes the entry for a key only if currently mapped to a given
+     * value.
+     *
+     * @param key key with which the specified value is associated
+     * @param value value expected to be associated with the specified key
+     * @return {@code true} if the value was removed
+     */
+    public boolean remove(long key, Object value) {
+        return inBounds(key) && value != null &&
+            m.doRemove(key, value) != null;
+    }
+
+    /**
+     * Replaces the entry for a key only if currently mapped to a given
+     * value.
+     *
+     * @param key key with which the specified value is associated
+     * @param oldValue value expected to be associated with the specified key
+     * @param newValue value to be associated with the specified key
+     * @return {@code true} if the value was replaced
+     * @throws NullPointerException if either of the values is null
+     */
+    public boolean replace(long key, V oldValue, V newValue) {
+        if (oldValue == null || newValue == null)
+            throw new NullPointerException();
+        if (!inBounds(key))
+            return false;
+        for (;;) {
+            Node<V> n; Object v;
+            if ((n = m.findNode(key)) == null)
+                return false;
+            if ((v = n.value) != null) {
+                if (!oldValue.equals(v))
+                    return false;
+                if (n.casValue(v, newValue))
+                    return true;
+            }
+        }
+    }
+
+    /**
+     * Replaces the entry for a key only if currently mapped to some
+     * value.
+     *
+     * @param key key with which the specified value is associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws NullPointerException if the specified value is null
+     */
+    public V replace(long key, V value) {
+        if (value == null)
+            throw new NullPointerException();
+        if (!inBounds(key))
+            return null;
+        for (;;) {
+            Node<V> n; Object v;
+            if ((n = m.findNode(key)) == null)
+                return null;
+            if ((v = n.value) != null && n.casValue(v, value)) {
+                @SuppressWarnings("unchecked") V vv = (V)v;
+                return vv;
+            }
+        }
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * attempts to compute its value using the given mapping function
+     * and enters it into this map unless {@code null}.  The function
+     * is <em>NOT</em> guaranteed to be applied once atomically only
+     * if the value is not present.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param mappingFunction the function to compute a value
+     * @return the current (existing or computed) value associated with
+     *         the specified key, or null if the computed value is null
+     * @throws IllegalArgumentException if the key is outside the
+     *         range of this view
+     * @throws NullPointerException if the mappingFunction is null
+     */
+    public V computeIfAbsent(long key,
+                             LongFunction<? extends V> mappingFunction) {
+        if (mappingFunction == null)
+            throw new NullPointerException();
+        checkKeyBounds(key);
+        V v, p, r;
+        if ((v = m.doGet(key)) == null &&
+            (r = mappingFunction.apply(key)) != null)
+            v = (p = m.doPut(key, r, true)) == null ? r : p;
+        return v;
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * associates it with the given value.  Otherwise, replaces the
+     * value with the results of the given remapping function, or
+     * removes if {@code null}.  The function is <em>NOT</em>
+     * guaranteed to be applied once atomically.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value the value to use if absent
+     * @param remappingFunction the function to recompute a value if present
+     * @return the new value associated with the specified key, or null if none
+     * @throws IllegalArgumentException if the key is outside the
+     *         range of this view
+     * @throws NullPointerException if the value or remappingFunction
+     *         is null
+     */
+    public V merge(long key, V value,
+                   BiFunction<? super V, ? super V, ? extends V>
+                   remappingFunction) {
+        if (value == null || remappingFunction == null)
+            throw new NullPointerException();
+        checkKeyBounds(key);
+        for (;;) {
+            Node<V> n; Object v; V r;
+            if ((n = m.findNode(key)) == null) {
+                if (m.doPut(key, value, true) == null)
+                    return value;
+            }
+            else if ((v = n.value) != null) {
+                @SuppressWarnings("unchecked") V vv = (V) v;
+                if ((r = remappingFunction.apply(vv, value)) != null) {
+                    if (n.casValue(vv, r))
+                        return r;
+                }
+                else if (m.doRemove(key, vv) != null)
+                    return null;
+            }
+        }
+    }
+
+    /**
+     * Performs the given action for each mapping in this map, in
+     * the order of this map, passing the value and then the key.
+     *
+     * @param action the action to be performed for each mapping
+     * @throws NullPointerException if the specified action is null
+     */
+    public void forEach(ObjLongConsumer<? super V> action) {
+        if (action == null) throw new NullPointerException();
+        if (isDescending) {
+            for (Iter it = new Iter(); it.hasNext(); ) {
+                V v = it.nextValue;
+                action.accept(v, it.advance().key);
+            }
+        }
+        else {
+            for (Node<V> n = loNode(); isBeforeEnd(n); n = n.next) {
+                V v;
+                if ((v = n.getValidValue()) != null)
+                    action.accept(v, n.key);
+            }
+        }
+    }
+
+    /* ------ Navigation methods ------ */
+
+    /**
+     * Returns the first (lowest, in the order of this map) key.
+     *
+     * @return the first key
+     * @throws NoSuchElementException if this map is empty
+     */
+    public long firstKey() {
+        Entry<V> e = isDescending ? highestEntry() : lowestEntry();
+        if (e == null)
+            throw new NoSuchElementException();
+        return e.key;
+    }
+
+    /**
+     * Returns the last (highest, in the order of this map) key.
+     *
+     * @return the last key
+     * @throws NoSuchElementException if this map is empty
+     */
+    public long lastKey() {
+        Entry<V> e = isDescending ? lowestEntry() : highestEntry();
+        if (e == null)
+            throw new NoSuchElementException();
+        return e.key;
+    }
+
+    /**
+     * Returns the mapping with the first key, or {@code null} if this
+     * map is empty.
+     *
+     * @return an entry with the first key, or {@code null}
+     */
+    public Entry<V> firstEntry() {
+        return isDescending ? highestEntry() : lowestEntry();
+    }
+
+    /**
+     * Returns the mapping with the last key, or {@code null} if this
+     * map is empty.
+     *
+     * @return an entry with the last key, or {@code null}
+     */
+    public Entry<V> lastEntry() {
+        return isDescending ? lowestEntry() : highestEntry();
+    }
+
+    /**
+     * Removes and returns the mapping with the first key, or {@code
+     * null} if this map is empty.
+     *
+     * @return the removed first entry of this map, or {@code null}
+     */
+    public Entry<V> pollFirstEntry() {
+        return isDescending ? removeHighest() : removeLowest();
+    }
+
+    /**
+     * Removes and returns the mapping with the last key, or {@code
+     * null} if this map is empty.
+     *
+     * @return the removed last entry of this map, or {@code null}
+     */
+    public Entry<V> pollLastEntry() {
+        return isDescending ? removeLowest() : removeHighest();
+    }
+
+    /**
+     * Returns the mapping with the greatest key (in the order of this
+     * map) strictly less than the given key, or {@code null} if there
+     * is no such key.
+     *
+     * @param key the key
+     * @return the entry, or {@code null}
+     */
+    public Entry<V> lowerEntry(long key) {
+        return getNearEntry(key, LT);
+    }
+
+    /**
+     * Returns the greatest key (in the order of this map) strictly
+     * less than the given key, if any.
+     *
+     * @param key the key
+     * @return the key, or an empty {@code OptionalLong}
+     */
+    public OptionalLong lowerKey(long key) {
+        return keyOf(getNearEntry(key, LT));
+    }
+
+    /**
+     * Returns the mapping with the greatest key (in the order of this
+     * map) less than or equal to the given key, or {@code null} if
+     * there is no such key.
+     *
+     * @param key the key
+     * @return the entry, or {@code null}
+     */
+    public Entry<V> floorEntry(long key) {
+        return getNearEntry(key, LT|EQ);
+    }
+
+    /**
+     * Returns the greatest key (in the order of this map) less than
+     * or equal to the given key, if any.
+     *
+     * @param key the key
+     * @return the key, or an empty {@code OptionalLong}
+     */
+    public OptionalLong floorKey(long key) {
+        return keyOf(getNearEntry(key, LT|EQ));
+    }
+
+    /**
+     * Returns the mapping with the least key (in the order of this
+     * map) greater than or equal to the given key, or {@code null} if
+     * there is no such key.
+     *
+     * @param key the key
+     * @return the entry, or {@code null}
+     */
+    public Entry<V> ceilingEntry(long key) {
+        return getNearEntry(key, GT|EQ);
+    }
+
+    /**
+     * Returns the least key (in the order of this map) greater than
+     * or equal to the given key, if any.
+     *
+     * @param key the key
+     * @return the key, or an empty {@code OptionalLong}
+     */
+    public OptionalLong ceilingKey(long key) {
+        return keyOf(getNearEntry(key, GT|EQ));
+    }
+
+    /**
+     * Returns the mapping with the least key (in the order of this
+     * map) strictly greater than the given key, or {@code null} if
+     * there is no such key.
+     *
+     * @param key the key
+     * @return the entry, or {@code null}
+     */
+    public Entry<V> higherEntry(long key) {
+        return getNearEntry(key, GT);
+    }
+
+    /**
+     * Returns the least key (in the order of this map) strictly
+     * greater than the given key, if any.
+     *
+     * @param key the key
+     * @return the key, or an empty {@code OptionalLong}
+     */
+    public OptionalLong higherKey(long key) {
+        return keyOf(getNearEntry(key, GT));
+    }
+
+    /* ---------------- View methods -------------- */
+
+    /**
+     * Returns a view of the portion of this map whose keys range from
+     * {@code fromKey} to {@code toKey}, in the order of this map.
+     * The returned map is backed by this map, so changes in the
+     * returned map are reflected in this map, and vice-versa.
+     *
+     * @param fromKey low endpoint of the keys in the returned map
+     * @param fromInclusive {@code true} if the low endpoint
+     *        is to be included in the returned view
+     * @param toKey high endpoint of the keys in the returned map
+     * @param toInclusive {@code true} if the high endpoint
+     *        is to be included in the returned view
+     * @return a view of the portion of this map whose keys range from
+     *         {@code fromKey} to {@code toKey}
+     * @throws IllegalArgumentException if {@code fromKey} is after
+     *         {@code toKey} in the order of this map, or either lies
+     *         outside the range of this view
+     */
+    public ConcurrentLongSkipListMap<V> subMap(long fromKey,
+                                               boolean fromInclusive,
+                                               long toKey,
+                                               boolean toInclusive) {
+        if (isDescending) { // flip senses
+            long tk = fromKey;
+            fromKey = toKey;
+            toKey = tk;
+            boolean ti = fromInclusive;
+            fromInclusive = toInclusive;
+            toInclusive = ti;
+        }
+        return newSubMap(fromKey, fromInclusive, toKey, toInclusive);
+    }
+
+    /**
+     * Returns a view of the portion of this map whose keys precede
+     * (or equal, if {@code inclusive}) {@code toKey} in the order of
+     * this map.
+     *
+     * @param toKey high endpoint of the keys in the returned map
+     * @param inclusive {@code true} if the high endpoint
+     *        is to be included in the returned view
+     * @return a view of the portion of this map whose keys precede
+     *         {@code toKey}
+     * @throws IllegalArgumentException if {@code toKey} lies outside
+     *         the range of this view
+     */
+    public ConcurrentLongSkipListMap<V> headMap(long toKey,
+                                                boolean inclusive) {
+        return isDescending ?
+            newSubMap(toKey, inclusive, hi, hiInclusive) :
+            newSubMap(lo, loInclusive, toKey, inclusive);
+    }
+
+    /**
+     * Returns a view of the portion of this map whose keys follow
+     * (or equal, if {@code inclusive}) {@code fromKey} in the order
+     * of this map.
+     *
+     * @param fromKey low endpoint of the keys in the returned map
+     * @param inclusive {@code true} if the low endpoint
+     *        is to be included in the returned view
+     * @return a view of the portion of this map whose keys follow
+     *         {@code fromKey}
+     * @throws IllegalArgumentException if {@code fromKey} lies
+     *         outside the range of this view
+     */
+    public ConcurrentLongSkipListMap<V> tailMap(long fromKey,
+                                                boolean inclusive) {
+        return isDescending ?
+            newSubMap(lo, loInclusive, fromKey, inclusive) :
+            newSubMap(fromKey, inclusive, hi, hiInclusive);
+    }
+
+    /**
+     * Returns a reverse order view of the mappings contained in this
+     * map, backed by this map.
+     *
+     * @return a reverse order view of this map
+     */
+    public ConcurrentLongSkipListMap<V> descendingMap() {
+        return new ConcurrentLongSkipListMap<V>(m, lo, loInclusive,
+                                                hi, hiInclusive,
+                                                !isDescending);
+    }
+
+    /**
+     * Returns a view of this map, in ascending order, with the given
+     * bounds, which must lie within those of this view.
+     */
+    ConcurrentLongSkipListMap<V> newSubMap(long fromKey,
+                                           boolean fromInclusive,
+                                           long toKey,
+                                           boolean toInclusive) {
+        if (fromKey < lo ||
+            (fromKey == lo && !loInclusive && fromInclusive))
+            throw new IllegalArgumentException("key out of range");
+        if (toKey > hi ||
+            (toKey == hi && !hiInclusive && toInclusive))
+            throw new IllegalArgumentException("key out of range");
+        return new ConcurrentLongSkipListMap<V>(m, fromKey, fromInclusive,
+                                                toKey, toInclusive,
+                                                isDescending);
+    }
+
+    /**
+     * Returns {@code true} if this map is a descending view.
+     *
+     * @return {@code true} if this map is a descending view
+     */
+    public boolean isDescending() {
+        return isDescending;
+    }
+
+    /* ---------------- Iterators -------------- */
+
+    /**
+     * Iterator over the mappings of a view, in its order.
+     */
+    class Iter {
+        /** the last node returned by next() */
+        Node<V> lastReturned;
+        /** the next node to return from next(); */
+        Node<V> next;
+        /** Cache of next value field to maintain weak consistency */
+        V nextValue;
+
+        Iter() {
+            for (;;) {
+                next = isDescending ? hiNode() : loNode();
+                if (next == null)
+                    break;
+                Object x = next.value;
+                if (x != null && x != next) {
+                    if (!inBounds(next.key))
+                        next = null;
+                    else {
+                        @SuppressWarnings("unchecked") V vv = (V)x;
+                        nextValue = vv;
+                    }
+                    break;
+                }
+            }
+        }
+
+        public final boolean hasNext() {
+            return next != null;
+        }
+
+        /** Advances, returning the node that was next. */
+        final Node<V> advance() {
+            Node<V> n = next;
+            if (n == null)
+                throw new NoSuchElementException();
+            lastReturned = n;
+            if (isDescending)
+                descend();
+            else
+                ascend();
+            return n;
+        }
+
+        private void ascend() {
+            for (;;) {
+                next = next.next;
+                if (next == null)
+                    break;
+                Object x = next.value;
+                if (x != null && x != next) {
+                    if (tooHigh(next.key))
+                        next = null;
+                    else {
+                        @SuppressWarnings("unchecked") V vv = (V)x;
+                        nextValue = vv;
+                    }
+                    break;
+                }
+            }
+        }
+
+        private void descend() {
+            for (;;) {
+                next = m.findNear(lastReturned.key, LT);
+                if (next == null)
+                    break;
+                Object x = next.value;
+                if (x != null && x != next) {
+                    if (tooLow(next.key))
+                        next = null;
+                    else {
+                        @SuppressWarnings("unchecked") V vv = (V)x;
+                        nextValue = vv;
+                    }
+                    break;
+                }
+            }
+        }
+
+        public void remove() {
+            Node<V> l = lastReturned;
+            if (l == null)
+                throw new IllegalStateException();
+            m.doRemove(l.key, null);
+            lastReturned = null;
+        }
+    }
+
+    final class KeyIterator extends Iter implements PrimitiveIterator.OfLong {
+        public long nextLong() {
+            return advance().key;
+        }
+    }
+
+    final class ValueIterator extends Iter implements Iterator<V> {
+        public V next() {
+            V v = nextValue;
+            advance();
+            return v;
+        }
+    }
+
+    final class EntryIterator extends Iter implements Iterator<Entry<V>> {
+        public Entry<V> next() {
+            V v = nextValue;
+            return new Entry<V>(advance().key, v);
+        }
+    }
+
+    /**
+     * Returns an iterator over the keys of this map, in its order.
+     * The iterator's {@code remove} method removes the corresponding
+     * mapping from this map.
+     *
+     * @return an iterator over the keys of this map
+     */
+    public PrimitiveIterator.OfLong keyIterator() {
+        return new KeyIterator();
+    }
+
+    /**
+     * Returns an iterator over the values of this map, in the order
+     * of their keys.  The iterator's {@code remove} method removes the
+     * corresponding mapping from this map.
+     *
+     * @return an iterator over the values of this map
+     */
+    public Iterator<V> valueIterator() {
+        return new ValueIterator();
+    }
+
+    /**
+     * Returns an iterator over the mappings of this map, in its order.
+     * The iterator's {@code remove} method removes the corresponding
+     * mapping from this map.
+     *
+     * @return an iterator over the mappings of this map
+     */
+    public Iterator<Entry<V>> entryIterator() {
+        return new EntryIterator();
+    }
+
+    /**
+     * Returns an iterator over the keys of this map, in reverse order.
+     *
+     * @return an iterator over the keys of this map, in reverse order
+     */
+    public PrimitiveIterator.OfLong descendingKeyIterator() {
+        return descendingMap().keyIterator();
+    }
+
+    /* ---------------- Object methods -------------- */
+
+    /**
+     * Compares the specified object with this map for equality.
+     * Returns {@code true} if the given object is also a {@code
+     * ConcurrentLongSkipListMap} and the two maps have the same
+     * mappings.  This operation may return misleading results if
+     * either map is concurrently modified during execution of this
+     * method.
+     *
+     * @param o object to be compared for equality with this map
+     * @return {@code true} if the specified object is equal to this map
+     */
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof ConcurrentLongSkipListMap))
+            return false;
+        ConcurrentLongSkipListMap<?> t = (ConcurrentLongSkipListMap<?>)o;
+        Iterator<? extends Entry<?>> it = t.entryIterator();
+        int n = 0;
+        while (it.hasNext()) {
+            Entry<?> e = it.next();
+            Object v = get(e.key);
+            if (v == null || !v.equals(e.value))
+                return false;
+            ++n;
+        }
+        return n == size();
+    }
+
+    /**
+     * Returns the hash code value for this map, computed as for a
+     * {@link java.util.Map} with the keys boxed.
+     *
+     * @return the hash code value for this map
+     */
+    public int hashCode() {
+        int h = 0;
+        for (Node<V> n = loNode(); isBeforeEnd(n); n = n.next) {
+            V v = n.getValidValue();
+            if (v != null)
+                h += Long.hashCode(n.key) ^ v.hashCode();
+        }
+        return h;
+    }
+
+    /**
+     * Returns a string representation of this map, in the style of
+     * {@link java.util.AbstractMap#toString}.
+     *
+     * @return a string representation of this map
+     */
+    public String toString() {
+        Iterator<Entry<V>> it = entryIterator();
+        if (!it.hasNext())
+            return "{}";
+        StringBuilder sb = new StringBuilder();
+        sb.append('{');
+        for (;;) {
+            Entry<V> e = it.next();
+            sb.append(e.key).append('=');
+            sb.append(e.value == this ? "(this Map)" : e.value);
+            if (!it.hasNext())
+                return sb.append('}').toString();
+            sb.append(',').append(' ');
+        }
+    }
+
+    /* ---------------- Serialization -------------- */
+
+    /**
+     * Saves this map to a stream (that is, serializes it).
+     *
+     * @param s the stream
+     * @throws java.io.IOException if an I/O error occurs
+     * @serialData For a map that is not a view, the value (Object)
+     * and key (long) of each key-value mapping represented by the
+     * map, in ascending key order, followed by {@code null}.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        s.defaultWriteObject();
+        if (m == this) {
+            for (Node<V> n = findFirst(); n != null; n = n.next) {
+                V v = n.getValidValue();
+                if (v != null) {
+                    s.writeObject(v);
+                    s.writeLong(n.key);
+                }
+            }
+            s.writeObject(null);
+        }
+    }
+
+    /**
+     * Reconstitutes this map from a stream (that is, deserializes it).
+     * @param s the stream
+     * @throws ClassNotFoundException if the class of a serialized object
+     *         could not be found
+     * @throws java.io.IOException if an I/O error occurs
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(final java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        if (m == null)
+            throw new java.io.InvalidObjectException("no base map");
+        if (m == this) {
+            initialize();
+            for (Object v; (v = s.readObject()) != null; )
+                doPut(s.readLong(), (V)v, false);
+        }
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe UNSAFE;
+    private static final long headOffset;
+    static {
+        try {
+            UNSAFE = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = ConcurrentLongSkipListMap.class;
+            headOffset = UNSAFE.objectFieldOffset
+                (k.getDeclaredField("head"));
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -0,0 +1,403 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.NoSuchElementException;
+import java.util.OptionalLong;
+import java.util.PrimitiveIterator;
+import java.util.function.LongConsumer;
+
+/**
+ * A scalable concurrent navigable set of primitive {@code long}
+ * values, based on a {@link ConcurrentLongSkipListMap}.  The elements
+ * are kept sorted in numerical order, and are held and compared
+ * without boxing.  This class provides the methods of {@link
+ * java.util.NavigableSet}, with {@code long} elements; navigation
+ * methods return an {@link OptionalLong}, empty if there is no such
+ * element.  The {@link #subSet}, {@link #headSet}, {@link #tailSet}
+ * and {@link #descendingSet} methods return views that are
+ * themselves {@code ConcurrentLongSkipListSet}s.
+ *
+ * <p>Iterators are
+ * <a href="package-summary.html#Weakly"><i>weakly consistent</i></a>.
+ * Beware that, unlike in most collections, the {@code size} method
+ * is <em>not</em> a constant-time operation.
+ *
+ * @since 1.8
+ */
+public class ConcurrentLongSkipListSet implements java.io.Serializable {
+    private static final long serialVersionUID = -5293614578412097133L;
+
+    /**
+     * The underlying map. Uses Boolean.TRUE as value for each
+     * element.
+     * @serial
+     */
+    private final ConcurrentLongSkipListMap<Object> m;
+
+    /**
+     * Constructs a new, empty set.
+     */
+    public ConcurrentLongSkipListSet() {
+        m = new ConcurrentLongSkipListMap<Object>();
+    }
+
+    /**
+     * Constructs a new set containing the given elements.
+     *
+     * @param elements the elements that will comprise the new set
+     * @throws NullPointerException if the specified array is null
+     */
+    public ConcurrentLongSkipListSet(long... elements) {
+        m = new ConcurrentLongSkipListMap<Object>();
+        for (long e : elements)
+            m.putIfAbsent(e, Boolean.TRUE);
+    }
+
+    /**
+     * For use by views.
+     */
+    ConcurrentLongSkipListSet(ConcurrentLongSkipListMap<Object> m) {
+        this.m = m;
+    }
+
+    /**
+     * Returns the number of elements in this set.  If this set
+     * contains more than {@code Integer.MAX_VALUE} elements, it
+     * returns {@code Integer.MAX_VALUE}.  Unlike in most collections,
+     * this method is <em>NOT</em> a constant-time operation.
+     *
+     * @return the number of elements in this set
+     */
+    public int size() {
+        return m.size();
+    }
+
+    /**
+     * Returns {@code true} if this set contains no elements.
+     * @return {@code true} if this set contains no elements
+     */
+    public boolean isEmpty() {
+        return m.isEmpty();
+    }
+
+    /**
+     * Returns {@code true} if this set contains the specified element.
+     *
+     * @param e element whose presence in this set is to be tested
+     * @return {@code true} if this set contains the specified element
+     */
+    public boolean contains(long e) {
+        return m.containsKey(e);
+    }
+
+    /**
+     * Adds the specified element to this set if it is not already present.
+     *
+     * @param e element to be added to this set
+     * @return {@code true} if this set did not already contain the
+     *         specified element
+     * @throws IllegalArgumentException if the element is outside the
+     *         range of this view
+     */
+    public boolean add(long e) {
+        return m.putIfAbsent(e, Boolean.TRUE) == null;
+    }
+
+    /**
+     * Removes the specified element from this set if it is present.
+     *
+     * @param e element to be removed from this set, if present
+     * @return {@code true} if this set contained the specified element
+     */
+    public boolean remove(long e) {
+        return m.remove(e, Boolean.TRUE);
+    }
+
+    /**
+     * Removes all of the elements from this set.
+     */
+    public void clear() {
+        m.clear();
+    }
+
+    /**
+     * Returns the first (lowest, in the order of this set) element.
+     *
+     * @return the first element
+     * @throws NoSuchElementException if this set is empty
+     */
+    public long first() {
+        return m.firstKey();
+    }
+
+    /**
+     * Returns the last (highest, in the order of this set) element.
+     *
+     * @return the last element
+     * @throws NoSuchElementException if this set is empty
+     */
+    public long last() {
+        return m.lastKey();
+    }
+
+    /**
+     * Returns the greatest element (in the order of this set) strictly
+     * less than the given element, if any.
+     *
+     * @param e the value to match
+     * @return the element, or an empty {@code OptionalLong}
+     */
+    public OptionalLong lower(long e) {
+        return m.lowerKey(e);
+    }
+
+    /**
+     * Returns the greatest element (in the order of this set) less
+     * than or equal to the given element, if any.
+     *
+     * @param e the value to match
+     * @return the element, or an empty {@code OptionalLong}
+     */
+    public OptionalLong floor(long e) {
+        return m.floorKey(e);
+    }
+
+    /**
+     * Returns the least element (in the order of this set) greater
+     * than or equal to the given element, if any.
+     *
+     * @param e the value to match
+     * @return the element, or an empty {@code OptionalLong}
+     */
+    public OptionalLong ceiling(long e) {
+        return m.ceilingKey(e);
+    }
+
+    /**
+     * Returns the least element (in the order of this set) strictly
+     * greater than the given element, if any.
+     *
+     * @param e the value to match
+     * @return the element, or an empty {@code OptionalLong}
+     */
+    public OptionalLong higher(long e) {
+        return m.higherKey(e);
+    }
+
+    /**
+     * Removes and returns the first element, if any.
+     *
+     * @return the removed element, or an empty {@code OptionalLong}
+     */
+    public OptionalLong pollFirst() {
+        return ConcurrentLongSkipListMap.keyOf(m.pollFirstEntry());
+    }
+
+    /**
+     * Removes and returns the last element, if any.
+     *
+     * @return the removed element, or an empty {@code OptionalLong}
+     */
+    public OptionalLong pollLast() {
+        return ConcurrentLongSkipListMap.keyOf(m.pollLastEntry());
+    }
+
+    /**
+     * Returns an iterator over the elements in this set, in its order.
+     *
+     * @return an iterator over the elements in this set
+     */
+    public PrimitiveIterator.OfLong iterator() {
+        return m.keyIterator();
+    }
+
+    /**
+     * Returns an iterator over the elements in this set, in reverse
+     * order.
+     *
+     * @return an iterator over the elements in this set, in reverse order
+     */
+    public PrimitiveIterator.OfLong descendingIterator() {
+        return m.descendingKeyIterator();
+    }
+
+    /**
+     * Performs the given action for each element of this set, in its
+     * order.
+     *
+     * @param action the action to be performed for each element
+     * @throws NullPointerException if the specified action is null
+     */
+    public void forEach(LongConsumer action) {
+        if (action == null) throw new NullPointerException();
+        m.forEach((v, k) -> action.accept(k));
+    }
+
+    /**
+     * Returns an array containing all of the elements in this set, in
+     * its order.
+     *
+     * @return an array containing all of the elements in this set
+     */
+    public long[] toArray() {
+        long[] a = new long[8];
+        int n = 0;
+        for (PrimitiveIterator.OfLong it = iterator(); it.hasNext(); ) {
+            if (n == a.length)
+                a = java.util.Arrays.copyOf(a, n << 1);
+            a[n++] = it.nextLong();
+        }
+        return (n == a.length) ? a : java.util.Arrays.copyOf(a, n);
+    }
+
+    /* ---------------- View methods -------------- */
+
+    /**
+     * Returns a view of the portion of this set whose elements range
+     * from {@code fromElement} to {@code toElement}, in the order of
+     * this set.
+     *
+     * @param fromElement low endpoint of the returned set
+     * @param fromInclusive {@code true} if the low endpoint
+     *        is to be included in the returned view
+     * @param toElement high endpoint of the returned set
+     * @param toInclusive {@code true} if the high endpoint
+     *        is to be included in the returned view
+     * @return a view of the portion of this set whose elements range
+     *         from {@code fromElement} to {@code toElement}
+     * @throws IllegalArgumentException if {@code fromElement} is
+     *         after {@code toElement} in the order of this set, or
+     *         either lies outside the range of this view
+     */
+    public ConcurrentLongSkipListSet subSet(long fromElement,
+                                            boolean fromInclusive,
+                                            long toElement,
+                                            boolean toInclusive) {
+        return new ConcurrentLongSkipListSet
+            (m.subMap(fromElement, fromInclusive, toElement, toInclusive));
+    }
+
+    /**
+     * Returns a view of the portion of this set whose elements precede
+     * (or equal, if {@code inclusive}) {@code toElement}.
+     *
+     * @param toElement high endpoint of the returned set
+     * @param inclusive {@code true} if the high endpoint
+     *        is to be included in the returned view
+     * @return a view of the portion of this set whose elements precede
+     *         {@code toElement}
+     * @throws IllegalArgumentException if {@code toElement} lies
+     *         outside the range of this view
+     */
+    public ConcurrentLongSkipListSet headSet(long toElement,
+                                             boolean inclusive) {
+        return new ConcurrentLongSkipListSet(m.headMap(toElement, inclusive));
+    }
+
+    /**
+     * Returns a view of the portion of this set whose elements follow
+     * (or equal, if {@code inclusive}) {@code fromElement}.
+     *
+     * @param fromElement low endpoint of the returned set
+     * @param inclusive {@code true} if the low endpoint
+     *        is to be included in the returned view
+     * @return a view of the portion of this set whose elements follow
+     *         {@code fromElement}
+     * @throws IllegalArgumentException if {@code fromElement} lies
+     *         outside the range of this view
+     */
+    public ConcurrentLongSkipListSet tailSet(long fromElement,
+                                             boolean inclusive) {
+        return new ConcurrentLongSkipListSet(m.tailMap(fromElement, inclusive));
+    }
+
+    /**
+     * Returns a reverse order view of the elements contained in this
+     * set, backed by this set.
+     *
+     * @return a reverse order view of this set
+     */
+    public ConcurrentLongSkipListSet descendingSet() {
+        return new ConcurrentLongSkipListSet(m.descendingMap());
+    }
+
+    /* ---------------- Object methods -------------- */
+
+    /**
+     * Compares the specified object with this set for equality.
+     * Returns {@code true} if the specified object is also a {@code
+     * ConcurrentLongSkipListSet} with the same elements.
+     *
+     * @param o the object to be compared for equality with this set
+     * @return {@code true} if the specified object is equal to this set
+     */
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof ConcurrentLongSkipListSet))
+            return false;
+        ConcurrentLongSkipListSet s = (ConcurrentLongSkipListSet)o;
+        int n = 0;
+        for (PrimitiveIterator.OfLong it = s.iterator(); it.hasNext(); ++n)
+            if (!contains(it.nextLong()))
+                return false;
+        return n == size();
+    }
+
+    /**
+     * Returns the hash code value for this set, computed as for a
+     * {@link java.util.Set} with the elements boxed.
+     *
+     * @return the hash code value for this set
+     */
+    public int hashCode() {
+        int h = 0;
+        for (PrimitiveIterator.OfLong it = iterator(); it.hasNext(); )
+            h += Long.hashCode(it.nextLong());
+        return h;
+    }
+
+    /**
+     * Returns a string representation of this set, in the style of
+     * {@link java.util.AbstractCollection#toString}.
+     *
+     * @return a string representation of this set
+     */
+    public String toString() {
+        PrimitiveIterator.OfLong it = iterator();
+        if (!it.hasNext())
+            return "[]";
+        StringBuilder sb = new StringBuilder();
+        sb.append('[');
+        for (;;) {
+            sb.append(it.nextLong());
+            if (!it.hasNext())
+                return sb.append(']').toString();
+            sb.append(',').append(' ');
+        }
+    }
+}
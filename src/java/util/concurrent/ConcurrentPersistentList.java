@@ -0,0 +1,456 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * A thread-safe variant of {@link java.util.ArrayList} in which all
+ * mutative operations replace, by a single atomic update of a
+ * reference, an immutable {@link PersistentVector} holding the
+ * elements.  Like {@link CopyOnWriteArrayList}, reads never block,
+ * and iterators traverse a snapshot of the list taken when they are
+ * created, never throwing {@link
+ * java.util.ConcurrentModificationException}; unlike it, an update
+ * copies only the path to the changed element, taking time
+ * logarithmic rather than linear in the size of the list, at the
+ * price of logarithmic rather than constant time access by index.
+ * Updates are lock-free: a thread whose update is overtaken by
+ * another retries it on the new contents.
+ *
+ * <p>The {@link #snapshot} method returns the current contents as a
+ * {@code PersistentVector}, so that several reads can be made
+ * consistently without copying.  Element-changing operations on
+ * iterators themselves ({@code remove}, {@code set}, and {@code add})
+ * are not supported, and {@link #subList} returns a view of the
+ * current snapshot, not of the list.  All elements are permitted,
+ * including {@code null}.
+ *
+ * <p>Memory consistency effects: As with other concurrent
+ * collections, actions in a thread prior to placing an object into a
+ * {@code ConcurrentPersistentList}
+ * <a href="package-summary.html#MemoryVisibility"><i>happen-before</i></a>
+ * actions subsequent to the access or removal of that element from
+ * the {@code ConcurrentPersistentList} in another thread.
+ *
+ * @param <E> the type of elements held in this collection
+ * @since 1.8
+ */
+public class ConcurrentPersistentList<E> extends AbstractList<E>
+    implements List<E>, RandomAccess, java.io.Serializable {
+    private static final long serialVersionUID = -4377806516183473221L;
+
+    /** @serial the current contents */
+    private volatile PersistentVector<E> vector;
+
+    /**
+     * Creates an empty list.
+     */
+    public ConcurrentPersistentList() {
+        vector = PersistentVector.empty();
+    }
+
+    /**
+     * Creates a list containing the elements of the specified
+     * collection, in the order they are returned by the collection's
+     * iterator.
+     *
+     * @param c the collection of initially held elements
+     * @throws NullPointerException if the specified collection is null
+     */
+    public ConcurrentPersistentList(Collection<? extends E> c) {
+        vector = PersistentVector.from(c);
+    }
+
+    private boolean casVector(PersistentVector<E> cmp, PersistentVector<E> val) {
+        return U.compareAndSwapObject(this, VECTOR, cmp, val);
+    }
+
+    /**
+     * Returns the current contents of this list, which will not
+     * change if the list is subsequently modified.
+     *
+     * @return the current contents of this list
+     */
+    public PersistentVector<E> snapshot() {
+        return vector;
+    }
+
+    public int size() {
+        return vector.size();
+    }
+
+    public boolean isEmpty() {
+        return vector.isEmpty();
+    }
+
+    public E get(int index) {
+        return vector.get(index);
+    }
+
+    public boolean contains(Object o) {
+        return vector.indexOf(o) >= 0;
+    }
+
+    public int indexOf(Object o) {
+        return vector.indexOf(o);
+    }
+
+    public int lastIndexOf(Object o) {
+        return vector.lastIndexOf(o);
+    }
+
+    public Object[] toArray() {
+        return vector.toArray();
+    }
+
+    public <T> T[] toArray(T[] a) {
+        return vector.toArray(a);
+    }
+
+    /**
+     * Replaces the element at the specified position in this list with the
+     * specified element.
+     *
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public E set(int index, E element) {
+        for (PersistentVector<E> v;;) {
+            E old = (v = vector).get(index);
+            PersistentVector<E> p = v.with(index, element);
+            if (p == v || casVector(v, p))
+                return old;
+        }
+    }
+
+    /**
+     * Appends the specified element to the end of this list.
+     *
+     * @param e element to be appended to this list
+     * @return {@code true} (as specified by {@link Collection#add})
+     */
+    public boolean add(E e) {
+        PersistentVector<E> v;
+        do {} while (!casVector(v = vector, v.plus(e)));
+        return true;
+    }
+
+    /**
+     * Inserts the specified element at the specified position in this
+     * list. Shifts the element currently at that position (if any) and
+     * any subsequent elements to the right (adds one to their indices).
+     *
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public void add(int index, E element) {
+        PersistentVector<E> v;
+        do {} while (!casVector(v = vector, v.plus(index, element)));
+    }
+
+    /**
+     * Removes the element at the specified position in this list.
+     * Shifts any subsequent elements to the left (subtracts one from their
+     * indices).  Returns the element that was removed from the list.
+     *
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public E remove(int index) {
+        for (PersistentVector<E> v;;) {
+            E old = (v = vector).get(index);
+            if (casVector(v, v.minus(index)))
+                return old;
+        }
+    }
+
+    /**
+     * Removes the first occurrence of the specified element from this list,
+     * if it is present.  If this list does not contain the element, it is
+     * unchanged.
+     *
+     * @param o element to be removed from this list, if present
+     * @return {@code true} if this list contained the specified element
+     */
+    public boolean remove(Object o) {
+        for (PersistentVector<E> v;;) {
+            int i = (v = vector).indexOf(o);
+            if (i < 0)
+                return false;
+            if (casVector(v, v.minus(i)))
+                return true;
+        }
+    }
+
+    /**
+     * Appends the element, if not present.
+     *
+     * @param e element to be added to this list, if absent
+     * @return {@code true} if the element was added
+     */
+    public boolean addIfAbsent(E e) {
+        for (PersistentVector<E> v;;) {
+            if ((v = vector).indexOf(e) >= 0)
+                return false;
+            if (casVector(v, v.plus(e)))
+                return true;
+        }
+    }
+
+    /**
+     * Appends all of the elements in the specified collection to the end
+     * of this list, in the order that they are returned by the specified
+     * collection's iterator, as a single atomic update.
+     *
+     * @param c collection containing elements to be added to this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws NullPointerException if the specified collection is null
+     */
+    public boolean addAll(Collection<? extends E> c) {
+        if (c.isEmpty())
+            return false;
+        PersistentVector<E> v;
+        do {} while (!casVector(v = vector, v.plusAll(c)));
+        return true;
+    }
+
+    /**
+     * Inserts all of the elements in the specified collection into this
+     * list, starting at the specified position, as a single atomic
+     * update.
+     *
+     * @param index index at which to insert the first element
+     *        from the specified collection
+     * @param c collection containing elements to be added to this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     * @throws NullPointerException if the specified collection is null
+     */
+    @SuppressWarnings("unchecked")
+    public boolean addAll(int index, Collection<? extends E> c) {
+        Object[] cs = c.toArray();
+        for (PersistentVector<E> v;;) {
+            int len = (v = vector).size();
+            if (index > len || index < 0)
+                throw new IndexOutOfBoundsException("Index: " + index +
+                                                    ", Size: " + len);
+            if (cs.length == 0)
+                return false;
+            PersistentVector<E> p;
+            if (index == len)
+                p = v.plusAll(java.util.Arrays.asList((E[])cs));
+            else {
+                p = v;
+                for (int i = 0; i < cs.length; ++i)
+                    p = p.plus(index + i, (E)cs[i]);
+            }
+            if (casVector(v, p))
+                return true;
+        }
+    }
+
+    /**
+     * Removes from this list all of its elements that are contained in
+     * the specified collection.
+     *
+     * @param c collection containing elements to be removed from this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws NullPointerException if the specified collection is null
+     */
+    public boolean removeAll(Collection<?> c) {
+        if (c == null) throw new NullPointerException();
+        return bulkRemove(e -> c.contains(e));
+    }
+
+    /**
+     * Retains only the elements in this list that are contained in the
+     * specified collection.
+     *
+     * @param c collection containing elements to be retained in this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws NullPointerException if the specified collection is null
+     */
+    public boolean retainAll(Collection<?> c) {
+        if (c == null) throw new NullPointerException();
+        return bulkRemove(e -> !c.contains(e));
+    }
+
+    public boolean removeIf(Predicate<? super E> filter) {
+        if (filter == null) throw new NullPointerException();
+        return bulkRemove(filter);
+    }
+
+    /**
+     * Atomically replaces the contents by those elements not matching
+     * the filter, rebuilding the vector in linear time.
+     */
+    private boolean bulkRemove(Predicate<? super E> filter) {
+        for (PersistentVector<E> v;;) {
+            Object[] kept = new Object[(v = vector).size()];
+            int n = 0;
+            for (E e : v)
+                if (!filter.test(e))
+                    kept[n++] = e;
+            if (n == kept.length)
+                return false;
+            if (casVector(v, PersistentVector.<E>fromArray
+                          (java.util.Arrays.copyOf(kept, n))))
+                return true;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void replaceAll(UnaryOperator<E> operator) {
+        if (operator == null) throw new NullPointerException();
+        for (PersistentVector<E> v;;) {
+            Object[] a = (v = vector).toArray();
+            for (int i = 0; i < a.length; ++i)
+                a[i] = operator.apply((E)a[i]);
+            if (casVector(v, PersistentVector.<E>fromArray(a)))
+                return;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void sort(java.util.Comparator<? super E> c) {
+        for (PersistentVector<E> v;;) {
+            Object[] a = (v = vector).toArray();
+            java.util.Arrays.sort(a, (java.util.Comparator<Object>)c);
+            if (casVector(v, PersistentVector.<E>fromArray(a)))
+                return;
+        }
+    }
+
+    /**
+     * Removes all of the elements from this list.
+     * The list will be empty after this call returns.
+     */
+    public void clear() {
+        vector = PersistentVector.empty();
+    }
+
+    public void forEach(Consumer<? super E> action) {
+        vector.forEach(action);
+    }
+
+    /**
+     * Returns an iterator over the elements in this list in proper sequence.
+     *
+     * <p>The returned iterator provides a snapshot of the state of the list
+     * when the iterator was constructed. No synchronization is needed while
+     * traversing the iterator. The iterator does <em>NOT</em> support the
+     * {@code remove} method.
+     *
+     * @return an iterator over the elements in this list in proper sequence
+     */
+    public Iterator<E> iterator() {
+        return vector.iterator();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The returned iterator provides a snapshot of the state of the list
+     * when the iterator was constructed. No synchronization is needed while
+     * traversing the iterator. The iterator does <em>NOT</em> support the
+     * {@code remove}, {@code set} or {@code add} methods.
+     */
+    public ListIterator<E> listIterator() {
+        return vector.listIterator();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The returned iterator provides a snapshot of the state of the list
+     * when the iterator was constructed. No synchronization is needed while
+     * traversing the iterator. The iterator does <em>NOT</em> support the
+     * {@code remove}, {@code set} or {@code add} methods.
+     *
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public ListIterator<E> listIterator(int index) {
+        return vector.listIterator(index);
+    }
+
+    /**
+     * Returns a {@link Spliterator} over the elements in this list,
+     * traversing a snapshot of the list taken when it is created.
+     *
+     * @return a {@code Spliterator} over the elements in this list
+     */
+    public Spliterator<E> spliterator() {
+        return vector.spliterator();
+    }
+
+    /**
+     * Returns an unmodifiable view of the portion of the current
+     * snapshot of this list between {@code fromIndex}, inclusive,
+     * and {@code toIndex}, exclusive.  Unlike the views returned by
+     * other lists, it does not reflect subsequent changes to this
+     * list.
+     *
+     * @param fromIndex low endpoint (inclusive) of the subList
+     * @param toIndex high endpoint (exclusive) of the subList
+     * @return a view of the specified range within the current snapshot
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public List<E> subList(int fromIndex, int toIndex) {
+        return vector.subList(fromIndex, toIndex);
+    }
+
+    public String toString() {
+        return vector.toString();
+    }
+
+    public boolean equals(Object o) {
+        return o == this || vector.equals(o);
+    }
+
+    public int hashCode() {
+        return vector.hashCode();
+    }
+
+    private static final sun.misc.Unsafe U;
+    private static final long VECTOR;
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = ConcurrentPersistentList.class;
+            VECTOR = U.objectFieldOffset
+                (k.getDeclaredField("vector"));
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -0,0 +1,468 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A {@link ConcurrentMap} in which all mutative operations replace,
+ * by a single atomic update of a reference, an immutable {@link
+ * PersistentHashMap} holding the mappings.  Reads never block and
+ * see a consistent state, and the iterators of the collection views
+ * traverse a snapshot of the map taken when they are created, never
+ * throwing {@link java.util.ConcurrentModificationException}.  An
+ * update copies only the path to the changed mapping, taking time
+ * logarithmic (to base 32) in the size of the map.  Updates are
+ * lock-free: a thread whose update is overtaken by another retries it
+ * on the new contents.  This suits maps that are read, and in
+ * particular iterated, much more often than they are modified; for
+ * maps with frequent concurrent updates, {@link ConcurrentHashMap}
+ * scales better.
+ *
+ * <p>The {@link #snapshot} method returns the current contents as a
+ * {@code PersistentHashMap}, so that several reads can be made
+ * consistently without copying.  The {@code remove} method of the
+ * view iterators removes the mapping for the current key from this
+ * map, whatever its value; {@code setValue} of their entries is not
+ * supported.  Like {@link ConcurrentHashMap}, this class does
+ * <em>not</em> allow {@code null} to be used as a key or value.
+ *
+ * <p>Memory consistency effects: As with other concurrent
+ * collections, actions in a thread prior to placing an object into a
+ * {@code ConcurrentPersistentMap} as a key or value
+ * <a href="package-summary.html#MemoryVisibility"><i>happen-before</i></a>
+ * actions subsequent to the access or removal of that object from
+ * the {@code ConcurrentPersistentMap} in another thread.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ * @since 1.8
+ */
+public class ConcurrentPersistentMap<K,V> extends AbstractMap<K,V>
+    implements ConcurrentMap<K,V>, java.io.Serializable {
+    private static final long serialVersionUID = 3271086485092283460L;
+
+    /** @serial the current contents */
+    private volatile PersistentHashMap<K,V> map;
+
+    /** Lazily initialized view */
+    private transient EntrySetView<K,V> entrySet;
+
+    /**
+     * Creates a new, empty map.
+     */
+    public ConcurrentPersistentMap() {
+        map = PersistentHashMap.empty();
+    }
+
+    /**
+     * Creates a new map with the same mappings as the given map.
+     *
+     * @param m the map
+     * @throws NullPointerException if the specified map is null or
+     *         contains a null key or value
+     */
+    public ConcurrentPersistentMap(Map<? extends K, ? extends V> m) {
+        map = PersistentHashMap.from(m);
+    }
+
+    private boolean casMap(PersistentHashMap<K,V> cmp,
+                           PersistentHashMap<K,V> val) {
+        return U.compareAndSwapObject(this, MAP, cmp, val);
+    }
+
+    /**
+     * Returns the current contents of this map, which will not change
+     * if the map is subsequently modified.
+     *
+     * @return the current contents of this map
+     */
+    public PersistentHashMap<K,V> snapshot() {
+        return map;
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public V get(Object key) {
+        return map.get(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean containsKey(Object key) {
+        return map.containsKey(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public V getOrDefault(Object key, V defaultValue) {
+        return map.getOrDefault(key, defaultValue);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V put(K key, V value) {
+        for (PersistentHashMap<K,V> m;;) {
+            V old = (m = map).get(key);
+            PersistentHashMap<K,V> p = m.plus(key, value);
+            if (p == m || casMap(m, p))
+                return old;
+        }
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this one,
+     * as a single atomic update.
+     *
+     * @param m mappings to be stored in this map
+     * @throws NullPointerException if the specified map is null or
+     *         contains a null key or value
+     */
+    public void putAll(Map<? extends K, ? extends V> m) {
+        PersistentHashMap<K,V> c;
+        do {} while (!casMap(c = map, c.plusAll(m)));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public V remove(Object key) {
+        for (PersistentHashMap<K,V> m;;) {
+            V old = (m = map).get(key);
+            if (old == null)
+                return null;
+            if (casMap(m, m.minus(key)))
+                return old;
+        }
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     */
+    public void clear() {
+        map = PersistentHashMap.empty();
+    }
+
+    // ConcurrentMap methods
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V putIfAbsent(K key, V value) {
+        for (PersistentHashMap<K,V> m;;) {
+            V old = (m = map).get(key);
+            if (old != null)
+                return old;
+            if (casMap(m, m.plus(key, value)))
+                return null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean remove(Object key, Object value) {
+        if (key == null)
+            throw new NullPointerException();
+        if (value == null)
+            return false;
+        for (PersistentHashMap<K,V> m;;) {
+            V old = (m = map).get(key);
+            if (old == null || (old != value && !value.equals(old)))
+                return false;
+            if (casMap(m, m.minus(key)))
+                return true;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if any of the arguments are null
+     */
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (key == null || oldValue == null || newValue == null)
+            throw new NullPointerException();
+        for (PersistentHashMap<K,V> m;;) {
+            V old = (m = map).get(key);
+            if (old == null || (old != oldValue && !oldValue.equals(old)))
+                return false;
+            if (casMap(m, m.plus(key, newValue)))
+                return true;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V replace(K key, V value) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        for (PersistentHashMap<K,V> m;;) {
+            V old = (m = map).get(key);
+            if (old == null)
+                return null;
+            if (casMap(m, m.plus(key, value)))
+                return old;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The function may be applied more than once if the update
+     * races with others, so should be free of side effects.
+     *
+     * @throws NullPointerException if the specified key or function
+     *         is null
+     */
+    public V compute(K key,
+                     BiFunction<? super K, ? super V, ? extends V>
+                     remappingFunction) {
+        if (key == null || remappingFunction == null)
+            throw new NullPointerException();
+        for (PersistentHashMap<K,V> m;;) {
+            V old = (m = map).get(key);
+            V val = remappingFunction.apply(key, old);
+            PersistentHashMap<K,V> p = (val == null) ? m.minus(key) :
+                m.plus(key, val);
+            if (p == m || casMap(m, p))
+                return val;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The function may be applied more than once if the update
+     * races with others, so should be free of side effects.
+     *
+     * @throws NullPointerException if the specified key or function
+     *         is null
+     */
+    public V computeIfAbsent(K key,
+                             Function<? super K, ? extends V>
+                             mappingFunction) {
+        if (key == null || mappingFunction == null)
+            throw new NullPointerException();
+        for (PersistentHashMap<K,V> m;;) {
+            V old = (m = map).get(key);
+            if (old != null)
+                return old;
+            V val = mappingFunction.apply(key);
+            if (val == null || casMap(m, m.plus(key, val)))
+                return val;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The function may be applied more than once if the update
+     * races with others, so should be free of side effects.
+     *
+     * @throws NullPointerException if the specified key or function
+     *         is null
+     */
+    public V computeIfPresent(K key,
+                              BiFunction<? super K, ? super V, ? extends V>
+                              remappingFunction) {
+        if (key == null || remappingFunction == null)
+            throw new NullPointerException();
+        for (PersistentHashMap<K,V> m;;) {
+            V old = (m = map).get(key);
+            if (old == null)
+                return null;
+            V val = remappingFunction.apply(key, old);
+            PersistentHashMap<K,V> p = (val == null) ? m.minus(key) :
+                m.plus(key, val);
+            if (p == m || casMap(m, p))
+                return val;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The function may be applied more than once if the update
+     * races with others, so should be free of side effects.
+     *
+     * @throws NullPointerException if the specified key, value or
+     *         function is null
+     */
+    public V merge(K key, V value,
+                   BiFunction<? super V, ? super V, ? extends V>
+                   remappingFunction) {
+        if (key == null || value == null || remappingFunction == null)
+            throw new NullPointerException();
+        for (PersistentHashMap<K,V> m;;) {
+            V old = (m = map).get(key);
+            V val = (old == null) ? value :
+                remappingFunction.apply(old, value);
+            PersistentHashMap<K,V> p = (val == null) ? m.minus(key) :
+                m.plus(key, val);
+            if (p == m || casMap(m, p))
+                return val;
+        }
+    }
+
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        if (action == null) throw new NullPointerException();
+        for (Map.Entry<K,V> e : map.entrySet())
+            action.accept(e.getKey(), e.getValue());
+    }
+
+    // Views
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map.
+     * The set is backed by the map, so changes to the map are
+     * reflected in the set, and vice-versa.  The set supports element
+     * removal, but not addition.  Its iterator traverses a snapshot
+     * of the map taken when the iterator is created.
+     *
+     * @return the set view
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        EntrySetView<K,V> es;
+        return (es = entrySet) != null ? es :
+            (entrySet = new EntrySetView<K,V>(this));
+    }
+
+    static final class EntrySetView<K,V> extends AbstractSet<Map.Entry<K,V>> {
+        final ConcurrentPersistentMap<K,V> m;
+        EntrySetView(ConcurrentPersistentMap<K,V> m) { this.m = m; }
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return new ViewIterator<K,V>(m);
+        }
+        public int size() {
+            return m.size();
+        }
+        public boolean contains(Object o) {
+            return m.map.entrySet().contains(o);
+        }
+        public boolean remove(Object o) {
+            Object k, v; Map.Entry<?,?> e;
+            return ((o instanceof Map.Entry) &&
+                    (k = (e = (Map.Entry<?,?>)o).getKey()) != null &&
+                    (v = e.getValue()) != null &&
+                    m.remove(k, v));
+        }
+        public void clear() {
+            m.clear();
+        }
+    }
+
+    /** Iterates over a snapshot, removing from the map itself. */
+    static final class ViewIterator<K,V> implements Iterator<Map.Entry<K,V>> {
+        final ConcurrentPersistentMap<K,V> m;
+        final Iterator<Map.Entry<K,V>> it;
+        K lastKey;
+        ViewIterator(ConcurrentPersistentMap<K,V> m) {
+            this.m = m;
+            this.it = m.map.entrySet().iterator();
+        }
+        public boolean hasNext() {
+            return it.hasNext();
+        }
+        public Map.Entry<K,V> next() {
+            Map.Entry<K,V> e = it.next();
+            lastKey = e.getKey();
+            return e;
+        }
+        public void remove() {
+            K k = lastKey;
+            if (k == null)
+                throw new IllegalStateException();
+            lastKey = null;
+            m.remove(k);
+        }
+    }
+
+    public String toString() {
+        return map.toString();
+    }
+
+    public boolean equals(Object o) {
+        return o == this || map.equals(o);
+    }
+
+    public int hashCode() {
+        return map.hashCode();
+    }
+
+    private static final sun.misc.Unsafe U;
+    private static final long MAP;
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = ConcurrentPersistentMap.class;
+            MAP = U.objectFieldOffset
+                (k.getDeclaredField("map"));
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * A {@link java.util.Set} in which all mutative operations replace,
+ * by a single atomic update of a reference, an immutable {@link
+ * PersistentHashSet} holding the elements.  Reads never block, and
+ * iterators traverse a snapshot of the set taken when they are
+ * created, never throwing {@link
+ * java.util.ConcurrentModificationException}.  An update copies only
+ * the path to the changed element, taking time logarithmic (to base
+ * 32) in the size of the set, rather than linear as in {@link
+ * CopyOnWriteArraySet}.  Updates are lock-free: a thread whose update
+ * is overtaken by another retries it on the new contents.
+ *
+ * <p>The {@link #snapshot} method returns the current contents as a
+ * {@code PersistentHashSet}.  The {@code remove} method of iterators
+ * removes the current element from this set.  Null elements are not
+ * permitted.
+ *
+ * <p>Memory consistency effects: As with other concurrent
+ * collections, actions in a thread prior to placing an object into a
+ * {@code ConcurrentPersistentSet}
+ * <a href="package-summary.html#MemoryVisibility"><i>happen-before</i></a>
+ * actions subsequent to the access or removal of that element from
+ * the {@code ConcurrentPersistentSet} in another thread.
+ *
+ * @param <E> the type of elements held in this collection
+ * @since 1.8
+ */
+public class ConcurrentPersistentSet<E> extends AbstractSet<E>
+    implements java.io.Serializable {
+    private static final long serialVersionUID = -8930412875903529261L;
+
+    /** @serial the current contents */
+    private volatile PersistentHashSet<E> set;
+
+    /**
+     * Creates an empty set.
+     */
+    public ConcurrentPersistentSet() {
+        set = PersistentHashSet.empty();
+    }
+
+    /**
+     * Creates a set containing all of the elements of the specified
+     * collection.
+     *
+     * @param c the collection of elements to initially contain
+     * @throws NullPointerException if the specified collection is null
+     *         or contains a null element
+     */
+    public ConcurrentPersistentSet(Collection<? extends E> c) {
+        set = PersistentHashSet.from(c);
+    }
+
+    private boolean casSet(PersistentHashSet<E> cmp, PersistentHashSet<E> val) {
+        return U.compareAndSwapObject(this, SET, cmp, val);
+    }
+
+    /**
+     * Returns the current contents of this set, which will not change
+     * if the set is subsequently modified.
+     *
+     * @return the current contents of this set
+     */
+    public PersistentHashSet<E> snapshot() {
+        return set;
+    }
+
+    public int size() {
+        return set.size();
+    }
+
+    public boolean isEmpty() {
+        return set.isEmpty();
+    }
+
+    /**
+     * Returns {@code true} if this set contains the specified element.
+     *
+     * @param o element whose presence in this set is to be tested
+     * @return {@code true} if this set contains the specified element
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean contains(Object o) {
+        return set.contains(o);
+    }
+
+    /**
+     * Adds the specified element to this set if it is not already present.
+     *
+     * @param e element to be added to this set
+     * @return {@code true} if this set did not already contain the specified
+     *         element
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean add(E e) {
+        for (PersistentHashSet<E> s;;) {
+            PersistentHashSet<E> p = (s = set).plus(e);
+            if (p == s)
+                return false;
+            if (casSet(s, p))
+                return true;
+        }
+    }
+
+    /**
+     * Removes the specified element from this set if it is present.
+     *
+     * @param o object to be removed from this set, if present
+     * @return {@code true} if this set contained the specified element
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean remove(Object o) {
+        for (PersistentHashSet<E> s;;) {
+            PersistentHashSet<E> p = (s = set).minus(o);
+            if (p == s)
+                return false;
+            if (casSet(s, p))
+                return true;
+        }
+    }
+
+    /**
+     * Adds all of the elements in the specified collection to this set,
+     * as a single atomic update.
+     *
+     * @param c collection containing elements to be added to this set
+     * @return {@code true} if this set changed as a result of the call
+     * @throws NullPointerException if the specified collection is null
+     *         or contains a null element
+     */
+    public boolean addAll(Collection<? extends E> c) {
+        for (PersistentHashSet<E> s;;) {
+            PersistentHashSet<E> p = (s = set).plusAll(c);
+            if (p == s)
+                return false;
+            if (casSet(s, p))
+                return true;
+        }
+    }
+
+    /**
+     * Removes from this set all of its elements that are contained in
+     * the specified collection, as a single atomic update.
+     *
+     * @param c collection containing elements to be removed from this set
+     * @return {@code true} if this set changed as a result of the call
+     * @throws NullPointerException if the specified collection is null
+     */
+    public boolean removeAll(Collection<?> c) {
+        if (c == null) throw new NullPointerException();
+        return bulkRemove(e -> c.contains(e));
+    }
+
+    /**
+     * Retains only the elements in this set that are contained in the
+     * specified collection, as a single atomic update.
+     *
+     * @param c collection containing elements to be retained in this set
+     * @return {@code true} if this set changed as a result of the call
+     * @throws NullPointerException if the specified collection is null
+     */
+    public boolean retainAll(Collection<?> c) {
+        if (c == null) throw new NullPointerException();
+        return bulkRemove(e -> !c.contains(e));
+    }
+
+    public boolean removeIf(Predicate<? super E> filter) {
+        if (filter == null) throw new NullPointerException();
+        return bulkRemove(filter);
+    }
+
+    private boolean bulkRemove(Predicate<? super E> filter) {
+        for (PersistentHashSet<E> s;;) {
+            PersistentHashSet<E> p = s = set;
+            for (E e : s)
+                if (filter.test(e))
+                    p = p.minus(e);
+            if (p == s)
+                return false;
+            if (casSet(s, p))
+                return true;
+        }
+    }
+
+    /**
+     * Removes all of the elements from this set.
+     * The set will be empty after this call returns.
+     */
+    public void clear() {
+        set = PersistentHashSet.empty();
+    }
+
+    public void forEach(Consumer<? super E> action) {
+        set.forEach(action);
+    }
+
+    /**
+     * Returns an iterator over the elements in this set.
+     *
+     * <p>The returned iterator provides a snapshot of the state of the set
+     * when the iterator was constructed. No synchronization is needed while
+     * traversing the iterator. Its {@code remove} method removes the
+     * last returned element from this set.
+     *
+     * @return an iterator over the elements in this set
+     */
+    public Iterator<E> iterator() {
+        return new Itr<E>(this);
+    }
+
+    public Spliterator<E> spliterator() {
+        return Spliterators.spliterator
+            (set, Spliterator.IMMUTABLE | Spliterator.DISTINCT |
+             Spliterator.NONNULL);
+    }
+
+    /** Iterates over a snapshot, removing from the set itself. */
+    static final class Itr<E> implements Iterator<E> {
+        final ConcurrentPersistentSet<E> s;
+        final Iterator<E> it;
+        E lastRet;
+        Itr(ConcurrentPersistentSet<E> s) {
+            this.s = s;
+            this.it = s.set.iterator();
+        }
+        public boolean hasNext() {
+            return it.hasNext();
+        }
+        public E next() {
+            return lastRet = it.next();
+        }
+        public void remove() {
+            E e = lastRet;
+            if (e == null)
+                throw new IllegalStateException();
+            lastRet = null;
+            s.remove(e);
+        }
+    }
+
+    public boolean equals(Object o) {
+        return o == this || set.equals(o);
+    }
+
+    public int hashCode() {
+        return set.hashCode();
+    }
+
+    private static final sun.misc.Unsafe U;
+    private static final long SET;
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = ConcurrentPersistentSet.class;
+            SET = U.objectFieldOffset
+                (k.getDeclaredField("set"));
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -143,6 +143,9 @@ import java.security.Permissions;
  * - the class name of a {@link ForkJoinWorkerThreadFactory}
  * <li>{@code java.util.concurrent.ForkJoinPool.common.exceptionHandler}
  * - the class name of a {@link UncaughtExceptionHandler}
+ * <li>{@code java.util.concurrent.ForkJoinPool.common.statistics}
+ * - {@code true} to {@linkplain #enableStatistics enable statistics}
+ * from the start
  * </ul>
  * If a {@link SecurityManager} is present and no factory is
  * specified, then the default pool uses a factory supplying
@@ -812,6 +815,7 @@ public class ForkJoinPool extends AbstractExecutorService {
         volatile Thread parker;    // == owner during call to park; else null
         volatile ForkJoinTask<?> currentJoin;  // task being joined in awaitJoin
         volatile ForkJoinTask<?> currentSteal; // mainly used by helpStealer
+        ForkJoinPoolStats.Worker stats; // owner's statistics, if enabled
 
         WorkQueue(ForkJoinPool pool, ForkJoinWorkerThread owner) {
             this.pool = pool;
@@ -1053,7 +1057,12 @@ public class ForkJoinPool extends AbstractExecutorService {
         final void runTask(ForkJoinTask<?> task) {
             if (task != null) {
                 scanState &= ~SCANNING; // mark as busy
+                ForkJoinPool p = pool;
+                ForkJoinPoolStats st = (p == null) ? null : p.stats;
+                long sampled = (st == null) ? 0L : st.sampleStart(this);
                 (currentSteal = task).doExec();
+                if (sampled != 0L)
+                    st.sampleEnd(this, task, sampled);
                 U.putOrderedObject(this, QCURRENTSTEAL, null); // release for GC
                 execLocalTasks();
                 ForkJoinWorkerThread thread = owner;
@@ -1396,6 +1405,7 @@ public class ForkJoinPool extends AbstractExecutorService {
     final UncaughtExceptionHandler ueh;  // per-worker UEH
     final String workerNamePrefix;       // to create worker name string
     volatile AtomicLong stealCounter;    // also used as sync monitor
+    ForkJoinPoolStats stats;             // null unless enabled; set by CAS
 
     /**
      * Acquires the runState lock; returns current (locked) runState.
@@ -1591,8 +1601,11 @@ public class ForkJoinPool extends AbstractExecutorService {
                                            (TC_MASK & (c - TC_UNIT)) |
                                            (SP_MASK & c))));
         if (w != null) {
+            ForkJoinPoolStats st;
             w.qlock = -1;                             // ensure set
             w.transferStealCount(this);
+            if ((st = stats) != null)
+                st.retire(w);
             w.cancelAll();                            // cancel remaining tasks
         }
         for (;;) {                                    // possibly replace
@@ -1727,12 +1740,17 @@ public class ForkJoinPool extends AbstractExecutorService {
                                   U.getObjectVolatile(a, i))) != null &&
                             q.base == b) {
                             if (ss >= 0) {
+                                ForkJoinPoolStats st;
                                 if (U.compareAndSwapObject(a, i, t, null)) {
                                     q.base = b + 1;
                                     if (n < -1)       // signal others
                                         signalWork(ws, q);
+                                    if ((st = stats) != null)
+                                        st.stole(w, -n);
                                     return t;
                                 }
+                                if ((st = stats) != null)
+                                    st.missedSteal(w);
                             }
                             else if (oldSum == 0 &&   // try to activate
                                      w.scanState < 0)
@@ -1785,6 +1803,9 @@ public class ForkJoinPool extends AbstractExecutorService {
     private boolean awaitWork(WorkQueue w, int r) {
         if (w == null || w.qlock < 0)                 // w is terminating
             return false;
+        ForkJoinPoolStats st;
+        if ((st = stats) != null)                     // after an empty scan
+            st.scannedEmpty(w);
         for (int pred = w.stackPred, spins = SPINS, ss;;) {
             if ((ss = w.scanState) >= 0)
                 break;
@@ -1820,8 +1841,12 @@ public class ForkJoinPool extends AbstractExecutorService {
                 Thread wt = Thread.currentThread();
                 U.putObject(wt, PARKBLOCKER, this);   // emulate LockSupport
                 w.parker = wt;
-                if (w.scanState < 0 && ctl == c)      // recheck before park
+                if (w.scanState < 0 && ctl == c) {    // recheck before park
+                    long parkStart = (st == null) ? 0L : System.nanoTime();
                     U.park(false, parkTime);
+                    if (st != null)
+                        st.parked(w, System.nanoTime() - parkStart);
+                }
                 U.putOrderedObject(w, QPARKER, null);
                 U.putObject(wt, PARKBLOCKER, null);
                 if (w.scanState >= 0)
@@ -1979,14 +2004,17 @@ public class ForkJoinPool extends AbstractExecutorService {
      * @param w caller
      */
     private boolean tryCompensate(WorkQueue w) {
-        boolean canBlock;
+        boolean canBlock; ForkJoinPoolStats st;
         WorkQueue[] ws; long c; int m, pc, sp;
         if (w == null || w.qlock < 0 ||           // caller terminating
             (ws = workQueues) == null || (m = ws.length - 1) <= 0 ||
             (pc = config & SMASK) == 0)           // parallelism disabled
             canBlock = false;
-        else if ((sp = (int)(c = ctl)) != 0)      // release idle worker
-            canBlock = tryRelease(c, ws[sp & m], 0L);
+        else if ((sp = (int)(c = ctl)) != 0) {    // release idle worker
+            if ((canBlock = tryRelease(c, ws[sp & m], 0L)) &&
+                (st = stats) != null)
+                st.reactivated();
+        }
         else {
             int ac = (int)(c >> AC_SHIFT) + pc;
             int tc = (short)(c >> TC_SHIFT) + pc;
@@ -2004,7 +2032,9 @@ public class ForkJoinPool extends AbstractExecutorService {
             else if (tc >= pc && ac > 1 && w.isEmpty()) {
                 long nc = ((AC_MASK & (c - AC_UNIT)) |
                            (~AC_MASK & c));       // uncompensated
-                canBlock = U.compareAndSwapLong(this, CTL, c, nc);
+                if ((canBlock = U.compareAndSwapLong(this, CTL, c, nc)) &&
+                    (st = stats) != null)
+                    st.blockedUncompensated();
             }
             else if (tc >= MAX_CAP ||
                      (this == common && tc >= pc + commonMaxSpares))
@@ -2017,7 +2047,9 @@ public class ForkJoinPool extends AbstractExecutorService {
                 if (((rs = lockRunState()) & STOP) == 0)
                     add = U.compareAndSwapLong(this, CTL, c, nc);
                 unlockRunState(rs, rs & ~RSLOCK);
-                canBlock = add && createWorker(); // throws on exception
+                if ((canBlock = add && createWorker()) && // throws on exception
+                    (st = stats) != null)
+                    st.spareCreated();
             }
         }
         return canBlock;
@@ -2973,6 +3005,33 @@ public class ForkJoinPool extends AbstractExecutorService {
         return count;
     }
 
+    /**
+     * Enables the recording of statistics for this pool, and returns
+     * the {@link ForkJoinPoolMXBean} through which they are reported.
+     * Statistics are disabled by default, and cost the pool a field
+     * read where they would be recorded.  Once enabled, each worker
+     * counts its steals, empty scans and parks in fields of its own,
+     * reading the clock only around parks and managed blocks, and the
+     * pool counts the compensation of blocked workers.  A trace of the
+     * durations of sampled tasks may additionally be enabled through
+     * the returned object.  Invoking this method again returns the
+     * same object.  Statistics of the {@linkplain #commonPool common
+     * pool} may also be enabled from its creation by a system property
+     * (see the class description).
+     *
+     * @return the statistics of this pool
+     * @since 1.8
+     */
+    public ForkJoinPoolMXBean enableStatistics() {
+        ForkJoinPoolStats st;
+        while ((st = stats) == null) {
+            st = new ForkJoinPoolStats(this);
+            if (U.compareAndSwapObject(this, STATS, null, st))
+                break;
+        }
+        return st;
+    }
+
     /**
      * Returns a string identifying this pool, as well as its state,
      * including indications of run state, parallelism level, and
@@ -3308,11 +3367,15 @@ public class ForkJoinPool extends AbstractExecutorService {
             WorkQueue w = wt.workQueue;
             while (!blocker.isReleasable()) {
                 if (p.tryCompensate(w)) {
+                    ForkJoinPoolStats st = p.stats;
+                    long blockStart = (st == null) ? 0L : System.nanoTime();
                     try {
                         do {} while (!blocker.isReleasable() &&
                                      !blocker.block());
                     } finally {
                         U.getAndAddLong(p, CTL, AC_UNIT);
+                        if (st != null)
+                            st.managedBlocked(System.nanoTime() - blockStart);
                     }
                     break;
                 }
@@ -3343,6 +3406,7 @@ public class ForkJoinPool extends AbstractExecutorService {
     private static final long CTL;
     private static final long RUNSTATE;
     private static final long STEALCOUNTER;
+    private static final long STATS;
     private static final long PARKBLOCKER;
     private static final long QTOP;
     private static final long QLOCK;
@@ -3362,6 +3426,8 @@ public class ForkJoinPool extends AbstractExecutorService {
                 (k.getDeclaredField("runState"));
             STEALCOUNTER = U.objectFieldOffset
                 (k.getDeclaredField("stealCounter"));
+            STATS = U.objectFieldOffset
+                (k.getDeclaredField("stats"));
             Class<?> tk = Thread.class;
             PARKBLOCKER = U.objectFieldOffset
                 (tk.getDeclaredField("parkBlocker"));
@@ -3408,6 +3474,7 @@ public class ForkJoinPool extends AbstractExecutorService {
         int parallelism = -1;
         ForkJoinWorkerThreadFactory factory = null;
         UncaughtExceptionHandler handler = null;
+        boolean statistics = false;
         try {  // ignore exceptions in accessing/parsing properties
             String pp = System.getProperty
                 ("java.util.concurrent.ForkJoinPool.common.parallelism");
@@ -3423,6 +3490,8 @@ public class ForkJoinPool extends AbstractExecutorService {
             if (hp != null)
                 handler = ((UncaughtExceptionHandler)ClassLoader.
                            getSystemClassLoader().loadClass(hp).newInstance());
+            statistics = Boolean.parseBoolean(System.getProperty
+                ("java.util.concurrent.ForkJoinPool.common.statistics"));
         } catch (Exception ignore) {
         }
         if (factory == null) {
@@ -3436,8 +3505,12 @@ public class ForkJoinPool extends AbstractExecutorService {
             parallelism = 1;
         if (parallelism > MAX_CAP)
             parallelism = MAX_CAP;
-        return new ForkJoinPool(parallelism, factory, handler, LIFO_QUEUE,
-                                "ForkJoinPool.commonPool-worker-");
+        ForkJoinPool pool =
+            new ForkJoinPool(parallelism, factory, handler, LIFO_QUEUE,
+                             "ForkJoinPool.commonPool-worker-");
+        if (statistics)
+            pool.enableStatistics();
+        return pool;
     }
 
     /**
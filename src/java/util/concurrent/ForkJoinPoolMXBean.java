@@ -0,0 +1,377 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.List;
+
+/**
+ * The management interface for the statistics of a {@link
+ * ForkJoinPool}, obtained from {@link ForkJoinPool#enableStatistics}.
+ * It reports how workers find and wait for work: the steals they
+ * attempt, how deep the queues they steal from are, how long they park
+ * when none is found, and how often blocked joins and {@linkplain
+ * ForkJoinPool#managedBlock managed blocks} are compensated for by
+ * waking idle workers or creating spare ones.  It can also keep a
+ * trace of the durations of a sample of the tasks run.
+ *
+ * <p>An instance of this interface is an MXBean and can be registered
+ * with a platform {@link javax.management.MBeanServer MBeanServer}
+ * under a name of the application's choosing:
+ *
+ * <pre> {@code
+ * ForkJoinPoolMXBean stats = ForkJoinPool.commonPool().enableStatistics();
+ * ManagementFactory.getPlatformMBeanServer().registerMBean(
+ *     stats, new ObjectName("com.example:type=ForkJoinPool,name=common"));}</pre>
+ *
+ * <p>Counts are cumulative since statistics were enabled or last
+ * {@linkplain #reset reset}.  Each worker keeps its own counts without
+ * synchronization, and those of workers that have terminated are
+ * added to the totals, so values may not reflect recent activity of
+ * running workers.  Times are in nanoseconds.
+ *
+ * @see ForkJoinPool#enableStatistics
+ * @since 1.8
+ */
+public interface ForkJoinPoolMXBean {
+
+    /**
+     * The counts of one worker, as reported by {@link
+     * #getWorkerStatistics}.
+     */
+    final class WorkerStatistics {
+        private final int workerIndex;
+        private final long stealCount;
+        private final long stealAttemptCount;
+        private final long emptyScanCount;
+        private final long parkCount;
+        private final long totalParkTime;
+
+        WorkerStatistics(int workerIndex, long stealCount,
+                         long stealAttemptCount, long emptyScanCount,
+                         long parkCount, long totalParkTime) {
+            this.workerIndex = workerIndex;
+            this.stealCount = stealCount;
+            this.stealAttemptCount = stealAttemptCount;
+            this.emptyScanCount = emptyScanCount;
+            this.parkCount = parkCount;
+            this.totalParkTime = totalParkTime;
+        }
+
+        /**
+         * Returns the pool index of the worker.
+         *
+         * @return the worker index
+         * @see ForkJoinWorkerThread#getPoolIndex
+         */
+        public int getWorkerIndex() { return workerIndex; }
+
+        /**
+         * Returns the number of tasks the worker stole.
+         *
+         * @return the number of steals
+         */
+        public long getStealCount() { return stealCount; }
+
+        /**
+         * Returns the number of times the worker tried to take a task
+         * from a queue, whether or not it succeeded.
+         *
+         * @return the number of steal attempts
+         */
+        public long getStealAttemptCount() { return stealAttemptCount; }
+
+        /**
+         * Returns the number of times the worker scanned all queues and
+         * found no task.
+         *
+         * @return the number of empty scans
+         */
+        public long getEmptyScanCount() { return emptyScanCount; }
+
+        /**
+         * Returns the number of times the worker parked awaiting work.
+         *
+         * @return the number of parks
+         */
+        public long getParkCount() { return parkCount; }
+
+        /**
+         * Returns the total time the worker spent parked awaiting work.
+         *
+         * @return the total park time in nanoseconds
+         */
+        public long getTotalParkTime() { return totalParkTime; }
+    }
+
+    /**
+     * A sampled task execution, as reported by {@link #getTaskTrace}.
+     */
+    final class TaskSample {
+        private final String taskClassName;
+        private final int workerIndex;
+        private final long completionTime;
+        private final long duration;
+
+        TaskSample(String taskClassName, int workerIndex,
+                   long completionTime, long duration) {
+            this.taskClassName = taskClassName;
+            this.workerIndex = workerIndex;
+            this.completionTime = completionTime;
+            this.duration = duration;
+        }
+
+        /**
+         * Returns the name of the class of the task.
+         *
+         * @return the task class name
+         */
+        public String getTaskClassName() { return taskClassName; }
+
+        /**
+         * Returns the pool index of the worker that ran the task.
+         *
+         * @return the worker index
+         */
+        public int getWorkerIndex() { return workerIndex; }
+
+        /**
+         * Returns the time at which the task completed.
+         *
+         * @return the completion time, in milliseconds since the epoch
+         */
+        public long getCompletionTime() { return completionTime; }
+
+        /**
+         * Returns the time the task took to run, including the time
+         * spent joining its subtasks.
+         *
+         * @return the duration in nanoseconds
+         */
+        public long getDuration() { return duration; }
+
+        public String toString() {
+            return taskClassName + "[worker=" + workerIndex +
+                ", duration=" + duration + "]";
+        }
+    }
+
+    /**
+     * Returns the targeted parallelism level of the pool.
+     *
+     * @return the targeted parallelism level
+     * @see ForkJoinPool#getParallelism
+     */
+    int getParallelism();
+
+    /**
+     * Returns the number of worker threads that have started but not
+     * yet terminated.
+     *
+     * @return the number of worker threads
+     * @see ForkJoinPool#getPoolSize
+     */
+    int getPoolSize();
+
+    /**
+     * Returns an estimate of the number of threads that are currently
+     * stealing or executing tasks.
+     *
+     * @return the number of active threads
+     * @see ForkJoinPool#getActiveThreadCount
+     */
+    int getActiveThreadCount();
+
+    /**
+     * Returns an estimate of the number of worker threads that are not
+     * blocked waiting to join tasks or for other managed
+     * synchronization.
+     *
+     * @return the number of worker threads
+     * @see ForkJoinPool#getRunningThreadCount
+     */
+    int getRunningThreadCount();
+
+    /**
+     * Returns an estimate of the number of tasks held in the queues of
+     * worker threads.
+     *
+     * @return the number of queued tasks
+     * @see ForkJoinPool#getQueuedTaskCount
+     */
+    long getQueuedTaskCount();
+
+    /**
+     * Returns an estimate of the number of tasks submitted to the pool
+     * that have not yet begun executing.
+     *
+     * @return the number of queued submissions
+     * @see ForkJoinPool#getQueuedSubmissionCount
+     */
+    int getQueuedSubmissionCount();
+
+    /**
+     * Returns an estimate of the total number of tasks stolen since
+     * the pool was created.
+     *
+     * @return the number of steals
+     * @see ForkJoinPool#getStealCount
+     */
+    long getStealCount();
+
+    /**
+     * Returns the number of times workers tried to take a task from a
+     * queue while scanning for work.
+     *
+     * @return the number of steal attempts
+     */
+    long getStealAttemptCount();
+
+    /**
+     * Returns the number of steal attempts that failed because another
+     * thread took the task first.
+     *
+     * @return the number of contended steals
+     */
+    long getContendedStealCount();
+
+    /**
+     * Returns the number of times a worker scanned all queues and
+     * found no task.
+     *
+     * @return the number of empty scans
+     */
+    long getEmptyScanCount();
+
+    /**
+     * Returns the number of times workers parked awaiting work.
+     *
+     * @return the number of parks
+     */
+    long getParkCount();
+
+    /**
+     * Returns the total time workers spent parked awaiting work.
+     *
+     * @return the total park time in nanoseconds
+     */
+    long getTotalParkTime();
+
+    /**
+     * Returns the distribution of the number of tasks in the queues
+     * that tasks were stolen from, counting the stolen task.  Element
+     * {@code k} is the number of steals from queues holding between
+     * 2<sup>k</sup> and 2<sup>k+1</sup>-1 tasks.
+     *
+     * @return the queue depth histogram
+     */
+    long[] getStealQueueDepthHistogram();
+
+    /**
+     * Returns the number of times a worker about to block in a join
+     * or managed block woke an idle worker to take its place.
+     *
+     * @return the number of reactivations
+     */
+    long getReactivationCount();
+
+    /**
+     * Returns the number of spare worker threads created to take the
+     * place of workers blocked in joins or managed blocks.
+     *
+     * @return the number of spare threads created
+     */
+    long getSpareThreadCount();
+
+    /**
+     * Returns the number of times a worker blocked in a join or managed
+     * block without being replaced, because enough other workers were
+     * active.
+     *
+     * @return the number of uncompensated blocks
+     */
+    long getUncompensatedBlockCount();
+
+    /**
+     * Returns the number of managed blocks by workers of the pool.
+     *
+     * @return the number of managed blocks
+     * @see ForkJoinPool#managedBlock
+     */
+    long getManagedBlockCount();
+
+    /**
+     * Returns the total time workers spent in managed blocks.
+     *
+     * @return the total managed block time in nanoseconds
+     */
+    long getTotalManagedBlockTime();
+
+    /**
+     * Returns the counts of each worker currently in the pool.
+     *
+     * @return the statistics of each worker
+     */
+    List<WorkerStatistics> getWorkerStatistics();
+
+    /**
+     * Starts keeping a trace of the durations of one in every {@code
+     * sampleInterval} tasks that each worker takes from a queue, in a
+     * ring holding the most recent {@code capacity} samples.  Any
+     * existing trace is discarded.  Sampling reads the clock twice per
+     * sampled task.
+     *
+     * @param sampleInterval the number of tasks per sample
+     * @param capacity the number of samples to keep
+     * @throws IllegalArgumentException if either argument is not
+     *         positive
+     */
+    void enableTaskTrace(int sampleInterval, int capacity);
+
+    /**
+     * Stops keeping a trace of task durations and discards the trace.
+     */
+    void disableTaskTrace();
+
+    /**
+     * Returns whether a trace of task durations is being kept.
+     *
+     * @return {@code true} if the task trace is enabled
+     */
+    boolean isTaskTraceEnabled();
+
+    /**
+     * Returns the samples in the task trace, oldest first.
+     *
+     * @return the task samples, empty if the trace is disabled
+     */
+    List<TaskSample> getTaskTrace();
+
+    /**
+     * Resets all counts, times and histograms to zero, and clears the
+     * task trace.
+     */
+    void reset();
+}
@@ -0,0 +1,424 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The statistics recorded by a ForkJoinPool once enabled.  The pool
+ * reads its (non-volatile) reference to this object only where it
+ * records an event, and calls the recording methods only when it is
+ * non-null.  All fields are final or volatile, so the object is
+ * safely published even through a racy read of that reference.
+ *
+ * Per-worker counts are kept in a Worker object referenced from the
+ * worker's WorkQueue and updated only by its owner, without atomics.
+ * They are summed by readers, and added to the totals kept here when
+ * the worker terminates.  A reset cannot clear them from another
+ * thread, so instead advances an epoch, upon seeing which each worker
+ * clears its own counts, and readers ignore those of workers that have
+ * not yet done so.
+ */
+final class ForkJoinPoolStats implements ForkJoinPoolMXBean {
+
+    /** The number of buckets of the queue depth histogram. */
+    static final int DEPTH_BUCKETS = 27; // MAXIMUM_QUEUE_CAPACITY is 2^26
+
+    /**
+     * The counts of one worker, written only by the worker.
+     */
+    static final class Worker {
+        int epoch;
+        long steals;
+        long stealAttempts;
+        long emptyScans;
+        long parks;
+        long parkTime;
+        final long[] depths = new long[DEPTH_BUCKETS];
+        int sampleCountdown;
+
+        Worker(int epoch) {
+            this.epoch = epoch;
+        }
+
+        void clear(int epoch) {
+            steals = stealAttempts = emptyScans = parks = parkTime = 0L;
+            for (int i = 0; i < DEPTH_BUCKETS; ++i)
+                depths[i] = 0L;
+            this.epoch = epoch;
+        }
+    }
+
+    /**
+     * A ring of the most recent task samples.
+     */
+    static final class TaskTrace {
+        final int sampleInterval;
+        final AtomicReferenceArray<TaskSample> samples;
+        final AtomicLong cursor = new AtomicLong();
+
+        TaskTrace(int sampleInterval, int capacity) {
+            this.sampleInterval = sampleInterval;
+            this.samples = new AtomicReferenceArray<TaskSample>(capacity);
+        }
+    }
+
+    private final ForkJoinPool pool;
+
+    /** Advanced by reset; workers with an older epoch clear their counts. */
+    private volatile int epoch;
+
+    /** The trace of sampled tasks, or null if disabled. */
+    private volatile TaskTrace trace;
+
+    // Totals of terminated workers
+    private final LongAdder retiredSteals = new LongAdder();
+    private final LongAdder retiredStealAttempts = new LongAdder();
+    private final LongAdder retiredEmptyScans = new LongAdder();
+    private final LongAdder retiredParks = new LongAdder();
+    private final LongAdder retiredParkTime = new LongAdder();
+    private final AtomicLongArray retiredDepths =
+        new AtomicLongArray(DEPTH_BUCKETS);
+
+    // Pool-wide counts
+    private final LongAdder reactivations = new LongAdder();
+    private final LongAdder spares = new LongAdder();
+    private final LongAdder uncompensatedBlocks = new LongAdder();
+    private final LongAdder managedBlocks = new LongAdder();
+    private final LongAdder managedBlockTime = new LongAdder();
+
+    ForkJoinPoolStats(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Returns the counts of the given worker queue, creating them or
+     * clearing them after a reset.  Called only by the queue's owner.
+     */
+    private Worker workerOf(ForkJoinPool.WorkQueue w) {
+        int e = epoch;
+        Worker s = w.stats;
+        if (s == null)
+            w.stats = s = new Worker(e);
+        else if (s.epoch != e)
+            s.clear(e);
+        return s;
+    }
+
+    // Recording, called by ForkJoinPool
+
+    /** Called by a worker that stole a task from a queue of the given depth. */
+    void stole(ForkJoinPool.WorkQueue w, int depth) {
+        Worker s = workerOf(w);
+        ++s.steals;
+        ++s.stealAttempts;
+        ++s.depths[31 - Integer.numberOfLeadingZeros(depth)];
+    }
+
+    /** Called by a worker that lost a race to steal a task. */
+    void missedSteal(ForkJoinPool.WorkQueue w) {
+        ++workerOf(w).stealAttempts;
+    }
+
+    void scannedEmpty(ForkJoinPool.WorkQueue w) {
+        ++workerOf(w).emptyScans;
+    }
+
+    void parked(ForkJoinPool.WorkQueue w, long time) {
+        Worker s = workerOf(w);
+        ++s.parks;
+        s.parkTime += time;
+    }
+
+    void reactivated() {
+        reactivations.increment();
+    }
+
+    void spareCreated() {
+        spares.increment();
+    }
+
+    void blockedUncompensated() {
+        uncompensatedBlocks.increment();
+    }
+
+    void managedBlocked(long time) {
+        managedBlocks.increment();
+        managedBlockTime.add(time);
+    }
+
+    /**
+     * Returns the time at which the task about to be run by the given
+     * worker starts, if it is to be sampled, else zero.
+     */
+    long sampleStart(ForkJoinPool.WorkQueue w) {
+        TaskTrace tr = trace;
+        if (tr == null)
+            return 0L;
+        Worker s = workerOf(w);
+        if (--s.sampleCountdown > 0)
+            return 0L;
+        s.sampleCountdown = tr.sampleInterval;
+        long now = System.nanoTime();
+        return (now == 0L) ? 1L : now;
+    }
+
+    /** Records a sampled task that started at the given time. */
+    void sampleEnd(ForkJoinPool.WorkQueue w, ForkJoinTask<?> task,
+                   long startTime) {
+        long duration = System.nanoTime() - startTime;
+        TaskTrace tr = trace;
+        if (tr != null) {
+            TaskSample sample =
+                new TaskSample(task.getClass().getName(), w.getPoolIndex(),
+                               System.currentTimeMillis(), duration);
+            int n = tr.samples.length();
+            tr.samples.lazySet((int)(tr.cursor.getAndIncrement() % n),
+                               sample);
+        }
+    }
+
+    /** Adds the counts of a terminating worker to the totals. */
+    void retire(ForkJoinPool.WorkQueue w) {
+        Worker s = w.stats;
+        if (s != null && s.epoch == epoch) {
+            retiredSteals.add(s.steals);
+            retiredStealAttempts.add(s.stealAttempts);
+            retiredEmptyScans.add(s.emptyScans);
+            retiredParks.add(s.parks);
+            retiredParkTime.add(s.parkTime);
+            for (int i = 0; i < DEPTH_BUCKETS; ++i) {
+                long d = s.depths[i];
+                if (d != 0L)
+                    retiredDepths.getAndAdd(i, d);
+            }
+        }
+    }
+
+    /**
+     * Returns the counts of live workers that are current, that is,
+     * not awaiting clearing after a reset.
+     */
+    private List<Worker> liveWorkers() {
+        ArrayList<Worker> list = new ArrayList<Worker>();
+        ForkJoinPool.WorkQueue[] ws = pool.workQueues;
+        int e = epoch;
+        if (ws != null) {
+            for (int i = 1; i < ws.length; i += 2) {
+                ForkJoinPool.WorkQueue w; Worker s;
+                if ((w = ws[i]) != null && (s = w.stats) != null &&
+                    s.epoch == e)
+                    list.add(s);
+            }
+        }
+        return list;
+    }
+
+    // ForkJoinPoolMXBean
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    public int getPoolSize() {
+        return pool.getPoolSize();
+    }
+
+    public int getActiveThreadCount() {
+        return pool.getActiveThreadCount();
+    }
+
+    public int getRunningThreadCount() {
+        return pool.getRunningThreadCount();
+    }
+
+    public long getQueuedTaskCount() {
+        return pool.getQueuedTaskCount();
+    }
+
+    public int getQueuedSubmissionCount() {
+        return pool.getQueuedSubmissionCount();
+    }
+
+    public long getStealCount() {
+        return pool.getStealCount();
+    }
+
+    public long getStealAttemptCount() {
+        long n = retiredStealAttempts.sum();
+        for (Worker s : liveWorkers())
+            n += s.stealAttempts;
+        return n;
+    }
+
+    public long getContendedStealCount() {
+        long n = retiredStealAttempts.sum() - retiredSteals.sum();
+        for (Worker s : liveWorkers())
+            n += s.stealAttempts - s.steals;
+        return n;
+    }
+
+    public long getEmptyScanCount() {
+        long n = retiredEmptyScans.sum();
+        for (Worker s : liveWorkers())
+            n += s.emptyScans;
+        return n;
+    }
+
+    public long getParkCount() {
+        long n = retiredParks.sum();
+        for (Worker s : liveWorkers())
+            n += s.parks;
+        return n;
+    }
+
+    public long getTotalParkTime() {
+        long n = retiredParkTime.sum();
+        for (Worker s : liveWorkers())
+            n += s.parkTime;
+        return n;
+    }
+
+    public long[] getStealQueueDepthHistogram() {
+        long[] h = new long[DEPTH_BUCKETS];
+        for (int i = 0; i < DEPTH_BUCKETS; ++i)
+            h[i] = retiredDepths.get(i);
+        for (Worker s : liveWorkers()) {
+            for (int i = 0; i < DEPTH_BUCKETS; ++i)
+                h[i] += s.depths[i];
+        }
+        return h;
+    }
+
+    public long getReactivationCount() {
+        return reactivations.sum();
+    }
+
+    public long getSpareThreadCount() {
+        return spares.sum();
+    }
+
+    public long getUncompensatedBlockCount() {
+        return uncompensatedBlocks.sum();
+    }
+
+    public long getManagedBlockCount() {
+        return managedBlocks.sum();
+    }
+
+    public long getTotalManagedBlockTime() {
+        return managedBlockTime.sum();
+    }
+
+    public List<WorkerStatistics> getWorkerStatistics() {
+        ArrayList<WorkerStatistics> list = new ArrayList<WorkerStatistics>();
+        ForkJoinPool.WorkQueue[] ws = pool.workQueues;
+        int e = epoch;
+        if (ws != null) {
+            for (int i = 1; i < ws.length; i += 2) {
+                ForkJoinPool.WorkQueue w; Worker s;
+                if ((w = ws[i]) != null) {
+                    if ((s = w.stats) == null || s.epoch != e)
+                        list.add(new WorkerStatistics(w.getPoolIndex(),
+                                                      0L, 0L, 0L, 0L, 0L));
+                    else
+                        list.add(new WorkerStatistics(w.getPoolIndex(),
+                                                      s.steals,
+                                                      s.stealAttempts,
+                                                      s.emptyScans,
+                                                      s.parks,
+                                                      s.parkTime));
+                }
+            }
+        }
+        return list;
+    }
+
+    public void enableTaskTrace(int sampleInterval, int capacity) {
+        if (sampleInterval <= 0 || capacity <= 0)
+            throw new IllegalArgumentException();
+        trace = new TaskTrace(sampleInterval, capacity);
+    }
+
+    public void disableTaskTrace() {
+        trace = null;
+    }
+
+    public boolean isTaskTraceEnabled() {
+        return trace != null;
+    }
+
+    public List<TaskSample> getTaskTrace() {
+        ArrayList<TaskSample> list = new ArrayList<TaskSample>();
+        TaskTrace tr = trace;
+        if (tr != null) {
+            int n = tr.samples.length();
+            long end = tr.cursor.get();
+            for (long i = Math.max(0L, end - n); i < end; ++i) {
+                TaskSample sample = tr.samples.get((int)(i % n));
+                if (sample != null)
+                    list.add(sample);
+            }
+        }
+        return list;
+    }
+
+    public synchronized void reset() {
+        ++epoch;
+        retiredSteals.reset();
+        retiredStealAttempts.reset();
+        retiredEmptyScans.reset();
+        retiredParks.reset();
+        retiredParkTime.reset();
+        for (int i = 0; i < DEPTH_BUCKETS; ++i)
+            retiredDepths.set(i, 0L);
+        reactivations.reset();
+        spares.reset();
+        uncompensatedBlocks.reset();
+        managedBlocks.reset();
+        managedBlockTime.reset();
+        TaskTrace tr = trace;
+        if (tr != null)
+            trace = new TaskTrace(tr.sampleInterval, tr.samples.length());
+    }
+
+    public String toString() {
+        return "ForkJoinPoolStats[parallelism=" + getParallelism() +
+            ", poolSize=" + getPoolSize() +
+            ", steals=" + getStealCount() +
+            ", stealAttempts=" + getStealAttemptCount() +
+            ", emptyScans=" + getEmptyScanCount() +
+            ", parks=" + getParkCount() +
+            ", reactivations=" + getReactivationCount() +
+            ", spares=" + getSpareThreadCount() +
+            ", managedBlocks=" + getManagedBlockCount() + "]";
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+/**
+ * A bounded {@linkplain BlockingQueue blocking queue} backed by a
+ * lock-free ring buffer, for use by any number of producer and consumer
+ * threads.  This queue orders elements FIFO (first-in-first-out), and
+ * does not permit {@code null} elements.
+ *
+ * <p>Each slot of the buffer carries a sequence number recording
+ * whether it is ready to be written for a given lap of the producer
+ * index, or ready to be read for a given lap of the consumer index.
+ * Producers and consumers claim slots by a compare-and-set of their own
+ * index and then hand the slot over by advancing its sequence number,
+ * so the two ends proceed independently, unlike in {@link
+ * ArrayBlockingQueue}, where they share one lock.  Insertion allocates
+ * no node, unlike in {@link LinkedBlockingQueue}.  When only one
+ * producer or one consumer is involved, {@link SpscArrayBlockingQueue}
+ * and {@link MpscArrayBlockingQueue} avoid some or all of the atomic
+ * operations.
+ *
+ * <p>Threads that must wait in {@code put}, {@code take} or the timed
+ * {@code offer} and {@code poll} park, without holding any lock, until
+ * unparked by the thread whose insertion or removal made progress
+ * possible.  This costs a full memory fence per insertion and removal.
+ * The batch operations {@code drainTo}, {@link #drain drain} and {@link
+ * #fill fill} pay that cost once per batch.
+ *
+ * <p>The iterator is a weakly consistent snapshot.  Unlike the
+ * single-consumer queues, this queue supports {@link #remove(Object)}
+ * and removal through the iterator, and so can serve as the work
+ * queue of a {@link ThreadPoolExecutor}, whose {@code remove} and
+ * {@code purge} rely on them.  An element removed from the interior
+ * of the queue leaves a marked slot that consumers skip; until they do,
+ * the slot still counts towards {@link #size} and against the
+ * capacity.  Removal scans the queue, so takes time linear in its
+ * size.
+ *
+ * @param <E> the type of elements held in this queue
+ * @see SpscArrayBlockingQueue
+ * @see MpscArrayBlockingQueue
+ * @since 1.8
+ */
+public class MpmcArrayBlockingQueue<E> extends RingBufferBlockingQueue<E> {
+
+    /**
+     * The sequence number of each slot: equal to the producer index
+     * when the slot may be written for that index, and to the consumer
+     * index plus one when the slot may be read for that index.
+     */
+    private final long[] sequences;
+
+    /**
+     * Creates a {@code MpmcArrayBlockingQueue} with the given (fixed)
+     * capacity.
+     *
+     * @param capacity the capacity of this queue
+     * @throws IllegalArgumentException if {@code capacity < 1} or
+     *         {@code capacity > 2^30}
+     */
+    public MpmcArrayBlockingQueue(int capacity) {
+        // With a single slot, "freed for the next lap" and "filled for
+        // this lap" would be the same sequence number.
+        super(capacity, 2);
+        long[] seq = new long[buffer.length];
+        for (int i = 0; i < seq.length; i++)
+            seq[i] = i;
+        this.sequences = seq;
+    }
+
+    private long sequenceOffset(long index) {
+        return ((long)((int)index & mask) << LSHIFT) + LBASE;
+    }
+
+    final boolean offerNow(E e) {
+        final long[] seqs = sequences;
+        for (;;) {
+            long p = producerIndex;
+            long so = sequenceOffset(p);
+            long seq = U.getLongVolatile(seqs, so);
+            if (seq == p) {
+                if (p - consumerIndexCache >= capacity) {
+                    long c = consumerIndex;
+                    if (p - c >= capacity)
+                        return false;
+                    consumerIndexCache = c;
+                }
+                if (U.compareAndSwapLong(this, PRODUCER_INDEX, p, p + 1)) {
+                    U.putObject(buffer, slotOffset(p), e);
+                    U.putOrderedLong(seqs, so, p + 1);
+                    return true;
+                }
+            }
+            else if (seq < p) {
+                if (p - consumerIndex >= capacity)
+                    return false;
+                Thread.yield();     // a consumer is still freeing the slot
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    final E pollNow() {
+        final long[] seqs = sequences;
+        final int length = buffer.length;
+        boolean skipped = false;
+        for (;;) {
+            long c = consumerIndex;
+            long so = sequenceOffset(c);
+            long seq = U.getLongVolatile(seqs, so);
+            if (seq == c + 1) {
+                if (U.compareAndSwapLong(this, CONSUMER_INDEX, c, c + 1)) {
+                    // Swap out the element, racing with removeElement
+                    Object e = U.getAndSetObject(buffer, slotOffset(c), null);
+                    U.putOrderedLong(seqs, so, c + length);
+                    if (e != REMOVED)
+                        return (E)e;
+                    skipped = true;
+                }
+            }
+            else if (seq < c + 1) {
+                if (c >= producerIndex) {
+                    // Skipping removed slots freed space for producers
+                    if (skipped)
+                        signalNotFull();
+                    return null;
+                }
+                Thread.yield();     // a producer is still filling the slot
+            }
+        }
+    }
+
+    boolean removeElement(Object o, boolean identity) {
+        if (o == null)
+            return false;
+        final long[] seqs = sequences;
+        for (long i = consumerIndex, p = producerIndex; i < p; i++) {
+            // Only consider slots filled for this lap of the index
+            if (U.getLongVolatile(seqs, sequenceOffset(i)) != i + 1)
+                continue;
+            long offset = slotOffset(i);
+            Object e = U.getObjectVolatile(buffer, offset);
+            if (e != null && e != REMOVED &&
+                (identity ? e == o : o.equals(e)) &&
+                U.compareAndSwapObject(buffer, offset, e, REMOVED))
+                return true;
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        for (long c = consumerIndex, p = producerIndex; c < p; c++) {
+            Object e = U.getObjectVolatile(buffer, slotOffset(c));
+            if (e != REMOVED)
+                return (E)e;
+        }
+        return null;
+    }
+
+    public boolean isEmpty() {
+        for (long c = consumerIndex, p = producerIndex; c < p; c++) {
+            if (U.getObjectVolatile(buffer, slotOffset(c)) != REMOVED)
+                return false;
+        }
+        return true;
+    }
+
+    private static final long LBASE;
+    private static final int LSHIFT;
+    static {
+        LBASE = U.arrayBaseOffset(long[].class);
+        int scale = U.arrayIndexScale(long[].class);
+        if ((scale & (scale - 1)) != 0)
+            throw new Error("data type scale not a power of two");
+        LSHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+    }
+}
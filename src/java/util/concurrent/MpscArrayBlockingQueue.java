@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+/**
+ * A bounded {@linkplain BlockingQueue blocking queue} backed by a
+ * lock-free ring buffer, for use by any number of producer threads and
+ * at most one consumer thread at a time.  This queue orders elements
+ * FIFO (first-in-first-out), and does not permit {@code null} elements.
+ *
+ * <p>Producers claim a slot by a compare-and-set of the shared producer
+ * index and then publish the element into it; the single consumer
+ * takes elements without any atomic read-modify-write operation.  This
+ * suits fan-in stages, such as the task queue of a single worker or
+ * event loop.  Insertion allocates no node.  Blocking and batch
+ * operations are as described for {@link MpmcArrayBlockingQueue}.
+ *
+ * <p><b>At most one thread may remove elements</b> ({@code poll},
+ * {@code take}, {@code remove()}, {@code drainTo}, {@code drain} or
+ * {@code clear}) at any one time; the effect of concurrent use by
+ * several consumers is undefined.  Use {@code MpmcArrayBlockingQueue}
+ * if that cannot be guaranteed.
+ *
+ * <p>The iterator is a weakly consistent snapshot.  Elements can only
+ * be removed at the head: {@link #remove(Object)}, and so also
+ * {@code removeIf}, {@code removeAll}, {@code retainAll} and the
+ * iterator's {@code remove}, throw {@code UnsupportedOperationException}.
+ * In particular, this queue cannot serve as the work queue of a {@link
+ * ThreadPoolExecutor}, whose {@code remove} and {@code purge} rely on
+ * them; use {@code MpmcArrayBlockingQueue} instead.
+ *
+ * @param <E> the type of elements held in this queue
+ * @see SpscArrayBlockingQueue
+ * @see MpmcArrayBlockingQueue
+ * @since 1.8
+ */
+public class MpscArrayBlockingQueue<E> extends RingBufferBlockingQueue<E> {
+
+    /**
+     * Creates a {@code MpscArrayBlockingQueue} with the given (fixed)
+     * capacity.
+     *
+     * @param capacity the capacity of this queue
+     * @throws IllegalArgumentException if {@code capacity < 1} or
+     *         {@code capacity > 2^30}
+     */
+    public MpscArrayBlockingQueue(int capacity) {
+        super(capacity);
+    }
+
+    final boolean offerNow(E e) {
+        for (;;) {
+            long p = producerIndex;
+            if (p - consumerIndexCache >= capacity) {
+                long c = consumerIndex;
+                if (p - c >= capacity)
+                    return false;
+                consumerIndexCache = c;
+            }
+            if (U.compareAndSwapLong(this, PRODUCER_INDEX, p, p + 1)) {
+                U.putOrderedObject(buffer, slotOffset(p), e);
+                return true;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    final E pollNow() {
+        final long c = consumerIndex;
+        final long offset = slotOffset(c);
+        Object e = U.getObjectVolatile(buffer, offset);
+        if (e == null) {
+            if (c == producerIndex)
+                return null;
+            // A producer has claimed the slot but not yet published it
+            while ((e = U.getObjectVolatile(buffer, offset)) == null)
+                Thread.yield();
+        }
+        U.putOrderedObject(buffer, offset, null);
+        U.putOrderedLong(this, CONSUMER_INDEX, c + 1);
+        return (E)e;
+    }
+}
@@ -0,0 +1,522 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable, persistent map: the methods that would modify it
+ * instead return a new map, which shares most of its structure with
+ * this one.  Lookups, additions and removals take time logarithmic
+ * (to base 32) in the size of the map.  The mutative methods of the
+ * {@link Map} interface throw {@code UnsupportedOperationException}.
+ *
+ * <p>A {@code PersistentHashMap} is intended as the value of a
+ * single atomically updated reference, as in {@link
+ * ConcurrentPersistentMap}.  Like {@link ConcurrentHashMap}, and
+ * unlike {@link java.util.HashMap}, this class does <em>not</em>
+ * allow {@code null} to be used as a key or value.  Iteration order
+ * is unspecified, but is the same for equal maps built by the same
+ * sequence of operations.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ * @since 1.8
+ */
+public final class PersistentHashMap<K,V> extends AbstractMap<K,V>
+    implements java.io.Serializable {
+    private static final long serialVersionUID = -6021452349471839172L;
+
+    /*
+     * This is a hash array mapped trie (Bagwell): each level of the
+     * trie consumes five bits of the (spread) hash code, and a
+     * BitmapNode holds, for each of the up to 32 occupied slots of a
+     * level, either a key and its value or, when several keys share
+     * those bits, a null key and a subnode, packed into an array
+     * indexed by the rank of the slot's bit in the node's bitmap.
+     * Keys whose hash codes are equal in all 32 bits go into a
+     * CollisionNode, searched linearly.  Updates copy the path from
+     * the root to the changed node.  Removals that leave a subnode
+     * with a single key and value pull them up into the parent, so
+     * that the shape of the trie depends only on its contents.
+     */
+
+    static final int BITS = 5;
+    static final int MASK = (1 << BITS) - 1;
+
+    @SuppressWarnings("rawtypes")
+    static final PersistentHashMap EMPTY = new PersistentHashMap(null, 0);
+
+    /** Spreads higher bits of the hash code into the lower ones. */
+    static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    abstract static class Node {
+        /** Alternating keys and values (or null keys and subnodes). */
+        final Object[] array;
+        Node(Object[] array) { this.array = array; }
+
+        /** Returns the value for key k with hash h, or null. */
+        abstract Object find(int shift, int h, Object k);
+
+        /** Returns a node with k mapped to v. */
+        abstract Node plus(int shift, int h, Object k, Object v);
+
+        /** Returns a node without k, or null if it would be empty. */
+        abstract Node minus(int shift, int h, Object k);
+
+        /** Returns true if this node holds just one key and value. */
+        abstract boolean isSingleton();
+    }
+
+    static final class BitmapNode extends Node {
+        final int bitmap;
+        BitmapNode(int bitmap, Object[] array) {
+            super(array);
+            this.bitmap = bitmap;
+        }
+
+        Object find(int shift, int h, Object k) {
+            for (BitmapNode p = this;;) {
+                int bit = 1 << ((h >>> shift) & MASK);
+                if ((p.bitmap & bit) == 0)
+                    return null;
+                int i = Integer.bitCount(p.bitmap & (bit - 1)) << 1;
+                Object ek = p.array[i], ev = p.array[i + 1];
+                if (ek != null)
+                    return (ek == k || ek.equals(k)) ? ev : null;
+                if (ev instanceof CollisionNode)
+                    return ((Node)ev).find(shift + BITS, h, k);
+                p = (BitmapNode)ev;
+                shift += BITS;
+            }
+        }
+
+        Node plus(int shift, int h, Object k, Object v) {
+            int bit = 1 << ((h >>> shift) & MASK);
+            int i = Integer.bitCount(bitmap & (bit - 1)) << 1;
+            Object[] a = array;
+            if ((bitmap & bit) == 0) {
+                Object[] b = new Object[a.length + 2];
+                System.arraycopy(a, 0, b, 0, i);
+                b[i] = k;
+                b[i + 1] = v;
+                System.arraycopy(a, i, b, i + 2, a.length - i);
+                return new BitmapNode(bitmap | bit, b);
+            }
+            Object ek = a[i], ev = a[i + 1];
+            Object[] b = a.clone();
+            if (ek == null)
+                b[i + 1] = ((Node)ev).plus(shift + BITS, h, k, v);
+            else if (ek == k || ek.equals(k))
+                b[i + 1] = v;
+            else {
+                b[i] = null;
+                b[i + 1] = pair(shift + BITS, spread(ek.hashCode()), ek, ev,
+                                h, k, v);
+            }
+            return new BitmapNode(bitmap, b);
+        }
+
+        Node minus(int shift, int h, Object k) {
+            int bit = 1 << ((h >>> shift) & MASK);
+            if ((bitmap & bit) == 0)
+                return this;
+            int i = Integer.bitCount(bitmap & (bit - 1)) << 1;
+            Object[] a = array;
+            Object ek = a[i], ev = a[i + 1];
+            if (ek == null) {
+                Node sub = (Node)ev, r = sub.minus(shift + BITS, h, k);
+                if (r == sub)
+                    return this;
+                if (r != null) {
+                    Object[] b = a.clone();
+                    if (r.isSingleton()) {
+                        b[i] = r.array[0];
+                        b[i + 1] = r.array[1];
+                    }
+                    else
+                        b[i + 1] = r;
+                    return new BitmapNode(bitmap, b);
+                }
+            }
+            else if (ek != k && !ek.equals(k))
+                return this;
+            if (bitmap == bit)
+                return null;
+            Object[] b = new Object[a.length - 2];
+            System.arraycopy(a, 0, b, 0, i);
+            System.arraycopy(a, i + 2, b, i, a.length - i - 2);
+            return new BitmapNode(bitmap & ~bit, b);
+        }
+
+        boolean isSingleton() {
+            return array.length == 2 && array[0] != null;
+        }
+    }
+
+    static final class CollisionNode extends Node {
+        final int hash;
+        CollisionNode(int hash, Object[] array) {
+            super(array);
+            this.hash = hash;
+        }
+
+        int indexOf(Object k) {
+            Object[] a = array;
+            for (int i = 0; i < a.length; i += 2) {
+                Object ek = a[i];
+                if (ek == k || ek.equals(k))
+                    return i;
+            }
+            return -1;
+        }
+
+        Object find(int shift, int h, Object k) {
+            int i;
+            return (h == hash && (i = indexOf(k)) >= 0) ? array[i + 1] : null;
+        }
+
+        Node plus(int shift, int h, Object k, Object v) {
+            if (h != hash)                      // push down a level
+                return new BitmapNode(1 << ((hash >>> shift) & MASK),
+                                      new Object[] { null, this })
+                    .plus(shift, h, k, v);
+            Object[] a = array, b;
+            int i = indexOf(k);
+            if (i >= 0) {
+                b = a.clone();
+                b[i + 1] = v;
+            }
+            else {
+                b = java.util.Arrays.copyOf(a, a.length + 2);
+                b[a.length] = k;
+                b[a.length + 1] = v;
+            }
+            return new CollisionNode(hash, b);
+        }
+
+        Node minus(int shift, int h, Object k) {
+            int i;
+            if (h != hash || (i = indexOf(k)) < 0)
+                return this;
+            Object[] a = array;
+            if (a.length == 2)
+                return null;
+            Object[] b = new Object[a.length - 2];
+            System.arraycopy(a, 0, b, 0, i);
+            System.arraycopy(a, i + 2, b, i, a.length - i - 2);
+            return new CollisionNode(hash, b);
+        }
+
+        boolean isSingleton() {
+            return array.length == 2;
+        }
+    }
+
+    /** Returns a node holding two distinct keys. */
+    static Node pair(int shift, int h1, Object k1, Object v1,
+                     int h2, Object k2, Object v2) {
+        if (h1 == h2)
+            return new CollisionNode(h1, new Object[] { k1, v1, k2, v2 });
+        int b1 = (h1 >>> shift) & MASK, b2 = (h2 >>> shift) & MASK;
+        if (b1 == b2)
+            return new BitmapNode(1 << b1, new Object[] {
+                    null, pair(shift + BITS, h1, k1, v1, h2, k2, v2) });
+        Object[] a = (b1 < b2) ?
+            new Object[] { k1, v1, k2, v2 } :
+            new Object[] { k2, v2, k1, v1 };
+        return new BitmapNode((1 << b1) | (1 << b2), a);
+    }
+
+    final transient Node root;          // null if empty
+    final transient int size;
+
+    PersistentHashMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Returns an empty map.
+     *
+     * @param <K> the type of keys
+     * @param <V> the type of values
+     * @return an empty map
+     */
+    @SuppressWarnings("unchecked")
+    public static <K,V> PersistentHashMap<K,V> empty() {
+        return (PersistentHashMap<K,V>)EMPTY;
+    }
+
+    /**
+     * Returns a map with the same mappings as the given map.
+     *
+     * @param m the map
+     * @param <K> the type of keys
+     * @param <V> the type of values
+     * @return a map with the mappings of m
+     * @throws NullPointerException if the map is null or contains a
+     *         null key or value
+     */
+    @SuppressWarnings("unchecked")
+    public static <K,V> PersistentHashMap<K,V> from
+        (Map<? extends K, ? extends V> m) {
+        if (m instanceof PersistentHashMap)
+            return (PersistentHashMap<K,V>)m;
+        return PersistentHashMap.<K,V>empty().plusAll(m);
+    }
+
+    // Persistent operations
+
+    /**
+     * Returns a map with the given key mapped to the given value, or
+     * this map if it already maps the key to that value.
+     *
+     * @param key the key
+     * @param value the value
+     * @return a map with key mapped to value
+     * @throws NullPointerException if the key or value is null
+     */
+    public PersistentHashMap<K,V> plus(K key, V value) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        int h = spread(key.hashCode());
+        Node r = root;
+        if (r == null)
+            return new PersistentHashMap<K,V>
+                (new BitmapNode(1 << (h & MASK), new Object[] { key, value }),
+                 1);
+        Object old = r.find(0, h, key);
+        if (old == value)
+            return this;
+        return new PersistentHashMap<K,V>(r.plus(0, h, key, value),
+                                          (old == null) ? size + 1 : size);
+    }
+
+    /**
+     * Returns a map with all of the mappings of this map and the given
+     * map, those of the given map taking precedence.
+     *
+     * @param m the map
+     * @return a map with the mappings of this map and m
+     * @throws NullPointerException if the map is null or contains a
+     *         null key or value
+     */
+    public PersistentHashMap<K,V> plusAll(Map<? extends K, ? extends V> m) {
+        PersistentHashMap<K,V> r = this;
+        for (Map.Entry<? extends K, ? extends V> e : m.entrySet())
+            r = r.plus(e.getKey(), e.getValue());
+        return r;
+    }
+
+    /**
+     * Returns a map without a mapping for the given key, or this map
+     * if it has none.
+     *
+     * @param key the key
+     * @return a map without a mapping for key
+     * @throws NullPointerException if the key is null
+     */
+    public PersistentHashMap<K,V> minus(Object key) {
+        if (key == null)
+            throw new NullPointerException();
+        Node r = root, p;
+        if (r == null ||
+            (p = r.minus(0, spread(key.hashCode()), key)) == r)
+            return this;
+        return (p == null) ? PersistentHashMap.<K,V>empty() :
+            new PersistentHashMap<K,V>(p, size - 1);
+    }
+
+    // Map methods
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (key == null)
+            throw new NullPointerException();
+        Node r = root;
+        return (r == null) ? null :
+            (V)r.find(0, spread(key.hashCode()), key);
+    }
+
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    public V getOrDefault(Object key, V defaultValue) {
+        V v;
+        return (v = get(key)) == null ? defaultValue : v;
+    }
+
+    public Set<Map.Entry<K,V>> entrySet() {
+        return new EntrySet();
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return new EntryIterator<K,V>(root);
+        }
+        public int size() {
+            return size;
+        }
+        public boolean contains(Object o) {
+            Object k, v, u; Map.Entry<?,?> e;
+            return ((o instanceof Map.Entry) &&
+                    (k = (e = (Map.Entry<?,?>)o).getKey()) != null &&
+                    (v = e.getValue()) != null &&
+                    (u = get(k)) != null &&
+                    (v == u || v.equals(u)));
+        }
+    }
+
+    /**
+     * Traverses the trie depth first, keeping the arrays and indices
+     * of the nodes on the path from the root on a stack.
+     */
+    abstract static class Traverser {
+        final Object[][] stack = new Object[(32 + BITS - 1) / BITS + 2][];
+        final int[] index = new int[stack.length];
+        int depth;                      // -1 when exhausted
+        Object nextKey, nextValue;
+
+        Traverser(Node root) {
+            if (root == null)
+                depth = -1;
+            else
+                stack[0] = root.array;
+            advance();
+        }
+
+        /** Sets nextKey and nextValue to the next mapping, if any. */
+        final void advance() {
+            for (int d = depth; d >= 0; ) {
+                Object[] a = stack[d];
+                int i = index[d];
+                if (i >= a.length) {
+                    --d;
+                    continue;
+                }
+                index[d] = i + 2;
+                Object k = a[i], v = a[i + 1];
+                if (k != null) {
+                    depth = d;
+                    nextKey = k;
+                    nextValue = v;
+                    return;
+                }
+                stack[++d] = ((Node)v).array;
+                index[d] = 0;
+            }
+            depth = -1;
+            nextKey = nextValue = null;
+        }
+
+        public final boolean hasNext() {
+            return nextKey != null;
+        }
+    }
+
+    static final class EntryIterator<K,V> extends Traverser
+        implements Iterator<Map.Entry<K,V>> {
+        EntryIterator(Node root) { super(root); }
+
+        @SuppressWarnings("unchecked")
+        public Map.Entry<K,V> next() {
+            Object k = nextKey, v = nextValue;
+            if (k == null)
+                throw new NoSuchElementException();
+            advance();
+            return new AbstractMap.SimpleImmutableEntry<K,V>((K)k, (V)v);
+        }
+    }
+
+    static final class KeyIterator<K> extends Traverser
+        implements Iterator<K> {
+        KeyIterator(Node root) { super(root); }
+
+        @SuppressWarnings("unchecked")
+        public K next() {
+            Object k = nextKey;
+            if (k == null)
+                throw new NoSuchElementException();
+            advance();
+            return (K)k;
+        }
+    }
+
+    // Serialization
+
+    private Object writeReplace() {
+        Object[] a = new Object[size << 1];
+        int i = 0;
+        for (Traverser t = new KeyIterator<K>(root); t.hasNext(); t.advance()) {
+            a[i++] = t.nextKey;
+            a[i++] = t.nextValue;
+        }
+        return new SerializationProxy(a);
+    }
+
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.InvalidObjectException {
+        throw new java.io.InvalidObjectException("Proxy required");
+    }
+
+    /** The serialized form of a PersistentHashMap. */
+    private static final class SerializationProxy
+        implements java.io.Serializable {
+        private static final long serialVersionUID = 2950310384617427553L;
+
+        /** @serial the keys and values, alternating */
+        private final Object[] mappings;
+
+        SerializationProxy(Object[] mappings) {
+            this.mappings = mappings;
+        }
+
+        private Object readResolve() {
+            PersistentHashMap<Object,Object> m = empty();
+            Object[] a = mappings;
+            for (int i = 0; i + 1 < a.length; i += 2)
+                m = m.plus(a[i], a[i + 1]);
+            return m;
+        }
+    }
+}
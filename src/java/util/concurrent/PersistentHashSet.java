@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * An immutable, persistent set, backed by a {@link PersistentHashMap}:
+ * the methods that would modify it instead return a new set, which
+ * shares most of its structure with this one.  Lookups, additions and
+ * removals take time logarithmic (to base 32) in the size of the set.
+ * The mutative methods of the {@link java.util.Set} interface throw
+ * {@code UnsupportedOperationException}.  Null elements are not
+ * permitted.
+ *
+ * @param <E> the type of elements held in this set
+ * @since 1.8
+ */
+public final class PersistentHashSet<E> extends AbstractSet<E>
+    implements java.io.Serializable {
+    private static final long serialVersionUID = 7249069246763182397L;
+
+    @SuppressWarnings({"rawtypes","unchecked"})
+    static final PersistentHashSet EMPTY =
+        new PersistentHashSet(PersistentHashMap.EMPTY);
+
+    /** The backing map, mapping each element to Boolean.TRUE */
+    final transient PersistentHashMap<E,Boolean> m;
+
+    PersistentHashSet(PersistentHashMap<E,Boolean> m) {
+        this.m = m;
+    }
+
+    /**
+     * Returns an empty set.
+     *
+     * @param <E> the type of elements
+     * @return an empty set
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentHashSet<E> empty() {
+        return (PersistentHashSet<E>)EMPTY;
+    }
+
+    /**
+     * Returns a set of the elements of the given collection.
+     *
+     * @param c the collection
+     * @param <E> the type of elements
+     * @return a set of the elements of c
+     * @throws NullPointerException if the collection is null or
+     *         contains a null element
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentHashSet<E> from(Collection<? extends E> c) {
+        if (c instanceof PersistentHashSet)
+            return (PersistentHashSet<E>)c;
+        return PersistentHashSet.<E>empty().plusAll(c);
+    }
+
+    /**
+     * Returns a set with the given element added, or this set if it
+     * already contains the element.
+     *
+     * @param e the element
+     * @return a set containing e
+     * @throws NullPointerException if the element is null
+     */
+    public PersistentHashSet<E> plus(E e) {
+        PersistentHashMap<E,Boolean> p = m.plus(e, Boolean.TRUE);
+        return (p == m) ? this : new PersistentHashSet<E>(p);
+    }
+
+    /**
+     * Returns a set with all of the elements of the given collection
+     * added.
+     *
+     * @param c the collection
+     * @return a set containing the elements of c
+     * @throws NullPointerException if the collection is null or
+     *         contains a null element
+     */
+    public PersistentHashSet<E> plusAll(Collection<? extends E> c) {
+        PersistentHashMap<E,Boolean> p = m;
+        for (E e : c)
+            p = p.plus(e, Boolean.TRUE);
+        return (p == m) ? this : new PersistentHashSet<E>(p);
+    }
+
+    /**
+     * Returns a set with the given element removed, or this set if it
+     * does not contain the element.
+     *
+     * @param o the element
+     * @return a set not containing o
+     * @throws NullPointerException if the element is null
+     */
+    public PersistentHashSet<E> minus(Object o) {
+        PersistentHashMap<E,Boolean> p = m.minus(o);
+        return (p == m) ? this : new PersistentHashSet<E>(p);
+    }
+
+    public int size() {
+        return m.size;
+    }
+
+    public boolean isEmpty() {
+        return m.size == 0;
+    }
+
+    public boolean contains(Object o) {
+        return m.containsKey(o);
+    }
+
+    public Iterator<E> iterator() {
+        return new PersistentHashMap.KeyIterator<E>(m.root);
+    }
+
+    // Serialization
+
+    private Object writeReplace() {
+        return new SerializationProxy(toArray());
+    }
+
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.InvalidObjectException {
+        throw new java.io.InvalidObjectException("Proxy required");
+    }
+
+    /** The serialized form of a PersistentHashSet. */
+    private static final class SerializationProxy
+        implements java.io.Serializable {
+        private static final long serialVersionUID = -1846823109457362910L;
+
+        /** @serial the elements */
+        private final Object[] elements;
+
+        SerializationProxy(Object[] elements) {
+            this.elements = elements;
+        }
+
+        private Object readResolve() {
+            PersistentHashMap<Object,Boolean> p = PersistentHashMap.empty();
+            for (Object e : elements)
+                p = p.plus(e, Boolean.TRUE);
+            return new PersistentHashSet<Object>(p);
+        }
+    }
+}
@@ -0,0 +1,554 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * An immutable, persistent list: the methods that would modify it
+ * instead return a new list, which shares most of its structure with
+ * this one.  Appending, inserting, replacing and removing an element
+ * at any index take time and space logarithmic in the size of the
+ * list, as does access by index.  The mutative methods of the {@link
+ * java.util.List} interface throw {@code UnsupportedOperationException}.
+ *
+ * <p>A {@code PersistentVector} is intended as the value of a single
+ * atomically updated reference that is read by many threads and
+ * written by few, as in {@link ConcurrentPersistentList}, where
+ * copying a whole array on every update, as in {@link
+ * CopyOnWriteArrayList}, would be too costly.  Null elements are
+ * permitted.
+ *
+ * @param <E> the type of elements held in this list
+ * @since 1.8
+ */
+public final class PersistentVector<E> extends AbstractList<E>
+    implements RandomAccess, java.io.Serializable {
+    private static final long serialVersionUID = 5104562712306457263L;
+
+    /*
+     * The elements are held in a B-tree of fixed depth whose leaves
+     * are arrays of elements and whose inner nodes hold, with their
+     * children, the cumulative numbers of elements under them (the
+     * "size tables" of relaxed radix balanced trees), so that the
+     * tree need not be full to be indexed, and elements can be
+     * inserted and removed anywhere.  Each node has at most M
+     * entries, and nodes other than the root at least MIN, except
+     * possibly after bulk construction, where the last node of each
+     * level may be smaller.  Updates copy the path from the root to
+     * the changed leaf, splitting a node that overflows and merging a
+     * node that underflows with a sibling (and splitting the result
+     * again if too large), as in any B-tree.
+     *
+     * Leaves are plain Object[]s and inner nodes are Nodes; the
+     * height, zero for a single leaf, tells them apart.
+     */
+
+    /** The maximum number of entries of a node. */
+    static final int M = 32;
+
+    /** The minimum number of entries of a node other than the root. */
+    static final int MIN = M / 2;
+
+    static final Object[] EMPTY_LEAF = new Object[0];
+
+    @SuppressWarnings("rawtypes")
+    static final PersistentVector EMPTY = new PersistentVector(EMPTY_LEAF, 0, 0);
+
+    /** An inner node. */
+    static final class Node {
+        final Object[] kids;
+        final int[] sizes;          // cumulative sizes of kids
+        Node(Object[] kids, int[] sizes) {
+            this.kids = kids; this.sizes = sizes;
+        }
+    }
+
+    /** The result of an insertion that split a node in two. */
+    static final class Split {
+        final Object left, right;
+        Split(Object left, Object right) {
+            this.left = left; this.right = right;
+        }
+    }
+
+    final transient Object root;
+    final transient int height;
+    final transient int size;
+
+    PersistentVector(Object root, int height, int size) {
+        this.root = root;
+        this.height = height;
+        this.size = size;
+    }
+
+    /**
+     * Returns an empty vector.
+     *
+     * @param <E> the type of elements
+     * @return an empty vector
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentVector<E> empty() {
+        return (PersistentVector<E>)EMPTY;
+    }
+
+    /**
+     * Returns a vector of the elements of the given collection, in
+     * the order they are returned by its iterator.  This takes time
+     * linear in the size of the collection.
+     *
+     * @param c the collection
+     * @param <E> the type of elements
+     * @return a vector of the elements of c
+     * @throws NullPointerException if the collection is null
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentVector<E> from(Collection<? extends E> c) {
+        if (c instanceof PersistentVector)
+            return (PersistentVector<E>)c;
+        return fromArray(c.toArray());
+    }
+
+    /** Builds a vector of the given elements, bottom up. */
+    @SuppressWarnings("unchecked")
+    static <E> PersistentVector<E> fromArray(Object[] a) {
+        int n = a.length;
+        if (n == 0)
+            return (PersistentVector<E>)EMPTY;
+        int w = (n + M - 1) / M;
+        Object[] level = new Object[w];
+        for (int k = 0, i = 0; k < w; ++k, i += M)
+            level[k] = java.util.Arrays.copyOfRange(a, i, Math.min(n, i + M));
+        int h = 0;
+        while (w > 1) {
+            int pw = (w + M - 1) / M;
+            Object[] parents = new Object[pw];
+            for (int k = 0, i = 0; k < pw; ++k, i += M)
+                parents[k] = make(java.util.Arrays.copyOfRange
+                                  (level, i, Math.min(w, i + M)), h + 1);
+            level = parents;
+            w = pw;
+            ++h;
+        }
+        return new PersistentVector<E>(level[0], h, n);
+    }
+
+    // Node utilities
+
+    /** Returns the number of elements under node x of height h. */
+    static int sizeOf(Object x, int h) {
+        if (h == 0)
+            return ((Object[])x).length;
+        int[] s = ((Node)x).sizes;
+        return s[s.length - 1];
+    }
+
+    /** Returns the entries (elements or kids) of node x of height h. */
+    static Object[] entries(Object x, int h) {
+        return (h == 0) ? (Object[])x : ((Node)x).kids;
+    }
+
+    /** Makes a node of height h with the given entries. */
+    static Object make(Object[] es, int h) {
+        if (h == 0)
+            return es;
+        int[] s = new int[es.length];
+        int t = 0;
+        for (int j = 0; j < es.length; ++j)
+            s[j] = t += sizeOf(es[j], h - 1);
+        return new Node(es, s);
+    }
+
+    /** Returns the index of the kid holding element i. */
+    static int kidFor(int[] sizes, int i) {
+        int lo = 0, hi = sizes.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sizes[mid] > i)
+                hi = mid;
+            else
+                lo = mid + 1;
+        }
+        return lo;
+    }
+
+    static Object[] insertAt(Object[] a, int j, Object x) {
+        Object[] b = new Object[a.length + 1];
+        System.arraycopy(a, 0, b, 0, j);
+        b[j] = x;
+        System.arraycopy(a, j, b, j + 1, a.length - j);
+        return b;
+    }
+
+    static Object[] removeAt(Object[] a, int j) {
+        Object[] b = new Object[a.length - 1];
+        System.arraycopy(a, 0, b, 0, j);
+        System.arraycopy(a, j + 1, b, j, a.length - j - 1);
+        return b;
+    }
+
+    /** Returns a node of height h, or a Split if es is too long. */
+    static Object makeOrSplit(Object[] es, int h) {
+        int n = es.length;
+        if (n <= M)
+            return make(es, h);
+        int half = n >>> 1;
+        return new Split(make(java.util.Arrays.copyOfRange(es, 0, half), h),
+                         make(java.util.Arrays.copyOfRange(es, half, n), h));
+    }
+
+    static Object setIn(Object x, int h, int i, Object e) {
+        if (h == 0) {
+            Object[] b = ((Object[])x).clone();
+            b[i] = e;
+            return b;
+        }
+        Node p = (Node)x;
+        int j = kidFor(p.sizes, i);
+        Object[] ks = p.kids.clone();
+        ks[j] = setIn(ks[j], h - 1, (j == 0) ? i : i - p.sizes[j - 1], e);
+        return new Node(ks, p.sizes);
+    }
+
+    /** Inserts e at index i <= size of x; returns a node or a Split. */
+    static Object insertIn(Object x, int h, int i, Object e) {
+        if (h == 0)
+            return makeOrSplit(insertAt((Object[])x, i, e), 0);
+        Node p = (Node)x;
+        int[] s = p.sizes;
+        int j = (i >= s[s.length - 1]) ? s.length - 1 : kidFor(s, i);
+        Object r = insertIn(p.kids[j], h - 1, (j == 0) ? i : i - s[j - 1], e);
+        Object[] ks;
+        if (r instanceof Split) {
+            Split sp = (Split)r;
+            ks = insertAt(p.kids, j + 1, sp.right);
+            ks[j] = sp.left;
+        }
+        else {
+            ks = p.kids.clone();
+            ks[j] = r;
+        }
+        return makeOrSplit(ks, h);
+    }
+
+    /** Removes element i of x; returns a node, possibly underfull. */
+    static Object removeIn(Object x, int h, int i) {
+        if (h == 0)
+            return removeAt((Object[])x, i);
+        Node p = (Node)x;
+        int j = kidFor(p.sizes, i);
+        Object r = removeIn(p.kids[j], h - 1, (j == 0) ? i : i - p.sizes[j - 1]);
+        Object[] ks = p.kids;
+        int w = entries(r, h - 1).length;
+        if (w == 0)
+            return make(removeAt(ks, j), h);
+        ks = ks.clone();
+        ks[j] = r;
+        if (w < MIN && ks.length > 1) {
+            int a = (j > 0) ? j - 1 : j;        // merge kids a and a + 1
+            Object[] ea = entries(ks[a], h - 1), eb = entries(ks[a + 1], h - 1);
+            Object[] es = new Object[ea.length + eb.length];
+            System.arraycopy(ea, 0, es, 0, ea.length);
+            System.arraycopy(eb, 0, es, ea.length, eb.length);
+            Object m = makeOrSplit(es, h - 1);
+            if (m instanceof Split) {
+                ks[a] = ((Split)m).left;
+                ks[a + 1] = ((Split)m).right;
+            }
+            else {
+                ks = removeAt(ks, a + 1);
+                ks[a] = m;
+            }
+        }
+        return make(ks, h);
+    }
+
+    // Persistent operations
+
+    /**
+     * Returns a vector with the given element appended.
+     *
+     * @param e the element
+     * @return a vector with e appended
+     */
+    public PersistentVector<E> plus(E e) {
+        return plus(size, e);
+    }
+
+    /**
+     * Returns a vector with the given element inserted at the given
+     * index, shifting the elements from that index to the right.
+     *
+     * @param index the index at which to insert
+     * @param e the element
+     * @return a vector with e inserted
+     * @throws IndexOutOfBoundsException if the index is out of range
+     *         ({@code index < 0 || index > size()})
+     */
+    public PersistentVector<E> plus(int index, E e) {
+        if (index < 0 || index > size)
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+        Object r = insertIn(root, height, index, e);
+        if (r instanceof Split) {
+            Split sp = (Split)r;
+            return new PersistentVector<E>
+                (make(new Object[] { sp.left, sp.right }, height + 1),
+                 height + 1, size + 1);
+        }
+        return new PersistentVector<E>(r, height, size + 1);
+    }
+
+    /**
+     * Returns a vector with all of the elements of the given
+     * collection appended, in the order they are returned by its
+     * iterator.
+     *
+     * @param c the collection
+     * @return a vector with the elements of c appended
+     * @throws NullPointerException if the collection is null
+     */
+    @SuppressWarnings("unchecked")
+    public PersistentVector<E> plusAll(Collection<? extends E> c) {
+        if (size == 0)
+            return from(c);
+        Object[] a = c.toArray();
+        if (a.length > size) {                  // cheaper to rebuild
+            Object[] b = new Object[size + a.length];
+            copyInto(b);
+            System.arraycopy(a, 0, b, size, a.length);
+            return fromArray(b);
+        }
+        PersistentVector<E> v = this;
+        for (Object e : a)
+            v = v.plus((E)e);
+        return v;
+    }
+
+    /**
+     * Returns a vector with the element at the given index replaced
+     * by the given element, or this vector if that element is already
+     * there.
+     *
+     * @param index the index of the element to replace
+     * @param e the element
+     * @return a vector with e at the given index
+     * @throws IndexOutOfBoundsException if the index is out of range
+     *         ({@code index < 0 || index >= size()})
+     */
+    public PersistentVector<E> with(int index, E e) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+        if (get(index) == e)
+            return this;
+        return new PersistentVector<E>(setIn(root, height, index, e),
+                                       height, size);
+    }
+
+    /**
+     * Returns a vector with the element at the given index removed,
+     * shifting the elements after it to the left.
+     *
+     * @param index the index of the element to remove
+     * @return a vector without the element at the given index
+     * @throws IndexOutOfBoundsException if the index is out of range
+     *         ({@code index < 0 || index >= size()})
+     */
+    public PersistentVector<E> minus(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+        if (size == 1)
+            return empty();
+        Object r = removeIn(root, height, index);
+        int h = height;
+        while (h > 0 && ((Node)r).kids.length == 1) {
+            r = ((Node)r).kids[0];
+            --h;
+        }
+        return new PersistentVector<E>(r, h, size - 1);
+    }
+
+    /**
+     * Returns a vector with the first occurrence of the given element
+     * removed, or this vector if it does not contain the element.
+     *
+     * @param o the element to remove
+     * @return a vector without the first occurrence of o
+     */
+    public PersistentVector<E> minus(Object o) {
+        int i = indexOf(o);
+        return (i < 0) ? this : minus(i);
+    }
+
+    // List methods
+
+    public int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+        Object x = root;
+        int i = index;
+        for (int h = height; h > 0; --h) {
+            Node p = (Node)x;
+            int j = kidFor(p.sizes, i);
+            if (j > 0)
+                i -= p.sizes[j - 1];
+            x = p.kids[j];
+        }
+        return (E)((Object[])x)[i];
+    }
+
+    public int indexOf(Object o) {
+        int i = 0;
+        for (E e : this) {
+            if (o == null ? e == null : o.equals(e))
+                return i;
+            ++i;
+        }
+        return -1;
+    }
+
+    public Object[] toArray() {
+        Object[] a = new Object[size];
+        copyInto(a);
+        return a;
+    }
+
+    /** Copies the elements into a, which has length at least size. */
+    void copyInto(Object[] a) {
+        int k = 0;
+        for (Itr it = new Itr(0); it.hasNext(); ) {
+            Object[] leaf = it.leaf(it.cursor);
+            int n = it.leafEnd - it.cursor, off = leaf.length - n;
+            System.arraycopy(leaf, off, a, k, n);
+            k += n;
+            it.cursor = it.leafEnd;
+        }
+    }
+
+    public Iterator<E> iterator() {
+        return new Itr(0);
+    }
+
+    public void forEach(Consumer<? super E> action) {
+        if (action == null)
+            throw new NullPointerException();
+        for (Itr it = new Itr(0); it.hasNext(); )
+            action.accept(it.next());
+    }
+
+    public Spliterator<E> spliterator() {
+        return Spliterators.spliterator
+            (iterator(), size, Spliterator.ORDERED | Spliterator.IMMUTABLE);
+    }
+
+    private String outOfBoundsMsg(int index) {
+        return "Index: " + index + ", Size: " + size;
+    }
+
+    /**
+     * Iterates leaf by leaf, descending from the root to find each
+     * leaf, so that iteration takes linear time.
+     */
+    final class Itr implements Iterator<E> {
+        int cursor;
+        int leafEnd;                // index after the current leaf
+        Object[] current;
+
+        Itr(int cursor) {
+            this.cursor = cursor;
+        }
+
+        /** Sets current to the leaf holding element i; returns it. */
+        Object[] leaf(int i) {
+            Object x = root;
+            int base = 0;
+            for (int h = height; h > 0; --h) {
+                Node p = (Node)x;
+                int j = kidFor(p.sizes, i - base);
+                if (j > 0)
+                    base += p.sizes[j - 1];
+                x = p.kids[j];
+            }
+            Object[] a = (Object[])x;
+            leafEnd = base + a.length;
+            return current = a;
+        }
+
+        public boolean hasNext() {
+            return cursor < size;
+        }
+
+        @SuppressWarnings("unchecked")
+        public E next() {
+            int i = cursor;
+            if (i >= size)
+                throw new NoSuchElementException();
+            Object[] a = (i < leafEnd && current != null) ? current : leaf(i);
+            cursor = i + 1;
+            return (E)a[a.length - (leafEnd - i)];
+        }
+    }
+
+    // Serialization
+
+    private Object writeReplace() {
+        return new SerializationProxy(toArray());
+    }
+
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.InvalidObjectException {
+        throw new java.io.InvalidObjectException("Proxy required");
+    }
+
+    /** The serialized form of a PersistentVector. */
+    private static final class SerializationProxy
+        implements java.io.Serializable {
+        private static final long serialVersionUID = -3718243021975842347L;
+
+        /** @serial the elements, in order */
+        private final Object[] elements;
+
+        SerializationProxy(Object[] elements) {
+            this.elements = elements;
+        }
+
+        private Object readResolve() {
+            return fromArray(elements.clone());
+        }
+    }
+}
@@ -0,0 +1,569 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Common superclass of the lock-free, array-backed bounded blocking
+ * queues {@link SpscArrayBlockingQueue}, {@link MpscArrayBlockingQueue}
+ * and {@link MpmcArrayBlockingQueue}, which differ only in how many
+ * producer and consumer threads may use them at once.
+ *
+ * <p>Elements are held in a ring buffer whose length is the capacity
+ * rounded up to a power of two, addressed by two ever-increasing
+ * indices: the producer index, at which the next element is inserted,
+ * and the consumer index, from which the next element is taken.  The
+ * two indices, together with the fields each side caches of the
+ * other's, are padded onto separate cache lines so that producers and
+ * consumers do not invalidate each other's lines except through the
+ * buffer itself.  Subclasses supply the lock-free {@link #offerNow} and
+ * {@link #pollNow}; inserting or removing an element allocates nothing.
+ *
+ * <p>Blocking is layered on top of those without a lock.  A thread
+ * that must wait records itself in a queue of waiting takers or
+ * putters, re-checks the buffer, and parks.  After each successful
+ * insertion (removal), a full fence orders the buffer update before
+ * the check for waiting takers (putters), so a waiter either sees the
+ * update or is seen and unparked.  A waiter that was unparked but
+ * leaves without needing the signal passes it on.  Batch operations
+ * ({@code drainTo}, {@link #drain drain} and {@link #fill fill}) pay
+ * for the fence and any wake-up once per batch.
+ *
+ * @param <E> the type of elements held in this queue
+ */
+abstract class RingBufferBlockingQueue<E> extends AbstractQueue<E>
+        implements BlockingQueue<E> {
+
+    /**
+     * The number of times a thread about to wait retries the buffer
+     * before parking.  Zero on uniprocessors, where the thread that
+     * would make progress cannot run while we spin.
+     */
+    static final int SPINS =
+        (Runtime.getRuntime().availableProcessors() > 1) ? 1 << 6 : 0;
+
+    /**
+     * Marks the slot of an element removed from the interior of the
+     * queue, in queues that support {@link #removeElement}.  Consumers
+     * skip such slots.
+     */
+    static final Object REMOVED = new Object();
+
+    /** The largest supported capacity. */
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /** The number of elements this queue may hold. */
+    final int capacity;
+
+    /** The ring buffer; its length is a power of two. */
+    final Object[] buffer;
+
+    /** buffer.length - 1. */
+    final int mask;
+
+    /** The index at which the next element is inserted. */
+    @sun.misc.Contended("producer") volatile long producerIndex;
+
+    /**
+     * A value the consumer index has reached, kept by producers to
+     * avoid reading the consumer's cache line on every insertion.
+     */
+    @sun.misc.Contended("producer") volatile long consumerIndexCache;
+
+    /** The index from which the next element is taken. */
+    @sun.misc.Contended("consumer") volatile long consumerIndex;
+
+    /**
+     * A value the producer index has reached, kept by a single consumer
+     * to avoid reading the producers' cache line on every removal.
+     */
+    @sun.misc.Contended("consumer") long producerIndexCache;
+
+    /** Threads waiting for an element. */
+    private final ConcurrentLinkedQueue<Thread> takers =
+        new ConcurrentLinkedQueue<Thread>();
+
+    /** Threads waiting for space. */
+    private final ConcurrentLinkedQueue<Thread> putters =
+        new ConcurrentLinkedQueue<Thread>();
+
+    RingBufferBlockingQueue(int capacity) {
+        this(capacity, 1);
+    }
+
+    /**
+     * Creates a queue whose buffer has at least {@code minLength}
+     * slots, a power of two, whatever its capacity.
+     */
+    RingBufferBlockingQueue(int capacity, int minLength) {
+        if (capacity < 1 || capacity > MAXIMUM_CAPACITY)
+            throw new IllegalArgumentException();
+        int n = Math.max(capacity, minLength);
+        if ((n & (n - 1)) != 0)
+            n = Integer.highestOneBit(n) << 1;
+        this.capacity = capacity;
+        this.buffer = new Object[n];
+        this.mask = n - 1;
+    }
+
+    /**
+     * Inserts the element if there is space, without blocking or
+     * signalling waiters.
+     */
+    abstract boolean offerNow(E e);
+
+    /**
+     * Removes and returns the head element, or returns null if there is
+     * none, without blocking or signalling waiters.
+     */
+    abstract E pollNow();
+
+    /**
+     * Removes a single element equal to, or if identity is true, the
+     * same as, the given object from anywhere in the queue.  Throws
+     * UnsupportedOperationException unless overridden.
+     */
+    boolean removeElement(Object o, boolean identity) {
+        throw new UnsupportedOperationException();
+    }
+
+    /** Returns the offset of the buffer slot for the given index. */
+    final long slotOffset(long index) {
+        return ((long)((int)index & mask) << ASHIFT) + ABASE;
+    }
+
+    // Waiting and signalling
+
+    private void signal(ConcurrentLinkedQueue<Thread> waiters) {
+        U.fullFence();
+        if (!waiters.isEmpty()) {
+            Thread t = waiters.poll();
+            if (t != null)
+                LockSupport.unpark(t);
+        }
+    }
+
+    /** Wakes a thread waiting to take, if any. */
+    final void signalNotEmpty() {
+        signal(takers);
+    }
+
+    /** Wakes a thread waiting to put, if any. */
+    final void signalNotFull() {
+        signal(putters);
+    }
+
+    /**
+     * Waits for an element, until the deadline if timed.  Returns null
+     * on timeout.
+     */
+    private E awaitTake(boolean timed, long nanos)
+        throws InterruptedException {
+        for (int spins = SPINS; spins > 0; --spins) {
+            E e = pollNow();
+            if (e != null) {
+                signalNotFull();
+                return e;
+            }
+        }
+        final Thread me = Thread.currentThread();
+        final long deadline = timed ? System.nanoTime() + nanos : 0L;
+        for (;;) {
+            takers.add(me);
+            E e = pollNow();
+            if (e == null) {
+                if (!timed)
+                    LockSupport.park(this);
+                else if ((nanos = deadline - System.nanoTime()) > 0L)
+                    LockSupport.parkNanos(this, nanos);
+            }
+            boolean signalled = !takers.remove(me);
+            if (e != null) {
+                signalNotFull();
+                if (signalled && !isEmpty())
+                    signalNotEmpty();
+                return e;
+            }
+            boolean interrupted = Thread.interrupted();
+            if (interrupted || (timed && nanos <= 0L)) {
+                if (signalled && !isEmpty())
+                    signalNotEmpty();
+                if (interrupted)
+                    throw new InterruptedException();
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Waits for space to insert e, until the deadline if timed.
+     * Returns false on timeout.
+     */
+    private boolean awaitPut(E e, boolean timed, long nanos)
+        throws InterruptedException {
+        for (int spins = SPINS; spins > 0; --spins) {
+            if (offerNow(e)) {
+                signalNotEmpty();
+                return true;
+            }
+        }
+        final Thread me = Thread.currentThread();
+        final long deadline = timed ? System.nanoTime() + nanos : 0L;
+        for (;;) {
+            putters.add(me);
+            boolean added = offerNow(e);
+            if (!added) {
+                if (!timed)
+                    LockSupport.park(this);
+                else if ((nanos = deadline - System.nanoTime()) > 0L)
+                    LockSupport.parkNanos(this, nanos);
+            }
+            boolean signalled = !putters.remove(me);
+            if (added) {
+                signalNotEmpty();
+                if (signalled && remainingCapacity() > 0)
+                    signalNotFull();
+                return true;
+            }
+            boolean interrupted = Thread.interrupted();
+            if (interrupted || (timed && nanos <= 0L)) {
+                if (signalled && remainingCapacity() > 0)
+                    signalNotFull();
+                if (interrupted)
+                    throw new InterruptedException();
+                return false;
+            }
+        }
+    }
+
+    // Queue and BlockingQueue methods
+
+    /**
+     * Inserts the specified element at the tail of this queue if it is
+     * possible to do so immediately without exceeding the queue's
+     * capacity, returning {@code true} upon success and {@code false}
+     * if this queue is full.
+     *
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e) {
+        if (e == null)
+            throw new NullPointerException();
+        if (!offerNow(e))
+            return false;
+        signalNotEmpty();
+        return true;
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue, waiting
+     * for space to become available if the queue is full.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public void put(E e) throws InterruptedException {
+        if (e == null)
+            throw new NullPointerException();
+        if (Thread.interrupted())
+            throw new InterruptedException();
+        if (offerNow(e))
+            signalNotEmpty();
+        else
+            awaitPut(e, false, 0L);
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue, waiting
+     * up to the specified wait time for space to become available if
+     * the queue is full.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public boolean offer(E e, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        if (e == null)
+            throw new NullPointerException();
+        if (Thread.interrupted())
+            throw new InterruptedException();
+        if (offerNow(e)) {
+            signalNotEmpty();
+            return true;
+        }
+        return awaitPut(e, true, unit.toNanos(timeout));
+    }
+
+    public E poll() {
+        E e = pollNow();
+        if (e != null)
+            signalNotFull();
+        return e;
+    }
+
+    public E take() throws InterruptedException {
+        if (Thread.interrupted())
+            throw new InterruptedException();
+        E e = pollNow();
+        if (e == null)
+            return awaitTake(false, 0L);
+        signalNotFull();
+        return e;
+    }
+
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        if (Thread.interrupted())
+            throw new InterruptedException();
+        E e = pollNow();
+        if (e == null)
+            return awaitTake(true, unit.toNanos(timeout));
+        signalNotFull();
+        return e;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        return (E)U.getObjectVolatile(buffer, slotOffset(consumerIndex));
+    }
+
+    /**
+     * Returns the number of elements in this queue.  The value is a
+     * snapshot that may already be out of date when concurrent threads
+     * are inserting or removing elements.
+     *
+     * @return the number of elements in this queue
+     */
+    public int size() {
+        long c, p;
+        do {
+            c = consumerIndex;
+            p = producerIndex;
+        } while (c != consumerIndex);
+        long n = p - c;
+        return (n <= 0L) ? 0 : (n >= capacity) ? capacity : (int)n;
+    }
+
+    public boolean isEmpty() {
+        return producerIndex == consumerIndex;
+    }
+
+    /**
+     * Returns the number of additional elements that this queue can
+     * ideally (in the absence of memory or resource constraints) accept
+     * without blocking.  This is always equal to the initial capacity
+     * of this queue less the current {@code size} of this queue.
+     */
+    public int remainingCapacity() {
+        return capacity - size();
+    }
+
+    /**
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        Objects.requireNonNull(c);
+        if (c == this)
+            throw new IllegalArgumentException();
+        int n = 0;
+        try {
+            E e;
+            while (n < maxElements && (e = pollNow()) != null) {
+                n++;
+                c.add(e);
+            }
+        } finally {
+            if (n > 0)
+                signalNotFull();
+        }
+        return n;
+    }
+
+    /**
+     * Removes up to {@code limit} available elements from this queue and
+     * passes them, in order, to the given action, without blocking.  Any
+     * waiting producers are signalled once, after the batch.
+     *
+     * @param action the action to perform on each removed element
+     * @param limit the maximum number of elements to remove
+     * @return the number of elements removed
+     * @throws NullPointerException if the action is null
+     */
+    public int drain(Consumer<? super E> action, int limit) {
+        Objects.requireNonNull(action);
+        int n = 0;
+        try {
+            E e;
+            while (n < limit && (e = pollNow()) != null) {
+                n++;
+                action.accept(e);
+            }
+        } finally {
+            if (n > 0)
+                signalNotFull();
+        }
+        return n;
+    }
+
+    /**
+     * Inserts up to {@code limit} elements obtained from the given
+     * supplier, as long as this queue has space, without blocking.  The
+     * supplier is invoked only when space was available; if another
+     * producer takes that space first, this method waits for space
+     * rather than drop the supplied element.  Any waiting consumers are
+     * signalled once, after the batch.
+     *
+     * @param supplier the source of the elements to insert
+     * @param limit the maximum number of elements to insert
+     * @return the number of elements inserted
+     * @throws NullPointerException if the supplier is null, or supplies
+     *         a null element
+     */
+    public int fill(Supplier<? extends E> supplier, int limit) {
+        Objects.requireNonNull(supplier);
+        int n = 0;
+        try {
+            while (n < limit && remainingCapacity() > 0) {
+                E e = supplier.get();
+                if (e == null)
+                    throw new NullPointerException();
+                while (!offerNow(e))
+                    Thread.yield();
+                n++;
+            }
+        } finally {
+            if (n > 0)
+                signalNotEmpty();
+        }
+        return n;
+    }
+
+    /**
+     * Returns a list of the elements in this queue, in order, as seen
+     * by a single pass over the buffer from the consumer index to the
+     * producer index.
+     */
+    @SuppressWarnings("unchecked")
+    private ArrayList<E> snapshot() {
+        ArrayList<E> list = new ArrayList<E>();
+        long c = consumerIndex, p = producerIndex;
+        for (long i = Math.max(c, p - capacity); i < p; i++) {
+            Object e = U.getObjectVolatile(buffer, slotOffset(i));
+            if (e != null && e != REMOVED)
+                list.add((E)e);
+        }
+        return list;
+    }
+
+    public Object[] toArray() {
+        return snapshot().toArray();
+    }
+
+    public <T> T[] toArray(T[] a) {
+        return snapshot().toArray(a);
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the elements in this
+     * queue, in proper sequence.  The iterator is weakly consistent: it
+     * reflects the state of the queue at some point at or since its
+     * creation.  {@link Iterator#remove} removes the last element
+     * returned if it is still in the queue, and is supported only if
+     * {@link #remove(Object)} is.
+     *
+     * @return an iterator over the elements in this queue
+     */
+    public Iterator<E> iterator() {
+        Iterator<E> it = snapshot().iterator();
+        return new Iterator<E>() {
+            private E lastRet;
+            public boolean hasNext() { return it.hasNext(); }
+            public E next() { return lastRet = it.next(); }
+            public void remove() {
+                E e = lastRet;
+                if (e == null)
+                    throw new IllegalStateException();
+                lastRet = null;
+                removeElement(e, true);
+            }
+        };
+    }
+
+    /**
+     * Removes a single instance of the specified element from this
+     * queue, if it is present.
+     *
+     * @throws UnsupportedOperationException if this queue supports
+     *         removal only at its head
+     */
+    public boolean remove(Object o) {
+        return removeElement(o, false);
+    }
+
+    // Unsafe mechanics
+    static final sun.misc.Unsafe U;
+    static final long PRODUCER_INDEX;
+    static final long CONSUMER_INDEX;
+    private static final long ABASE;
+    private static final int ASHIFT;
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = RingBufferBlockingQueue.class;
+            PRODUCER_INDEX = U.objectFieldOffset
+                (k.getDeclaredField("producerIndex"));
+            CONSUMER_INDEX = U.objectFieldOffset
+                (k.getDeclaredField("consumerIndex"));
+            ABASE = U.arrayBaseOffset(Object[].class);
+            int scale = U.arrayIndexScale(Object[].class);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            ASHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
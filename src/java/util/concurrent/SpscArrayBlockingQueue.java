@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+/**
+ * A bounded {@linkplain BlockingQueue blocking queue} backed by a
+ * lock-free ring buffer, for use by at most one producer thread and at
+ * most one consumer thread at a time.  This queue orders elements FIFO
+ * (first-in-first-out), and does not permit {@code null} elements.
+ *
+ * <p>Unlike {@link ArrayBlockingQueue}, which guards both ends with a
+ * single lock, the producer and the consumer of this queue never
+ * contend: each owns its own index, and reads the other's only when
+ * the value it last saw suggests the queue is full or empty.  Unlike
+ * {@link LinkedBlockingQueue}, insertion allocates no node.  Blocking
+ * and batch operations are as described for {@link
+ * MpmcArrayBlockingQueue}.
+ *
+ * <p><b>At most one thread may insert elements</b> ({@code offer},
+ * {@code put}, {@code add} or {@code fill}), <b>and at most one thread
+ * may remove them</b> ({@code poll}, {@code take}, {@code remove()},
+ * {@code drainTo}, {@code drain} or {@code clear}) at any one time;
+ * the effect of concurrent use by several producers, or by several
+ * consumers, is undefined.  Use {@link MpscArrayBlockingQueue} or
+ * {@code MpmcArrayBlockingQueue} if that cannot be guaranteed.  Any
+ * thread may call the inspection methods.
+ *
+ * <p>The iterator is a weakly consistent snapshot.  Elements can only
+ * be removed at the head: {@link #remove(Object)}, and so also
+ * {@code removeIf}, {@code removeAll}, {@code retainAll} and the
+ * iterator's {@code remove}, throw {@code UnsupportedOperationException}.
+ * In particular, this queue cannot serve as the work queue of a {@link
+ * ThreadPoolExecutor}, whose {@code remove} and {@code purge} rely on
+ * them; use {@code MpmcArrayBlockingQueue} instead.
+ *
+ * @param <E> the type of elements held in this queue
+ * @see MpscArrayBlockingQueue
+ * @see MpmcArrayBlockingQueue
+ * @since 1.8
+ */
+public class SpscArrayBlockingQueue<E> extends RingBufferBlockingQueue<E> {
+
+    /**
+     * Creates a {@code SpscArrayBlockingQueue} with the given (fixed)
+     * capacity.
+     *
+     * @param capacity the capacity of this queue
+     * @throws IllegalArgumentException if {@code capacity < 1} or
+     *         {@code capacity > 2^30}
+     */
+    public SpscArrayBlockingQueue(int capacity) {
+        super(capacity);
+    }
+
+    final boolean offerNow(E e) {
+        final long p = producerIndex;
+        if (p - consumerIndexCache >= capacity) {
+            long c = consumerIndex;
+            if (p - c >= capacity)
+                return false;
+            consumerIndexCache = c;
+        }
+        U.putOrderedObject(buffer, slotOffset(p), e);
+        U.putOrderedLong(this, PRODUCER_INDEX, p + 1);
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    final E pollNow() {
+        final long c = consumerIndex;
+        if (c >= producerIndexCache) {
+            long p = producerIndex;
+            if (c >= p)
+                return null;
+            producerIndexCache = p;
+        }
+        // The slot was published before the producer index we read
+        long offset = slotOffset(c);
+        E e = (E)U.getObject(buffer, offset);
+        U.putOrderedObject(buffer, offset, null);
+        U.putOrderedLong(this, CONSUMER_INDEX, c + 1);
+        return e;
+    }
+}
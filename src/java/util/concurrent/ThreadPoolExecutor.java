@@ -174,6 +174,12 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
      */
     private volatile int maximumPoolSize;
 
+    /**
+     * Statistics, or null unless enabled by enableStatistics.  Once
+     * set, never reset to null.
+     */
+    private volatile ThreadPoolExecutorStats stats;
+
     /**
      * 	默认拒绝执行时的处理策略
      *  直接丢弃所有还没执行的任务
@@ -451,9 +457,22 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
                     taskList.add(r);
             }
         }
+        if (stats != null) {
+            for (int i = 0; i < taskList.size(); ++i)
+                taskList.set(i, unwrap(taskList.get(i)));
+        }
         return taskList;
     }
 
+    /**
+     * Returns the task submitted to execute, if r is the form in which
+     * it was queued while statistics were enabled, else r itself.
+     */
+    private static Runnable unwrap(Runnable r) {
+        return (r instanceof ThreadPoolExecutorStats.Submission) ?
+            ((ThreadPoolExecutorStats.Submission)r).task : r;
+    }
+
     /*
      * Methods for creating, running and cleaning up after workers
      */
@@ -694,10 +713,18 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
                       runStateAtLeast(ctl.get(), STOP))) &&
                     !wt.isInterrupted())
                     wt.interrupt();//当线程池是处于STOP状态或者TIDYING、TERMINATED状态时 且还未设置中断状态的
+                final ThreadPoolExecutorStats st = stats;
+                if (task instanceof ThreadPoolExecutorStats.Submission) {
+                    ThreadPoolExecutorStats.Submission s =
+                        (ThreadPoolExecutorStats.Submission)task;
+                    st.started(s, System.nanoTime());
+                    task = s.task;
+                }
                 try {
                 	//运行之前的操作 钩子方法
                     beforeExecute(wt, task);
                     Throwable thrown = null;
+                    long startTime = (st == null) ? 0L : System.nanoTime();
                     try {
                     	//调用Runnable的run方法
                         task.run();
@@ -708,6 +735,10 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
                     } catch (Throwable x) {
                         thrown = x; throw new Error(x);
                     } finally {
+                        if (st != null) {
+                            long now = System.nanoTime();
+                            st.finished(now - startTime, thrown != null, now);
+                        }
                     	//运行之后的操作 钩子方法
                         afterExecute(task, thrown);
                     }
@@ -796,22 +827,30 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
     	//任务为null直接抛出异常
         if (command == null)
             throw new NullPointerException();
+        //统计开启时 记录提交时间 队列中存放的是包装后的任务
+        Runnable task = command;
+        ThreadPoolExecutorStats st = stats;
+        if (st != null) {
+            long now = System.nanoTime();
+            st.submitted(now);
+            task = new ThreadPoolExecutorStats.Submission(command, now);
+        }
         //获取线程池的状态和工作线程数
         int c = ctl.get();
         //运行的线程数小于核心线程数
         if (workerCountOf(c) < corePoolSize) {
         	//把command作为工作线程的firstTask
-            if (addWorker(command, true))
+            if (addWorker(task, true))
                 return;
             //获取线程池的状态和工作线程数
             c = ctl.get();
         }
         //线程池处于运行状态且把任务成功放入阻塞队列中
-        if (isRunning(c) && workQueue.offer(command)) {
+        if (isRunning(c) && workQueue.offer(task)) {
         	//获取线程池的状态和工作线程数
             int recheck = ctl.get();
             //线程池没有处于运行状态且把在阻塞队列的任务删除成功
-            if (!isRunning(recheck) && remove(command))
+            if (!isRunning(recheck) && remove(task))
             	//执行拒绝策略
                 reject(command);
             //当前运行的线程数等于0
@@ -820,7 +859,7 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
                 addWorker(null, false);
         }
         //添加工作线程失败的话 执行拒绝策略
-        else if (!addWorker(command, false))
+        else if (!addWorker(task, false))
         	//执行拒绝策略
             reject(command);
     }
@@ -1172,6 +1211,16 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
      * This queue may be in active use.  Retrieving the task queue
      * does not prevent queued tasks from executing.
      *
+     * <p>While {@linkplain #enableStatistics statistics} are enabled,
+     * each task passed to {@link #execute execute} is queued inside a
+     * wrapper recording its submission time, so the queue holds the
+     * wrappers rather than the tasks themselves.  This executor
+     * unwraps them before running tasks, passing them to hook methods,
+     * or returning them from {@link #shutdownNow}; but a queue that
+     * orders tasks by inspecting them, such as a {@link
+     * PriorityBlockingQueue} of {@code Comparable} tasks, cannot be
+     * used with statistics.
+     *
      * @return the task queue
      */
     public BlockingQueue<Runnable> getQueue() {
@@ -1196,6 +1245,15 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
      */
     public boolean remove(Runnable task) {
         boolean removed = workQueue.remove(task);
+        if (!removed && stats != null) {
+            for (Runnable r : workQueue.toArray(new Runnable[0])) {
+                if (r instanceof ThreadPoolExecutorStats.Submission &&
+                    ((ThreadPoolExecutorStats.Submission)r).task == task) {
+                    removed = workQueue.remove(r);
+                    break;
+                }
+            }
+        }
         tryTerminate(); // In case SHUTDOWN and now empty
         return removed;
     }
@@ -1215,7 +1273,7 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
         try {
             Iterator<Runnable> it = q.iterator();
             while (it.hasNext()) {
-                Runnable r = it.next();
+                Runnable r = unwrap(it.next());
                 if (r instanceof Future<?> && ((Future<?>)r).isCancelled())
                     it.remove();
             }
@@ -1223,9 +1281,11 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
             // Take slow path if we encounter interference during traversal.
             // Make copy for traversal and call remove for cancelled entries.
             // The slow path is more likely to be O(N*N).
-            for (Object r : q.toArray())
-                if (r instanceof Future<?> && ((Future<?>)r).isCancelled())
+            for (Runnable r : q.toArray(new Runnable[0])) {
+                Runnable t = unwrap(r);
+                if (t instanceof Future<?> && ((Future<?>)t).isCancelled())
                     q.remove(r);
+            }
         }
 
         tryTerminate(); // In case SHUTDOWN and now empty
@@ -1333,6 +1393,84 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
         }
     }
 
+    /**
+     * Enables the recording of statistics for this pool, and returns
+     * the {@link ThreadPoolExecutorMXBean} through which they are
+     * reported.  Statistics are disabled by default; once enabled,
+     * the time each task passed to {@link #execute execute} spends in
+     * the queue, and the time each task takes to run, are recorded in
+     * histograms without locking, at the cost of reading the clock
+     * around each task and of wrapping queued tasks (see {@link
+     * #getQueue}).  Invoking this method again returns the same object.
+     *
+     * @return the statistics of this pool
+     * @since 1.8
+     */
+    public ThreadPoolExecutorMXBean enableStatistics() {
+        ThreadPoolExecutorStats st = stats;
+        if (st == null) {
+            final ReentrantLock mainLock = this.mainLock;
+            mainLock.lock();
+            try {
+                if ((st = stats) == null)
+                    stats = st = new ThreadPoolExecutorStats(this);
+            } finally {
+                mainLock.unlock();
+            }
+        }
+        return st;
+    }
+
+    /**
+     * Enables adaptive sizing, in which the core pool size is adjusted
+     * automatically, between the given bounds, to keep the mean time
+     * tasks wait in the queue below the given target.  Roughly every
+     * 100 milliseconds, the pool grows its core size by a quarter if
+     * tasks waited too long on average while some remain queued, unless
+     * its previous growth failed to raise throughput, and shrinks it by
+     * one if waits were well under the target and threads are idle.
+     * The maximum pool size is raised as needed to admit the core size.
+     * Adjustments are made by threads submitting or completing tasks,
+     * so none are made while the pool is idle.  Enables {@linkplain
+     * #enableStatistics statistics} if not already enabled, and
+     * replaces any previous adaptive sizing settings.
+     *
+     * @param minCorePoolSize the smallest core size to adjust down to
+     * @param maxCorePoolSize the largest core size to adjust up to
+     * @param targetQueueWait the mean queue wait time to stay below
+     * @param unit the time unit of the {@code targetQueueWait} argument
+     * @throws IllegalArgumentException if {@code minCorePoolSize <= 0},
+     *         {@code maxCorePoolSize < minCorePoolSize}, or
+     *         {@code targetQueueWait <= 0}
+     * @throws NullPointerException if {@code unit} is null
+     * @since 1.8
+     */
+    public void enableAdaptiveSizing(int minCorePoolSize,
+                                     int maxCorePoolSize,
+                                     long targetQueueWait,
+                                     TimeUnit unit) {
+        if (unit == null)
+            throw new NullPointerException();
+        long target = unit.toNanos(targetQueueWait);
+        if (minCorePoolSize <= 0 || maxCorePoolSize < minCorePoolSize ||
+            target <= 0L)
+            throw new IllegalArgumentException();
+        ((ThreadPoolExecutorStats)enableStatistics())
+            .enableAdaptiveSizing(minCorePoolSize, maxCorePoolSize, target);
+    }
+
+    /**
+     * Disables adaptive sizing, leaving the pool sizes as they are.
+     * Statistics remain enabled.
+     *
+     * @since 1.8
+     */
+    public void disableAdaptiveSizing() {
+        ThreadPoolExecutorStats st = stats;
+        if (st != null)
+            st.disableAdaptiveSizing();
+    }
+
     /**
      * Returns a string identifying this pool, as well as its state,
      * including indications of run state and estimated worker and
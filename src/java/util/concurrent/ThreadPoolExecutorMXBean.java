@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+/**
+ * The management interface for the statistics of a {@link
+ * ThreadPoolExecutor}, obtained from {@link
+ * ThreadPoolExecutor#enableStatistics}.  Besides the pool's own
+ * counters, it reports the distributions of the time tasks spend
+ * waiting in the queue and the time they take to run, so that a pool
+ * that is short of threads can be told apart from one running slow
+ * tasks, and the state of the optional {@linkplain
+ * ThreadPoolExecutor#enableAdaptiveSizing adaptive sizing}.
+ *
+ * <p>An instance of this interface is an MXBean and can be registered
+ * with a platform {@link javax.management.MBeanServer MBeanServer}
+ * under a name of the application's choosing:
+ *
+ * <pre> {@code
+ * ThreadPoolExecutorMXBean stats = pool.enableStatistics();
+ * ManagementFactory.getPlatformMBeanServer().registerMBean(
+ *     stats, new ObjectName("com.example:type=ThreadPoolExecutor,name=io"));}</pre>
+ *
+ * <p>Times are in nanoseconds, and are recorded in histograms whose
+ * buckets are within about 3% of the values they hold, so percentiles
+ * are reported with that precision.  Counts are cumulative since
+ * statistics were enabled or last {@linkplain #reset reset}, and are
+ * maintained without locking, so they may not reflect tasks in
+ * progress.
+ *
+ * @see ThreadPoolExecutor#enableStatistics
+ * @since 1.8
+ */
+public interface ThreadPoolExecutorMXBean {
+
+    /**
+     * Returns the current number of threads in the pool.
+     *
+     * @return the number of threads
+     * @see ThreadPoolExecutor#getPoolSize
+     */
+    int getPoolSize();
+
+    /**
+     * Returns the approximate number of threads that are actively
+     * executing tasks.
+     *
+     * @return the number of threads
+     * @see ThreadPoolExecutor#getActiveCount
+     */
+    int getActiveCount();
+
+    /**
+     * Returns the core number of threads.
+     *
+     * @return the core number of threads
+     * @see ThreadPoolExecutor#getCorePoolSize
+     */
+    int getCorePoolSize();
+
+    /**
+     * Returns the maximum allowed number of threads.
+     *
+     * @return the maximum allowed number of threads
+     * @see ThreadPoolExecutor#getMaximumPoolSize
+     */
+    int getMaximumPoolSize();
+
+    /**
+     * Returns the largest number of threads that have ever
+     * simultaneously been in the pool.
+     *
+     * @return the number of threads
+     * @see ThreadPoolExecutor#getLargestPoolSize
+     */
+    int getLargestPoolSize();
+
+    /**
+     * Returns the number of tasks in the queue.
+     *
+     * @return the number of queued tasks
+     */
+    int getQueueSize();
+
+    /**
+     * Returns the approximate total number of tasks that have
+     * completed execution.
+     *
+     * @return the number of tasks
+     * @see ThreadPoolExecutor#getCompletedTaskCount
+     */
+    long getCompletedTaskCount();
+
+    /**
+     * Returns the number of tasks whose queue wait was recorded: those
+     * passed to {@code execute}, directly or through {@code submit},
+     * since statistics were enabled.
+     *
+     * @return the number of recorded queue waits
+     */
+    long getQueueWaitCount();
+
+    /**
+     * Returns the mean time from the submission of a task to the start
+     * of its execution.
+     *
+     * @return the mean queue wait time, or zero if none was recorded
+     */
+    double getMeanQueueWaitTime();
+
+    /**
+     * Returns the longest recorded queue wait time.
+     *
+     * @return the maximum queue wait time
+     */
+    long getMaxQueueWaitTime();
+
+    /**
+     * Returns the queue wait time that the given percentage of the
+     * recorded waits did not exceed.
+     *
+     * @param percentile the percentile, from 0 to 100
+     * @return the queue wait time at that percentile, or zero if none
+     *         was recorded
+     * @throws IllegalArgumentException if the percentile is not
+     *         between 0 and 100
+     */
+    long getQueueWaitTimePercentile(double percentile);
+
+    /**
+     * Returns the number of task executions recorded.
+     *
+     * @return the number of recorded executions
+     */
+    long getExecutionCount();
+
+    /**
+     * Returns the number of recorded executions that ended by throwing
+     * an exception.
+     *
+     * @return the number of failed executions
+     */
+    long getFailedExecutionCount();
+
+    /**
+     * Returns the mean execution time of a task.
+     *
+     * @return the mean execution time, or zero if none was recorded
+     */
+    double getMeanExecutionTime();
+
+    /**
+     * Returns the longest recorded execution time.
+     *
+     * @return the maximum execution time
+     */
+    long getMaxExecutionTime();
+
+    /**
+     * Returns the execution time that the given percentage of the
+     * recorded executions did not exceed.
+     *
+     * @param percentile the percentile, from 0 to 100
+     * @return the execution time at that percentile, or zero if none
+     *         was recorded
+     * @throws IllegalArgumentException if the percentile is not
+     *         between 0 and 100
+     */
+    long getExecutionTimePercentile(double percentile);
+
+    /**
+     * Returns whether the core pool size is being adjusted
+     * automatically.
+     *
+     * @return {@code true} if adaptive sizing is enabled
+     * @see ThreadPoolExecutor#enableAdaptiveSizing
+     */
+    boolean isAdaptiveSizingEnabled();
+
+    /**
+     * Returns the mean queue wait time that adaptive sizing aims to
+     * stay below.
+     *
+     * @return the target queue wait time, or zero if adaptive sizing
+     *         is disabled
+     */
+    long getTargetQueueWaitTime();
+
+    /**
+     * Returns the number of times adaptive sizing changed the core
+     * pool size.
+     *
+     * @return the number of adaptive resizes
+     */
+    long getAdaptiveResizeCount();
+
+    /**
+     * Resets all counts, histograms and maxima to zero.
+     */
+    void reset();
+}
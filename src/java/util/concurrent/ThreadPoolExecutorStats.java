@@ -0,0 +1,378 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The statistics recorded by a ThreadPoolExecutor once enabled, and
+ * the state of its adaptive sizing.  The pool reads its (volatile)
+ * reference to this object once in execute and once per task in
+ * runWorker, and records only when it is non-null.
+ */
+final class ThreadPoolExecutorStats implements ThreadPoolExecutorMXBean {
+
+    /**
+     * A task passed to execute, with the time it was submitted.  The
+     * pool queues these in place of the task itself while statistics
+     * are enabled, and unwraps them before running or returning them.
+     */
+    static final class Submission implements Runnable {
+        final Runnable task;
+        final long time;
+
+        Submission(Runnable task, long time) {
+            this.task = task;
+            this.time = time;
+        }
+
+        public void run() {
+            task.run();
+        }
+
+        public String toString() {
+            return task.toString();
+        }
+    }
+
+    /**
+     * A histogram of nonnegative longs, with buckets of equal width
+     * within each power of two: values below 2^(SUB_BITS+1) are
+     * counted exactly, and larger ones in one of 2^SUB_BITS buckets
+     * per power of two, so that each bucket is within 2^-SUB_BITS of
+     * its values.  Each recording is one atomic add to a bucket.
+     */
+    static final class Histogram {
+        static final int SUB_BITS = 5;
+        static final int SUB_COUNT = 1 << SUB_BITS;
+        static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+        static int indexOf(long v) {
+            if (v < (SUB_COUNT << 1))
+                return (int)v;
+            int shift = 63 - Long.numberOfLeadingZeros(v) - SUB_BITS;
+            return ((shift + 1) << SUB_BITS) + (int)(v >>> shift) - SUB_COUNT;
+        }
+
+        /** Returns the largest value counted in the given bucket. */
+        static long highestValueIn(int index) {
+            if (index < (SUB_COUNT << 1))
+                return index;
+            int shift = (index >>> SUB_BITS) - 1;
+            long low = (long)((index & (SUB_COUNT - 1)) + SUB_COUNT) << shift;
+            return low + (1L << shift) - 1L;
+        }
+
+        void record(long v) {
+            if (v < 0L)
+                v = 0L;
+            counts.getAndIncrement(indexOf(v));
+            sum.add(v);
+            max.accumulate(v);
+        }
+
+        long count() {
+            long n = 0L;
+            for (int i = 0; i < BUCKETS; ++i)
+                n += counts.get(i);
+            return n;
+        }
+
+        double mean() {
+            long n = count();
+            return (n == 0L) ? 0.0 : (double)sum.sum() / n;
+        }
+
+        long max() {
+            return max.get();
+        }
+
+        long percentile(double p) {
+            if (!(p >= 0.0 && p <= 100.0))
+                throw new IllegalArgumentException();
+            long n = count();
+            if (n == 0L)
+                return 0L;
+            long rank = Math.max(1L, (long)Math.ceil(p / 100.0 * n));
+            long seen = 0L;
+            for (int i = 0; i < BUCKETS; ++i) {
+                if ((seen += counts.get(i)) >= rank)
+                    return Math.min(highestValueIn(i), max.get());
+            }
+            return max.get();
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; ++i)
+                counts.set(i, 0L);
+            sum.reset();
+            max.reset();
+        }
+    }
+
+    /**
+     * Adjusts the core pool size from the mean queue wait and the
+     * throughput observed over successive intervals.  If the mean wait
+     * exceeds the target while tasks are queued, the core size grows
+     * by a quarter, unless the previous growth did not raise throughput,
+     * in which case it holds for one interval (more threads do not help
+     * a pool bound by CPU or by a shared resource).  If the mean wait is
+     * under a quarter of the target with nothing queued and threads
+     * idle, it shrinks by one.  Adjustments are made by whichever
+     * thread first records a task after an interval has elapsed.
+     */
+    final class Controller {
+        final int minCorePoolSize;
+        final int maxCorePoolSize;
+        final long targetQueueWait;
+        final AtomicLong nextAdjustTime;
+        final LongAdder intervalWaitTime = new LongAdder();
+        final LongAdder intervalWaits = new LongAdder();
+        final LongAdder intervalCompletions = new LongAdder();
+
+        // Accessed only by the thread adjusting the pool
+        long lastAdjustTime;
+        double lastThroughput;
+        boolean grew;
+
+        Controller(int minCorePoolSize, int maxCorePoolSize,
+                   long targetQueueWait) {
+            this.minCorePoolSize = minCorePoolSize;
+            this.maxCorePoolSize = maxCorePoolSize;
+            this.targetQueueWait = targetQueueWait;
+            long now = System.nanoTime();
+            this.lastAdjustTime = now;
+            this.nextAdjustTime = new AtomicLong(now + ADJUST_INTERVAL);
+        }
+
+        void poll(long now) {
+            long next = nextAdjustTime.get();
+            if (now - next >= 0L &&
+                nextAdjustTime.compareAndSet(next, now + ADJUST_INTERVAL))
+                adjust(now);
+        }
+
+        private void adjust(long now) {
+            long waits = intervalWaits.sumThenReset();
+            long waitTime = intervalWaitTime.sumThenReset();
+            long done = intervalCompletions.sumThenReset();
+            double throughput = (double)done / Math.max(1L, now - lastAdjustTime);
+            lastAdjustTime = now;
+            long meanWait = (waits == 0L) ? 0L : waitTime / waits;
+            int core = pool.getCorePoolSize();
+            int size = Math.max(minCorePoolSize, Math.min(maxCorePoolSize, core));
+            boolean growing = false;
+            if (meanWait > targetQueueWait && !pool.getQueue().isEmpty()) {
+                if (grew && throughput <= lastThroughput * 1.05)
+                    grew = false;
+                else {
+                    size = Math.min(maxCorePoolSize,
+                                    size + Math.max(1, size >>> 2));
+                    growing = true;
+                }
+            }
+            else if (meanWait < (targetQueueWait >>> 2) &&
+                     pool.getQueue().isEmpty() &&
+                     pool.getActiveCount() < size)
+                size = Math.max(minCorePoolSize, size - 1);
+            grew = growing && size > core;
+            lastThroughput = throughput;
+            if (size != core) {
+                try {
+                    if (size > pool.getMaximumPoolSize())
+                        pool.setMaximumPoolSize(size);
+                    pool.setCorePoolSize(size);
+                    adaptiveResizes.increment();
+                } catch (IllegalArgumentException ex) {
+                    // lost a race with a concurrent reconfiguration
+                }
+            }
+        }
+    }
+
+    /** The interval between adaptive adjustments, in nanoseconds. */
+    static final long ADJUST_INTERVAL = TimeUnit.MILLISECONDS.toNanos(100L);
+
+    private final ThreadPoolExecutor pool;
+    private final Histogram queueWaits = new Histogram();
+    private final Histogram executions = new Histogram();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder adaptiveResizes = new LongAdder();
+
+    /** The adaptive sizing controller, or null if disabled. */
+    private volatile Controller controller;
+
+    ThreadPoolExecutorStats(ThreadPoolExecutor pool) {
+        this.pool = pool;
+    }
+
+    void enableAdaptiveSizing(int minCorePoolSize, int maxCorePoolSize,
+                              long targetQueueWait) {
+        controller = new Controller(minCorePoolSize, maxCorePoolSize,
+                                    targetQueueWait);
+    }
+
+    void disableAdaptiveSizing() {
+        controller = null;
+    }
+
+    // Recording, called by ThreadPoolExecutor
+
+    /** Called by execute, giving the adaptive controller a chance to run. */
+    void submitted(long now) {
+        Controller c = controller;
+        if (c != null)
+            c.poll(now);
+    }
+
+    /** Called when a submission is taken to be run at the given time. */
+    void started(Submission s, long now) {
+        long wait = now - s.time;
+        queueWaits.record(wait);
+        Controller c = controller;
+        if (c != null) {
+            c.intervalWaitTime.add(wait);
+            c.intervalWaits.increment();
+        }
+    }
+
+    /** Called after a task has run, ending at the given time. */
+    void finished(long time, boolean failed, long now) {
+        executions.record(time);
+        if (failed)
+            failures.increment();
+        Controller c = controller;
+        if (c != null) {
+            c.intervalCompletions.increment();
+            c.poll(now);
+        }
+    }
+
+    // ThreadPoolExecutorMXBean
+
+    public int getPoolSize() {
+        return pool.getPoolSize();
+    }
+
+    public int getActiveCount() {
+        return pool.getActiveCount();
+    }
+
+    public int getCorePoolSize() {
+        return pool.getCorePoolSize();
+    }
+
+    public int getMaximumPoolSize() {
+        return pool.getMaximumPoolSize();
+    }
+
+    public int getLargestPoolSize() {
+        return pool.getLargestPoolSize();
+    }
+
+    public int getQueueSize() {
+        return pool.getQueue().size();
+    }
+
+    public long getCompletedTaskCount() {
+        return pool.getCompletedTaskCount();
+    }
+
+    public long getQueueWaitCount() {
+        return queueWaits.count();
+    }
+
+    public double getMeanQueueWaitTime() {
+        return queueWaits.mean();
+    }
+
+    public long getMaxQueueWaitTime() {
+        return queueWaits.max();
+    }
+
+    public long getQueueWaitTimePercentile(double percentile) {
+        return queueWaits.percentile(percentile);
+    }
+
+    public long getExecutionCount() {
+        return executions.count();
+    }
+
+    public long getFailedExecutionCount() {
+        return failures.sum();
+    }
+
+    public double getMeanExecutionTime() {
+        return executions.mean();
+    }
+
+    public long getMaxExecutionTime() {
+        return executions.max();
+    }
+
+    public long getExecutionTimePercentile(double percentile) {
+        return executions.percentile(percentile);
+    }
+
+    public boolean isAdaptiveSizingEnabled() {
+        return controller != null;
+    }
+
+    public long getTargetQueueWaitTime() {
+        Controller c = controller;
+        return (c == null) ? 0L : c.targetQueueWait;
+    }
+
+    public long getAdaptiveResizeCount() {
+        return adaptiveResizes.sum();
+    }
+
+    public void reset() {
+        queueWaits.reset();
+        executions.reset();
+        failures.reset();
+        adaptiveResizes.reset();
+    }
+
+    public String toString() {
+        return "ThreadPoolExecutorStats[poolSize=" + getPoolSize() +
+            ", corePoolSize=" + getCorePoolSize() +
+            ", queueSize=" + getQueueSize() +
+            ", queueWait50=" + getQueueWaitTimePercentile(50.0) +
+            ", queueWait99=" + getQueueWaitTimePercentile(99.0) +
+            ", execution50=" + getExecutionTimePercentile(50.0) +
+            ", execution99=" + getExecutionTimePercentile(99.0) +
+            ", failures=" + getFailedExecutionCount() +
+            ", adaptiveResizes=" + getAdaptiveResizeCount() + "]";
+    }
+}
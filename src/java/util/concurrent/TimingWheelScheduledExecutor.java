@@ -0,0 +1,843 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link ScheduledExecutorService} that keeps delayed tasks in a
+ * hierarchical hashed timing wheel rather than a priority queue, so
+ * that scheduling and cancelling a task take constant time regardless
+ * of how many tasks are pending.  It suits large numbers of timeouts
+ * that are usually cancelled before they fire, for which the binary
+ * heap of {@link ScheduledThreadPoolExecutor} costs a logarithmic,
+ * lock-protected insertion and removal per task.
+ *
+ * <p>Time is divided into <em>ticks</em> of a duration fixed at
+ * construction.  A task fires on the first tick at or after its
+ * deadline, so it never runs early but may run up to one tick late
+ * (plus scheduling latency); choose the tick to be the coarsest
+ * resolution the application can tolerate.  A single timer thread
+ * advances the wheel once per tick, and is parked indefinitely while
+ * no delayed task is pending.  Tasks expiring on the same tick are
+ * handed to a fixed pool of {@code corePoolSize} worker threads in at
+ * most {@code corePoolSize} batches, each run by one worker.  Tasks
+ * with no delay bypass the wheel and are given to the workers directly.
+ *
+ * <p>Submitting and cancelling tasks never takes a lock: both append
+ * the task to a lock-free queue that the timer thread applies to the
+ * wheel on its next tick.  A cancelled task releases its action as
+ * soon as it is cancelled, and is unlinked from the wheel within one
+ * tick, rather than remaining queued until its deadline.
+ *
+ * <p>After {@link #shutdown}, delayed tasks that were already scheduled
+ * still run when they fire, while periodic tasks are cancelled, as by
+ * default in {@code ScheduledThreadPoolExecutor}.  Tasks submitted
+ * after shutdown are rejected by throwing {@link
+ * RejectedExecutionException}.
+ *
+ * <p>The timer thread is created, using the given {@link ThreadFactory},
+ * when the executor is constructed; worker threads are created as
+ * tasks become due.
+ *
+ * @since 1.8
+ */
+public class TimingWheelScheduledExecutor extends AbstractExecutorService
+    implements ScheduledExecutorService {
+
+    /*
+     * The wheel has LEVELS levels of WHEEL_SIZE buckets each.  Level k
+     * covers deltas of up to WHEEL_SIZE^(k+1) ticks, with buckets
+     * WHEEL_SIZE^k ticks wide.  A task whose deadline tick is d ticks
+     * after the next tick to be processed goes into the lowest level
+     * that covers d, in the bucket selected by the corresponding bits
+     * of its deadline tick.  Each time the low k*WHEEL_BITS bits of
+     * the tick being processed are all zero, the current bucket of
+     * level k is emptied and its tasks placed again, which moves each
+     * of them to a lower level; the current bucket of level 0 then
+     * holds exactly the tasks due on this tick.  Each task is thus
+     * moved at most LEVELS - 1 times over its life, and most timeouts,
+     * being short and cancelled, are never moved at all.
+     *
+     * The buckets are doubly linked lists through the tasks themselves
+     * and are accessed only by the timer thread, which also applies
+     * the additions and cancellations queued by other threads.
+     */
+
+    /** The number of bits selecting a bucket within a level. */
+    private static final int WHEEL_BITS = 8;
+
+    /** The number of buckets in each level. */
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    /** The number of levels, enough to cover any nonnegative tick. */
+    private static final int LEVELS = (63 + WHEEL_BITS - 1) / WHEEL_BITS;
+
+    /** The tick duration used by constructors that do not take one. */
+    private static final long DEFAULT_TICK_NANOS =
+        TimeUnit.MILLISECONDS.toNanos(1L);
+
+    /** Run states, in increasing order. */
+    private static final int RUNNING  = 0;
+    private static final int SHUTDOWN = 1;
+    private static final int STOP     = 2;
+
+    /** The run state, advanced by CAS. */
+    private volatile int runState;
+
+    /** The tick duration in nanoseconds. */
+    private final long tickNanos;
+
+    /** The nanoTime at which tick zero begins. */
+    private final long startTime;
+
+    /** The pool that runs due tasks. */
+    private final ThreadPoolExecutor workers;
+
+    /** The number of workers, and of batches per tick. */
+    private final int parallelism;
+
+    /** The thread that advances the wheel. */
+    private final Thread timer;
+
+    /** Released when the timer thread has exited. */
+    private final CountDownLatch timerDone = new CountDownLatch(1);
+
+    /** Tasks to be placed in the wheel by the timer thread. */
+    private final ConcurrentLinkedQueue<TimedTask<?>> additions =
+        new ConcurrentLinkedQueue<TimedTask<?>>();
+
+    /** Cancelled tasks to be unlinked by the timer thread. */
+    private final ConcurrentLinkedQueue<TimedTask<?>> cancellations =
+        new ConcurrentLinkedQueue<TimedTask<?>>();
+
+    /**
+     * True while the timer thread is parked with nothing in the wheel,
+     * and must be unparked by the next addition.
+     */
+    private volatile boolean idle;
+
+    /** Sequence number to break ties FIFO. */
+    private final AtomicLong sequencer = new AtomicLong();
+
+    /**
+     * The buckets, level by level.  Accessed only by the timer thread.
+     */
+    private final TimedTask<?>[] buckets =
+        new TimedTask<?>[LEVELS << WHEEL_BITS];
+
+    /** The number of tasks in the wheel.  Accessed only by the timer. */
+    private int count;
+
+    /**
+     * The tasks left in the wheel by {@link #shutdownNow}, published by
+     * the timer thread before it exits.
+     */
+    private List<TimedTask<?>> drained;
+
+    private class TimedTask<V>
+            extends FutureTask<V> implements RunnableScheduledFuture<V> {
+
+        /** Sequence number to break ties FIFO */
+        private final long sequenceNumber;
+
+        /** The time the task is enabled to execute in nanoTime units */
+        private long time;
+
+        /**
+         * Period in nanoseconds for repeating tasks.  A positive
+         * value indicates fixed-rate execution.  A negative value
+         * indicates fixed-delay execution.  A value of 0 indicates a
+         * non-repeating task.
+         */
+        private final long period;
+
+        /** Neighbours in the task's bucket; used only by the timer. */
+        TimedTask<?> prev, next;
+
+        /** Index of the task's bucket, or -1 if not in the wheel. */
+        int slot = -1;
+
+        TimedTask(Runnable r, V result, long ns, long period) {
+            super(r, result);
+            this.time = ns;
+            this.period = period;
+            this.sequenceNumber = sequencer.getAndIncrement();
+        }
+
+        TimedTask(Callable<V> callable, long ns) {
+            super(callable);
+            this.time = ns;
+            this.period = 0;
+            this.sequenceNumber = sequencer.getAndIncrement();
+        }
+
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(time - System.nanoTime(), NANOSECONDS);
+        }
+
+        public int compareTo(Delayed other) {
+            if (other == this) // compare zero if same object
+                return 0;
+            if (other instanceof TimedTask) {
+                TimedTask<?> x = (TimedTask<?>)other;
+                long diff = time - x.time;
+                if (diff < 0)
+                    return -1;
+                else if (diff > 0)
+                    return 1;
+                else if (sequenceNumber < x.sequenceNumber)
+                    return -1;
+                else
+                    return 1;
+            }
+            long diff = getDelay(NANOSECONDS) - other.getDelay(NANOSECONDS);
+            return (diff < 0) ? -1 : (diff > 0) ? 1 : 0;
+        }
+
+        public boolean isPeriodic() {
+            return period != 0;
+        }
+
+        /**
+         * Cancels the task.  FutureTask drops the action at once; the
+         * timer thread unlinks the task from the wheel on its next tick.
+         */
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled)
+                cancellations.add(this);
+            return cancelled;
+        }
+
+        /**
+         * Overrides FutureTask version so as to reschedule if periodic.
+         */
+        public void run() {
+            boolean periodic = isPeriodic();
+            if (!canRunInCurrentRunState(periodic))
+                cancel(false);
+            else if (!periodic)
+                TimedTask.super.run();
+            else if (TimedTask.super.runAndReset()) {
+                long p = period;
+                time = (p > 0) ? time + p : triggerTime(-p);
+                enqueue(this);
+            }
+        }
+    }
+
+    /**
+     * The tasks due on one tick that are run by one worker.
+     */
+    private final class Batch implements Runnable {
+        final TimedTask<?>[] tasks;
+
+        Batch(TimedTask<?>[] tasks) {
+            this.tasks = tasks;
+        }
+
+        public void run() {
+            for (TimedTask<?> t : tasks) {
+                if (runState >= STOP)
+                    t.cancel(false);
+                else
+                    t.run();
+            }
+        }
+    }
+
+    /**
+     * Creates a new {@code TimingWheelScheduledExecutor} with the given
+     * number of worker threads and a tick of one millisecond.
+     *
+     * @param corePoolSize the number of threads that run due tasks
+     * @throws IllegalArgumentException if {@code corePoolSize <= 0}
+     */
+    public TimingWheelScheduledExecutor(int corePoolSize) {
+        this(corePoolSize, DEFAULT_TICK_NANOS, NANOSECONDS,
+             Executors.defaultThreadFactory());
+    }
+
+    /**
+     * Creates a new {@code TimingWheelScheduledExecutor} with the given
+     * number of worker threads and tick duration.
+     *
+     * @param corePoolSize the number of threads that run due tasks
+     * @param tickDuration the resolution of the wheel
+     * @param unit the time unit of the {@code tickDuration} argument
+     * @throws IllegalArgumentException if {@code corePoolSize <= 0}
+     *         or the tick duration is less than one nanosecond
+     * @throws NullPointerException if {@code unit} is null
+     */
+    public TimingWheelScheduledExecutor(int corePoolSize,
+                                        long tickDuration,
+                                        TimeUnit unit) {
+        this(corePoolSize, tickDuration, unit,
+             Executors.defaultThreadFactory());
+    }
+
+    /**
+     * Creates a new {@code TimingWheelScheduledExecutor} with the given
+     * number of worker threads, tick duration and thread factory.
+     *
+     * @param corePoolSize the number of threads that run due tasks
+     * @param tickDuration the resolution of the wheel
+     * @param unit the time unit of the {@code tickDuration} argument
+     * @param threadFactory the factory to use when the executor
+     *        creates its timer and worker threads
+     * @throws IllegalArgumentException if {@code corePoolSize <= 0}
+     *         or the tick duration is less than one nanosecond, or
+     *         {@code threadFactory} fails to create the timer thread
+     * @throws NullPointerException if {@code unit} or
+     *         {@code threadFactory} is null
+     */
+    public TimingWheelScheduledExecutor(int corePoolSize,
+                                        long tickDuration,
+                                        TimeUnit unit,
+                                        ThreadFactory threadFactory) {
+        if (unit == null || threadFactory == null)
+            throw new NullPointerException();
+        long tick = unit.toNanos(tickDuration);
+        if (corePoolSize <= 0 || tick <= 0L)
+            throw new IllegalArgumentException();
+        this.tickNanos = tick;
+        this.parallelism = corePoolSize;
+        this.workers = new ThreadPoolExecutor(corePoolSize, corePoolSize,
+                                              0L, NANOSECONDS,
+                                              new LinkedBlockingQueue<Runnable>(),
+                                              threadFactory);
+        this.startTime = System.nanoTime();
+        Thread t = threadFactory.newThread(new Runnable() {
+                public void run() { runTimer(); }});
+        if (t == null)
+            throw new IllegalArgumentException();
+        this.timer = t;
+        t.start();
+    }
+
+    /**
+     * Returns the tick duration of this executor.
+     *
+     * @param unit the unit in which to return the duration
+     * @return the tick duration
+     */
+    public long getTickDuration(TimeUnit unit) {
+        return unit.convert(tickNanos, NANOSECONDS);
+    }
+
+    /**
+     * Returns the trigger time of a delayed action.
+     */
+    private long triggerTime(long delay, TimeUnit unit) {
+        return triggerTime(unit.toNanos((delay < 0) ? 0 : delay));
+    }
+
+    /**
+     * Returns the trigger time of a delayed action.  Delays are capped
+     * so that deadlines minus the start time cannot overflow.
+     */
+    private long triggerTime(long delay) {
+        return System.nanoTime() + Math.min(delay, Long.MAX_VALUE >> 2);
+    }
+
+    /**
+     * Returns true if can run a task given current run state.
+     */
+    boolean canRunInCurrentRunState(boolean periodic) {
+        int rs = runState;
+        return rs == RUNNING || (rs == SHUTDOWN && !periodic);
+    }
+
+    private void advanceRunState(int targetState) {
+        for (int rs; (rs = runState) < targetState; ) {
+            if (U.compareAndSwapInt(this, RUNSTATE, rs, targetState))
+                break;
+        }
+    }
+
+    /**
+     * Main execution method for tasks.  Tasks already due go straight
+     * to the workers; others are queued for the timer thread.
+     */
+    private void delayedExecute(TimedTask<?> task) {
+        if (runState != RUNNING)
+            throw new RejectedExecutionException();
+        if (task.time - System.nanoTime() <= 0L)
+            workers.execute(task);
+        else if (!enqueue(task))
+            throw new RejectedExecutionException();
+    }
+
+    /**
+     * Queues a task for the timer thread.  If the executor is shut down
+     * concurrently and the timer thread has not yet taken the task,
+     * withdraws and cancels it.
+     *
+     * @return false if the task was withdrawn
+     */
+    private boolean enqueue(TimedTask<?> task) {
+        additions.add(task);
+        if (idle)
+            LockSupport.unpark(timer);
+        if (runState != RUNNING && additions.remove(task)) {
+            task.cancel(false);
+            return false;
+        }
+        return true;
+    }
+
+    // Timer thread
+
+    /**
+     * The main loop of the timer thread.
+     */
+    private void runTimer() {
+        boolean stopped = false;
+        try {
+            boolean swept = false;
+            long t = 0L;                    // the next tick to process
+            for (;;) {
+                int rs = runState;
+                if (rs >= STOP) {
+                    stopped = true;
+                    break;
+                }
+                if (rs == SHUTDOWN && !swept) {
+                    swept = true;
+                    cancelPeriodicTasks();
+                }
+                applyCancellations();
+                applyAdditions(t, rs);
+                if (count == 0) {
+                    if (rs != RUNNING)
+                        break;
+                    idle = true;
+                    if (additions.isEmpty() && runState == rs)
+                        LockSupport.park(this);
+                    idle = false;
+                    // nothing is pending, so ticks can be skipped freely
+                    long now = (System.nanoTime() - startTime) / tickNanos;
+                    if (now > t)
+                        t = now;
+                }
+                else if (startTime + t * tickNanos - System.nanoTime() > 0L)
+                    LockSupport.parkNanos(this, startTime + t * tickNanos -
+                                          System.nanoTime());
+                else
+                    advance(t++);
+            }
+        } finally {
+            // Reject further tasks even if exiting abnormally, and cancel
+            // any that raced with shutdown into the additions queue
+            advanceRunState(SHUTDOWN);
+            List<TimedTask<?>> rest = drainWheel();
+            if (stopped)
+                drained = rest;
+            else {
+                for (TimedTask<?> task : rest)
+                    task.cancel(false);
+            }
+            workers.shutdown();
+            timerDone.countDown();
+        }
+    }
+
+    /**
+     * Returns the deadline tick of the given task.
+     */
+    private long tickOf(TimedTask<?> task) {
+        long d = task.time - startTime;
+        return (d <= 0L) ? 0L : (d - 1L) / tickNanos + 1L;
+    }
+
+    /**
+     * Links the task into the bucket for its deadline, relative to the
+     * next tick to process.
+     */
+    private void place(TimedTask<?> task, long t) {
+        long tk = Math.max(tickOf(task), t);
+        long delta = tk - t;
+        int level = (delta == 0L) ? 0 :
+            (63 - Long.numberOfLeadingZeros(delta)) / WHEEL_BITS;
+        int s = (level << WHEEL_BITS) |
+            ((int)(tk >>> (level * WHEEL_BITS)) & WHEEL_MASK);
+        TimedTask<?> h = buckets[s];
+        task.slot = s;
+        task.prev = null;
+        task.next = h;
+        if (h != null)
+            h.prev = task;
+        buckets[s] = task;
+    }
+
+    /**
+     * Unlinks the task from its bucket.
+     */
+    private void unlink(TimedTask<?> task) {
+        TimedTask<?> p = task.prev, n = task.next;
+        if (p == null)
+            buckets[task.slot] = n;
+        else
+            p.next = n;
+        if (n != null)
+            n.prev = p;
+        task.prev = task.next = null;
+        task.slot = -1;
+        --count;
+    }
+
+    /**
+     * Unlinks all tasks from the given bucket, returning its first.
+     */
+    private TimedTask<?> takeBucket(int s) {
+        TimedTask<?> h = buckets[s];
+        buckets[s] = null;
+        for (TimedTask<?> p = h; p != null; p = p.next) {
+            p.slot = -1;
+            --count;
+        }
+        return h;
+    }
+
+    private void applyCancellations() {
+        for (TimedTask<?> task; (task = cancellations.poll()) != null; ) {
+            if (task.slot >= 0)
+                unlink(task);
+        }
+    }
+
+    private void applyAdditions(long t, int rs) {
+        for (TimedTask<?> task; (task = additions.poll()) != null; ) {
+            if (task.isDone())
+                continue;
+            if (rs != RUNNING && task.isPeriodic())
+                task.cancel(false);
+            else {
+                place(task, t);
+                ++count;
+            }
+        }
+    }
+
+    private void cancelPeriodicTasks() {
+        for (int s = 0; s < buckets.length; ++s) {
+            for (TimedTask<?> p = buckets[s], n; p != null; p = n) {
+                n = p.next;
+                if (p.isPeriodic()) {
+                    unlink(p);
+                    p.cancel(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Processes tick t: moves down the tasks of each level whose
+     * current bucket starts at t, then dispatches the tasks due.
+     */
+    private void advance(long t) {
+        for (int level = 1; level < LEVELS; ++level) {
+            int shift = level * WHEEL_BITS;
+            if ((t & ((1L << shift) - 1L)) != 0L)
+                break;
+            int s = (level << WHEEL_BITS) | ((int)(t >>> shift) & WHEEL_MASK);
+            for (TimedTask<?> p = takeBucket(s), n; p != null; p = n) {
+                n = p.next;
+                place(p, t);
+                ++count;
+            }
+        }
+        TimedTask<?> h = takeBucket((int)t & WHEEL_MASK);
+        if (h != null)
+            dispatch(h);
+    }
+
+    /**
+     * Hands the given list of due tasks to the workers in at most
+     * {@code parallelism} batches.
+     */
+    private void dispatch(TimedTask<?> h) {
+        ArrayList<TimedTask<?>> due = new ArrayList<TimedTask<?>>();
+        for (TimedTask<?> p = h, n; p != null; p = n) {
+            n = p.next;
+            p.prev = p.next = null;
+            due.add(p);
+        }
+        int size = due.size();
+        int per = (size + parallelism - 1) / parallelism;
+        for (int i = 0; i < size; i += per) {
+            List<TimedTask<?>> part = due.subList(i, Math.min(size, i + per));
+            Batch b = new Batch(part.toArray(new TimedTask<?>[part.size()]));
+            try {
+                workers.execute(b);
+            } catch (RejectedExecutionException ex) {
+                for (TimedTask<?> task : b.tasks)
+                    task.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Removes and returns all tasks in the wheel or queued for it that
+     * are not yet done.
+     */
+    private List<TimedTask<?>> drainWheel() {
+        ArrayList<TimedTask<?>> rest = new ArrayList<TimedTask<?>>();
+        for (int s = 0; s < buckets.length; ++s) {
+            for (TimedTask<?> p = takeBucket(s), n; p != null; p = n) {
+                n = p.next;
+                p.prev = p.next = null;
+                if (!p.isDone())
+                    rest.add(p);
+            }
+        }
+        for (TimedTask<?> task; (task = additions.poll()) != null; ) {
+            if (!task.isDone())
+                rest.add(task);
+        }
+        cancellations.clear();
+        return rest;
+    }
+
+    // ScheduledExecutorService methods
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public ScheduledFuture<?> schedule(Runnable command,
+                                       long delay,
+                                       TimeUnit unit) {
+        if (command == null || unit == null)
+            throw new NullPointerException();
+        TimedTask<Void> t =
+            new TimedTask<Void>(command, null, triggerTime(delay, unit), 0L);
+        delayedExecute(t);
+        return t;
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable,
+                                           long delay,
+                                           TimeUnit unit) {
+        if (callable == null || unit == null)
+            throw new NullPointerException();
+        TimedTask<V> t =
+            new TimedTask<V>(callable, triggerTime(delay, unit));
+        delayedExecute(t);
+        return t;
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     * @throws IllegalArgumentException   {@inheritDoc}
+     */
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command,
+                                                  long initialDelay,
+                                                  long period,
+                                                  TimeUnit unit) {
+        if (command == null || unit == null)
+            throw new NullPointerException();
+        if (period <= 0)
+            throw new IllegalArgumentException();
+        TimedTask<Void> t =
+            new TimedTask<Void>(command, null,
+                                triggerTime(initialDelay, unit),
+                                unit.toNanos(period));
+        delayedExecute(t);
+        return t;
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     * @throws IllegalArgumentException   {@inheritDoc}
+     */
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command,
+                                                     long initialDelay,
+                                                     long delay,
+                                                     TimeUnit unit) {
+        if (command == null || unit == null)
+            throw new NullPointerException();
+        if (delay <= 0)
+            throw new IllegalArgumentException();
+        TimedTask<Void> t =
+            new TimedTask<Void>(command, null,
+                                triggerTime(initialDelay, unit),
+                                -unit.toNanos(delay));
+        delayedExecute(t);
+        return t;
+    }
+
+    /**
+     * Executes {@code command} with zero required delay.
+     * This has effect equivalent to
+     * {@link #schedule(Runnable,long,TimeUnit) schedule(command, 0, anyUnit)}.
+     *
+     * @throws RejectedExecutionException if the executor has been
+     *         shut down
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public void execute(Runnable command) {
+        schedule(command, 0, NANOSECONDS);
+    }
+
+    // Override AbstractExecutorService methods
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public Future<?> submit(Runnable task) {
+        return schedule(task, 0, NANOSECONDS);
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public <T> Future<T> submit(Runnable task, T result) {
+        return schedule(Executors.callable(task, result), 0, NANOSECONDS);
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        return schedule(task, 0, NANOSECONDS);
+    }
+
+    /**
+     * Initiates an orderly shutdown in which delayed tasks already
+     * scheduled run when they fire, periodic tasks are cancelled, and
+     * no new tasks are accepted.  The timer and worker threads exit
+     * once no tasks remain.  Invocation has no additional effect if
+     * already shut down.
+     *
+     * <p>This method does not wait for previously submitted tasks to
+     * complete execution.  Use {@link #awaitTermination awaitTermination}
+     * to do that.
+     */
+    public void shutdown() {
+        advanceRunState(SHUTDOWN);
+        LockSupport.unpark(timer);
+    }
+
+    /**
+     * Attempts to stop all actively executing tasks, halts the
+     * processing of waiting tasks, and returns a list of the tasks
+     * that were awaiting execution.  These tasks are drained (removed)
+     * from the wheel upon return from this method.
+     *
+     * <p>This method waits for the timer thread to exit, but does not
+     * wait for actively executing tasks to terminate.  Use {@link
+     * #awaitTermination awaitTermination} to do that.
+     *
+     * <p>There are no guarantees beyond best-effort attempts to stop
+     * processing actively executing tasks.  This implementation
+     * cancels tasks via {@link Thread#interrupt}, so any task that
+     * fails to respond to interrupts may never terminate.
+     *
+     * @return list of tasks that never commenced execution.
+     *         Each element of this list is a {@link ScheduledFuture}.
+     */
+    public List<Runnable> shutdownNow() {
+        advanceRunState(STOP);
+        LockSupport.unpark(timer);
+        boolean interrupted = false;
+        if (Thread.currentThread() != timer) {
+            while (timerDone.getCount() != 0L) {
+                try {
+                    timerDone.await();
+                } catch (InterruptedException ie) {
+                    interrupted = true;
+                }
+            }
+        }
+        ArrayList<Runnable> tasks = new ArrayList<Runnable>();
+        List<TimedTask<?>> rest = drained;
+        if (rest != null) {
+            drained = null;
+            tasks.addAll(rest);
+        }
+        for (Runnable r : workers.shutdownNow()) {
+            if (r instanceof Batch) {
+                for (TimedTask<?> t : ((Batch)r).tasks) {
+                    if (!t.isDone())
+                        tasks.add(t);
+                }
+            }
+            else
+                tasks.add(r);
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        return tasks;
+    }
+
+    public boolean isShutdown() {
+        return runState != RUNNING;
+    }
+
+    public boolean isTerminated() {
+        return timerDone.getCount() == 0L && workers.isTerminated();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit)
+        throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        final long deadline = System.nanoTime() + nanos;
+        return timerDone.await(nanos, NANOSECONDS) &&
+            workers.awaitTermination(deadline - System.nanoTime(),
+                                     NANOSECONDS);
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe U;
+    private static final long RUNSTATE;
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = TimingWheelScheduledExecutor.class;
+            RUNSTATE = U.objectFieldOffset
+                (k.getDeclaredField("runState"));
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -0,0 +1,549 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent.atomic;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A histogram of nonnegative {@code long} values, such as latencies
+ * in nanoseconds, that may be recorded concurrently by many threads.
+ * Values are counted in log-linear buckets: each power-of-two range
+ * is divided into 2<sup>precision</sup> buckets of equal width, so
+ * that percentiles are reported to within a relative error of
+ * 2<sup>-precision</sup> over the whole range of {@code long}, with
+ * values below 2<sup>precision + 1</sup> counted exactly.
+ *
+ * <p>As with {@link LongAdder}, a histogram is recorded in a single
+ * set of counts until updates are contended, and then in a table of
+ * sets of counts ("stripes") indexed by thread, which grows up to
+ * the number of CPUs.  Method {@link #record} does not allocate,
+ * except when the table grows, and does not lock.
+ *
+ * <p>Methods {@link #snapshot} and {@link #intervalSnapshot} combine
+ * the stripes into an immutable {@link Snapshot} from which counts,
+ * means and percentiles are computed.  An interval snapshot resets
+ * each count as it reads it, so that successive interval snapshots
+ * account for every recorded value exactly once, although a value
+ * recorded concurrently with a snapshot may be included in its count
+ * but not yet in its sum and maximum, or the reverse.  Snapshots of
+ * histograms of the same precision can be {@linkplain Snapshot#merge
+ * merged}, for example to combine per-interval or per-node histograms.
+ *
+ * <p>Each stripe holds {@code (64 - precision) << precision} counts,
+ * which is 15KB for the default precision of 5, so histograms are
+ * best reserved for long-lived statistics.
+ *
+ * @since 1.8
+ */
+public class LongHistogram {
+
+    /*
+     * Each stripe is a long[] holding the sum at SUM, the maximum at
+     * MAX, and then the bucket counts, all updated by CAS.  Recording
+     * a value updates its bucket count, the sum and the maximum in
+     * turn, each as by LongAdder.add: in base while there are no
+     * stripes and no CAS of base fails, and otherwise in the stripe
+     * of the thread.  So threads recording into different buckets
+     * still move to stripes once they contend on the sum or maximum.
+     * A failed CAS of any of them is the signal of contention, and is
+     * handled by contendedUpdate, which closely follows
+     * Striped64.longAccumulate.  The sum and maximum are near the
+     * start of the array, which is adjacent to the counts of the
+     * largest values of the previously allocated stripe, which are
+     * rarely updated.
+     */
+
+    /** The default precision, in bits. */
+    static final int DEFAULT_PRECISION = 5;
+
+    /** The largest supported precision, in bits. */
+    static final int MAX_PRECISION = 10;
+
+    static final int SUM = 0;
+    static final int MAX = 1;
+    static final int FIRST_BUCKET = 2;
+
+    private final int precision;
+    private final int buckets;
+
+    /** Counts used when uncontended. */
+    private final long[] base;
+
+    /** Table of stripes. When non-null, size is a power of 2. */
+    private volatile long[][] stripes;
+
+    /** Spinlock (locked via CAS) used when resizing and/or creating stripes. */
+    private volatile int stripesBusy;
+
+    /**
+     * Creates a new histogram with the default precision of 5 bits,
+     * reporting values to within about 3%.
+     */
+    public LongHistogram() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * Creates a new histogram with the given precision.
+     *
+     * @param precision the number of bits of precision kept of
+     * recorded values, between 1 and 10
+     * @throws IllegalArgumentException if precision is out of range
+     */
+    public LongHistogram(int precision) {
+        if (precision < 1 || precision > MAX_PRECISION)
+            throw new IllegalArgumentException();
+        this.precision = precision;
+        this.buckets = bucketCount(precision);
+        this.base = new long[FIRST_BUCKET + buckets];
+    }
+
+    static int bucketCount(int precision) {
+        return (64 - precision) << precision;
+    }
+
+    /** Returns the bucket of value v >= 0. */
+    static int bucketOf(long v, int precision) {
+        if (v < (2L << precision))
+            return (int)v;
+        int shift = 63 - Long.numberOfLeadingZeros(v) - precision;
+        return ((shift + 1) << precision) + (int)(v >>> shift) -
+            (1 << precision);
+    }
+
+    /** Returns the smallest value counted in the given bucket. */
+    static long lowestValueIn(int bucket, int precision) {
+        if (bucket < (2 << precision))
+            return bucket;
+        int shift = (bucket >>> precision) - 1;
+        return (long)((bucket & ((1 << precision) - 1)) + (1 << precision))
+            << shift;
+    }
+
+    /** Returns the largest value counted in the given bucket. */
+    static long highestValueIn(int bucket, int precision) {
+        if (bucket < (2 << precision))
+            return bucket;
+        int shift = (bucket >>> precision) - 1;
+        return lowestValueIn(bucket, precision) + (1L << shift) - 1L;
+    }
+
+    private static long offset(int i) {
+        return ((long)i << LSHIFT) + LBASE;
+    }
+
+    /**
+     * Tries once to update element i of stripe s: raises it to x if
+     * i is MAX, and otherwise adds x to it.
+     */
+    private static boolean tryUpdate(long[] s, int i, long x) {
+        long off = offset(i), c = U.getLongVolatile(s, off);
+        long v = (i == MAX) ? Math.max(c, x) : c + x;
+        return v == c || U.compareAndSwapLong(s, off, c, v);
+    }
+
+    /**
+     * Records the given value.
+     *
+     * @param value the value
+     * @throws IllegalArgumentException if value is negative
+     */
+    public void record(long value) {
+        if (value < 0L)
+            throw new IllegalArgumentException();
+        update(FIRST_BUCKET + bucketOf(value, precision), 1L);
+        update(SUM, value);
+        update(MAX, value);
+    }
+
+    /** Updates element i as by tryUpdate, as in LongAdder.add. */
+    private void update(int i, long x) {
+        long[][] as; long[] a; int m;
+        if ((as = stripes) != null || !tryUpdate(base, i, x)) {
+            boolean uncontended = true;
+            if (as == null || (m = as.length - 1) < 0 ||
+                (a = as[Striped64.getProbe() & m]) == null ||
+                !(uncontended = tryUpdate(a, i, x)))
+                contendedUpdate(i, x, uncontended);
+        }
+    }
+
+    /**
+     * Handles updates involving initialization, resizing, creating
+     * new stripes, and/or contention, as in Striped64.longAccumulate.
+     */
+    private void contendedUpdate(int i, long x, boolean wasUncontended) {
+        int h;
+        if ((h = Striped64.getProbe()) == 0) {
+            ThreadLocalRandom.current(); // force initialization
+            h = Striped64.getProbe();
+            wasUncontended = true;
+        }
+        boolean collide = false;                // True if last slot nonempty
+        for (;;) {
+            long[][] as; long[] a; int n;
+            if ((as = stripes) != null && (n = as.length) > 0) {
+                if ((a = as[(n - 1) & h]) == null) {
+                    if (stripesBusy == 0) {     // Try to attach new stripe
+                        long[] r = new long[FIRST_BUCKET + buckets];
+                        if (stripesBusy == 0 && casStripesBusy()) {
+                            try {               // Recheck under lock
+                                long[][] rs; int m, j;
+                                if ((rs = stripes) != null &&
+                                    (m = rs.length) > 0 &&
+                                    rs[j = (m - 1) & h] == null)
+                                    rs[j] = r;
+                            } finally {
+                                stripesBusy = 0;
+                            }
+                            continue;           // Slot is now non-empty
+                        }
+                    }
+                    collide = false;
+                }
+                else if (!wasUncontended)       // CAS already known to fail
+                    wasUncontended = true;      // Continue after rehash
+                else if (tryUpdate(a, i, x))
+                    break;
+                else if (n >= Striped64.NCPU || stripes != as)
+                    collide = false;            // At max size or stale
+                else if (!collide)
+                    collide = true;
+                else if (stripesBusy == 0 && casStripesBusy()) {
+                    try {
+                        if (stripes == as)      // Expand table unless stale
+                            stripes = Arrays.copyOf(as, n << 1);
+                    } finally {
+                        stripesBusy = 0;
+                    }
+                    collide = false;
+                    continue;                   // Retry with expanded table
+                }
+                h = Striped64.advanceProbe(h);
+            }
+            else if (stripesBusy == 0 && stripes == as && casStripesBusy()) {
+                try {                           // Initialize table
+                    if (stripes == as) {
+                        long[][] rs = new long[2][];
+                        rs[h & 1] = new long[FIRST_BUCKET + buckets];
+                        stripes = rs;
+                    }
+                } finally {
+                    stripesBusy = 0;
+                }
+            }
+            else if (tryUpdate(base, i, x))
+                break;                          // Fall back on using base
+        }
+    }
+
+    private boolean casStripesBusy() {
+        return U.compareAndSwapInt(this, STRIPESBUSY, 0, 1);
+    }
+
+    /**
+     * Returns the number of bits of precision kept of recorded values.
+     *
+     * @return the precision
+     */
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Returns a snapshot of the values recorded since creation or the
+     * last reset.  The returned snapshot is <em>NOT</em> an atomic
+     * view; values recorded concurrently may or may not be
+     * incorporated.
+     *
+     * @return a snapshot of this histogram
+     */
+    public Snapshot snapshot() {
+        return collect(false);
+    }
+
+    /**
+     * Returns a snapshot of the values recorded since creation or the
+     * last reset or interval snapshot, and resets this histogram.
+     * Each recorded value is counted in exactly one interval snapshot.
+     *
+     * @return a snapshot of the values recorded in the last interval
+     */
+    public Snapshot intervalSnapshot() {
+        return collect(true);
+    }
+
+    /**
+     * Resets this histogram to contain no values.  This method may be
+     * a useful alternative to creating a new histogram, but is only
+     * effective if there are no concurrent recordings.  Because this
+     * method is intrinsically racy, it should only be used when it is
+     * known that no threads are concurrently recording; otherwise use
+     * {@link #intervalSnapshot}.
+     */
+    public void reset() {
+        long[][] as = stripes;
+        Arrays.fill(base, 0L);
+        if (as != null) {
+            for (long[] a : as)
+                if (a != null)
+                    Arrays.fill(a, 0L);
+        }
+    }
+
+    private Snapshot collect(boolean reset) {
+        long[] counts = new long[buckets];
+        long sum = 0L, max = 0L;
+        long[][] as = stripes;
+        int n = (as == null) ? 0 : as.length;
+        for (int k = -1; k < n; ++k) {
+            long[] s = (k < 0) ? base : as[k];
+            if (s == null)
+                continue;
+            for (int i = 0; i < buckets; ++i) {
+                long off = offset(FIRST_BUCKET + i);
+                counts[i] += reset ? U.getAndSetLong(s, off, 0L) :
+                    U.getLongVolatile(s, off);
+            }
+            long off = offset(SUM);
+            sum += reset ? U.getAndSetLong(s, off, 0L) :
+                U.getLongVolatile(s, off);
+            off = offset(MAX);
+            max = Math.max(max, reset ? U.getAndSetLong(s, off, 0L) :
+                           U.getLongVolatile(s, off));
+        }
+        return new Snapshot(precision, counts, sum, max);
+    }
+
+    /**
+     * Returns a String summarizing the values recorded in this
+     * histogram: the count, the mean, the maximum, and the median and
+     * 99th percentile.
+     *
+     * @return a String summary of this histogram
+     */
+    public String toString() {
+        return snapshot().toString();
+    }
+
+    /**
+     * An immutable snapshot of the counts of a {@link LongHistogram}.
+     *
+     * @since 1.8
+     */
+    public static final class Snapshot implements Serializable {
+        private static final long serialVersionUID = -4203615438931095120L;
+
+        /** @serial the precision of the histogram */
+        private final int precision;
+        /** @serial the bucket counts */
+        private final long[] counts;
+        /** @serial the sum of the values */
+        private final long sum;
+        /** @serial the largest value */
+        private final long max;
+
+        /** The total count, computed on construction. */
+        private final transient long count;
+
+        Snapshot(int precision, long[] counts, long sum, long max) {
+            this.precision = precision;
+            this.counts = counts;
+            this.sum = sum;
+            this.max = max;
+            long n = 0L;
+            for (long c : counts)
+                n += c;
+            this.count = n;
+        }
+
+        /**
+         * Returns the number of bits of precision of the histogram.
+         *
+         * @return the precision
+         */
+        public int getPrecision() {
+            return precision;
+        }
+
+        /**
+         * Returns the number of values recorded.
+         *
+         * @return the number of values
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the sum of the values recorded, which may overflow
+         * if enough large values are recorded.
+         *
+         * @return the sum of the values
+         */
+        public long getSum() {
+            return sum;
+        }
+
+        /**
+         * Returns the arithmetic mean of the values recorded.
+         *
+         * @return the mean, or zero if no values were recorded
+         */
+        public double getMean() {
+            return (count == 0L) ? 0.0 : (double)sum / count;
+        }
+
+        /**
+         * Returns the largest value recorded.
+         *
+         * @return the largest value, or zero if no values were recorded
+         */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * Returns the smallest value that may have been recorded,
+         * that is, the smallest value counted by the bucket of the
+         * smallest value recorded.
+         *
+         * @return the smallest value, or zero if no values were recorded
+         */
+        public long getMin() {
+            for (int i = 0; i < counts.length; ++i)
+                if (counts[i] != 0L)
+                    return lowestValueIn(i, precision);
+            return 0L;
+        }
+
+        /**
+         * Returns the value at the given percentile: the largest value
+         * counted by the bucket in which the count of values at or
+         * below it reaches {@code percentile} percent of the total, or
+         * the largest value recorded if smaller.
+         *
+         * @param percentile the percentile, between 0 and 100
+         * @return the value at the percentile, or zero if no values
+         * were recorded
+         * @throws IllegalArgumentException if percentile is out of range
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (!(percentile >= 0.0 && percentile <= 100.0))
+                throw new IllegalArgumentException();
+            long n = count;
+            if (n == 0L)
+                return 0L;
+            long rank = Math.max(1L, (long)Math.ceil(percentile / 100.0 * n));
+            long seen = 0L;
+            for (int i = 0; i < counts.length; ++i) {
+                if ((seen += counts[i]) >= rank)
+                    return Math.min(highestValueIn(i, precision), max);
+            }
+            return max;
+        }
+
+        /**
+         * Returns the number of recorded values that were at most the
+         * given value, counting whole buckets, so that values up to
+         * a relative error of 2<sup>-precision</sup> above it may be
+         * included.
+         *
+         * @param value the value
+         * @return the number of recorded values at or below value
+         */
+        public long getCountAtOrBelow(long value) {
+            if (value < 0L)
+                return 0L;
+            int b = bucketOf(value, precision);
+            long n = 0L;
+            for (int i = 0; i <= b; ++i)
+                n += counts[i];
+            return n;
+        }
+
+        /**
+         * Returns a new snapshot counting the values of both this
+         * snapshot and the given one.
+         *
+         * @param other the other snapshot
+         * @return the merged snapshot
+         * @throws IllegalArgumentException if the snapshots are of
+         * histograms of different precisions
+         */
+        public Snapshot merge(Snapshot other) {
+            if (other.precision != precision)
+                throw new IllegalArgumentException();
+            long[] cs = counts.clone(), os = other.counts;
+            for (int i = 0; i < cs.length; ++i)
+                cs[i] += os[i];
+            return new Snapshot(precision, cs, sum + other.sum,
+                                Math.max(max, other.max));
+        }
+
+        /**
+         * Returns a String summarizing this snapshot: the count, the
+         * mean, the maximum, and the median and 99th percentile.
+         *
+         * @return a String summary of this snapshot
+         */
+        public String toString() {
+            return "[count=" + count +
+                ", mean=" + (long)getMean() +
+                ", p50=" + getValueAtPercentile(50.0) +
+                ", p99=" + getValueAtPercentile(99.0) +
+                ", max=" + max + "]";
+        }
+
+        private Object readResolve() throws java.io.ObjectStreamException {
+            if (precision < 1 || precision > MAX_PRECISION ||
+                counts == null || counts.length != bucketCount(precision))
+                throw new java.io.InvalidObjectException("Invalid snapshot");
+            return new Snapshot(precision, counts, sum, max);
+        }
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe U;
+    private static final long STRIPESBUSY;
+    private static final long LBASE;
+    private static final int LSHIFT;
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            STRIPESBUSY = U.objectFieldOffset
+                (LongHistogram.class.getDeclaredField("stripesBusy"));
+            LBASE = U.arrayBaseOffset(long[].class);
+            int scale = U.arrayIndexScale(long[].class);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            LSHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -310,6 +310,15 @@ public abstract class AbstractQueuedLongSynchronizer
      */
     private volatile long state;
 
+    /**
+     * Contention statistics and adaptive spinning policy, or null
+     * unless enabled.  Read only on entering the queue, on parking
+     * and on exclusive release; see LockContentionStats.  Transient,
+     * so that neither statistics nor adaptive spinning survive
+     * serialization.
+     */
+    private transient volatile LockContentionStats contention;
+
     /**
      * Returns the current value of synchronization state.
      * This operation has memory semantics of a {@code volatile} read.
@@ -611,10 +620,48 @@ public abstract class AbstractQueuedLongSynchronizer
      * @return {@code true} if interrupted
      */
     private final boolean parkAndCheckInterrupt() {
+        LockContentionStats s = contention;
+        if (s != null)
+            s.parked();
         LockSupport.park(this);
         return Thread.interrupted();
     }
 
+    /**
+     * Spins adaptively before parking, if enabled and node's
+     * predecessor p is head, until the state changes or the spin
+     * limit derived from recent hold times, or the remaining wait
+     * time if shorter, elapses.
+     *
+     * @param p the predecessor
+     * @param s the contention statistics, or null if not enabled
+     * @param nanosTimeout the remaining wait time, or Long.MAX_VALUE
+     * if not timed
+     * @return {@code true} if the state changed, so acquisition should
+     * be retried instead of parking
+     */
+    private boolean spinForRelease(Node p, LockContentionStats s,
+                                   long nanosTimeout) {
+        long limit;
+        if (s == null || p != head || (limit = s.spinLimit()) <= 0L)
+            return false;
+        if (limit > nanosTimeout)
+            limit = nanosTimeout;
+        long c = state;
+        int spins = LockContentionStats.SPINS_PER_CLOCK_READ;
+        long start = System.nanoTime(), elapsed;
+        do {
+            for (int i = spins; i > 0; --i) {
+                if (state != c) {
+                    s.spun(System.nanoTime() - start, true);
+                    return true;
+                }
+            }
+        } while ((elapsed = System.nanoTime() - start) < limit);
+        s.spun(elapsed, false);
+        return false;
+    }
+
     /*
      * Various flavors of acquire, varying in exclusive/shared and
      * control modes.  Each is mostly the same, but annoyingly
@@ -634,6 +681,8 @@ public abstract class AbstractQueuedLongSynchronizer
      */
     final boolean acquireQueued(final Node node, long arg) {
         boolean failed = true;
+        final LockContentionStats s = contention;
+        final long queueTime = (s == null) ? 0L : s.queued();
         try {
             boolean interrupted = false;
             for (;;) {
@@ -645,12 +694,15 @@ public abstract class AbstractQueuedLongSynchronizer
                     return interrupted;
                 }
                 if (shouldParkAfterFailedAcquire(p, node) &&
+                    !spinForRelease(p, s, Long.MAX_VALUE) &&
                     parkAndCheckInterrupt())
                     interrupted = true;
             }
         } finally {
             if (failed)
                 cancelAcquire(node);
+            if (s != null)
+                s.dequeued(queueTime, !failed, true);
         }
     }
 
@@ -662,6 +714,8 @@ public abstract class AbstractQueuedLongSynchronizer
         throws InterruptedException {
         final Node node = addWaiter(Node.EXCLUSIVE);
         boolean failed = true;
+        final LockContentionStats s = contention;
+        final long queueTime = (s == null) ? 0L : s.queued();
         try {
             for (;;) {
                 final Node p = node.predecessor();
@@ -672,12 +726,15 @@ public abstract class AbstractQueuedLongSynchronizer
                     return;
                 }
                 if (shouldParkAfterFailedAcquire(p, node) &&
+                    !spinForRelease(p, s, Long.MAX_VALUE) &&
                     parkAndCheckInterrupt())
                     throw new InterruptedException();
             }
         } finally {
             if (failed)
                 cancelAcquire(node);
+            if (s != null)
+                s.dequeued(queueTime, !failed, true);
         }
     }
 
@@ -695,6 +752,8 @@ public abstract class AbstractQueuedLongSynchronizer
         final long deadline = System.nanoTime() + nanosTimeout;
         final Node node = addWaiter(Node.EXCLUSIVE);
         boolean failed = true;
+        final LockContentionStats s = contention;
+        final long queueTime = (s == null) ? 0L : s.queued();
         try {
             for (;;) {
                 final Node p = node.predecessor();
@@ -708,14 +767,22 @@ public abstract class AbstractQueuedLongSynchronizer
                 if (nanosTimeout <= 0L)
                     return false;
                 if (shouldParkAfterFailedAcquire(p, node) &&
-                    nanosTimeout > spinForTimeoutThreshold)
+                    nanosTimeout > spinForTimeoutThreshold &&
+                    !spinForRelease(p, s, nanosTimeout) &&
+                    (nanosTimeout = deadline - System.nanoTime()) >
+                    spinForTimeoutThreshold) {
+                    if (s != null)
+                        s.parked();
                     LockSupport.parkNanos(this, nanosTimeout);
+                }
                 if (Thread.interrupted())
                     throw new InterruptedException();
             }
         } finally {
             if (failed)
                 cancelAcquire(node);
+            if (s != null)
+                s.dequeued(queueTime, !failed, true);
         }
     }
 
@@ -726,6 +793,8 @@ public abstract class AbstractQueuedLongSynchronizer
     private void doAcquireShared(long arg) {
         final Node node = addWaiter(Node.SHARED);
         boolean failed = true;
+        final LockContentionStats s = contention;
+        final long queueTime = (s == null) ? 0L : s.queued();
         try {
             boolean interrupted = false;
             for (;;) {
@@ -742,12 +811,15 @@ public abstract class AbstractQueuedLongSynchronizer
                     }
                 }
                 if (shouldParkAfterFailedAcquire(p, node) &&
+                    !spinForRelease(p, s, Long.MAX_VALUE) &&
                     parkAndCheckInterrupt())
                     interrupted = true;
             }
         } finally {
             if (failed)
                 cancelAcquire(node);
+            if (s != null)
+                s.dequeued(queueTime, !failed, false);
         }
     }
 
@@ -759,6 +831,8 @@ public abstract class AbstractQueuedLongSynchronizer
         throws InterruptedException {
         final Node node = addWaiter(Node.SHARED);
         boolean failed = true;
+        final LockContentionStats s = contention;
+        final long queueTime = (s == null) ? 0L : s.queued();
         try {
             for (;;) {
                 final Node p = node.predecessor();
@@ -772,12 +846,15 @@ public abstract class AbstractQueuedLongSynchronizer
                     }
                 }
                 if (shouldParkAfterFailedAcquire(p, node) &&
+                    !spinForRelease(p, s, Long.MAX_VALUE) &&
                     parkAndCheckInterrupt())
                     throw new InterruptedException();
             }
         } finally {
             if (failed)
                 cancelAcquire(node);
+            if (s != null)
+                s.dequeued(queueTime, !failed, false);
         }
     }
 
@@ -795,6 +872,8 @@ public abstract class AbstractQueuedLongSynchronizer
         final long deadline = System.nanoTime() + nanosTimeout;
         final Node node = addWaiter(Node.SHARED);
         boolean failed = true;
+        final LockContentionStats s = contention;
+        final long queueTime = (s == null) ? 0L : s.queued();
         try {
             for (;;) {
                 final Node p = node.predecessor();
@@ -811,14 +890,22 @@ public abstract class AbstractQueuedLongSynchronizer
                 if (nanosTimeout <= 0L)
                     return false;
                 if (shouldParkAfterFailedAcquire(p, node) &&
-                    nanosTimeout > spinForTimeoutThreshold)
+                    nanosTimeout > spinForTimeoutThreshold &&
+                    !spinForRelease(p, s, nanosTimeout) &&
+                    (nanosTimeout = deadline - System.nanoTime()) >
+                    spinForTimeoutThreshold) {
+                    if (s != null)
+                        s.parked();
                     LockSupport.parkNanos(this, nanosTimeout);
+                }
                 if (Thread.interrupted())
                     throw new InterruptedException();
             }
         } finally {
             if (failed)
                 cancelAcquire(node);
+            if (s != null)
+                s.dequeued(queueTime, !failed, false);
         }
     }
 
@@ -1037,6 +1124,9 @@ public abstract class AbstractQueuedLongSynchronizer
      */
     public final boolean release(long arg) {
         if (tryRelease(arg)) {
+            LockContentionStats s = contention;
+            if (s != null)
+                s.released();
             Node h = head;
             if (h != null && h.waitStatus != 0)
                 unparkSuccessor(h);
@@ -1381,6 +1471,46 @@ public abstract class AbstractQueuedLongSynchronizer
         return list;
     }
 
+    /**
+     * Enables the recording of contention statistics for this
+     * synchronizer, and returns the {@link LockContentionMXBean}
+     * through which they are reported.  Only acquisitions that enter
+     * the wait queue are recorded, so uncontended acquisitions and
+     * releases are not slowed down.  Invoking this method again
+     * returns the same object.  Statistics are not serialized.
+     *
+     * @return the contention statistics of this synchronizer
+     * @since 1.8
+     */
+    protected final LockContentionMXBean enableContentionStatistics() {
+        return initContention(false);
+    }
+
+    /**
+     * Enables adaptive spinning: the first thread in the wait queue
+     * spins until the synchronization state changes, for up to a
+     * limit learned from recent exclusive hold times, before parking.
+     * No thread spins while holds are too long for spinning to pay
+     * off, or if only one processor is available.  Enabling adaptive
+     * spinning also enables contention statistics.  This setting is
+     * not serialized: a deserialized synchronizer does not spin until
+     * this method is invoked again.
+     *
+     * @since 1.8
+     */
+    protected final void enableAdaptiveSpinning() {
+        initContention(true).adaptive = true;
+    }
+
+    private LockContentionStats initContention(boolean adaptive) {
+        LockContentionStats s = contention;
+        if (s == null &&
+            !unsafe.compareAndSwapObject(this, contentionOffset, null,
+                                         s = new LockContentionStats(adaptive)))
+            s = contention;
+        return s;
+    }
+
     /**
      * Returns a string identifying this synchronizer, as well as its state.
      * The state, in brackets, includes the String {@code "State ="}
@@ -2043,6 +2173,7 @@ public abstract class AbstractQueuedLongSynchronizer
     private static final long tailOffset;
     private static final long waitStatusOffset;
     private static final long nextOffset;
+    private static final long contentionOffset;
 
     static {
         try {
@@ -2056,6 +2187,8 @@ public abstract class AbstractQueuedLongSynchronizer
                 (Node.class.getDeclaredField("waitStatus"));
             nextOffset = unsafe.objectFieldOffset
                 (Node.class.getDeclaredField("next"));
+            contentionOffset = unsafe.objectFieldOffset
+                (AbstractQueuedLongSynchronizer.class.getDeclaredField("contention"));
 
         } catch (Exception ex) { throw new Error(ex); }
     }
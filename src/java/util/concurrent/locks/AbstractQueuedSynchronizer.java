@@ -143,6 +143,13 @@ public abstract class AbstractQueuedSynchronizer
      */
     private volatile int state;
 
+    /**
+     * 	锁竞争的统计和自适应自旋的策略 没有开启时为null
+     * 	只在进入阻塞队列和释放独占锁时读取 见LockContentionStats
+     * 	transient 统计和自适应自旋的设置都不序列化 反序列化后为null
+     */
+    private transient volatile LockContentionStats contention;
+
     /**
      * 获取state
      */
@@ -402,10 +409,44 @@ public abstract class AbstractQueuedSynchronizer
      *	 @return true 当前线程被标记中断的 false 没有被标记中断的
      */
     private final boolean parkAndCheckInterrupt() {
+        LockContentionStats s = contention;
+        if (s != null)
+            s.parked();
         LockSupport.park(this);
         //返回当前的线程中断位标志 如果是true的话 会将中断标志重置为false
         return Thread.interrupted();
     }
+
+    /**
+     * 	自适应自旋 node的前驱p是头节点时 在挂起前先自旋等待state变化
+     * 	自旋的最长时间由最近的持有时间决定 见LockContentionStats
+     * 	且不超过剩余的可等待时间
+     * @param s 锁竞争的统计 没有开启时为null
+     * @param nanosTimeout 剩余的可等待时间 没有超时的获取为Long.MAX_VALUE
+     * @return true state在自旋期间变化了 不用挂起 重新尝试获取锁 false 需要挂起
+     */
+    private boolean spinForRelease(Node p, LockContentionStats s,
+                                   long nanosTimeout) {
+        long limit;
+        if (s == null || p != head || (limit = s.spinLimit()) <= 0L)
+            return false;
+        if (limit > nanosTimeout)
+            limit = nanosTimeout;
+        int c = state;
+        int spins = LockContentionStats.SPINS_PER_CLOCK_READ;
+        long start = System.nanoTime(), elapsed;
+        do {
+            for (int i = spins; i > 0; --i) {
+                if (state != c) {
+                    s.spun(System.nanoTime() - start, true);
+                    return true;
+                }
+            }
+        } while ((elapsed = System.nanoTime() - start) < limit);
+        s.spun(elapsed, false);
+        return false;
+    }
+
     /**
      * 返回线程被中断的状态
      * node的前驱是头节点 就再尝试获取一下锁 
@@ -414,6 +455,8 @@ public abstract class AbstractQueuedSynchronizer
      */
     final boolean acquireQueued(final Node node, int arg) {
         boolean failed = true;
+        final LockContentionStats s = contention;
+        final long queueTime = (s == null) ? 0L : s.queued();
         try {
             boolean interrupted = false;
             for (;;) {//死循环
@@ -429,12 +472,15 @@ public abstract class AbstractQueuedSynchronizer
                 }
                 //判断node是不是需要被挂起且挂起当前线程并返回线程的中断状态
                 if (shouldParkAfterFailedAcquire(p, node) &&
+                    !spinForRelease(p, s, Long.MAX_VALUE) &&
                     parkAndCheckInterrupt())
                     interrupted = true;
             }
         } finally {
             if (failed)//如果是被中断的
                 cancelAcquire(node);
+            if (s != null)
+                s.dequeued(queueTime, !failed, true);
         }
     }
 
@@ -447,6 +493,8 @@ public abstract class AbstractQueuedSynchronizer
     	//添加独占模式的节点到线程阻塞队列中
         final Node node = addWaiter(Node.EXCLUSIVE);
         boolean failed = true;
+        final LockContentionStats s = contention;
+        final long queueTime = (s == null) ? 0L : s.queued();
         try {
             for (;;) {//死循环
             	//获取node的前驱
@@ -463,6 +511,7 @@ public abstract class AbstractQueuedSynchronizer
                 //node需要被挂起且挂起当前线程(等待被唤醒) 
                 //且parkAndCheckInterrupt()中返回了线程被标志位状态 true 当前线程被标记中断的
                 if (shouldParkAfterFailedAcquire(p, node) &&
+                    !spinForRelease(p, s, Long.MAX_VALUE) &&
                     parkAndCheckInterrupt())
                 	//直接抛出异常 中断
                     throw new InterruptedException();
@@ -472,6 +521,8 @@ public abstract class AbstractQueuedSynchronizer
             if (failed)
             	//取消请求的节点
                 cancelAcquire(node);
+            if (s != null)
+                s.dequeued(queueTime, !failed, true);
         }
     }
 
@@ -491,6 +542,8 @@ public abstract class AbstractQueuedSynchronizer
         //添加独占模式的节点到线程阻塞队列中
         final Node node = addWaiter(Node.EXCLUSIVE);
         boolean failed = true;
+        final LockContentionStats s = contention;
+        final long queueTime = (s == null) ? 0L : s.queued();
         try {
             for (;;) {//死循环
                 final Node p = node.predecessor();
@@ -510,9 +563,15 @@ public abstract class AbstractQueuedSynchronizer
                 //node需要被挂起且挂起当前线程(等待被唤醒) 
                 //且此时剩余的可等待时间大于1000纳秒的超时时间
                 if (shouldParkAfterFailedAcquire(p, node) &&
-                    nanosTimeout > spinForTimeoutThreshold)
+                    nanosTimeout > spinForTimeoutThreshold &&
+                    !spinForRelease(p, s, nanosTimeout) &&
+                    (nanosTimeout = deadline - System.nanoTime()) >
+                    spinForTimeoutThreshold) {
                 	//直接挂起线程指定的时间nanosTimeout 剩余的可等待时间
+                    if (s != null)
+                        s.parked();
                     LockSupport.parkNanos(this, nanosTimeout);
+                }
                 //线程是否被标记为中断的 然后清除中断位 是的话直接抛出异常
                 if (Thread.interrupted())
                     throw new InterruptedException();
@@ -522,6 +581,8 @@ public abstract class AbstractQueuedSynchronizer
             if (failed)
             	//取消请求的节点
                 cancelAcquire(node);
+            if (s != null)
+                s.dequeued(queueTime, !failed, true);
         }
     }
 
@@ -533,6 +594,8 @@ public abstract class AbstractQueuedSynchronizer
     	//添加共享模式的节点到线程阻塞队列中
         final Node node = addWaiter(Node.SHARED);
         boolean failed = true;
+        final LockContentionStats s = contention;
+        final long queueTime = (s == null) ? 0L : s.queued();
         try {
             boolean interrupted = false;
             for (;;) {
@@ -556,6 +619,7 @@ public abstract class AbstractQueuedSynchronizer
                 //node是不是需要被挂起且挂起当前线程(等待被唤醒) 
                 //在parkAndCheckInterrupt()中线程被标志位中断了 并且重新设置为false了
                 if (shouldParkAfterFailedAcquire(p, node) &&
+                    !spinForRelease(p, s, Long.MAX_VALUE) &&
                     parkAndCheckInterrupt())
                     interrupted = true;
             }
@@ -564,6 +628,8 @@ public abstract class AbstractQueuedSynchronizer
             if (failed)
             	//取消请求的节点
                 cancelAcquire(node);
+            if (s != null)
+                s.dequeued(queueTime, !failed, false);
         }
     }
 
@@ -575,6 +641,8 @@ public abstract class AbstractQueuedSynchronizer
     	//添加共享模式的节点到线程阻塞队列中
         final Node node = addWaiter(Node.SHARED);
         boolean failed = true;
+        final LockContentionStats s = contention;
+        final long queueTime = (s == null) ? 0L : s.queued();
         try {
             for (;;) {//死循环
             	//获取node的前驱节点
@@ -592,6 +660,7 @@ public abstract class AbstractQueuedSynchronizer
                 }
                 //node需要被挂起且返回当前的线程中断位标志为true 直接抛出异常
                 if (shouldParkAfterFailedAcquire(p, node) &&
+                    !spinForRelease(p, s, Long.MAX_VALUE) &&
                     parkAndCheckInterrupt())
                     throw new InterruptedException();
             }
@@ -600,6 +669,8 @@ public abstract class AbstractQueuedSynchronizer
             if (failed)
             	//取消请求的节点
                 cancelAcquire(node);
+            if (s != null)
+                s.dequeued(queueTime, !failed, false);
         }
     }
 
@@ -618,6 +689,8 @@ public abstract class AbstractQueuedSynchronizer
         //添加共享节点到线程阻塞队列中
         final Node node = addWaiter(Node.SHARED);
         boolean failed = true;
+        final LockContentionStats s = contention;
+        final long queueTime = (s == null) ? 0L : s.queued();
         try {
             for (;;) {//死循环
             	//获取节点的前驱
@@ -642,8 +715,14 @@ public abstract class AbstractQueuedSynchronizer
                     return false;
                 //判断node是不是需要被挂起 并指定挂起的时间为剩余的可等待时间
                 if (shouldParkAfterFailedAcquire(p, node) &&
-                    nanosTimeout > spinForTimeoutThreshold)
+                    nanosTimeout > spinForTimeoutThreshold &&
+                    !spinForRelease(p, s, nanosTimeout) &&
+                    (nanosTimeout = deadline - System.nanoTime()) >
+                    spinForTimeoutThreshold) {
+                    if (s != null)
+                        s.parked();
                     LockSupport.parkNanos(this, nanosTimeout);
+                }
                 //线程是否被标记为中断的 是的话直接抛出异常
                 if (Thread.interrupted())
                     throw new InterruptedException();
@@ -653,6 +732,8 @@ public abstract class AbstractQueuedSynchronizer
             if (failed)
             	//取消请求的节点
                 cancelAcquire(node);
+            if (s != null)
+                s.dequeued(queueTime, !failed, false);
         }
     }
 
@@ -752,6 +833,10 @@ public abstract class AbstractQueuedSynchronizer
     public final boolean release(int arg) {
     	//尝试释放独占锁 留给需要的子类实现
         if (tryRelease(arg)) {
+            //记录持有时间 用于自适应自旋
+            LockContentionStats s = contention;
+            if (s != null)
+                s.released();
         	//独占锁释放成功 唤醒后继节点
             Node h = head;
             if (h != null && h.waitStatus != 0)
@@ -965,6 +1050,41 @@ public abstract class AbstractQueuedSynchronizer
         }
         return list;
     }
+
+    /**
+     * 	开启锁竞争的统计 返回统计信息的MXBean
+     * 	只记录进入了阻塞队列的获取 没有竞争的获取和释放不受影响
+     * 	多次调用返回同一个对象 统计信息不会被序列化
+     * @return 统计信息
+     * @since 1.8
+     */
+    protected final LockContentionMXBean enableContentionStatistics() {
+        return initContention(false);
+    }
+
+    /**
+     * 	开启自适应自旋 阻塞队列中第一个等待的线程在挂起前先自旋等待state变化
+     * 	自旋的最长时间根据最近的独占持有时间自动调整 持有时间太长时不自旋
+     * 	只有一个处理器时不自旋 同时也会开启锁竞争的统计
+     * 	这个设置不会被序列化 反序列化得到的对象不自旋 需要重新开启
+     * @since 1.8
+     */
+    protected final void enableAdaptiveSpinning() {
+        initContention(true).adaptive = true;
+    }
+
+    /**
+     * 	cas初始化锁竞争的统计
+     */
+    private LockContentionStats initContention(boolean adaptive) {
+        LockContentionStats s = contention;
+        if (s == null &&
+            !unsafe.compareAndSwapObject(this, contentionOffset, null,
+                                         s = new LockContentionStats(adaptive)))
+            s = contention;
+        return s;
+    }
+
     public String toString() {
         int s = getState();
         String q  = hasQueuedThreads() ? "non" : "";
@@ -1528,6 +1648,7 @@ public abstract class AbstractQueuedSynchronizer
     private static final long tailOffset;
     private static final long waitStatusOffset;
     private static final long nextOffset;
+    private static final long contentionOffset;
 
     static {
         try {
@@ -1541,6 +1662,8 @@ public abstract class AbstractQueuedSynchronizer
                 (Node.class.getDeclaredField("waitStatus"));
             nextOffset = unsafe.objectFieldOffset
                 (Node.class.getDeclaredField("next"));
+            contentionOffset = unsafe.objectFieldOffset
+                (AbstractQueuedSynchronizer.class.getDeclaredField("contention"));
 
         } catch (Exception ex) { throw new Error(ex); }
     }
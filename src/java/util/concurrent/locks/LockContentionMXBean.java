@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent.locks;
+
+/**
+ * The management interface for the contention statistics of a lock
+ * or other synchronizer built on {@link AbstractQueuedSynchronizer}
+ * or {@link AbstractQueuedLongSynchronizer}, obtained for example
+ * from {@link ReentrantLock#enableStatistics}.  Only acquisitions
+ * that fail their first attempt and enter the wait queue are
+ * recorded; uncontended acquisitions and releases are not slowed
+ * down.  The statistics tell apart waits that were satisfied by
+ * spinning from those that parked the waiting thread, and report the
+ * current parameters of the adaptive spinning policy, if enabled.
+ *
+ * <p>An instance of this interface is an MXBean and can be registered
+ * with a platform {@link javax.management.MBeanServer MBeanServer}
+ * under a name of the application's choosing:
+ *
+ * <pre> {@code
+ * LockContentionMXBean stats = cacheLock.enableStatistics();
+ * ManagementFactory.getPlatformMBeanServer().registerMBean(
+ *     stats, new ObjectName("com.example:type=Lock,name=cache"));}</pre>
+ *
+ * <p>Counts are cumulative since statistics were enabled or last
+ * {@linkplain #reset reset}.  They are maintained without locking and
+ * may not reflect acquisitions in progress.  Times are in nanoseconds.
+ *
+ * @see ReentrantLock#enableStatistics
+ * @see ReentrantReadWriteLock#enableStatistics
+ * @since 1.8
+ */
+public interface LockContentionMXBean {
+
+    /**
+     * Returns the number of acquisitions that completed after
+     * entering the wait queue.
+     *
+     * @return the number of contended acquisitions
+     */
+    long getContendedAcquireCount();
+
+    /**
+     * Returns the number of queued acquisitions that were abandoned,
+     * by timeout or interruption.
+     *
+     * @return the number of cancelled acquisitions
+     */
+    long getCancelledAcquireCount();
+
+    /**
+     * Returns the total time spent in the wait queue by contended
+     * acquisitions.
+     *
+     * @return the total acquire wait time in nanoseconds
+     */
+    long getTotalAcquireWaitTime();
+
+    /**
+     * Returns the mean time spent in the wait queue by contended
+     * acquisitions.
+     *
+     * @return the mean acquire wait time in nanoseconds, or zero if none
+     */
+    double getMeanAcquireWaitTime();
+
+    /**
+     * Returns the longest time spent in the wait queue by a contended
+     * acquisition.
+     *
+     * @return the maximum acquire wait time in nanoseconds
+     */
+    long getMaxAcquireWaitTime();
+
+    /**
+     * Returns the number of threads currently waiting in the queue,
+     * as counted by this object.
+     *
+     * @return the current queue length
+     */
+    int getQueueLength();
+
+    /**
+     * Returns the mean number of threads that were already waiting
+     * when a thread entered the queue.
+     *
+     * @return the mean queue length seen on arrival, or zero if none
+     */
+    double getMeanQueueLength();
+
+    /**
+     * Returns the largest number of threads waiting at once.
+     *
+     * @return the maximum queue length
+     */
+    int getMaxQueueLength();
+
+    /**
+     * Returns the number of times a waiting thread parked.
+     *
+     * @return the number of parks
+     */
+    long getParkCount();
+
+    /**
+     * Returns the number of times a waiting thread spun instead of
+     * parking.
+     *
+     * @return the number of spins
+     */
+    long getSpinCount();
+
+    /**
+     * Returns the number of spins that ended because the state of the
+     * synchronizer changed, rather than because the spin limit was
+     * reached.
+     *
+     * @return the number of successful spins
+     */
+    long getSuccessfulSpinCount();
+
+    /**
+     * Returns the total time spent spinning.
+     *
+     * @return the total spin time in nanoseconds
+     */
+    long getTotalSpinTime();
+
+    /**
+     * Returns {@code true} if waiting threads spin adaptively before
+     * parking.
+     *
+     * @return {@code true} if adaptive spinning is enabled
+     */
+    boolean isAdaptiveSpinning();
+
+    /**
+     * Returns the current estimate of the time the synchronizer is
+     * held exclusively, learned from sampled holds.
+     *
+     * @return the estimated hold time in nanoseconds
+     */
+    long getHoldTimeEstimate();
+
+    /**
+     * Returns the longest time a waiting thread will currently spin
+     * before parking, which is zero if adaptive spinning is disabled,
+     * if only one processor is available, or if recent holds have
+     * been too long for spinning to pay off.
+     *
+     * @return the current spin limit in nanoseconds
+     */
+    long getSpinLimit();
+
+    /**
+     * Resets all counts, times and maxima to zero.  The hold time
+     * estimate and the current queue length are not affected.
+     */
+    void reset();
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent.locks;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The contention statistics and adaptive spinning policy of an
+ * AbstractQueuedSynchronizer or AbstractQueuedLongSynchronizer.  The
+ * synchronizer reads its reference to this object on entering the
+ * wait queue, on parking, and on exclusive release, so synchronizers
+ * without one pay nothing on uncontended acquisitions and a field
+ * load and a branch on release.
+ *
+ * The spinning policy is the classic one of spinning only when the
+ * expected wait is shorter than the cost of parking and being
+ * unparked: the first queued thread, which is the one that will get
+ * the synchronizer next, spins until the synchronization state
+ * changes or for up to twice the estimated hold time, and does not
+ * spin at all once holds have become longer than MAX_HOLD_NANOS.
+ * Hold times are sampled from exclusive acquisitions made through the
+ * queue, which are the ones for which the estimate matters, and are
+ * averaged with weight 1/8 for the newest sample.
+ */
+final class LockContentionStats implements LockContentionMXBean {
+
+    /** Number of CPUS, to disable spinning on uniprocessors. */
+    static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    /** The shortest spin, used until holds have been sampled. */
+    static final long MIN_SPIN_NANOS = 1L << 10;
+
+    /**
+     * The longest estimated hold for which to spin, around the cost
+     * of a park and unpark.
+     */
+    static final long MAX_HOLD_NANOS = 1L << 14;
+
+    /** The number of state checks between reads of the clock. */
+    static final int SPINS_PER_CLOCK_READ = 32;
+
+    volatile boolean adaptive;
+
+    /**
+     * Time of the latest exclusive acquisition through the queue, or
+     * zero if none since the last release.  Written and read by the
+     * owning thread.
+     */
+    long holdStart;
+
+    private volatile long holdEstimate;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LongAdder arrivals = new LongAdder();
+    private final LongAdder arrivalQueueLengths = new LongAdder();
+    private final LongAccumulator maxQueueLength =
+        new LongAccumulator(Math::max, 0L);
+    private final LongAdder acquires = new LongAdder();
+    private final LongAdder cancellations = new LongAdder();
+    private final LongAdder waitTime = new LongAdder();
+    private final LongAccumulator maxWaitTime =
+        new LongAccumulator(Math::max, 0L);
+    private final LongAdder parks = new LongAdder();
+    private final LongAdder spins = new LongAdder();
+    private final LongAdder successfulSpins = new LongAdder();
+    private final LongAdder spinTime = new LongAdder();
+
+    LockContentionStats(boolean adaptive) {
+        this.adaptive = adaptive;
+    }
+
+    // Recording, called by the synchronizer
+
+    /** Called on entering the queue; returns the time of entry. */
+    long queued() {
+        int n = waiting.incrementAndGet();
+        arrivals.increment();
+        arrivalQueueLengths.add(n - 1);
+        maxQueueLength.accumulate(n);
+        return System.nanoTime();
+    }
+
+    /**
+     * Called on leaving the queue entered at the given time, having
+     * acquired (exclusively or not) unless cancelled.
+     */
+    void dequeued(long queueTime, boolean acquired, boolean exclusive) {
+        waiting.decrementAndGet();
+        if (!acquired)
+            cancellations.increment();
+        else {
+            long now = System.nanoTime(), wait = now - queueTime;
+            acquires.increment();
+            waitTime.add(wait);
+            maxWaitTime.accumulate(wait);
+            if (exclusive)
+                holdStart = (now == 0L) ? 1L : now;
+        }
+    }
+
+    /** Called by the owner on release. */
+    void released() {
+        long start = holdStart;
+        if (start != 0L) {
+            long h = holdEstimate, hold = System.nanoTime() - start;
+            holdStart = 0L;
+            holdEstimate = h + ((hold - h) >> 3);
+        }
+    }
+
+    /**
+     * Returns the longest time to spin before parking, or zero if
+     * spinning is disabled or not worthwhile.
+     */
+    long spinLimit() {
+        long h;
+        if (!adaptive || NCPU < 2 || (h = holdEstimate) > MAX_HOLD_NANOS)
+            return 0L;
+        return Math.max(h << 1, MIN_SPIN_NANOS);
+    }
+
+    /** Called after spinning, successfully if the state changed. */
+    void spun(long time, boolean success) {
+        spins.increment();
+        spinTime.add(time);
+        if (success)
+            successfulSpins.increment();
+    }
+
+    void parked() {
+        parks.increment();
+    }
+
+    // LockContentionMXBean
+
+    public long getContendedAcquireCount() {
+        return acquires.sum();
+    }
+
+    public long getCancelledAcquireCount() {
+        return cancellations.sum();
+    }
+
+    public long getTotalAcquireWaitTime() {
+        return waitTime.sum();
+    }
+
+    public double getMeanAcquireWaitTime() {
+        long n = acquires.sum();
+        return (n == 0L) ? 0.0 : (double)waitTime.sum() / n;
+    }
+
+    public long getMaxAcquireWaitTime() {
+        return maxWaitTime.get();
+    }
+
+    public int getQueueLength() {
+        return Math.max(waiting.get(), 0);
+    }
+
+    public double getMeanQueueLength() {
+        long n = arrivals.sum();
+        return (n == 0L) ? 0.0 : (double)arrivalQueueLengths.sum() / n;
+    }
+
+    public int getMaxQueueLength() {
+        return (int)maxQueueLength.get();
+    }
+
+    public long getParkCount() {
+        return parks.sum();
+    }
+
+    public long getSpinCount() {
+        return spins.sum();
+    }
+
+    public long getSuccessfulSpinCount() {
+        return successfulSpins.sum();
+    }
+
+    public long getTotalSpinTime() {
+        return spinTime.sum();
+    }
+
+    public boolean isAdaptiveSpinning() {
+        return adaptive;
+    }
+
+    public long getHoldTimeEstimate() {
+        return holdEstimate;
+    }
+
+    public long getSpinLimit() {
+        return spinLimit();
+    }
+
+    public void reset() {
+        arrivals.reset();
+        arrivalQueueLengths.reset();
+        maxQueueLength.reset();
+        acquires.reset();
+        cancellations.reset();
+        waitTime.reset();
+        maxWaitTime.reset();
+        parks.reset();
+        spins.reset();
+        successfulSpins.reset();
+        spinTime.reset();
+    }
+
+    public String toString() {
+        return "LockContentionStats[contendedAcquires=" +
+            getContendedAcquireCount() +
+            ", meanWait=" + (long)getMeanAcquireWaitTime() +
+            ", maxWait=" + getMaxAcquireWaitTime() +
+            ", queueLength=" + getQueueLength() +
+            ", maxQueueLength=" + getMaxQueueLength() +
+            ", parks=" + getParkCount() +
+            ", spins=" + getSpinCount() +
+            ", successfulSpins=" + getSuccessfulSpinCount() +
+            ", holdTimeEstimate=" + getHoldTimeEstimate() +
+            ", spinLimit=" + getSpinLimit() + "]";
+    }
+}
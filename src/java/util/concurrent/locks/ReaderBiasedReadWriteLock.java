@@ -0,0 +1,815 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent.locks;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ReadWriteLock} with the same semantics as a {@link
+ * ReentrantReadWriteLock}, but biased towards readers, so that
+ * acquiring and releasing the read lock while no thread is writing
+ * does not update any memory shared with other readers.  It is
+ * intended for read-mostly data on machines with many cores, where
+ * the compare-and-set of a shared lock word by every reader of a
+ * {@code ReentrantReadWriteLock} makes reads scale negatively.
+ *
+ * <p>The implementation follows the BRAVO design (Dice and Kogan,
+ * "BRAVO: Biased Locking for Reader-Writer Locks", USENIX ATC 2019):
+ * an underlying {@code ReentrantReadWriteLock} is used by writers and
+ * by readers that cannot take the fast path.  While the lock is
+ * <em>read-biased</em>, a reader instead publishes itself in one
+ * slot, chosen by hashing the thread and the lock, of a table shared
+ * by all such locks.  A writer acquires the underlying write lock,
+ * revokes the bias, and waits until no slot refers to this lock.
+ * Because revocation costs a scan of the table, the bias is not
+ * restored by readers until some multiple of the time the last
+ * revocation took has passed, which bounds the slowdown of writers
+ * to a small fraction.  Readers that find their slot taken by
+ * another thread or lock, or the bias revoked, use the underlying
+ * lock.
+ *
+ * <p>Both locks are reentrant, and the write lock can be downgraded
+ * to a read lock, and supports {@link Condition}s, exactly as for
+ * {@code ReentrantReadWriteLock}; the read lock does not support
+ * conditions.  A thread that holds the read lock in biased mode,
+ * like any other reader, cannot acquire the write lock.  The
+ * fairness policy, if requested, applies to acquisitions through the
+ * underlying lock; biased reads do not wait for queued writers, but
+ * are disabled as soon as a writer acquires the underlying lock.
+ *
+ * <p>Read acquisitions and releases look up a thread-local record of
+ * the biased read holds of the current thread, and so cost somewhat
+ * more than those of an uncontended {@code ReentrantReadWriteLock}
+ * when run by a single thread.
+ *
+ * <p>Serialization of this class behaves in the same way as built-in
+ * locks: a deserialized lock is in the unlocked state, regardless of
+ * its state when serialized.
+ *
+ * @see ReentrantReadWriteLock
+ * @since 1.8
+ */
+public class ReaderBiasedReadWriteLock
+        implements ReadWriteLock, java.io.Serializable {
+    private static final long serialVersionUID = -1582309812402195543L;
+
+    /*
+     * Readers take the fast path by CASing their slot from null to
+     * this lock, and then re-checking readBias, which writers clear
+     * before scanning the slots; both are volatile, so either the
+     * reader sees the bias revoked and backs out, or the writer sees
+     * the reader's slot.  Reentrant biased reads are counted in the
+     * thread's ReaderHolds rather than in the slot, which holds only
+     * one reader; a thread holding a biased read lock always
+     * reacquires it in biased mode, so that it can never wait for a
+     * writer that is in turn waiting for its slot to be released.
+     *
+     * Readers re-enable the bias only while holding the underlying
+     * read lock, and not held in write mode by their own thread
+     * (downgrading), so that no writer can be active or revoking.
+     * Writers revoke again after each Condition wait, as the bias may
+     * have been restored while the underlying write lock was released.
+     */
+
+    /** The underlying lock */
+    final ReentrantReadWriteLock rw;
+    private final ReaderBiasedReadWriteLock.ReadLock readerLock;
+    private final ReaderBiasedReadWriteLock.WriteLock writerLock;
+
+    /** Whether readers may take the fast path. */
+    private transient volatile boolean readBias;
+
+    /** The time before which readers may not restore the bias. */
+    private transient volatile long inhibitUntil;
+
+    /**
+     * Each revocation inhibits the bias for this many times the time
+     * it took, so that writers spend at most about one tenth of their
+     * time revoking.
+     */
+    static final int INHIBIT_MULTIPLIER = 9;
+
+    /** The number of slots in the table of readers, a power of two. */
+    static final int READER_SLOTS = 1 << 12;
+
+    /**
+     * Visible readers: each non-null slot refers to a lock held in
+     * biased read mode by one thread.  Shared by all locks.
+     */
+    private static final Object[] visibleReaders = new Object[READER_SLOTS];
+
+    /**
+     * Biased read holds of a thread: the locks and their hold counts.
+     * Threads rarely hold more than a couple of biased locks at once.
+     */
+    static final class ReaderHolds {
+        /** Per-thread hash, combined with the lock's to pick a slot */
+        final int seed;
+        Object[] locks = new Object[2];
+        int[] counts = new int[2];
+        int size;
+
+        ReaderHolds() {
+            int h = (int)Thread.currentThread().getId() * 0x9e3779b9;
+            seed = h ^ (h >>> 16);
+        }
+
+        int indexOf(Object lock) {
+            Object[] ls = locks;
+            for (int i = size - 1; i >= 0; --i)
+                if (ls[i] == lock)
+                    return i;
+            return -1;
+        }
+
+        void add(Object lock) {
+            int n = size;
+            if (n == locks.length) {
+                locks = java.util.Arrays.copyOf(locks, n << 1);
+                counts = java.util.Arrays.copyOf(counts, n << 1);
+            }
+            locks[n] = lock;
+            counts[n] = 1;
+            size = n + 1;
+        }
+
+        void remove(int i) {
+            int last = --size;
+            locks[i] = locks[last];
+            counts[i] = counts[last];
+            locks[last] = null;
+        }
+    }
+
+    static final ThreadLocal<ReaderHolds> readerHolds =
+        new ThreadLocal<ReaderHolds>() {
+            protected ReaderHolds initialValue() {
+                return new ReaderHolds();
+            }
+        };
+
+    /**
+     * Creates a new {@code ReaderBiasedReadWriteLock} with
+     * default (nonfair) ordering properties.
+     */
+    public ReaderBiasedReadWriteLock() {
+        this(false);
+    }
+
+    /**
+     * Creates a new {@code ReaderBiasedReadWriteLock} with
+     * the given fairness policy for its underlying lock.
+     *
+     * @param fair {@code true} if the underlying lock should use a
+     * fair ordering policy
+     */
+    public ReaderBiasedReadWriteLock(boolean fair) {
+        rw = new ReentrantReadWriteLock(fair);
+        readerLock = new ReadLock(this);
+        writerLock = new WriteLock(this);
+        inhibitUntil = System.nanoTime();
+        readBias = true;
+    }
+
+    public ReaderBiasedReadWriteLock.WriteLock writeLock() { return writerLock; }
+    public ReaderBiasedReadWriteLock.ReadLock  readLock()  { return readerLock; }
+
+    /** Returns the offset of the slot of the given thread for this lock. */
+    private long slotOffset(ReaderHolds h) {
+        int k = h.seed ^ (System.identityHashCode(this) * 0x85ebca6b);
+        return ((long)((k ^ (k >>> 15)) & (READER_SLOTS - 1)) << ASHIFT) +
+            ABASE;
+    }
+
+    /**
+     * Tries to acquire the read lock in biased mode, or reentrantly
+     * if already so held by the current thread.
+     */
+    final boolean tryBiasedRead() {
+        ReaderHolds h = readerHolds.get();
+        int i = h.indexOf(this);
+        if (i >= 0) {
+            if (h.counts[i] == Integer.MAX_VALUE)
+                throw new Error("Maximum lock count exceeded");
+            ++h.counts[i];
+            return true;
+        }
+        if (readBias) {
+            long off = slotOffset(h);
+            if (U.compareAndSwapObject(visibleReaders, off, null, this)) {
+                if (readBias) {
+                    h.add(this);
+                    return true;
+                }
+                U.putOrderedObject(visibleReaders, off, null);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Releases the read lock if held in biased mode by the current
+     * thread.
+     *
+     * @return {@code false} if not so held
+     */
+    final boolean tryBiasedReadRelease() {
+        ReaderHolds h = readerHolds.get();
+        int i = h.indexOf(this);
+        if (i < 0)
+            return false;
+        if (--h.counts[i] == 0) {
+            h.remove(i);
+            U.putOrderedObject(visibleReaders, slotOffset(h), null);
+        }
+        return true;
+    }
+
+    /** Called after acquiring the underlying read lock. */
+    final void readAcquired() {
+        if (!readBias && System.nanoTime() - inhibitUntil >= 0L &&
+            !rw.isWriteLocked())
+            readBias = true;
+    }
+
+    /**
+     * Called with the underlying write lock held: revokes the bias
+     * and waits for biased readers to leave, until the given deadline
+     * if timed.
+     *
+     * @return {@code false} if timed out
+     * @throws InterruptedException if interruptible and interrupted
+     */
+    final boolean revokeBias(boolean interruptible, boolean timed,
+                             long deadline)
+        throws InterruptedException {
+        if (!readBias)
+            return true;
+        readBias = false;
+        long start = System.nanoTime();
+        for (int i = 0; i < READER_SLOTS; ++i) {
+            long off = ((long)i << ASHIFT) + ABASE;
+            while (U.getObjectVolatile(visibleReaders, off) == this) {
+                if (interruptible && Thread.interrupted())
+                    throw new InterruptedException();
+                if (timed && deadline - System.nanoTime() <= 0L)
+                    return false;
+                Thread.yield();
+            }
+        }
+        long now = System.nanoTime();
+        inhibitUntil = now + (now - start) * INHIBIT_MULTIPLIER;
+        return true;
+    }
+
+    /** Revokes the bias, ignoring interrupts. */
+    final void revokeBias() {
+        boolean interrupted = Thread.interrupted();
+        try {
+            revokeBias(false, false, 0L);
+        } catch (InterruptedException cannotHappen) {
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    /** Returns the number of biased read holds of this lock. */
+    private int biasedReaderCount() {
+        int n = 0;
+        for (int i = 0; i < READER_SLOTS; ++i)
+            if (U.getObjectVolatile(visibleReaders,
+                                    ((long)i << ASHIFT) + ABASE) == this)
+                ++n;
+        return n;
+    }
+
+    /**
+     * The lock returned by method {@link ReaderBiasedReadWriteLock#readLock}.
+     */
+    public static class ReadLock implements Lock, java.io.Serializable {
+        private static final long serialVersionUID = -7390240523463190442L;
+        private final ReaderBiasedReadWriteLock lock;
+        private final ReentrantReadWriteLock.ReadLock rl;
+
+        /**
+         * Constructor for use by subclasses
+         *
+         * @param lock the outer lock object
+         * @throws NullPointerException if the lock is null
+         */
+        protected ReadLock(ReaderBiasedReadWriteLock lock) {
+            this.lock = lock;
+            rl = lock.rw.readLock();
+        }
+
+        /**
+         * Acquires the read lock, as with {@link
+         * ReentrantReadWriteLock.ReadLock#lock}, in biased mode if
+         * possible.
+         */
+        public void lock() {
+            if (!lock.tryBiasedRead()) {
+                rl.lock();
+                lock.readAcquired();
+            }
+        }
+
+        /**
+         * Acquires the read lock unless the current thread is
+         * {@linkplain Thread#interrupt interrupted}, as with {@link
+         * ReentrantReadWriteLock.ReadLock#lockInterruptibly}.
+         *
+         * @throws InterruptedException if the current thread is interrupted
+         */
+        public void lockInterruptibly() throws InterruptedException {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            if (!lock.tryBiasedRead()) {
+                rl.lockInterruptibly();
+                lock.readAcquired();
+            }
+        }
+
+        /**
+         * Acquires the read lock only if the write lock is not held by
+         * another thread at the time of invocation, as with {@link
+         * ReentrantReadWriteLock.ReadLock#tryLock()}.
+         *
+         * @return {@code true} if the read lock was acquired
+         */
+        public boolean tryLock() {
+            if (lock.tryBiasedRead())
+                return true;
+            if (!rl.tryLock())
+                return false;
+            lock.readAcquired();
+            return true;
+        }
+
+        /**
+         * Acquires the read lock if the write lock is not held by
+         * another thread within the given waiting time and the
+         * current thread has not been {@linkplain Thread#interrupt
+         * interrupted}, as with {@link
+         * ReentrantReadWriteLock.ReadLock#tryLock(long, TimeUnit)}.
+         *
+         * @param timeout the time to wait for the read lock
+         * @param unit the time unit of the timeout argument
+         * @return {@code true} if the read lock was acquired
+         * @throws InterruptedException if the current thread is interrupted
+         * @throws NullPointerException if the time unit is null
+         */
+        public boolean tryLock(long timeout, TimeUnit unit)
+                throws InterruptedException {
+            if (unit == null)
+                throw new NullPointerException();
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            if (lock.tryBiasedRead())
+                return true;
+            if (!rl.tryLock(timeout, unit))
+                return false;
+            lock.readAcquired();
+            return true;
+        }
+
+        /**
+         * Attempts to release this lock.
+         *
+         * @throws IllegalMonitorStateException if the current thread
+         * does not hold this lock
+         */
+        public void unlock() {
+            if (!lock.tryBiasedReadRelease())
+                rl.unlock();
+        }
+
+        /**
+         * Throws {@code UnsupportedOperationException} because
+         * {@code ReadLocks} do not support conditions.
+         *
+         * @throws UnsupportedOperationException always
+         */
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Returns a string identifying this lock, as well as its lock state.
+         * The state, in brackets, includes the String {@code "Read locks ="}
+         * followed by the number of held read locks.
+         *
+         * @return a string identifying this lock, as well as its lock state
+         */
+        public String toString() {
+            return super.toString() +
+                "[Read locks = " + lock.getReadLockCount() + "]";
+        }
+    }
+
+    /**
+     * The lock returned by method {@link ReaderBiasedReadWriteLock#writeLock}.
+     */
+    public static class WriteLock implements Lock, java.io.Serializable {
+        private static final long serialVersionUID = 3017289516286542377L;
+        private final ReaderBiasedReadWriteLock lock;
+        private final ReentrantReadWriteLock.WriteLock wl;
+
+        /**
+         * Constructor for use by subclasses
+         *
+         * @param lock the outer lock object
+         * @throws NullPointerException if the lock is null
+         */
+        protected WriteLock(ReaderBiasedReadWriteLock lock) {
+            this.lock = lock;
+            wl = lock.rw.writeLock();
+        }
+
+        /**
+         * Acquires the write lock, as with {@link
+         * ReentrantReadWriteLock.WriteLock#lock}, and then waits for
+         * readers holding the lock in biased mode to release it.
+         */
+        public void lock() {
+            wl.lock();
+            lock.revokeBias();
+        }
+
+        /**
+         * Acquires the write lock unless the current thread is
+         * {@linkplain Thread#interrupt interrupted}, as with {@link
+         * ReentrantReadWriteLock.WriteLock#lockInterruptibly}.
+         *
+         * @throws InterruptedException if the current thread is interrupted
+         */
+        public void lockInterruptibly() throws InterruptedException {
+            wl.lockInterruptibly();
+            boolean revoked = false;
+            try {
+                revoked = lock.revokeBias(true, false, 0L);
+            } finally {
+                if (!revoked)
+                    wl.unlock();
+            }
+        }
+
+        /**
+         * Acquires the write lock only if it is not held by another
+         * thread and no thread holds the read lock at the time of
+         * invocation, as with {@link
+         * ReentrantReadWriteLock.WriteLock#tryLock()}.
+         *
+         * @return {@code true} if the lock was free and was acquired
+         * by the current thread, or the write lock was already held
+         * by the current thread; and {@code false} otherwise.
+         */
+        public boolean tryLock() {
+            if (!wl.tryLock())
+                return false;
+            boolean revoked = false;
+            try {
+                revoked = lock.revokeBias(false, true, System.nanoTime());
+            } catch (InterruptedException cannotHappen) {
+            } finally {
+                if (!revoked)
+                    wl.unlock();
+            }
+            return revoked;
+        }
+
+        /**
+         * Acquires the write lock if it is not held by another thread
+         * and biased readers leave within the given waiting time, and
+         * the current thread has not been {@linkplain Thread#interrupt
+         * interrupted}, as with {@link
+         * ReentrantReadWriteLock.WriteLock#tryLock(long, TimeUnit)}.
+         *
+         * @param timeout the time to wait for the write lock
+         * @param unit the time unit of the timeout argument
+         * @return {@code true} if the lock was free and was acquired
+         * by the current thread, or the write lock was already held by the
+         * current thread; and {@code false} if the waiting time
+         * elapsed before the lock could be acquired.
+         * @throws InterruptedException if the current thread is interrupted
+         * @throws NullPointerException if the time unit is null
+         */
+        public boolean tryLock(long timeout, TimeUnit unit)
+                throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            if (!wl.tryLock(timeout, unit))
+                return false;
+            boolean revoked = false;
+            try {
+                revoked = lock.revokeBias(true, true, deadline);
+            } finally {
+                if (!revoked)
+                    wl.unlock();
+            }
+            return revoked;
+        }
+
+        /**
+         * Attempts to release this lock.
+         *
+         * @throws IllegalMonitorStateException if the current thread does not
+         * hold this lock
+         */
+        public void unlock() {
+            wl.unlock();
+        }
+
+        /**
+         * Returns a {@link Condition} instance for use with this
+         * {@link Lock} instance, with the same properties as those of
+         * {@link ReentrantReadWriteLock.WriteLock#newCondition}.
+         *
+         * @return the Condition object
+         */
+        public Condition newCondition() {
+            return new WriterCondition(lock, wl.newCondition());
+        }
+
+        /**
+         * Queries if this write lock is held by the current thread.
+         *
+         * @return {@code true} if the current thread holds this lock and
+         *         {@code false} otherwise
+         */
+        public boolean isHeldByCurrentThread() {
+            return wl.isHeldByCurrentThread();
+        }
+
+        /**
+         * Queries the number of holds on this write lock by the current
+         * thread.
+         *
+         * @return the number of holds on this lock by the current thread,
+         *         or zero if this lock is not held by the current thread
+         */
+        public int getHoldCount() {
+            return wl.getHoldCount();
+        }
+
+        /**
+         * Returns a string identifying this lock, as well as its lock
+         * state, as for {@link ReentrantReadWriteLock.WriteLock#toString}.
+         *
+         * @return a string identifying this lock, as well as its lock state
+         */
+        public String toString() {
+            String s = wl.toString();
+            return super.toString() + s.substring(s.indexOf('['));
+        }
+    }
+
+    /**
+     * A Condition of the write lock, which revokes the bias again
+     * once the write lock has been reacquired after waiting, whether
+     * waiting returned normally or was interrupted.
+     */
+    static final class WriterCondition implements Condition {
+        private final ReaderBiasedReadWriteLock lock;
+        private final Condition cond;
+
+        WriterCondition(ReaderBiasedReadWriteLock lock, Condition cond) {
+            this.lock = lock;
+            this.cond = cond;
+        }
+
+        /**
+         * Revokes the bias if the write lock is held, that is, unless
+         * waiting failed because it was not held on entry.
+         */
+        private void reacquired() {
+            if (lock.rw.isWriteLockedByCurrentThread())
+                lock.revokeBias();
+        }
+
+        public void await() throws InterruptedException {
+            try {
+                cond.await();
+            } finally {
+                reacquired();
+            }
+        }
+
+        public void awaitUninterruptibly() {
+            try {
+                cond.awaitUninterruptibly();
+            } finally {
+                reacquired();
+            }
+        }
+
+        public long awaitNanos(long nanosTimeout) throws InterruptedException {
+            try {
+                return cond.awaitNanos(nanosTimeout);
+            } finally {
+                reacquired();
+            }
+        }
+
+        public boolean await(long time, TimeUnit unit)
+                throws InterruptedException {
+            try {
+                return cond.await(time, unit);
+            } finally {
+                reacquired();
+            }
+        }
+
+        public boolean awaitUntil(Date deadline) throws InterruptedException {
+            try {
+                return cond.awaitUntil(deadline);
+            } finally {
+                reacquired();
+            }
+        }
+
+        public void signal() {
+            cond.signal();
+        }
+
+        public void signalAll() {
+            cond.signalAll();
+        }
+    }
+
+    // Instrumentation and status
+
+    /**
+     * Returns {@code true} if this lock has fairness set true.
+     *
+     * @return {@code true} if this lock has fairness set true
+     */
+    public final boolean isFair() {
+        return rw.isFair();
+    }
+
+    /**
+     * Returns {@code true} if readers may currently acquire this lock
+     * in biased mode, that is, no writer has revoked the bias since it
+     * was last restored.  This method is designed for use in
+     * monitoring system state, not for synchronization control.
+     *
+     * @return {@code true} if this lock is currently read-biased
+     */
+    public boolean isReadBiased() {
+        return readBias;
+    }
+
+    /**
+     * Queries the number of read locks held for this lock, in either
+     * mode.  Counting biased holds requires a scan of the table of
+     * readers shared by all such locks, and counts each biased holder
+     * once regardless of reentrant holds.  This method is designed
+     * for use in monitoring system state, not for synchronization
+     * control.
+     *
+     * @return the number of read locks held
+     */
+    public int getReadLockCount() {
+        return rw.getReadLockCount() + biasedReaderCount();
+    }
+
+    /**
+     * Queries if the write lock is held by any thread. This method is
+     * designed for use in monitoring system state, not for
+     * synchronization control.
+     *
+     * @return {@code true} if any thread holds the write lock and
+     *         {@code false} otherwise
+     */
+    public boolean isWriteLocked() {
+        return rw.isWriteLocked();
+    }
+
+    /**
+     * Queries if the write lock is held by the current thread.
+     *
+     * @return {@code true} if the current thread holds the write lock and
+     *         {@code false} otherwise
+     */
+    public boolean isWriteLockedByCurrentThread() {
+        return rw.isWriteLockedByCurrentThread();
+    }
+
+    /**
+     * Queries the number of reentrant write holds on this lock by the
+     * current thread.
+     *
+     * @return the number of holds on the write lock by the current thread,
+     *         or zero if the write lock is not held by the current thread
+     */
+    public int getWriteHoldCount() {
+        return rw.getWriteHoldCount();
+    }
+
+    /**
+     * Queries the number of reentrant read holds on this lock by the
+     * current thread, in either mode.
+     *
+     * @return the number of holds on the read lock by the current thread,
+     *         or zero if the read lock is not held by the current thread
+     */
+    public int getReadHoldCount() {
+        ReaderHolds h = readerHolds.get();
+        int i = h.indexOf(this);
+        return rw.getReadHoldCount() + ((i < 0) ? 0 : h.counts[i]);
+    }
+
+    /**
+     * Queries whether any threads are waiting to acquire the
+     * underlying lock.  Readers holding or acquiring the lock in
+     * biased mode never wait.  This method is designed primarily for
+     * use in monitoring of the system state.
+     *
+     * @return {@code true} if there may be other threads waiting to
+     *         acquire the lock
+     */
+    public final boolean hasQueuedThreads() {
+        return rw.hasQueuedThreads();
+    }
+
+    /**
+     * Returns an estimate of the number of threads waiting to acquire
+     * the underlying lock.  This method is designed for use in
+     * monitoring of the system state, not for synchronization control.
+     *
+     * @return the estimated number of threads waiting for this lock
+     */
+    public final int getQueueLength() {
+        return rw.getQueueLength();
+    }
+
+    /**
+     * Returns a string identifying this lock, as well as its lock state.
+     * The state, in brackets, includes the String {@code "Write locks ="}
+     * followed by the number of reentrantly held write locks, the
+     * String {@code "Read locks ="} followed by the number of held
+     * read locks, and whether the lock is currently read-biased.
+     *
+     * @return a string identifying this lock, as well as its lock state
+     */
+    public String toString() {
+        return super.toString() +
+            "[Write locks = " +
+            ReentrantReadWriteLock.Sync.exclusiveCount(rw.sync.getCount()) +
+            ", Read locks = " + getReadLockCount() +
+            (readBias ? ", biased]" : "]");
+    }
+
+    /**
+     * Reconstitutes the lock from a stream, in the unlocked state
+     * and without bias until the first read.
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        inhibitUntil = System.nanoTime();
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe U;
+    private static final long ABASE;
+    private static final int ASHIFT;
+
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            Class<?> ak = Object[].class;
+            ABASE = U.arrayBaseOffset(ak);
+            int scale = U.arrayIndexScale(ak);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            ASHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
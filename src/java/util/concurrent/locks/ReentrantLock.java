@@ -211,6 +211,20 @@ public class ReentrantLock implements Lock, java.io.Serializable {
         sync = fair ? new FairSync() : new NonfairSync();
     }
 
+    /**
+     * 	adaptiveSpinning为true时开启自适应自旋
+     * 	阻塞队列中第一个等待的线程在挂起前先自旋 自旋时长根据最近的持有时间调整
+     * 	适合临界区很短的锁 同时会开启锁竞争的统计 见enableStatistics
+     * @param fair 是否公平
+     * @param adaptiveSpinning 是否自适应自旋
+     * @since 1.8
+     */
+    public ReentrantLock(boolean fair, boolean adaptiveSpinning) {
+        this(fair);
+        if (adaptiveSpinning)
+            sync.enableAdaptiveSpinning();
+    }
+
     /**
      * 	获取独占锁
      */
@@ -366,6 +380,17 @@ public class ReentrantLock implements Lock, java.io.Serializable {
         return sync.getWaitingThreads((AbstractQueuedSynchronizer.ConditionObject)condition);
     }
 
+    /**
+     * 	开启锁竞争的统计 返回统计信息的MXBean
+     * 	记录进入阻塞队列的获取的等待时间、队列长度、挂起和自旋的次数
+     * 	没有竞争的加锁解锁不受影响 多次调用返回同一个对象
+     * @return 锁竞争的统计信息
+     * @since 1.8
+     */
+    public LockContentionMXBean enableStatistics() {
+        return sync.enableContentionStatistics();
+    }
+
     /**
      * Returns a string identifying this lock, as well as its lock state.
      * The state, in brackets, includes either the String {@code "Unlocked"}
@@ -39,6 +39,20 @@ public class ReentrantReadWriteLock
         //初始化写锁
         writerLock = new WriteLock(this);
     }
+
+    /**
+     *	adaptiveSpinning为true时开启自适应自旋
+     *	阻塞队列中第一个等待的线程在挂起前先自旋 自旋时长根据最近写锁的持有时间调整
+     *	同时会开启锁竞争的统计 见enableStatistics
+     * @param fair 是否公平
+     * @param adaptiveSpinning 是否自适应自旋
+     * @since 1.8
+     */
+    public ReentrantReadWriteLock(boolean fair, boolean adaptiveSpinning) {
+        this(fair);
+        if (adaptiveSpinning)
+            sync.enableAdaptiveSpinning();
+    }
     //获取写锁
     public ReentrantReadWriteLock.WriteLock writeLock() { return writerLock; }
     //获取读锁
@@ -833,6 +847,16 @@ public class ReentrantReadWriteLock
         return sync.getWaitingThreads((AbstractQueuedSynchronizer.ConditionObject)condition);
     }
 
+    /**
+     *	开启锁竞争的统计 读锁和写锁共用一个同步器 所以统计的是两者的总和
+     *	多次调用返回同一个对象
+     * @return 锁竞争的统计信息
+     * @since 1.8
+     */
+    public LockContentionMXBean enableStatistics() {
+        return sync.enableContentionStatistics();
+    }
+
     /**
      * Returns a string identifying this lock, as well as its lock state.
      * The state, in brackets, includes the String {@code "Write locks ="}
@@ -26,6 +26,9 @@ package java.util.stream;
 
 import java.util.Objects;
 import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
 import java.util.function.IntFunction;
 import java.util.function.Supplier;
 
@@ -140,6 +143,37 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
      */
     private boolean sourceAnyStateful;
 
+    /**
+     * The pool in which parallel evaluation is performed, or null for the
+     * common pool; only valid for the source stage.
+     */
+    private ForkJoinPool pool;
+
+    /**
+     * The minimum leaf size hint for parallel evaluation, or 0 if none; only
+     * valid for the source stage.
+     */
+    private long minLeafSize;
+
+    /**
+     * The target number of leaf tasks for parallel evaluation, or 0 to derive
+     * it from the parallelism of the pool; only valid for the source stage.
+     */
+    private int leafTarget;
+
+    /**
+     * The listener to receive the profile of the evaluation of the pipeline,
+     * or null if the evaluation is not profiled; only valid for the source
+     * stage.
+     */
+    private Consumer<? super StreamProfile> profileListener;
+
+    /**
+     * The profile recording the evaluation of the pipeline while it is being
+     * evaluated, otherwise null; only valid for the source stage.
+     */
+    private StreamProfile profile;
+
     private Runnable sourceCloseAction;
 
     /**
@@ -229,9 +263,11 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
             throw new IllegalStateException(MSG_STREAM_LINKED);
         linkedOrConsumed = true;
 
-        return isParallel()
-               ? terminalOp.evaluateParallel(this, sourceSpliterator(terminalOp.getOpFlags()))
-               : terminalOp.evaluateSequential(this, sourceSpliterator(terminalOp.getOpFlags()));
+        StreamProfile profile = startProfile(terminalOp.getClass());
+        R result = isParallel()
+                   ? inPool(() -> terminalOp.evaluateParallel(this, sourceSpliterator(terminalOp.getOpFlags())))
+                   : terminalOp.evaluateSequential(this, sourceSpliterator(terminalOp.getOpFlags()));
+        return completeProfile(profile, result);
     }
 
     /**
@@ -246,6 +282,8 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
             throw new IllegalStateException(MSG_STREAM_LINKED);
         linkedOrConsumed = true;
 
+        StreamProfile profile = startProfile(null);
+        Node<E_OUT> node;
         // If the last intermediate operation is stateful then
         // evaluate directly to avoid an extra collection step
         if (isParallel() && previousStage != null && opIsStateful()) {
@@ -254,11 +292,15 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
             // upstream slice and upstream operations will not be included
             // in this slice
             depth = 0;
-            return opEvaluateParallel(previousStage, previousStage.sourceSpliterator(0), generator);
+            node = inPool(() -> opEvaluateParallel(previousStage, previousStage.sourceSpliterator(0), generator));
+        }
+        else if (isParallel()) {
+            node = inPool(() -> evaluate(sourceSpliterator(0), true, generator));
         }
         else {
-            return evaluate(sourceSpliterator(0), true, generator);
+            node = evaluate(sourceSpliterator(0), true, generator);
         }
+        return completeProfile(profile, node);
     }
 
     /**
@@ -312,6 +354,33 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
         return (S) this;
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public final S parallel(ForkJoinPool pool) {
+        sourceStage.pool = Objects.requireNonNull(pool);
+        sourceStage.parallel = true;
+        return (S) this;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public final S splitting(long minLeafSize, int targetLeafCount) {
+        if (minLeafSize < 0)
+            throw new IllegalArgumentException(Long.toString(minLeafSize));
+        if (targetLeafCount < 0)
+            throw new IllegalArgumentException(Integer.toString(targetLeafCount));
+        sourceStage.minLeafSize = minLeafSize;
+        sourceStage.leafTarget = targetLeafCount;
+        return (S) this;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public final S profile(Consumer<? super StreamProfile> listener) {
+        sourceStage.profileListener = Objects.requireNonNull(listener);
+        return (S) this;
+    }
+
     @Override
     public void close() {
         linkedOrConsumed = true;
@@ -361,7 +430,7 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
             }
         }
         else {
-            return wrap(this, () -> sourceSpliterator(0), isParallel());
+            return wrap(this, () -> inPool(() -> sourceSpliterator(0)), isParallel());
         }
     }
 
@@ -383,6 +452,73 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
         return StreamOpFlag.toStreamFlags(combinedFlags);
     }
 
+    /**
+     * Runs an evaluation in the pool bound to this pipeline, so that the
+     * tasks it forks are scheduled there.  If the pipeline is sequential, no
+     * pool is bound, or the caller is already a worker of that pool, the
+     * evaluation runs directly in the calling thread.
+     */
+    private <R> R inPool(Supplier<R> evaluation) {
+        ForkJoinPool p = sourceStage.pool;
+        return (p == null || !isParallel() || ForkJoinTask.getPool() == p)
+               ? evaluation.get()
+               : p.invoke(ForkJoinTask.adapt(evaluation::get));
+    }
+
+    /**
+     * Starts profiling the evaluation of this pipeline, if a profile was
+     * requested.
+     *
+     * @param terminalOp the class of the terminal operation, or null if the
+     *        pipeline is evaluated to an array
+     * @return the profile, or null if the evaluation is not profiled
+     */
+    @SuppressWarnings("rawtypes")
+    private StreamProfile startProfile(Class<?> terminalOp) {
+        if (sourceStage.profileListener == null)
+            return null;
+        int n = getStageIndex();
+        String[] names = new String[n + 2];
+        names[0] = "source";
+        AbstractPipeline p = this;
+        for (int i = n; i > 0; i--, p = p.previousStage)
+            names[i] = StreamProfile.nameOf(p.getClass());
+        names[n + 1] = (terminalOp != null) ? StreamProfile.nameOf(terminalOp) : "toArray";
+        StreamProfile profile = new StreamProfile(names, isParallel());
+        profile.start();
+        return sourceStage.profile = profile;
+    }
+
+    /**
+     * Completes the profile of the evaluation of this pipeline, if any, and
+     * passes it to the listener.
+     *
+     * @param profile the profile, or null if the evaluation is not profiled
+     * @param result the result of the evaluation
+     * @return the result of the evaluation
+     */
+    @SuppressWarnings("unchecked")
+    private <R> R completeProfile(StreamProfile profile, R result) {
+        if (profile != null) {
+            sourceStage.profile = null;
+            profile.complete();
+            sourceStage.profileListener.accept(profile);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the position of this pipeline stage, {@code 0} for the source
+     * stage.
+     */
+    @SuppressWarnings("rawtypes")
+    final int getStageIndex() {
+        int i = 0;
+        for (AbstractPipeline p = this; p.previousStage != null; p = p.previousStage)
+            i++;
+        return i;
+    }
+
     /**
      * Get the source spliterator for this pipeline stage.  For a sequential or
      * stateless parallel pipeline, this is the source spliterator.  For a
@@ -410,10 +546,10 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
             // Adapt the source spliterator, evaluating each stateful op
             // in the pipeline up to and including this pipeline stage.
             // The depth and flags of each pipeline stage are adjusted accordingly.
-            int depth = 1;
+            int depth = 1, stage = 1;
             for (@SuppressWarnings("rawtypes") AbstractPipeline u = sourceStage, p = sourceStage.nextStage, e = this;
                  u != e;
-                 u = p, p = p.nextStage) {
+                 u = p, p = p.nextStage, stage++) {
 
                 int thisOpFlags = p.sourceOrOpFlags;
                 if (p.opIsStateful()) {
@@ -428,7 +564,11 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
                         thisOpFlags = thisOpFlags & ~StreamOpFlag.IS_SHORT_CIRCUIT;
                     }
 
+                    StreamProfile profile = sourceStage.profile;
+                    long start = (profile != null) ? System.nanoTime() : 0L;
                     spliterator = p.opEvaluateParallelLazy(u, spliterator);
+                    if (profile != null)
+                        profile.recordBarrier(stage, System.nanoTime() - start);
 
                     // Inject or clear SIZED on the source pipeline stage
                     // based on the stage's spliterator
@@ -499,6 +639,29 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
         wrappedSink.end();
     }
 
+    @Override
+    final int getLeafTarget() {
+        int t;
+        ForkJoinPool p;
+        if ((t = sourceStage.leafTarget) > 0)
+            return t;
+        else if ((p = sourceStage.pool) != null)
+            return p.getParallelism() << 2;
+        else
+            return AbstractTask.LEAF_TARGET;
+    }
+
+    @Override
+    final long suggestTargetSize(long sizeEstimate) {
+        long est = sizeEstimate / getLeafTarget();
+        return Math.max(est, Math.max(sourceStage.minLeafSize, 1L));
+    }
+
+    @Override
+    final StreamProfile getProfile() {
+        return sourceStage.profile;
+    }
+
     @Override
     final int getStreamAndOpFlags() {
         return combinedFlags;
@@ -513,12 +676,34 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
     final <P_IN> Sink<P_IN> wrapSink(Sink<E_OUT> sink) {
         Objects.requireNonNull(sink);
 
+        StreamProfile profile = sourceStage.profile;
+        if (profile != null)
+            return wrapProfiledSink(profile, sink);
+
         for ( @SuppressWarnings("rawtypes") AbstractPipeline p=AbstractPipeline.this; p.depth > 0; p=p.previousStage) {
             sink = p.opWrapSink(p.previousStage.combinedFlags, sink);
         }
         return (Sink<P_IN>) sink;
     }
 
+    /**
+     * Wraps a sink as by {@link #wrapSink(Sink)}, preceding the sink of each
+     * stage, and the given sink, with one recording into the profile the
+     * elements received by the stage and the time spent in it.
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private <P_IN> Sink<P_IN> wrapProfiledSink(StreamProfile profile, Sink<E_OUT> sink) {
+        StreamProfile.Recorder recorder = profile.newRecorder();
+        int stage = getStageIndex();
+        StreamProfile.ProfilingSink<?> wrapped = recorder.wrap(stage + 1, getOutputShape(), sink);
+        AbstractPipeline p = AbstractPipeline.this;
+        for ( ; p.depth > 0; p = p.previousStage, stage--) {
+            Sink s = p.opWrapSink(p.previousStage.combinedFlags, wrapped);
+            wrapped = recorder.wrap(stage, p.previousStage.getOutputShape(), s);
+        }
+        return (Sink<P_IN>) recorder.outermost(stage, wrapped);
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     final <P_IN> Spliterator<E_OUT> wrapSpliterator(Spliterator<P_IN> sourceSpliterator) {
@@ -175,24 +175,15 @@ abstract class AbstractTask<P_IN, P_OUT, R,
      */
     protected abstract R doLeaf();
 
-    /**
-     * Returns a suggested target leaf size based on the initial size estimate.
-     *
-     * @return suggested target leaf size
-     */
-    public static long suggestTargetSize(long sizeEstimate) {
-        long est = sizeEstimate / LEAF_TARGET;
-        return est > 0L ? est : 1L;
-    }
-
     /**
      * Returns the targetSize, initializing it via the supplied
-     * size estimate if not already initialized.
+     * size estimate if not already initialized.  The pipeline helper
+     * applies any split hints given for the pipeline.
      */
     protected final long getTargetSize(long sizeEstimate) {
         long s;
         return ((s = targetSize) != 0 ? s :
-                (targetSize = suggestTargetSize(sizeEstimate)));
+                (targetSize = helper.suggestTargetSize(sizeEstimate)));
     }
 
     /**
@@ -313,10 +304,42 @@ abstract class AbstractTask<P_IN, P_OUT, R,
             taskToFork.fork();
             sizeEstimate = rs.estimateSize();
         }
-        task.setLocalResult(task.doLeaf());
+        task.setLocalResult(task.computeLeaf(sizeEstimate));
         task.tryComplete();
     }
 
+    /**
+     * Computes the result of this task as a leaf, by calling {@code doLeaf},
+     * recording the leaf in the profile of the evaluation, if profiled.
+     *
+     * @param sizeEstimate the estimated size of the spliterator of this task
+     * @return the result of {@code doLeaf}
+     */
+    final R computeLeaf(long sizeEstimate) {
+        StreamProfile profile = helper.getProfile();
+        if (profile == null)
+            return doLeaf();
+        long start = System.nanoTime();
+        R result = doLeaf();
+        profile.recordLeaf(helper, getPath(), sizeEstimate,
+                           System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Returns the path from the root to this node, as a string of {@code 'L'}
+     * and {@code 'R'} characters for each left and right child link.
+     *
+     * @return the path from the root to this node
+     */
+    @SuppressWarnings("unchecked")
+    private String getPath() {
+        StringBuilder sb = new StringBuilder();
+        for (K node = (K) this, parent; (parent = node.getParent()) != null; node = parent)
+            sb.append(parent.leftChild == node ? 'L' : 'R');
+        return sb.reverse().toString();
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -29,8 +29,11 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.Objects;
 import java.util.Spliterator;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 import java.util.function.IntConsumer;
 import java.util.function.Predicate;
 
@@ -116,6 +119,105 @@ public interface BaseStream<T, S extends BaseStream<T, S>>
      */
     S parallel();
 
+    /**
+     * Returns an equivalent stream that is parallel and whose parallel
+     * evaluation is performed in the given {@code ForkJoinPool} rather than
+     * in the {@linkplain ForkJoinPool#commonPool() common pool}.  May return
+     * itself, either because the stream was already parallel, or because
+     * the underlying stream state was modified to be parallel.
+     *
+     * <p>The pool applies to the whole stream pipeline, including stages that
+     * precede this call.  A subsequent call to {@link #parallel()} or
+     * {@link #sequential()} does not unbind the pool, though the pool is only
+     * used while the stream is parallel.
+     *
+     * <p>This is an <a href="package-summary.html#StreamOps">intermediate
+     * operation</a>.
+     *
+     * @implSpec
+     * The default implementation checks that {@code pool} is non-null and
+     * then returns {@link #parallel()}, ignoring the pool.
+     *
+     * @param pool the pool in which to evaluate the stream
+     * @return a parallel stream
+     * @throws NullPointerException if {@code pool} is null
+     */
+    default S parallel(ForkJoinPool pool) {
+        Objects.requireNonNull(pool);
+        return parallel();
+    }
+
+    /**
+     * Returns an equivalent stream with hints on how its source is to be
+     * partitioned when evaluated in parallel.  Parallel evaluation splits the
+     * source into leaf tasks; by default it aims for about four leaf tasks per
+     * worker thread of the pool.  Pipelines whose per-element cost is very
+     * uneven, or very small, may benefit from a different split.  May return
+     * itself.
+     *
+     * <p>The hints apply to the whole stream pipeline and have no effect on
+     * sequential evaluation.  They are hints only; a source that cannot be
+     * split further, or splits unevenly, may produce leaves of other sizes.
+     *
+     * <p>This is an <a href="package-summary.html#StreamOps">intermediate
+     * operation</a>.
+     *
+     * @implSpec
+     * The default implementation validates its arguments and returns this
+     * stream, ignoring the hints.
+     *
+     * @param minLeafSize the minimum number of elements a leaf task should
+     *        process, or {@code 0} for no minimum
+     * @param targetLeafCount the number of leaf tasks to aim for, or {@code 0}
+     *        to derive it from the parallelism of the pool
+     * @return a stream with the given split hints
+     * @throws IllegalArgumentException if {@code minLeafSize} or
+     *         {@code targetLeafCount} is negative
+     */
+    @SuppressWarnings("unchecked")
+    default S splitting(long minLeafSize, int targetLeafCount) {
+        if (minLeafSize < 0)
+            throw new IllegalArgumentException(Long.toString(minLeafSize));
+        if (targetLeafCount < 0)
+            throw new IllegalArgumentException(Integer.toString(targetLeafCount));
+        return (S) this;
+    }
+
+    /**
+     * Returns an equivalent stream whose evaluation is profiled, the profile
+     * being passed to the given listener once the terminal operation
+     * completes.  The profile records, for each stage of the stream pipeline,
+     * the number of elements received by the stage and the time spent in it,
+     * and for a parallel pipeline, the leaf tasks into which the evaluation
+     * was split.  May return itself.
+     *
+     * <p>Profiling applies to the whole stream pipeline, including stages
+     * that precede this call, and is intended for diagnosing the performance
+     * of a pipeline; measuring each element as it passes from stage to stage
+     * slows evaluation considerably.  A pipeline that is not profiled incurs
+     * no such cost.  The listener is invoked in the thread invoking the
+     * terminal operation, and is not invoked if the terminal operation
+     * completes abruptly, or for the terminal operations {@link #iterator()}
+     * and {@link #spliterator()}, which are not evaluated as a whole.
+     *
+     * <p>This is an <a href="package-summary.html#StreamOps">intermediate
+     * operation</a>.
+     *
+     * @implSpec
+     * The default implementation checks that {@code listener} is non-null
+     * and returns this stream, never invoking the listener.
+     *
+     * @param listener the listener to receive the profile
+     * @return a stream whose evaluation is profiled
+     * @throws NullPointerException if {@code listener} is null
+     * @see StreamProfile
+     */
+    @SuppressWarnings("unchecked")
+    default S profile(Consumer<? super StreamProfile> listener) {
+        Objects.requireNonNull(listener);
+        return (S) this;
+    }
+
     /**
      * Returns an equivalent stream that is
      * <a href="package-summary.html#Ordering">unordered</a>.  May return
@@ -35,6 +35,7 @@ import java.util.DoubleSummaryStatistics;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.HyperLogLog;
 import java.util.IntSummaryStatistics;
 import java.util.Iterator;
 import java.util.List;
@@ -115,6 +116,8 @@ public final class Collectors {
     static final Set<Collector.Characteristics> CH_UNORDERED_ID
             = Collections.unmodifiableSet(EnumSet.of(Collector.Characteristics.UNORDERED,
                                                      Collector.Characteristics.IDENTITY_FINISH));
+    static final Set<Collector.Characteristics> CH_UNORDERED_NOID
+            = Collections.unmodifiableSet(EnumSet.of(Collector.Characteristics.UNORDERED));
     static final Set<Collector.Characteristics> CH_NOID = Collections.emptySet();
 
     private Collectors() { }
@@ -413,6 +416,40 @@ public final class Collectors {
         return reducing(0L, e -> 1L, Long::sum);
     }
 
+    /**
+     * Returns a {@code Collector} accepting elements of type {@code T} that
+     * estimates the number of distinct input elements, using a
+     * {@link HyperLogLog} sketch of the given precision.  If no elements are
+     * present, the result is 0.
+     *
+     * <p>Memory use is fixed by the precision, rather than growing with the
+     * number of distinct elements as with
+     * {@code collectingAndThen(toSet(), Set::size)}.  Elements are
+     * distinguished by their {@link Object#hashCode() hash code}.  Sketches
+     * are combined cheaply, so the collector is well suited to parallel
+     * streams.
+     *
+     * @param <T> the type of the input elements
+     * @param precision the precision of the sketch, between
+     *        {@link HyperLogLog#MIN_PRECISION} and
+     *        {@link HyperLogLog#MAX_PRECISION} inclusive; the relative
+     *        standard error of the estimate is about
+     *        {@code 1.04 / sqrt(2^precision)}
+     * @return a {@code Collector} that estimates the number of distinct input
+     *         elements
+     * @throws IllegalArgumentException if {@code precision} is out of range
+     */
+    public static <T> Collector<T, ?, Long>
+    countingDistinctApproximately(int precision) {
+        if (precision < HyperLogLog.MIN_PRECISION || precision > HyperLogLog.MAX_PRECISION)
+            throw new IllegalArgumentException("Illegal precision: " + precision);
+        return new CollectorImpl<T, HyperLogLog, Long>(
+                () -> new HyperLogLog(precision),
+                HyperLogLog::add,
+                (l, r) -> { l.combine(r); return l; },
+                HyperLogLog::estimate, CH_UNORDERED_NOID);
+    }
+
     /**
      * Returns a {@code Collector} that produces the minimal element according
      * to a given {@code Comparator}, described as an {@code Optional<T>}.
@@ -1534,6 +1571,533 @@ public final class Collectors {
                 (l, r) -> { l.combine(r); return l; }, CH_ID);
     }
 
+    /**
+     * Returns a {@code Collector} implementing a "group by" operation on
+     * input elements of type {@code T} with {@code int} keys, counting the
+     * elements in each group.  The result is equivalent to that of
+     * {@code groupingBy(classifier, counting())}, but keys are extracted and
+     * hashed without boxing, and groups are accumulated into a primitive hash
+     * table, so that boxing is done only once per group, when producing the
+     * result.
+     *
+     * <p>There are no guarantees on the type, mutability,
+     * serializability, or thread-safety of the {@code Map} returned.
+     *
+     * @implNote
+     * The returned {@code Collector} is not concurrent.  In parallel stream
+     * pipelines, each subtask accumulates into its own table, and the
+     * {@code combiner} merges the smaller table of a pair into the larger, at
+     * a cost proportional to the number of groups rather than of elements.
+     *
+     * @param <T> the type of the input elements
+     * @param classifier a classifier function mapping input elements to keys
+     * @return a {@code Collector} implementing the group-by operation
+     *
+     * @see #groupingBy(Function, Collector)
+     */
+    public static <T> Collector<T, ?, Map<Integer, Long>>
+    groupingByIntCounting(ToIntFunction<? super T> classifier) {
+        Objects.requireNonNull(classifier);
+        return groupingByPrimitive(t -> classifier.applyAsInt(t), null,
+                                   GroupTable.COUNT, true);
+    }
+
+    /**
+     * Returns a {@code Collector} implementing a "group by" operation on
+     * input elements of type {@code T} with {@code int} keys, summing a
+     * long-valued function of the elements in each group.  The result is
+     * equivalent to that of {@code groupingBy(classifier,
+     * summingLong(mapper))}, but accumulation is done without boxing, as
+     * described for {@link #groupingByIntCounting(ToIntFunction)}.
+     *
+     * <p>There are no guarantees on the type, mutability,
+     * serializability, or thread-safety of the {@code Map} returned.
+     *
+     * @param <T> the type of the input elements
+     * @param classifier a classifier function mapping input elements to keys
+     * @param mapper a function extracting the property to be summed
+     * @return a {@code Collector} implementing the group-by operation
+     *
+     * @see #groupingBy(Function, Collector)
+     */
+    public static <T> Collector<T, ?, Map<Integer, Long>>
+    groupingByIntSummingLong(ToIntFunction<? super T> classifier,
+                             ToLongFunction<? super T> mapper) {
+        Objects.requireNonNull(classifier);
+        return groupingByPrimitive(t -> classifier.applyAsInt(t),
+                                   Objects.requireNonNull(mapper),
+                                   GroupTable.SUM, true);
+    }
+
+    /**
+     * Returns a {@code Collector} implementing a "group by" operation on
+     * input elements of type {@code T} with {@code int} keys, producing the
+     * arithmetic mean of a long-valued function of the elements in each
+     * group.  The result is equivalent to that of {@code groupingBy(classifier,
+     * averagingLong(mapper))}, but accumulation is done without boxing, as
+     * described for {@link #groupingByIntCounting(ToIntFunction)}.
+     *
+     * <p>There are no guarantees on the type, mutability,
+     * serializability, or thread-safety of the {@code Map} returned.
+     *
+     * @param <T> the type of the input elements
+     * @param classifier a classifier function mapping input elements to keys
+     * @param mapper a function extracting the property to be averaged
+     * @return a {@code Collector} implementing the group-by operation
+     *
+     * @see #groupingBy(Function, Collector)
+     */
+    public static <T> Collector<T, ?, Map<Integer, Double>>
+    groupingByIntAveragingLong(ToIntFunction<? super T> classifier,
+                               ToLongFunction<? super T> mapper) {
+        Objects.requireNonNull(classifier);
+        return groupingByPrimitive(t -> classifier.applyAsInt(t),
+                                   Objects.requireNonNull(mapper),
+                                   GroupTable.AVERAGE, true);
+    }
+
+    /**
+     * Returns a {@code Collector} implementing a "group by" operation on
+     * input elements of type {@code T} with {@code int} keys, producing the
+     * count, sum, minimum, maximum and average of a long-valued function of
+     * the elements in each group.  The result is equivalent to that of
+     * {@code groupingBy(classifier, summarizingLong(mapper))}, but
+     * accumulation is done without boxing or per-group statistics objects, as
+     * described for {@link #groupingByIntCounting(ToIntFunction)}.
+     *
+     * <p>There are no guarantees on the type, mutability,
+     * serializability, or thread-safety of the {@code Map} returned.
+     *
+     * @param <T> the type of the input elements
+     * @param classifier a classifier function mapping input elements to keys
+     * @param mapper the mapping function to apply to each element
+     * @return a {@code Collector} implementing the group-by operation
+     *
+     * @see #groupingBy(Function, Collector)
+     */
+    public static <T> Collector<T, ?, Map<Integer, LongSummaryStatistics>>
+    groupingByIntSummarizingLong(ToIntFunction<? super T> classifier,
+                                 ToLongFunction<? super T> mapper) {
+        Objects.requireNonNull(classifier);
+        return groupingByPrimitive(t -> classifier.applyAsInt(t),
+                                   Objects.requireNonNull(mapper),
+                                   GroupTable.STATISTICS, true);
+    }
+
+    /**
+     * Returns a {@code Collector} implementing a "group by" operation on
+     * input elements of type {@code T} with {@code long} keys, counting the
+     * elements in each group, as described for
+     * {@link #groupingByIntCounting(ToIntFunction)}.
+     *
+     * <p>There are no guarantees on the type, mutability,
+     * serializability, or thread-safety of the {@code Map} returned.
+     *
+     * @param <T> the type of the input elements
+     * @param classifier a classifier function mapping input elements to keys
+     * @return a {@code Collector} implementing the group-by operation
+     *
+     * @see #groupingBy(Function, Collector)
+     */
+    public static <T> Collector<T, ?, Map<Long, Long>>
+    groupingByLongCounting(ToLongFunction<? super T> classifier) {
+        return groupingByPrimitive(Objects.requireNonNull(classifier), null,
+                                   GroupTable.COUNT, false);
+    }
+
+    /**
+     * Returns a {@code Collector} implementing a "group by" operation on
+     * input elements of type {@code T} with {@code long} keys, summing a
+     * long-valued function of the elements in each group, as described for
+     * {@link #groupingByIntSummingLong(ToIntFunction, ToLongFunction)}.
+     *
+     * <p>There are no guarantees on the type, mutability,
+     * serializability, or thread-safety of the {@code Map} returned.
+     *
+     * @param <T> the type of the input elements
+     * @param classifier a classifier function mapping input elements to keys
+     * @param mapper a function extracting the property to be summed
+     * @return a {@code Collector} implementing the group-by operation
+     *
+     * @see #groupingBy(Function, Collector)
+     */
+    public static <T> Collector<T, ?, Map<Long, Long>>
+    groupingByLongSummingLong(ToLongFunction<? super T> classifier,
+                              ToLongFunction<? super T> mapper) {
+        return groupingByPrimitive(Objects.requireNonNull(classifier),
+                                   Objects.requireNonNull(mapper),
+                                   GroupTable.SUM, false);
+    }
+
+    /**
+     * Returns a {@code Collector} implementing a "group by" operation on
+     * input elements of type {@code T} with {@code long} keys, producing the
+     * arithmetic mean of a long-valued function of the elements in each
+     * group, as described for
+     * {@link #groupingByIntAveragingLong(ToIntFunction, ToLongFunction)}.
+     *
+     * <p>There are no guarantees on the type, mutability,
+     * serializability, or thread-safety of the {@code Map} returned.
+     *
+     * @param <T> the type of the input elements
+     * @param classifier a classifier function mapping input elements to keys
+     * @param mapper a function extracting the property to be averaged
+     * @return a {@code Collector} implementing the group-by operation
+     *
+     * @see #groupingBy(Function, Collector)
+     */
+    public static <T> Collector<T, ?, Map<Long, Double>>
+    groupingByLongAveragingLong(ToLongFunction<? super T> classifier,
+                                ToLongFunction<? super T> mapper) {
+        return groupingByPrimitive(Objects.requireNonNull(classifier),
+                                   Objects.requireNonNull(mapper),
+                                   GroupTable.AVERAGE, false);
+    }
+
+    /**
+     * Returns a {@code Collector} implementing a "group by" operation on
+     * input elements of type {@code T} with {@code long} keys, producing the
+     * count, sum, minimum, maximum and average of a long-valued function of
+     * the elements in each group, as described for
+     * {@link #groupingByIntSummarizingLong(ToIntFunction, ToLongFunction)}.
+     *
+     * <p>There are no guarantees on the type, mutability,
+     * serializability, or thread-safety of the {@code Map} returned.
+     *
+     * @param <T> the type of the input elements
+     * @param classifier a classifier function mapping input elements to keys
+     * @param mapper the mapping function to apply to each element
+     * @return a {@code Collector} implementing the group-by operation
+     *
+     * @see #groupingBy(Function, Collector)
+     */
+    public static <T> Collector<T, ?, Map<Long, LongSummaryStatistics>>
+    groupingByLongSummarizingLong(ToLongFunction<? super T> classifier,
+                                  ToLongFunction<? super T> mapper) {
+        return groupingByPrimitive(Objects.requireNonNull(classifier),
+                                   Objects.requireNonNull(mapper),
+                                   GroupTable.STATISTICS, false);
+    }
+
+    /**
+     * Returns a {@code Collector} which partitions the input elements
+     * according to a {@code Predicate} and counts the elements in each
+     * partition.  The result is equivalent to that of
+     * {@code partitioningBy(predicate, counting())}, but the counts are
+     * accumulated without boxing, as described for
+     * {@link #groupingByIntCounting(ToIntFunction)}.
+     *
+     * <p>There are no guarantees on the type, mutability,
+     * serializability, or thread-safety of the {@code Map} returned.
+     *
+     * @param <T> the type of the input elements
+     * @param predicate a predicate used for classifying input elements
+     * @return a {@code Collector} implementing the partitioning operation
+     *
+     * @see #partitioningBy(Predicate, Collector)
+     */
+    public static <T> Collector<T, ?, Map<Boolean, Long>>
+    partitioningByCounting(Predicate<? super T> predicate) {
+        return partitioningByPrimitive(Objects.requireNonNull(predicate), null,
+                                       GroupTable.COUNT);
+    }
+
+    /**
+     * Returns a {@code Collector} which partitions the input elements
+     * according to a {@code Predicate} and sums a long-valued function of
+     * the elements in each partition.  The result is equivalent to that of
+     * {@code partitioningBy(predicate, summingLong(mapper))}, but
+     * accumulation is done without boxing, as described for
+     * {@link #groupingByIntCounting(ToIntFunction)}.
+     *
+     * <p>There are no guarantees on the type, mutability,
+     * serializability, or thread-safety of the {@code Map} returned.
+     *
+     * @param <T> the type of the input elements
+     * @param predicate a predicate used for classifying input elements
+     * @param mapper a function extracting the property to be summed
+     * @return a {@code Collector} implementing the partitioning operation
+     *
+     * @see #partitioningBy(Predicate, Collector)
+     */
+    public static <T> Collector<T, ?, Map<Boolean, Long>>
+    partitioningBySummingLong(Predicate<? super T> predicate,
+                              ToLongFunction<? super T> mapper) {
+        return partitioningByPrimitive(Objects.requireNonNull(predicate),
+                                       Objects.requireNonNull(mapper),
+                                       GroupTable.SUM);
+    }
+
+    /**
+     * Returns a {@code Collector} which partitions the input elements
+     * according to a {@code Predicate} and produces the arithmetic mean of
+     * a long-valued function of the elements in each partition, or zero
+     * for an empty partition.  The result is equivalent to that of
+     * {@code partitioningBy(predicate, averagingLong(mapper))}, but
+     * accumulation is done without boxing, as described for
+     * {@link #groupingByIntCounting(ToIntFunction)}.
+     *
+     * <p>There are no guarantees on the type, mutability,
+     * serializability, or thread-safety of the {@code Map} returned.
+     *
+     * @param <T> the type of the input elements
+     * @param predicate a predicate used for classifying input elements
+     * @param mapper a function extracting the property to be averaged
+     * @return a {@code Collector} implementing the partitioning operation
+     *
+     * @see #partitioningBy(Predicate, Collector)
+     */
+    public static <T> Collector<T, ?, Map<Boolean, Double>>
+    partitioningByAveragingLong(Predicate<? super T> predicate,
+                                ToLongFunction<? super T> mapper) {
+        return partitioningByPrimitive(Objects.requireNonNull(predicate),
+                                       Objects.requireNonNull(mapper),
+                                       GroupTable.AVERAGE);
+    }
+
+    /**
+     * Returns a {@code Collector} which partitions the input elements
+     * according to a {@code Predicate} and produces the count, sum,
+     * minimum, maximum and average of a long-valued function of the
+     * elements in each partition.  The result is equivalent to that of
+     * {@code partitioningBy(predicate, summarizingLong(mapper))}, but
+     * accumulation is done without boxing or per-partition statistics
+     * objects, as described for {@link #groupingByIntCounting(ToIntFunction)}.
+     *
+     * <p>There are no guarantees on the type, mutability,
+     * serializability, or thread-safety of the {@code Map} returned.
+     *
+     * @param <T> the type of the input elements
+     * @param predicate a predicate used for classifying input elements
+     * @param mapper the mapping function to apply to each element
+     * @return a {@code Collector} implementing the partitioning operation
+     *
+     * @see #partitioningBy(Predicate, Collector)
+     */
+    public static <T> Collector<T, ?, Map<Boolean, LongSummaryStatistics>>
+    partitioningBySummarizingLong(Predicate<? super T> predicate,
+                                  ToLongFunction<? super T> mapper) {
+        return partitioningByPrimitive(Objects.requireNonNull(predicate),
+                                       Objects.requireNonNull(mapper),
+                                       GroupTable.STATISTICS);
+    }
+
+    /**
+     * Common implementation of the primitive-keyed grouping collectors.
+     *
+     * @param classifier the key extractor; int keys are widened
+     * @param mapper the value extractor, or null if only counting
+     * @param kind the GroupTable kind
+     * @param intKeys whether to produce Integer rather than Long keys
+     */
+    private static <T, K, D> Collector<T, ?, Map<K, D>>
+    groupingByPrimitive(ToLongFunction<? super T> classifier,
+                        ToLongFunction<? super T> mapper,
+                        int kind, boolean intKeys) {
+        BiConsumer<GroupTable, T> accumulator = (mapper == null)
+            ? (g, t) -> g.add(classifier.applyAsLong(t), 0L)
+            : (g, t) -> g.add(classifier.applyAsLong(t), mapper.applyAsLong(t));
+        return new CollectorImpl<>(
+                () -> new GroupTable(kind),
+                accumulator,
+                (l, r) -> (l.size >= r.size) ? l.addAll(r) : r.addAll(l),
+                g -> g.<K, D>toMap(intKeys),
+                CH_NOID);
+    }
+
+    /**
+     * Common implementation of the primitive partitioning collectors,
+     * grouping by the keys 1 and 0 for true and false.
+     *
+     * @param predicate the predicate
+     * @param mapper the value extractor, or null if only counting
+     * @param kind the GroupTable kind
+     */
+    private static <T, D> Collector<T, ?, Map<Boolean, D>>
+    partitioningByPrimitive(Predicate<? super T> predicate,
+                            ToLongFunction<? super T> mapper,
+                            int kind) {
+        BiConsumer<GroupTable, T> accumulator = (mapper == null)
+            ? (g, t) -> g.add(predicate.test(t) ? 1L : 0L, 0L)
+            : (g, t) -> g.add(predicate.test(t) ? 1L : 0L, mapper.applyAsLong(t));
+        return new CollectorImpl<>(
+                () -> new GroupTable(kind),
+                accumulator,
+                GroupTable::addAll,
+                g -> new Partition<D>(g.<D>get(1L), g.<D>get(0L)),
+                CH_NOID);
+    }
+
+    /**
+     * Implementation class used by the primitive-keyed grouping and
+     * partitioning collectors: an open-addressed, linear-probing hash table from
+     * {@code long} keys to the running count and, depending on the kind
+     * of table, sum, minimum and maximum of the values of each group, held
+     * in parallel arrays.  A count of zero marks an empty slot, since no
+     * group is empty.
+     */
+    static final class GroupTable {
+        static final int COUNT = 0, SUM = 1, AVERAGE = 2, STATISTICS = 3;
+
+        final int kind;
+        long[] keys;
+        long[] counts;
+        long[] sums;            // null if COUNT
+        long[] mins, maxs;      // null unless STATISTICS
+        int size;               // number of groups
+        int threshold;          // resize when size reaches this
+
+        GroupTable(int kind) {
+            this.kind = kind;
+            allocate(16);
+        }
+
+        private void allocate(int n) {
+            keys = new long[n];
+            counts = new long[n];
+            if (kind != COUNT)
+                sums = new long[n];
+            if (kind == STATISTICS) {
+                mins = new long[n];
+                maxs = new long[n];
+            }
+            threshold = (n >>> 1) + (n >>> 2);  // 0.75 load factor
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        /**
+         * Returns the slot for the given key, claiming an empty one if
+         * absent.  The caller must then make its count non-zero.
+         */
+        private int slotFor(long key) {
+            for (;;) {
+                long[] ks = keys, cs = counts;
+                int mask = ks.length - 1;
+                for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+                    if (cs[i] == 0L) {
+                        if (size >= threshold)
+                            break;
+                        ++size;
+                        ks[i] = key;
+                        return i;
+                    }
+                    if (ks[i] == key)
+                        return i;
+                }
+                resize();
+            }
+        }
+
+        private void resize() {
+            long[] ks = keys, cs = counts, ss = sums, lo = mins, hi = maxs;
+            int n = ks.length;
+            allocate(n << 1);
+            int mask = (n << 1) - 1;
+            for (int j = 0; j < n; ++j) {
+                if (cs[j] != 0L) {
+                    int i = hash(ks[j]) & mask;
+                    while (counts[i] != 0L)
+                        i = (i + 1) & mask;
+                    keys[i] = ks[j];
+                    counts[i] = cs[j];
+                    if (ss != null)
+                        sums[i] = ss[j];
+                    if (lo != null) {
+                        mins[i] = lo[j];
+                        maxs[i] = hi[j];
+                    }
+                }
+            }
+        }
+
+        void add(long key, long value) {
+            int i = slotFor(key);
+            long c = counts[i]++;
+            if (kind != COUNT) {
+                sums[i] += value;
+                if (kind == STATISTICS) {
+                    if (c == 0L || value < mins[i])
+                        mins[i] = value;
+                    if (c == 0L || value > maxs[i])
+                        maxs[i] = value;
+                }
+            }
+        }
+
+        /** Merges the groups of other into this table; returns this. */
+        GroupTable addAll(GroupTable other) {
+            long[] ks = other.keys, cs = other.counts;
+            for (int j = 0; j < ks.length; ++j) {
+                long oc = cs[j];
+                if (oc != 0L) {
+                    int i = slotFor(ks[j]);
+                    long c = counts[i];
+                    counts[i] = c + oc;
+                    if (kind != COUNT) {
+                        sums[i] += other.sums[j];
+                        if (kind == STATISTICS) {
+                            if (c == 0L || other.mins[j] < mins[i])
+                                mins[i] = other.mins[j];
+                            if (c == 0L || other.maxs[j] > maxs[i])
+                                maxs[i] = other.maxs[j];
+                        }
+                    }
+                }
+            }
+            return this;
+        }
+
+        /** Returns the result for the group in slot i. */
+        private Object valueAt(int i) {
+            long c = counts[i];
+            switch (kind) {
+            case COUNT:   return c;
+            case SUM:     return sums[i];
+            case AVERAGE: return (double) sums[i] / c;
+            default:
+                return new LongSummaryStatistics(c, mins[i], maxs[i], sums[i]);
+            }
+        }
+
+        /**
+         * Returns the result for the group of the given key, or that of
+         * an empty group if there is none.
+         */
+        @SuppressWarnings("unchecked")
+        <D> D get(long key) {
+            long[] ks = keys, cs = counts;
+            int mask = ks.length - 1;
+            for (int i = hash(key) & mask; cs[i] != 0L; i = (i + 1) & mask) {
+                if (ks[i] == key)
+                    return (D) valueAt(i);
+            }
+            switch (kind) {
+            case COUNT:
+            case SUM:     return (D) (Object) 0L;
+            case AVERAGE: return (D) (Object) 0.0d;
+            default:      return (D) new LongSummaryStatistics();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        <K, D> Map<K, D> toMap(boolean intKeys) {
+            Map<Object, Object> m = new HashMap<>(Math.max(16, (int) (size / .75f) + 1));
+            long[] ks = keys, cs = counts;
+            for (int i = 0; i < ks.length; ++i) {
+                if (cs[i] != 0L) {
+                    Object k = intKeys ? (Object) Integer.valueOf((int) ks[i])
+                                       : (Object) Long.valueOf(ks[i]);
+                    m.put(k, valueAt(i));
+                }
+            }
+            return (Map<K, D>) m;
+        }
+    }
+
     /**
      * Implementation class used by partitioningBy.
      */
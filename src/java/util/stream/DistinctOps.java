@@ -31,7 +31,9 @@ import java.util.Set;
 import java.util.Spliterator;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.function.IntFunction;
+import java.util.function.ToLongFunction;
 
 /**
  * Factory methods for transforming streams into duplicate-free streams, using
@@ -180,4 +182,298 @@ final class DistinctOps {
             }
         };
     }
+
+    /**
+     * Appends an approximate "distinct" operation to the provided stream,
+     * and returns the new stream.  Elements seen are remembered, by hash
+     * code, in a Bloom filter sized for the expected number of distinct
+     * elements and false positive probability.
+     *
+     * @param <T> the type of both input and output elements
+     * @param upstream a reference stream with element type T
+     * @param expectedSize the expected number of distinct elements
+     * @param fpp the desired false positive probability
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code expectedSize} is not
+     *         positive or {@code fpp} is not between 0 and 1 exclusive
+     */
+    static <T> ReferencePipeline<T, T> makeRef(AbstractPipeline<?, T, ?> upstream,
+                                               long expectedSize, double fpp) {
+        return makeRef(upstream, Objects::hashCode, true, expectedSize, fpp);
+    }
+
+    /**
+     * Appends an approximate "distinct by key" operation to the provided
+     * stream, and returns the new stream.  Elements are included if their
+     * key, as extracted by the given function, has not been seen, as
+     * remembered in a Bloom filter sized for the expected number of
+     * distinct keys and false positive probability.
+     *
+     * @param <T> the type of both input and output elements
+     * @param upstream a reference stream with element type T
+     * @param keyExtractor a function extracting a {@code long} key from
+     *        each element
+     * @param expectedSize the expected number of distinct keys
+     * @param fpp the desired false positive probability
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code expectedSize} is not
+     *         positive or {@code fpp} is not between 0 and 1 exclusive
+     */
+    static <T> ReferencePipeline<T, T> makeRef(AbstractPipeline<?, T, ?> upstream,
+                                               ToLongFunction<? super T> keyExtractor,
+                                               long expectedSize, double fpp) {
+        return makeRef(upstream, keyExtractor, false, expectedSize, fpp);
+    }
+
+    /**
+     * Common implementation of the approximate "distinct" operations on
+     * reference streams.  If keyedByHash, keys are hash codes, so equal
+     * elements have equal keys, and the operation both preserves and
+     * produces the DISTINCT flag; otherwise it does neither.
+     */
+    private static <T> ReferencePipeline<T, T> makeRef(AbstractPipeline<?, T, ?> upstream,
+                                                       ToLongFunction<? super T> keyExtractor,
+                                                       boolean keyedByHash,
+                                                       long expectedSize, double fpp) {
+        BloomFilter filter = new BloomFilter(expectedSize, fpp);
+        int opFlags = keyedByHash
+                      ? StreamOpFlag.IS_DISTINCT | StreamOpFlag.NOT_SIZED
+                      : StreamOpFlag.NOT_SIZED;
+        return new ReferencePipeline.StatelessOp<T, T>(upstream, StreamShape.REFERENCE,
+                                                       opFlags) {
+            @Override
+            Sink<T> opWrapSink(int flags, Sink<T> sink) {
+                Objects.requireNonNull(sink);
+
+                if (keyedByHash && StreamOpFlag.DISTINCT.isKnown(flags))
+                    return sink;
+                boolean concurrent = isParallel();
+                return new Sink.ChainedReference<T, T>(sink) {
+                    @Override
+                    public void begin(long size) {
+                        downstream.begin(-1);
+                    }
+
+                    @Override
+                    public void accept(T t) {
+                        if (filter.add(BloomFilter.mix64(keyExtractor.applyAsLong(t)), concurrent))
+                            downstream.accept(t);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Appends an approximate "distinct" operation to the provided
+     * {@code IntStream}, and returns the new stream.
+     *
+     * @param upstream an int stream
+     * @param expectedSize the expected number of distinct elements
+     * @param fpp the desired false positive probability
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code expectedSize} is not
+     *         positive or {@code fpp} is not between 0 and 1 exclusive
+     */
+    static IntStream makeInt(AbstractPipeline<?, Integer, ?> upstream,
+                             long expectedSize, double fpp) {
+        BloomFilter filter = new BloomFilter(expectedSize, fpp);
+        return new IntPipeline.StatelessOp<Integer>(upstream, StreamShape.INT_VALUE,
+                                                    StreamOpFlag.IS_DISTINCT | StreamOpFlag.NOT_SIZED) {
+            @Override
+            Sink<Integer> opWrapSink(int flags, Sink<Integer> sink) {
+                Objects.requireNonNull(sink);
+
+                if (StreamOpFlag.DISTINCT.isKnown(flags))
+                    return sink;
+                boolean concurrent = isParallel();
+                return new Sink.ChainedInt<Integer>(sink) {
+                    @Override
+                    public void begin(long size) {
+                        downstream.begin(-1);
+                    }
+
+                    @Override
+                    public void accept(int t) {
+                        if (filter.add(BloomFilter.mix64(t), concurrent))
+                            downstream.accept(t);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Appends an approximate "distinct" operation to the provided
+     * {@code LongStream}, and returns the new stream.
+     *
+     * @param upstream a long stream
+     * @param expectedSize the expected number of distinct elements
+     * @param fpp the desired false positive probability
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code expectedSize} is not
+     *         positive or {@code fpp} is not between 0 and 1 exclusive
+     */
+    static LongStream makeLong(AbstractPipeline<?, Long, ?> upstream,
+                               long expectedSize, double fpp) {
+        BloomFilter filter = new BloomFilter(expectedSize, fpp);
+        return new LongPipeline.StatelessOp<Long>(upstream, StreamShape.LONG_VALUE,
+                                                  StreamOpFlag.IS_DISTINCT | StreamOpFlag.NOT_SIZED) {
+            @Override
+            Sink<Long> opWrapSink(int flags, Sink<Long> sink) {
+                Objects.requireNonNull(sink);
+
+                if (StreamOpFlag.DISTINCT.isKnown(flags))
+                    return sink;
+                boolean concurrent = isParallel();
+                return new Sink.ChainedLong<Long>(sink) {
+                    @Override
+                    public void begin(long size) {
+                        downstream.begin(-1);
+                    }
+
+                    @Override
+                    public void accept(long t) {
+                        if (filter.add(BloomFilter.mix64(t), concurrent))
+                            downstream.accept(t);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Appends an approximate "distinct" operation to the provided
+     * {@code DoubleStream}, and returns the new stream.  Elements are
+     * distinguished by {@link Double#doubleToLongBits(double)}.
+     *
+     * @param upstream a double stream
+     * @param expectedSize the expected number of distinct elements
+     * @param fpp the desired false positive probability
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code expectedSize} is not
+     *         positive or {@code fpp} is not between 0 and 1 exclusive
+     */
+    static DoubleStream makeDouble(AbstractPipeline<?, Double, ?> upstream,
+                                   long expectedSize, double fpp) {
+        BloomFilter filter = new BloomFilter(expectedSize, fpp);
+        return new DoublePipeline.StatelessOp<Double>(upstream, StreamShape.DOUBLE_VALUE,
+                                                      StreamOpFlag.IS_DISTINCT | StreamOpFlag.NOT_SIZED) {
+            @Override
+            Sink<Double> opWrapSink(int flags, Sink<Double> sink) {
+                Objects.requireNonNull(sink);
+
+                if (StreamOpFlag.DISTINCT.isKnown(flags))
+                    return sink;
+                boolean concurrent = isParallel();
+                return new Sink.ChainedDouble<Double>(sink) {
+                    @Override
+                    public void begin(long size) {
+                        downstream.begin(-1);
+                    }
+
+                    @Override
+                    public void accept(double t) {
+                        if (filter.add(BloomFilter.mix64(Double.doubleToLongBits(t)), concurrent))
+                            downstream.accept(t);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * A Bloom filter of 64-bit hashes, sized on construction for an expected
+     * number of elements and false positive probability.  Each hash sets
+     * {@code k} bits chosen by double hashing of its two halves.
+     *
+     * <p>Bits are set with CAS so the filter may be shared by the sinks of a
+     * parallel evaluation.  Concurrent additions of the same hash are
+     * serialized by a lock stripe chosen from the hash, so that only one of
+     * them reports the hash as newly added.  CAS alone is not enough: two
+     * threads adding the same hash could each set a different one of its
+     * bits and both report it as added.  Every addition takes a monitor, so
+     * the sinks of a parallel evaluation contend on the stripes.
+     */
+    static final class BloomFilter {
+        /** Number of lock stripes, a power of two */
+        private static final int STRIPES = 64;
+
+        /** Maximum number of 64-bit words of the filter */
+        private static final long MAX_WORDS = Nodes.MAX_ARRAY_SIZE;
+
+        private final AtomicLongArray words;
+        private final long bitCount;
+        private final int hashCount;
+        private final Object[] locks;
+
+        BloomFilter(long expectedSize, double fpp) {
+            if (expectedSize <= 0)
+                throw new IllegalArgumentException(Long.toString(expectedSize));
+            if (!(fpp > 0.0 && fpp < 1.0))
+                throw new IllegalArgumentException(Double.toString(fpp));
+            double ln2 = Math.log(2.0);
+            double bits = -expectedSize * Math.log(fpp) / (ln2 * ln2);
+            double n = Math.ceil(bits / 64.0);
+            if (n > MAX_WORDS)
+                throw new IllegalArgumentException("Bloom filter too large: " + (long) n + " words");
+            int length = Math.max((int) n, 1);
+            this.words = new AtomicLongArray(length);
+            this.bitCount = (long) length << 6;
+            this.hashCount = (int) Math.max(1L, Math.min(30L, Math.round(ln2 * bitCount / expectedSize)));
+            this.locks = new Object[STRIPES];
+            for (int i = 0; i < STRIPES; i++)
+                locks[i] = new Object();
+        }
+
+        /**
+         * Spreads a value over 64 bits (Stafford variant 13 of the MurmurHash3
+         * finalizer).
+         */
+        static long mix64(long z) {
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            return z ^ (z >>> 31);
+        }
+
+        /**
+         * Adds a hash to this filter.
+         *
+         * @param h the hash
+         * @param concurrent true if other threads may add at the same time
+         * @return true if the hash was not already present, false if it may
+         *         have been
+         */
+        boolean add(long h, boolean concurrent) {
+            if (!concurrent)
+                return setBits(h, false);
+            synchronized (locks[(int) (h >>> 32) & (STRIPES - 1)]) {
+                return setBits(h, true);
+            }
+        }
+
+        /**
+         * Sets the bits of a hash, returning true if any was clear.
+         */
+        private boolean setBits(long h, boolean concurrent) {
+            long h1 = (int) h, h2 = (int) (h >>> 32);
+            boolean added = false;
+            for (int i = 1; i <= hashCount; i++) {
+                long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bitCount;
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long w = words.get(word);
+                if ((w & mask) == 0) {
+                    added = true;
+                    if (!concurrent)
+                        words.lazySet(word, w | mask);
+                    else {
+                        while (!words.compareAndSet(word, w, w | mask) &&
+                               ((w = words.get(word)) & mask) == 0) { }
+                    }
+                }
+            }
+            return added;
+        }
+    }
 }
@@ -363,6 +363,11 @@ abstract class DoublePipeline<E_IN>
         return boxed().distinct().mapToDouble(i -> (double) i);
     }
 
+    @Override
+    public final DoubleStream distinct(long expectedSize, double fpp) {
+        return DistinctOps.makeDouble(this, expectedSize, fpp);
+    }
+
     // Terminal ops from DoubleStream
 
     @Override
@@ -30,6 +30,7 @@ import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.DoubleSummaryStatistics;
+import java.util.HyperLogLog;
 import java.util.Objects;
 import java.util.OptionalDouble;
 import java.util.PrimitiveIterator;
@@ -180,6 +181,51 @@ public interface DoubleStream extends BaseStream<Double, DoubleStream> {
      */
     DoubleStream distinct();
 
+    /**
+     * Returns a stream consisting of the distinct elements of this stream,
+     * using a fixed amount of memory to remember the elements seen.  Unlike
+     * {@link #distinct()} the result is approximate: no element is included
+     * twice, but an element seen for the first time is dropped, with about
+     * probability {@code fpp}, if it is mistaken for one already seen.
+     * Elements are distinguished by {@link Double#doubleToLongBits(double)}.
+     *
+     * <p>Elements seen are recorded in a Bloom filter sized for
+     * {@code expectedSize} distinct elements.  Its memory use is about
+     * {@code -expectedSize * ln(fpp) / (8 * ln(2)^2)} bytes, for example 1.2
+     * megabytes for a million elements at a false positive probability of 1%.
+     * The false positive probability grows if more distinct elements than
+     * expected are seen.
+     *
+     * <p>The filter is shared by a parallel evaluation, which is therefore
+     * lazy and unbuffered.  Each element is tested and recorded while holding
+     * one of 64 locks chosen from its hash, so that equal elements reaching
+     * the filter concurrently are not both included; threads serialize on
+     * these locks, which limits the speedup of pipelines doing little other
+     * work per element.  For ordered parallel streams, which of several
+     * equal elements is included is not specified.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @implSpec
+     * The default implementation validates its arguments and returns
+     * {@link #distinct()}.
+     *
+     * @param expectedSize the expected number of distinct elements
+     * @param fpp the desired probability of dropping an element seen for the
+     *        first time
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code expectedSize} is not
+     *         positive, or {@code fpp} is not greater than 0 and less than 1
+     */
+    default DoubleStream distinct(long expectedSize, double fpp) {
+        if (expectedSize <= 0)
+            throw new IllegalArgumentException(Long.toString(expectedSize));
+        if (!(fpp > 0.0 && fpp < 1.0))
+            throw new IllegalArgumentException(Double.toString(fpp));
+        return distinct();
+    }
+
     /**
      * Returns a stream consisting of the elements of this stream in sorted
      * order. The elements are compared for equality according to
@@ -592,6 +638,36 @@ public interface DoubleStream extends BaseStream<Double, DoubleStream> {
      */
     DoubleSummaryStatistics summaryStatistics();
 
+    /**
+     * Returns an estimate of the number of distinct elements of this stream,
+     * computed with a {@link HyperLogLog} sketch of the given precision.
+     * This is a special case of a
+     * <a href="package-summary.html#Reduction">reduction</a> whose memory
+     * use is fixed by the precision.  Elements are distinguished by {@link Double#doubleToLongBits(double)}.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">terminal
+     * operation</a>.
+     *
+     * @implSpec
+     * The default implementation behaves as if:
+     * <pre>{@code
+     *     return collect(() -> new HyperLogLog(precision),
+     *                    HyperLogLog::accept, HyperLogLog::combine).estimate();
+     * }</pre>
+     *
+     * @param precision the precision of the sketch, between
+     *        {@link HyperLogLog#MIN_PRECISION} and
+     *        {@link HyperLogLog#MAX_PRECISION} inclusive; the relative
+     *        standard error of the estimate is about
+     *        {@code 1.04 / sqrt(2^precision)}
+     * @return the estimated number of distinct elements
+     * @throws IllegalArgumentException if {@code precision} is out of range
+     */
+    default long countDistinctApproximately(int precision) {
+        return collect(() -> new HyperLogLog(precision),
+                       HyperLogLog::accept, HyperLogLog::combine).estimate();
+    }
+
     /**
      * Returns whether any elements of this stream match the provided
      * predicate.  May not evaluate the predicate on all elements if not
@@ -157,7 +157,7 @@ final class ForEachOps {
             if (ordered)
                 new ForEachOrderedTask<>(helper, spliterator, this).invoke();
             else
-                new ForEachTask<>(helper, spliterator, helper.wrapSink(this)).invoke();
+                new ForEachTask<>(helper, spliterator, this).invoke();
             return null;
         }
 
@@ -253,15 +253,21 @@ final class ForEachOps {
     @SuppressWarnings("serial")
     static final class ForEachTask<S, T> extends CountedCompleter<Void> {
         private Spliterator<S> spliterator;
+        // The wrapped sink shared by all leaves, or null if the evaluation is
+        // profiled: a profiled chain records into state confined to one
+        // thread, so each leaf wraps the terminal sink, action, itself
         private final Sink<S> sink;
+        private final Sink<T> action;
         private final PipelineHelper<T> helper;
         private long targetSize;
 
         ForEachTask(PipelineHelper<T> helper,
                     Spliterator<S> spliterator,
-                    Sink<S> sink) {
+                    Sink<T> action) {
             super(null);
-            this.sink = sink;
+            boolean profiled = helper.getProfile() != null;
+            this.sink = profiled ? null : helper.wrapSink(action);
+            this.action = action;
             this.helper = helper;
             this.spliterator = spliterator;
             this.targetSize = 0L;
@@ -271,6 +277,7 @@ final class ForEachOps {
             super(parent);
             this.spliterator = spliterator;
             this.sink = parent.sink;
+            this.action = parent.action;
             this.targetSize = parent.targetSize;
             this.helper = parent.helper;
         }
@@ -280,15 +287,19 @@ final class ForEachOps {
             Spliterator<S> rightSplit = spliterator, leftSplit;
             long sizeEstimate = rightSplit.estimateSize(), sizeThreshold;
             if ((sizeThreshold = targetSize) == 0L)
-                targetSize = sizeThreshold = AbstractTask.suggestTargetSize(sizeEstimate);
+                targetSize = sizeThreshold = helper.suggestTargetSize(sizeEstimate);
             boolean isShortCircuit = StreamOpFlag.SHORT_CIRCUIT.isKnown(helper.getStreamAndOpFlags());
             boolean forkRight = false;
             Sink<S> taskSink = sink;
             ForEachTask<S, T> task = this;
-            while (!isShortCircuit || !taskSink.cancellationRequested()) {
+            while (!isShortCircuit || taskSink == null ||
+                   !taskSink.cancellationRequested()) {
                 if (sizeEstimate <= sizeThreshold ||
                     (leftSplit = rightSplit.trySplit()) == null) {
-                    task.helper.copyInto(taskSink, rightSplit);
+                    task.helper.copyInto(taskSink != null
+                                         ? taskSink
+                                         : task.helper.<S>wrapSink(task.action),
+                                         rightSplit);
                     break;
                 }
                 ForEachTask<S, T> leftTask = new ForEachTask<>(task, leftSplit);
@@ -376,9 +387,10 @@ final class ForEachOps {
             super(null);
             this.helper = helper;
             this.spliterator = spliterator;
-            this.targetSize = AbstractTask.suggestTargetSize(spliterator.estimateSize());
+            this.targetSize = helper.suggestTargetSize(spliterator.estimateSize());
             // Size map to avoid concurrent re-sizes
-            this.completionMap = new ConcurrentHashMap<>(Math.max(16, AbstractTask.LEAF_TARGET << 1));
+            this.completionMap = new ConcurrentHashMap<>(
+                    Math.max(16, Math.min(helper.getLeafTarget(), 1 << 16) << 1));
             this.action = action;
             this.leftPredecessor = null;
         }
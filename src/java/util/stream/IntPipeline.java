@@ -31,6 +31,7 @@ import java.util.OptionalInt;
 import java.util.PrimitiveIterator;
 import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.BinaryOperator;
 import java.util.function.IntBinaryOperator;
@@ -385,6 +386,21 @@ abstract class IntPipeline<E_IN>
             return SliceOps.makeInt(this, n, -1);
     }
 
+    @Override
+    public final Stream<int[]> batch(int size) {
+        return WindowOps.makeInt(this, size, size, true, 0L);
+    }
+
+    @Override
+    public final Stream<int[]> batch(int maxSize, long timeout, TimeUnit unit) {
+        return WindowOps.makeInt(this, maxSize, maxSize, true, WindowOps.timeoutNanos(timeout, unit));
+    }
+
+    @Override
+    public final Stream<int[]> sliding(int size, int step) {
+        return WindowOps.makeInt(this, size, step, false, 0L);
+    }
+
     @Override
     public final IntStream sorted() {
         return SortedOps.makeInt(this);
@@ -397,6 +413,11 @@ abstract class IntPipeline<E_IN>
         return boxed().distinct().mapToInt(i -> i);
     }
 
+    @Override
+    public final IntStream distinct(long expectedSize, double fpp) {
+        return DistinctOps.makeInt(this, expectedSize, fpp);
+    }
+
     // Terminal ops from IntStream
 
     @Override
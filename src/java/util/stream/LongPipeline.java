@@ -31,6 +31,7 @@ import java.util.OptionalLong;
 import java.util.PrimitiveIterator;
 import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.BinaryOperator;
 import java.util.function.IntFunction;
@@ -366,6 +367,21 @@ abstract class LongPipeline<E_IN>
             return SliceOps.makeLong(this, n, -1);
     }
 
+    @Override
+    public final Stream<long[]> batch(int size) {
+        return WindowOps.makeLong(this, size, size, true, 0L);
+    }
+
+    @Override
+    public final Stream<long[]> batch(int maxSize, long timeout, TimeUnit unit) {
+        return WindowOps.makeLong(this, maxSize, maxSize, true, WindowOps.timeoutNanos(timeout, unit));
+    }
+
+    @Override
+    public final Stream<long[]> sliding(int size, int step) {
+        return WindowOps.makeLong(this, size, step, false, 0L);
+    }
+
     @Override
     public final LongStream sorted() {
         return SortedOps.makeLong(this);
@@ -378,6 +394,11 @@ abstract class LongPipeline<E_IN>
         return boxed().distinct().mapToLong(i -> (long) i);
     }
 
+    @Override
+    public final LongStream distinct(long expectedSize, double fpp) {
+        return DistinctOps.makeLong(this, expectedSize, fpp);
+    }
+
     // Terminal ops from LongStream
 
     @Override
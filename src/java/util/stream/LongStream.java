@@ -29,6 +29,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HyperLogLog;
 import java.util.LongSummaryStatistics;
 import java.util.Objects;
 import java.util.OptionalDouble;
@@ -37,6 +38,7 @@ import java.util.PrimitiveIterator;
 import java.util.Spliterator;
 import java.util.Spliterators;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.function.LongBinaryOperator;
@@ -179,6 +181,51 @@ public interface LongStream extends BaseStream<Long, LongStream> {
      */
     LongStream distinct();
 
+    /**
+     * Returns a stream consisting of the distinct elements of this stream,
+     * using a fixed amount of memory to remember the elements seen.  Unlike
+     * {@link #distinct()} the result is approximate: no element is included
+     * twice, but an element seen for the first time is dropped, with about
+     * probability {@code fpp}, if it is mistaken for one already seen.
+     * Elements are distinguished by value.
+     *
+     * <p>Elements seen are recorded in a Bloom filter sized for
+     * {@code expectedSize} distinct elements.  Its memory use is about
+     * {@code -expectedSize * ln(fpp) / (8 * ln(2)^2)} bytes, for example 1.2
+     * megabytes for a million elements at a false positive probability of 1%.
+     * The false positive probability grows if more distinct elements than
+     * expected are seen.
+     *
+     * <p>The filter is shared by a parallel evaluation, which is therefore
+     * lazy and unbuffered.  Each element is tested and recorded while holding
+     * one of 64 locks chosen from its hash, so that equal elements reaching
+     * the filter concurrently are not both included; threads serialize on
+     * these locks, which limits the speedup of pipelines doing little other
+     * work per element.  For ordered parallel streams, which of several
+     * equal elements is included is not specified.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @implSpec
+     * The default implementation validates its arguments and returns
+     * {@link #distinct()}.
+     *
+     * @param expectedSize the expected number of distinct elements
+     * @param fpp the desired probability of dropping an element seen for the
+     *        first time
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code expectedSize} is not
+     *         positive, or {@code fpp} is not greater than 0 and less than 1
+     */
+    default LongStream distinct(long expectedSize, double fpp) {
+        if (expectedSize <= 0)
+            throw new IllegalArgumentException(Long.toString(expectedSize));
+        if (!(fpp > 0.0 && fpp < 1.0))
+            throw new IllegalArgumentException(Double.toString(fpp));
+        return distinct();
+    }
+
     /**
      * Returns a stream consisting of the elements of this stream in sorted
      * order.
@@ -277,6 +324,116 @@ public interface LongStream extends BaseStream<Long, LongStream> {
      */
     LongStream skip(long n);
 
+    /**
+     * Returns a stream consisting of the elements of this stream grouped into
+     * consecutive batches of {@code size} elements, in encounter order.  The
+     * last batch holds the remaining elements, and so may be smaller.  Each
+     * batch is a new {@code long} array.
+     *
+     * <p>Batches are pushed downstream as they fill, so a sequential pipeline
+     * holds at most one batch in memory and may be infinite.  When the stream
+     * is parallel its elements are collected first and the batches are split
+     * along batch boundaries.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @apiNote
+     * Batching suits consumers that work in bulk, such as writes to a
+     * database:
+     * <pre>{@code
+     *     ids.batch(500).forEach(dao::deleteAll);
+     * }</pre>
+     *
+     * @implSpec
+     * The default implementation validates its arguments, then obtains the
+     * {@link #spliterator() spliterator} of this stream and returns the
+     * batches of a new stream over it.
+     *
+     * @param size the number of elements in a batch
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code size} is not positive
+     */
+    default Stream<long[]> batch(int size) {
+        if (size <= 0)
+            throw new IllegalArgumentException(Integer.toString(size));
+        return StreamSupport.longStream(spliterator(), isParallel()).onClose(this::close).batch(size);
+    }
+
+    /**
+     * Returns a stream consisting of the elements of this stream grouped into
+     * consecutive batches of at most {@code maxSize} elements, where a batch
+     * is also closed once {@code timeout} has elapsed since its first
+     * element.  Each batch is a new {@code long} array.
+     *
+     * <p>A batch is only closed by time when the next element arrives; this
+     * operation does not start timers or threads, so a batch of a stream
+     * whose source stalls is pushed when the source resumes or ends.  When the
+     * stream is parallel its elements are collected first, so all of them are
+     * available at once and batches are bounded by size only.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @implSpec
+     * The default implementation validates its arguments, then obtains the
+     * {@link #spliterator() spliterator} of this stream and returns the
+     * batches of a new stream over it.
+     *
+     * @param maxSize the maximum number of elements in a batch
+     * @param timeout the maximum time a batch stays open
+     * @param unit the time unit of the {@code timeout} argument
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code maxSize} or {@code timeout}
+     *         is not positive
+     * @throws NullPointerException if {@code unit} is null
+     */
+    default Stream<long[]> batch(int maxSize, long timeout, TimeUnit unit) {
+        Objects.requireNonNull(unit);
+        if (maxSize <= 0)
+            throw new IllegalArgumentException(Integer.toString(maxSize));
+        if (timeout <= 0)
+            throw new IllegalArgumentException(Long.toString(timeout));
+        return StreamSupport.longStream(spliterator(), isParallel()).onClose(this::close)
+                .batch(maxSize, timeout, unit);
+    }
+
+    /**
+     * Returns a stream consisting of sliding windows over the elements of
+     * this stream, in encounter order.  A window of {@code size} elements
+     * starts at every {@code step}-th element; if {@code step} is greater
+     * than {@code size} the elements between windows are skipped.  Only full
+     * windows are included, so a stream of fewer than {@code size} elements
+     * produces no windows.  Each window is a new {@code long} array.
+     *
+     * <p>Windows are pushed downstream as they fill, so a sequential pipeline
+     * holds at most one window in memory and may be infinite.  When the
+     * stream is parallel its elements are collected first and the windows are
+     * split along window boundaries.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @implSpec
+     * The default implementation validates its arguments, then obtains the
+     * {@link #spliterator() spliterator} of this stream and returns the
+     * windows of a new stream over it.
+     *
+     * @param size the number of elements in a window
+     * @param step the distance between the first elements of consecutive
+     *        windows
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code size} or {@code step} is not
+     *         positive
+     */
+    default Stream<long[]> sliding(int size, int step) {
+        if (size <= 0)
+            throw new IllegalArgumentException(Integer.toString(size));
+        if (step <= 0)
+            throw new IllegalArgumentException(Integer.toString(step));
+        return StreamSupport.longStream(spliterator(), isParallel()).onClose(this::close).sliding(size, step);
+    }
+
     /**
      * Performs an action for each element of this stream.
      *
@@ -540,6 +697,36 @@ public interface LongStream extends BaseStream<Long, LongStream> {
      */
     LongSummaryStatistics summaryStatistics();
 
+    /**
+     * Returns an estimate of the number of distinct elements of this stream,
+     * computed with a {@link HyperLogLog} sketch of the given precision.
+     * This is a special case of a
+     * <a href="package-summary.html#Reduction">reduction</a> whose memory
+     * use is fixed by the precision.  Elements are distinguished by value.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">terminal
+     * operation</a>.
+     *
+     * @implSpec
+     * The default implementation behaves as if:
+     * <pre>{@code
+     *     return collect(() -> new HyperLogLog(precision),
+     *                    HyperLogLog::accept, HyperLogLog::combine).estimate();
+     * }</pre>
+     *
+     * @param precision the precision of the sketch, between
+     *        {@link HyperLogLog#MIN_PRECISION} and
+     *        {@link HyperLogLog#MAX_PRECISION} inclusive; the relative
+     *        standard error of the estimate is about
+     *        {@code 1.04 / sqrt(2^precision)}
+     * @return the estimated number of distinct elements
+     * @throws IllegalArgumentException if {@code precision} is out of range
+     */
+    default long countDistinctApproximately(int precision) {
+        return collect(() -> new HyperLogLog(precision),
+                       HyperLogLog::accept, HyperLogLog::combine).estimate();
+    }
+
     /**
      * Returns whether any elements of this stream match the provided
      * predicate.  May not evaluate the predicate on all elements if not
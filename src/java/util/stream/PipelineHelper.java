@@ -175,6 +175,36 @@ abstract class PipelineHelper<P_OUT> {
     abstract Node.Builder<P_OUT> makeNodeBuilder(long exactSizeIfKnown,
                                                  IntFunction<P_OUT[]> generator);
 
+    /**
+     * Returns the number of leaf tasks a parallel evaluation of this pipeline
+     * should aim for, as given by {@link BaseStream#splitting(long, int)} or
+     * else derived from the parallelism of the pool evaluating the pipeline.
+     *
+     * @return the target number of leaf tasks
+     */
+    abstract int getLeafTarget();
+
+    /**
+     * Returns a suggested target leaf size for a parallel evaluation of this
+     * pipeline, based on the initial size estimate, the target number of leaf
+     * tasks and any minimum leaf size given by
+     * {@link BaseStream#splitting(long, int)}.
+     *
+     * @param sizeEstimate the estimated size of the source
+     * @return suggested target leaf size, which is always positive
+     */
+    abstract long suggestTargetSize(long sizeEstimate);
+
+    /**
+     * Returns the profile recording the evaluation of this pipeline, if one
+     * was requested by {@link BaseStream#profile(java.util.function.Consumer)}
+     * and the pipeline is being evaluated.
+     *
+     * @return the profile recording the evaluation, or {@code null} if the
+     *         evaluation is not profiled
+     */
+    abstract StreamProfile getProfile();
+
     /**
      * Collects all output elements resulting from applying the pipeline stages
      * to the source {@code Spliterator} into a {@code Node}.
@@ -26,10 +26,12 @@ package java.util.stream;
 
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.BinaryOperator;
@@ -384,6 +386,18 @@ abstract class ReferencePipeline<P_IN, P_OUT>
         return DistinctOps.makeRef(this);
     }
 
+    @Override
+    public final Stream<P_OUT> distinct(long expectedSize, double fpp) {
+        return DistinctOps.makeRef(this, expectedSize, fpp);
+    }
+
+    @Override
+    public final Stream<P_OUT> distinct(ToLongFunction<? super P_OUT> keyExtractor,
+                                        long expectedSize, double fpp) {
+        return DistinctOps.makeRef(this, Objects.requireNonNull(keyExtractor),
+                                   expectedSize, fpp);
+    }
+
     @Override
     public final Stream<P_OUT> sorted() {
         return SortedOps.makeRef(this);
@@ -394,6 +408,15 @@ abstract class ReferencePipeline<P_IN, P_OUT>
         return SortedOps.makeRef(this, comparator);
     }
 
+    @Override
+    public final Stream<P_OUT> sorted(Comparator<? super P_OUT> comparator,
+                                      int runLength,
+                                      SpillSerializer<P_OUT> serializer) {
+        if (runLength <= 0)
+            throw new IllegalArgumentException(Integer.toString(runLength));
+        return SortedOps.makeRef(this, comparator, runLength, serializer);
+    }
+
     @Override
     public final Stream<P_OUT> limit(long maxSize) {
         if (maxSize < 0)
@@ -411,6 +434,21 @@ abstract class ReferencePipeline<P_IN, P_OUT>
             return SliceOps.makeRef(this, n, -1);
     }
 
+    @Override
+    public final Stream<List<P_OUT>> batch(int size) {
+        return WindowOps.makeRef(this, size, size, true, 0L);
+    }
+
+    @Override
+    public final Stream<List<P_OUT>> batch(int maxSize, long timeout, TimeUnit unit) {
+        return WindowOps.makeRef(this, maxSize, maxSize, true, WindowOps.timeoutNanos(timeout, unit));
+    }
+
+    @Override
+    public final Stream<List<P_OUT>> sliding(int size, int step) {
+        return WindowOps.makeRef(this, size, step, false, 0L);
+    }
+
     // Terminal operations from Stream
 
     @Override
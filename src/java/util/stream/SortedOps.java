@@ -24,11 +24,26 @@
  */
 package java.util.stream;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
+import java.util.PriorityQueue;
 import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CountedCompleter;
+import java.util.function.Consumer;
 import java.util.function.IntFunction;
 
 
@@ -63,6 +78,25 @@ final class SortedOps {
         return new OfRef<>(upstream, comparator);
     }
 
+    /**
+     * Appends a "sorted" operation to the provided stream that sorts in
+     * bounded runs, spilling runs to temporary files when the input does not
+     * fit in a single run.
+     *
+     * @param <T> the type of both input and output elements
+     * @param upstream a reference stream with element type T
+     * @param comparator the comparator to order elements by
+     * @param runLength the maximum number of elements sorted in memory at
+     *        once by each thread
+     * @param serializer the serializer for elements of spilled runs
+     */
+    static <T> Stream<T> makeRef(AbstractPipeline<?, T, ?> upstream,
+                                 Comparator<? super T> comparator,
+                                 int runLength,
+                                 Stream.SpillSerializer<T> serializer) {
+        return new OfRefSpilling<>(upstream, comparator, runLength, serializer);
+    }
+
     /**
      * Appends a "sorted" operation to the provided stream.
      *
@@ -161,6 +195,499 @@ final class SortedOps {
         }
     }
 
+    /**
+     * Specialized subtype for sorting reference streams in bounded runs that
+     * are spilled to temporary files and merged lazily.
+     */
+    private static final class OfRefSpilling<T> extends ReferencePipeline.StatefulOp<T, T> {
+        private final RunSpiller<T> spiller;
+
+        OfRefSpilling(AbstractPipeline<?, T, ?> upstream,
+                      Comparator<? super T> comparator,
+                      int runLength,
+                      Stream.SpillSerializer<T> serializer) {
+            super(upstream, StreamShape.REFERENCE,
+                  StreamOpFlag.IS_ORDERED | StreamOpFlag.NOT_SORTED);
+            this.spiller = new RunSpiller<>(Objects.requireNonNull(comparator),
+                                            runLength,
+                                            Objects.requireNonNull(serializer));
+            // Delete runs left behind by a partially consumed merge
+            onClose(spiller);
+        }
+
+        @Override
+        public Sink<T> opWrapSink(int flags, Sink<T> sink) {
+            Objects.requireNonNull(sink);
+            return new SpillingRefSortingSink<>(sink, spiller);
+        }
+
+        @Override
+        public <P_IN> Node<T> opEvaluateParallel(PipelineHelper<T> helper,
+                                                 Spliterator<P_IN> spliterator,
+                                                 IntFunction<T[]> generator) {
+            if (fitsInOneRun(helper, spliterator)) {
+                // Sort the run as a spilled run would be, which is stable
+                T[] flattenedData = helper.evaluate(spliterator, true, generator).asArray(generator);
+                Arrays.sort(flattenedData, spiller.comparator);
+                return Nodes.node(flattenedData);
+            }
+            Spliterator<T> merged = opEvaluateParallelLazy(helper, spliterator);
+            Node.Builder<T> nb = Nodes.builder(merged.getExactSizeIfKnown(), generator);
+            nb.begin(merged.getExactSizeIfKnown());
+            merged.forEachRemaining(nb);
+            nb.end();
+            return nb.build();
+        }
+
+        @Override
+        public <P_IN> Spliterator<T> opEvaluateParallelLazy(PipelineHelper<T> helper,
+                                                            Spliterator<P_IN> spliterator) {
+            if (fitsInOneRun(helper, spliterator)) {
+                @SuppressWarnings("unchecked")
+                IntFunction<T[]> generator = n -> (T[]) new Object[n];
+                return opEvaluateParallel(helper, spliterator, generator).spliterator();
+            }
+            List<Run<T>> runs;
+            try {
+                runs = new SpillTask<>(spiller, helper, spliterator).invoke();
+            }
+            catch (Throwable ex) {
+                spiller.run();
+                throw ex;
+            }
+            return spiller.merge(runs);
+        }
+
+        /**
+         * Returns true if the input is known to fit in a single run, and so
+         * is sorted in memory rather than spilled.
+         */
+        private <P_IN> boolean fitsInOneRun(PipelineHelper<T> helper,
+                                            Spliterator<P_IN> spliterator) {
+            long size = helper.exactOutputSizeIfKnown(spliterator);
+            return size >= 0 && size <= spiller.runLength;
+        }
+    }
+
+    /**
+     * A sorted run of elements held in a temporary file, and the state of
+     * reading it back during a merge.
+     */
+    private static final class Run<T> {
+        final Path path;
+        final long count;
+        // Position of this run in encounter order, used to keep merges stable
+        int order;
+        // Merge state, valid once opened
+        DataInputStream in;
+        long remaining;
+        T head;
+
+        Run(Path path, long count) {
+            this.path = path;
+            this.count = count;
+        }
+    }
+
+    /**
+     * Writes sorted runs to temporary files and merges them.  All runs
+     * created and not yet merged are tracked, so that running this spiller,
+     * as the close action of the stream, deletes them.
+     */
+    private static final class RunSpiller<T> implements Runnable {
+        /**
+         * Maximum number of runs merged at once.  If there are more runs they
+         * are first merged in groups, in encounter order, into longer runs.
+         */
+        static final int MERGE_WIDTH = 64;
+
+        /** Buffer size for reading and writing runs */
+        static final int BUFFER_SIZE = 1 << 16;
+
+        final Comparator<? super T> comparator;
+        final int runLength;
+        final Stream.SpillSerializer<T> serializer;
+        private final HashSet<Run<T>> live = new HashSet<>();
+
+        RunSpiller(Comparator<? super T> comparator,
+                   int runLength,
+                   Stream.SpillSerializer<T> serializer) {
+            this.comparator = comparator;
+            this.runLength = runLength;
+            this.serializer = serializer;
+        }
+
+        /**
+         * Writes sorted elements to a new run.
+         */
+        Run<T> spill(Iterator<? extends T> sorted) {
+            Path path = null;
+            try {
+                path = Files.createTempFile("sorted", ".run");
+                long count = 0;
+                try (DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE))) {
+                    while (sorted.hasNext()) {
+                        serializer.write(sorted.next(), out);
+                        count++;
+                    }
+                }
+                Run<T> run = new Run<>(path, count);
+                synchronized (this) {
+                    live.add(run);
+                }
+                return run;
+            }
+            catch (IOException ex) {
+                if (path != null)
+                    delete(path);
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        /**
+         * Returns a spliterator over the merge of the given runs, which are
+         * in encounter order.
+         */
+        MergingSpliterator<T> merge(List<Run<T>> runs) {
+            while (runs.size() > MERGE_WIDTH) {
+                List<Run<T>> merged = new ArrayList<>((runs.size() + MERGE_WIDTH - 1) / MERGE_WIDTH);
+                for (int i = 0; i < runs.size(); i += MERGE_WIDTH) {
+                    List<Run<T>> group = runs.subList(i, Math.min(i + MERGE_WIDTH, runs.size()));
+                    if (group.size() == 1) {
+                        merged.add(group.get(0));
+                    }
+                    else {
+                        MergingSpliterator<T> m = new MergingSpliterator<>(this, new ArrayList<>(group));
+                        try {
+                            merged.add(spill(Spliterators.iterator(m)));
+                        }
+                        finally {
+                            m.close();
+                        }
+                    }
+                }
+                runs = merged;
+            }
+            return new MergingSpliterator<>(this, runs);
+        }
+
+        /**
+         * Opens a run for merging and reads its first element.
+         *
+         * @return false if the run is empty
+         */
+        boolean open(Run<T> run) {
+            try {
+                run.in = new DataInputStream(
+                        new BufferedInputStream(Files.newInputStream(run.path), BUFFER_SIZE));
+            }
+            catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            run.remaining = run.count;
+            return next(run);
+        }
+
+        /**
+         * Reads the next element of an open run into its head, discarding
+         * the run if it is exhausted.
+         *
+         * @return false if the run is exhausted
+         */
+        boolean next(Run<T> run) {
+            if (run.remaining == 0) {
+                discard(run);
+                return false;
+            }
+            try {
+                run.head = serializer.read(run.in);
+            }
+            catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            run.remaining--;
+            return true;
+        }
+
+        /**
+         * Closes and deletes a run.
+         */
+        void discard(Run<T> run) {
+            synchronized (this) {
+                live.remove(run);
+            }
+            run.head = null;
+            if (run.in != null) {
+                try {
+                    run.in.close();
+                }
+                catch (IOException ignore) {
+                }
+                run.in = null;
+            }
+            delete(run.path);
+        }
+
+        private static void delete(Path path) {
+            try {
+                Files.deleteIfExists(path);
+            }
+            catch (IOException ignore) {
+            }
+        }
+
+        /**
+         * Discards all runs that have not been merged.
+         */
+        @Override
+        public void run() {
+            List<Run<T>> runs;
+            synchronized (this) {
+                runs = new ArrayList<>(live);
+            }
+            for (Run<T> run : runs)
+                discard(run);
+        }
+    }
+
+    /**
+     * A spliterator over the k-way merge of sorted runs.  Runs are opened on
+     * first traversal, and each run is discarded as soon as it is exhausted.
+     */
+    private static final class MergingSpliterator<T> implements Spliterator<T> {
+        private final RunSpiller<T> spiller;
+        private final List<Run<T>> runs;
+        private PriorityQueue<Run<T>> heads;
+        private long remaining;
+
+        MergingSpliterator(RunSpiller<T> spiller, List<Run<T>> runs) {
+            this.spiller = spiller;
+            this.runs = runs;
+            long count = 0;
+            for (Run<T> run : runs)
+                count += run.count;
+            this.remaining = count;
+        }
+
+        private PriorityQueue<Run<T>> heads() {
+            PriorityQueue<Run<T>> q;
+            if ((q = heads) == null) {
+                Comparator<? super T> c = spiller.comparator;
+                q = heads = new PriorityQueue<>(Math.max(1, runs.size()), (a, b) -> {
+                    int r = c.compare(a.head, b.head);
+                    return r != 0 ? r : Integer.compare(a.order, b.order);
+                });
+                for (int i = 0; i < runs.size(); i++) {
+                    Run<T> run = runs.get(i);
+                    run.order = i;
+                    if (spiller.open(run))
+                        q.add(run);
+                }
+            }
+            return q;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            Objects.requireNonNull(action);
+            PriorityQueue<Run<T>> q = heads();
+            Run<T> run = q.poll();
+            if (run == null)
+                return false;
+            T t = run.head;
+            if (spiller.next(run))
+                q.add(run);
+            remaining--;
+            action.accept(t);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            Objects.requireNonNull(action);
+            while (tryAdvance(action)) { }
+        }
+
+        /**
+         * Discards all runs of this merge, whether or not exhausted.
+         */
+        void close() {
+            for (Run<T> run : runs)
+                spiller.discard(run);
+            heads = new PriorityQueue<>();
+            remaining = 0;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return remaining;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED;
+        }
+    }
+
+    /**
+     * {@link Sink} that buffers elements into runs, sorting and spilling each
+     * run once it is full.
+     */
+    private static final class RunSink<T> implements Sink<T> {
+        final RunSpiller<T> spiller;
+        final ArrayList<Run<T>> runs = new ArrayList<>();
+        ArrayList<T> list;
+
+        RunSink(RunSpiller<T> spiller) {
+            this.spiller = spiller;
+        }
+
+        @Override
+        public void begin(long size) {
+            list = (size >= 0)
+                   ? new ArrayList<T>((int) Math.min(size, spiller.runLength))
+                   : new ArrayList<T>();
+        }
+
+        @Override
+        public void accept(T t) {
+            // Spill a full run only once it overflows, so input that
+            // fits in one run stays in memory
+            if (list.size() >= spiller.runLength)
+                flush();
+            list.add(t);
+        }
+
+        /**
+         * Sorts and spills the buffered elements, if any.
+         */
+        void flush() {
+            if (!list.isEmpty()) {
+                list.sort(spiller.comparator);
+                runs.add(spiller.spill(list.iterator()));
+                list.clear();
+            }
+        }
+
+        @Override
+        public void end() {
+            flush();
+            list = null;
+        }
+    }
+
+    /**
+     * {@link Sink} for implementing sort on reference streams in bounded
+     * runs.  If all elements fit in one run they are sorted in memory,
+     * otherwise the spilled runs are merged and pushed downstream.
+     */
+    private static final class SpillingRefSortingSink<T> extends AbstractRefSortingSink<T> {
+        private final RunSink<T> runSink;
+
+        SpillingRefSortingSink(Sink<? super T> sink, RunSpiller<T> spiller) {
+            super(sink, spiller.comparator);
+            this.runSink = new RunSink<>(spiller);
+        }
+
+        @Override
+        public void begin(long size) {
+            runSink.begin(size);
+        }
+
+        @Override
+        public void accept(T t) {
+            runSink.accept(t);
+        }
+
+        @Override
+        public void end() {
+            if (runSink.runs.isEmpty()) {
+                ArrayList<T> list = runSink.list;
+                runSink.list = null;
+                list.sort(comparator);
+                downstream.begin(list.size());
+                if (!cancellationWasRequested) {
+                    list.forEach(downstream::accept);
+                }
+                else {
+                    for (T t : list) {
+                        if (downstream.cancellationRequested()) break;
+                        downstream.accept(t);
+                    }
+                }
+                downstream.end();
+                return;
+            }
+
+            runSink.end();
+            MergingSpliterator<T> merged = runSink.spiller.merge(runSink.runs);
+            try {
+                downstream.begin(merged.getExactSizeIfKnown());
+                if (!cancellationWasRequested) {
+                    merged.forEachRemaining(downstream);
+                }
+                else {
+                    do { } while (!downstream.cancellationRequested() && merged.tryAdvance(downstream));
+                }
+                downstream.end();
+            }
+            finally {
+                merged.close();
+            }
+        }
+    }
+
+    /**
+     * Task for sorting and spilling runs in parallel.  Each leaf spills its
+     * portion of the input as one or more runs, and the runs of sibling
+     * tasks are concatenated so that the result lists runs in encounter
+     * order.
+     */
+    @SuppressWarnings("serial")
+    private static final class SpillTask<P_IN, T>
+            extends AbstractTask<P_IN, T, List<Run<T>>, SpillTask<P_IN, T>> {
+        private final RunSpiller<T> spiller;
+
+        SpillTask(RunSpiller<T> spiller,
+                  PipelineHelper<T> helper,
+                  Spliterator<P_IN> spliterator) {
+            super(helper, spliterator);
+            this.spiller = spiller;
+        }
+
+        SpillTask(SpillTask<P_IN, T> parent, Spliterator<P_IN> spliterator) {
+            super(parent, spliterator);
+            this.spiller = parent.spiller;
+        }
+
+        @Override
+        protected SpillTask<P_IN, T> makeChild(Spliterator<P_IN> spliterator) {
+            return new SpillTask<>(this, spliterator);
+        }
+
+        @Override
+        protected List<Run<T>> doLeaf() {
+            return helper.wrapAndCopyInto(new RunSink<>(spiller), spliterator).runs;
+        }
+
+        @Override
+        public void onCompletion(CountedCompleter<?> caller) {
+            if (!isLeaf()) {
+                List<Run<T>> runs = leftChild.getLocalResult();
+                runs.addAll(rightChild.getLocalResult());
+                setLocalResult(runs);
+            }
+            // GC spliterator, left and right child
+            super.onCompletion(caller);
+        }
+    }
+
     /**
      * Specialized subtype for sorting int streams.
      */
@@ -24,6 +24,10 @@
  */
 package java.util.stream;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -31,11 +35,14 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.Spliterator;
 import java.util.Spliterators;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.BinaryOperator;
@@ -358,6 +365,111 @@ public interface Stream<T> extends BaseStream<T, Stream<T>> {
      */
     Stream<T> distinct();
 
+    /**
+     * Returns a stream consisting of the distinct elements of this stream,
+     * using a fixed amount of memory to remember the elements seen.  Unlike
+     * {@link #distinct()} the result is approximate, and elements are
+     * distinguished only by their {@link Object#hashCode() hash code}:
+     * unequal elements with equal hash codes, such as {@code "Aa"} and
+     * {@code "BB"}, are always treated as equal, and only the first of them
+     * is included.  For large numbers of distinct elements, or wherever that
+     * matters, use {@link #distinct(ToLongFunction, long, double)} with
+     * {@code long} keys that tell the elements apart.
+     *
+     * <p>No element is included twice.  In addition to hash code
+     * collisions, an element whose hash code is seen for the first time is
+     * dropped, with about probability {@code fpp}, if the filter mistakes it
+     * for one already seen.  The error is therefore bounded below by the
+     * rate of hash code collisions, not by {@code fpp}: even with
+     * well-distributed hash codes, once {@code n} distinct elements have
+     * been seen, a new one is dropped with probability at least about
+     * {@code n / 2^32}, for example 0.02% after a million, and no more than
+     * {@code 2^32} distinct elements can ever be included.
+     *
+     * <p>Elements seen are recorded in a Bloom filter sized for
+     * {@code expectedSize} distinct elements.  Its memory use is about
+     * {@code -expectedSize * ln(fpp) / (8 * ln(2)^2)} bytes, for example 1.2
+     * megabytes for a million elements at a false positive probability of 1%.
+     * The false positive probability grows if more distinct elements than
+     * expected are seen.
+     *
+     * <p>The filter is shared by a parallel evaluation, which is therefore
+     * lazy and unbuffered.  Each element is tested and recorded while holding
+     * one of 64 locks chosen from its hash, so that equal elements reaching
+     * the filter concurrently are not both included; threads serialize on
+     * these locks, which limits the speedup of pipelines doing little other
+     * work per element.  For ordered parallel streams, which of several
+     * equal elements is included is not specified.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @implSpec
+     * The default implementation validates its arguments and returns
+     * {@link #distinct()}.
+     *
+     * @param expectedSize the expected number of distinct elements
+     * @param fpp the desired probability of dropping an element whose hash
+     *        code is seen for the first time
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code expectedSize} is not
+     *         positive, or {@code fpp} is not greater than 0 and less than 1
+     */
+    default Stream<T> distinct(long expectedSize, double fpp) {
+        if (expectedSize <= 0)
+            throw new IllegalArgumentException(Long.toString(expectedSize));
+        if (!(fpp > 0.0 && fpp < 1.0))
+            throw new IllegalArgumentException(Double.toString(fpp));
+        return distinct();
+    }
+
+    /**
+     * Returns a stream consisting of the elements of this stream with
+     * distinct keys, as extracted by the given function, using a fixed
+     * amount of memory to remember the keys seen.  Of several elements with
+     * equal keys, only the first is included.  The result is approximate: no
+     * key is included twice, but an element whose key is seen for the first
+     * time is dropped, with about probability {@code fpp}, if it is mistaken
+     * for one already seen.  Unlike {@link #distinct(long, double)}, which
+     * distinguishes elements by their 32-bit hash codes, the error is bounded
+     * by {@code fpp} however many distinct elements are seen, provided their
+     * keys are distinct.  Suitable keys are 64-bit identifiers, or 64-bit
+     * hashes of the contents of the elements.
+     *
+     * <p>The memory use of the filter, and the behavior of a parallel
+     * evaluation, are as described for {@link #distinct(long, double)},
+     * with {@code expectedSize} the expected number of distinct keys.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @implSpec
+     * The default implementation validates its arguments and returns a
+     * stream including each element whose key is added to a concurrent set
+     * of the keys seen, so that the result is exact.
+     *
+     * @param keyExtractor a <a href="package-summary.html#NonInterference">non-interfering</a>,
+     *        <a href="package-summary.html#Statelessness">stateless</a>
+     *        function extracting a {@code long} key from each element
+     * @param expectedSize the expected number of distinct keys
+     * @param fpp the desired probability of dropping an element whose key
+     *        is seen for the first time
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code expectedSize} is not
+     *         positive, or {@code fpp} is not greater than 0 and less than 1
+     * @since 1.8
+     */
+    default Stream<T> distinct(ToLongFunction<? super T> keyExtractor,
+                               long expectedSize, double fpp) {
+        Objects.requireNonNull(keyExtractor);
+        if (expectedSize <= 0)
+            throw new IllegalArgumentException(Long.toString(expectedSize));
+        if (!(fpp > 0.0 && fpp < 1.0))
+            throw new IllegalArgumentException(Double.toString(fpp));
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+        return filter(t -> seen.add(keyExtractor.applyAsLong(t)));
+    }
+
     /**
      * Returns a stream consisting of the elements of this stream, sorted
      * according to natural order.  If the elements of this stream are not
@@ -391,6 +503,56 @@ public interface Stream<T> extends BaseStream<T, Stream<T>> {
      */
     Stream<T> sorted(Comparator<? super T> comparator);
 
+    /**
+     * Returns a stream consisting of the elements of this stream, sorted
+     * according to the provided {@code Comparator}, holding only a bounded
+     * number of elements in memory.
+     *
+     * <p>Elements are buffered and sorted in runs of at most
+     * {@code runLength} elements.  If the input does not fit in a single run,
+     * each sorted run is written to a temporary file with the given
+     * {@code SpillSerializer} and the runs are merged as the sorted elements
+     * are consumed.  A short-circuiting downstream operation, such as
+     * {@link #limit(long)} or {@link #findFirst()}, stops the merge early.
+     * When evaluated in parallel the input is split and runs are sorted and
+     * written concurrently, so up to {@code runLength} elements may be
+     * buffered by each thread taking part in the evaluation.
+     *
+     * <p>Temporary files are deleted once the merge completes, or when the
+     * stream is {@linkplain #close() closed} if the sorted elements are not
+     * fully consumed.  An {@code IOException} raised while writing or reading
+     * a temporary file is thrown as an {@link UncheckedIOException}.
+     *
+     * <p>For ordered streams, the sort is stable.  For unordered streams, no
+     * stability guarantees are made.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @implSpec
+     * The default implementation validates its arguments and returns
+     * {@code sorted(comparator)}, holding all elements in memory.
+     *
+     * @param comparator a <a href="package-summary.html#NonInterference">non-interfering</a>,
+     *                   <a href="package-summary.html#Statelessness">stateless</a>
+     *                   {@code Comparator} to be used to compare stream elements
+     * @param runLength the maximum number of elements sorted in memory at
+     *        once by each thread
+     * @param serializer the serializer used to write elements to, and read
+     *        elements from, temporary files
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code runLength} is not positive
+     */
+    default Stream<T> sorted(Comparator<? super T> comparator,
+                             int runLength,
+                             SpillSerializer<T> serializer) {
+        Objects.requireNonNull(comparator);
+        Objects.requireNonNull(serializer);
+        if (runLength <= 0)
+            throw new IllegalArgumentException(Integer.toString(runLength));
+        return sorted(comparator);
+    }
+
     /**
      * Returns a stream consisting of the elements of this stream, additionally
      * performing the provided action on each element as elements are consumed
@@ -478,6 +640,116 @@ public interface Stream<T> extends BaseStream<T, Stream<T>> {
      */
     Stream<T> skip(long n);
 
+    /**
+     * Returns a stream consisting of the elements of this stream grouped into
+     * consecutive batches of {@code size} elements, in encounter order.  The
+     * last batch holds the remaining elements, and so may be smaller.  Each
+     * batch is a new, modifiable {@code List}.
+     *
+     * <p>Batches are pushed downstream as they fill, so a sequential pipeline
+     * holds at most one batch in memory and may be infinite.  When the stream
+     * is parallel its elements are collected first and the batches are split
+     * along batch boundaries.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @apiNote
+     * Batching suits consumers that work in bulk, such as writes to a
+     * database:
+     * <pre>{@code
+     *     records.stream().batch(500).forEach(dao::insertAll);
+     * }</pre>
+     *
+     * @implSpec
+     * The default implementation validates its arguments, then obtains the
+     * {@link #spliterator() spliterator} of this stream and returns the
+     * batches of a new stream over it.
+     *
+     * @param size the number of elements in a batch
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code size} is not positive
+     */
+    default Stream<List<T>> batch(int size) {
+        if (size <= 0)
+            throw new IllegalArgumentException(Integer.toString(size));
+        return StreamSupport.stream(spliterator(), isParallel()).onClose(this::close).batch(size);
+    }
+
+    /**
+     * Returns a stream consisting of the elements of this stream grouped into
+     * consecutive batches of at most {@code maxSize} elements, where a batch
+     * is also closed once {@code timeout} has elapsed since its first
+     * element.  Each batch is a new, modifiable {@code List}.
+     *
+     * <p>A batch is only closed by time when the next element arrives; this
+     * operation does not start timers or threads, so a batch of a stream
+     * whose source stalls is pushed when the source resumes or ends.  When the
+     * stream is parallel its elements are collected first, so all of them are
+     * available at once and batches are bounded by size only.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @implSpec
+     * The default implementation validates its arguments, then obtains the
+     * {@link #spliterator() spliterator} of this stream and returns the
+     * batches of a new stream over it.
+     *
+     * @param maxSize the maximum number of elements in a batch
+     * @param timeout the maximum time a batch stays open
+     * @param unit the time unit of the {@code timeout} argument
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code maxSize} or {@code timeout}
+     *         is not positive
+     * @throws NullPointerException if {@code unit} is null
+     */
+    default Stream<List<T>> batch(int maxSize, long timeout, TimeUnit unit) {
+        Objects.requireNonNull(unit);
+        if (maxSize <= 0)
+            throw new IllegalArgumentException(Integer.toString(maxSize));
+        if (timeout <= 0)
+            throw new IllegalArgumentException(Long.toString(timeout));
+        return StreamSupport.stream(spliterator(), isParallel()).onClose(this::close)
+                .batch(maxSize, timeout, unit);
+    }
+
+    /**
+     * Returns a stream consisting of sliding windows over the elements of
+     * this stream, in encounter order.  A window of {@code size} elements
+     * starts at every {@code step}-th element; if {@code step} is greater
+     * than {@code size} the elements between windows are skipped.  Only full
+     * windows are included, so a stream of fewer than {@code size} elements
+     * produces no windows.  Each window is a new, modifiable {@code List}.
+     *
+     * <p>Windows are pushed downstream as they fill, so a sequential pipeline
+     * holds at most one window in memory and may be infinite.  When the
+     * stream is parallel its elements are collected first and the windows are
+     * split along window boundaries.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @implSpec
+     * The default implementation validates its arguments, then obtains the
+     * {@link #spliterator() spliterator} of this stream and returns the
+     * windows of a new stream over it.
+     *
+     * @param size the number of elements in a window
+     * @param step the distance between the first elements of consecutive
+     *        windows
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code size} or {@code step} is not
+     *         positive
+     */
+    default Stream<List<T>> sliding(int size, int step) {
+        if (size <= 0)
+            throw new IllegalArgumentException(Integer.toString(size));
+        if (step <= 0)
+            throw new IllegalArgumentException(Integer.toString(step));
+        return StreamSupport.stream(spliterator(), isParallel()).onClose(this::close).sliding(size, step);
+    }
+
     /**
      * Performs an action for each element of this stream.
      *
@@ -1082,6 +1354,38 @@ public interface Stream<T> extends BaseStream<T, Stream<T>> {
         return stream.onClose(Streams.composedClose(a, b));
     }
 
+    /**
+     * Writes stream elements to, and reads them back from, the temporary
+     * files used by {@link #sorted(Comparator, int, SpillSerializer)}.  An
+     * element read back need not be the same instance as the element that
+     * was written, but should compare equal to it under the comparator of
+     * the sort.
+     *
+     * @param <T> the type of stream elements
+     * @see Stream#sorted(Comparator, int, SpillSerializer)
+     * @since 1.8
+     */
+    public interface SpillSerializer<T> {
+
+        /**
+         * Writes an element.
+         *
+         * @param t the element to write
+         * @param out the output to write to
+         * @throws IOException if an I/O error occurs
+         */
+        void write(T t, DataOutput out) throws IOException;
+
+        /**
+         * Reads an element written by {@link #write(Object, DataOutput)}.
+         *
+         * @param in the input to read from
+         * @return the element read
+         * @throws IOException if an I/O error occurs
+         */
+        T read(DataInput in) throws IOException;
+    }
+
     /**
      * A mutable builder for a {@code Stream}.  This allows the creation of a
      * {@code Stream} by generating elements individually and adding them to the
@@ -0,0 +1,627 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.stream;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A profile of the evaluation of a stream pipeline, recording for each stage
+ * of the pipeline the number of elements it received and the time spent in
+ * it, and for a parallel pipeline the leaf tasks into which the evaluation
+ * was split.
+ *
+ * <p>A profile is obtained by registering a listener with
+ * {@link BaseStream#profile(java.util.function.Consumer)}, which receives
+ * the profile once the terminal operation completes.  For example, the
+ * following prints a per-stage report of a pipeline:
+ * <pre>{@code
+ *     long n = widgets.parallelStream()
+ *                     .profile(System.err::println)
+ *                     .filter(w -> w.getColor() == RED)
+ *                     .map(Widget::getLabel)
+ *                     .distinct()
+ *                     .count();
+ * }</pre>
+ *
+ * <p>Stages are numbered in pipeline order: stage {@code 0} is the source,
+ * each intermediate operation follows, and the last stage is the terminal
+ * operation.  The time of a stage is the time spent in the stage itself,
+ * excluding the time spent in stages downstream of it, summed over all the
+ * threads that evaluated it; the time of the source is that spent obtaining
+ * elements from the source.  Times are in nanoseconds, as measured by
+ * {@link System#nanoTime()}, and include the overhead of measurement, which
+ * for stages performing little work per element may well dominate.
+ *
+ * <p>When a parallel pipeline has stateful intermediate operations, the
+ * evaluation is split into segments at each of them, the segment upstream
+ * being evaluated before the stateful operation is applied.  The
+ * {@linkplain Stage#getBarrierTime() barrier time} of such an operation is the
+ * elapsed time of evaluating its upstream segment and applying the operation,
+ * and overlaps with the times of the upstream stages.
+ *
+ * @implNote
+ * Stages are named after the operation that created them, such as
+ * {@code "filter"} or {@code "sorted"}.  Leaf tasks are recorded for
+ * evaluations that split the source into a tree of tasks, which includes
+ * most parallel terminal operations, but not {@code forEach},
+ * {@code forEachOrdered}, or {@code toArray} of a pipeline of known size.  Elements pushed to a stage after a
+ * short-circuiting operation has completed, and those of any stage evaluated
+ * lazily and not fully traversed, may not be counted.
+ *
+ * <p>This class is thread-safe.  A profile is fully recorded before it is
+ * passed to the listener, and does not change afterwards.
+ *
+ * @see BaseStream#profile(java.util.function.Consumer)
+ * @since 1.8
+ */
+public final class StreamProfile {
+
+    private final boolean parallel;
+
+    /** The stage names, from the source to the terminal operation */
+    private final String[] names;
+
+    // Accumulated measurements, indexed by stage, guarded by this
+    private final long[] counts;
+    private final long[] times;
+    private final long[] barrierTimes;
+    private final List<Task> leaves = new ArrayList<>();
+
+    private long startTime;
+
+    // The completed profile
+    private long elapsedTime;
+    private List<Stage> stages;
+    private List<Task> tasks;
+
+    /**
+     * Creates a profile for a pipeline whose stages have the given names.
+     *
+     * @param names the names of the stages, from the source to the terminal
+     *        operation
+     * @param parallel true if the pipeline is evaluated in parallel
+     */
+    StreamProfile(String[] names, boolean parallel) {
+        this.names = names;
+        this.parallel = parallel;
+        this.counts = new long[names.length];
+        this.times = new long[names.length];
+        this.barrierTimes = new long[names.length];
+    }
+
+    /**
+     * Returns whether the pipeline was evaluated in parallel.
+     *
+     * @return {@code true} if the pipeline was evaluated in parallel
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Returns the elapsed time of the evaluation of the pipeline, in
+     * nanoseconds.
+     *
+     * @return the elapsed time of the evaluation
+     */
+    public synchronized long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    /**
+     * Returns the stages of the pipeline, from the source to the terminal
+     * operation.
+     *
+     * @return an unmodifiable list of the stages of the pipeline
+     */
+    public synchronized List<Stage> getStages() {
+        return stages;
+    }
+
+    /**
+     * Returns the leaf tasks of the parallel evaluation of the pipeline, in
+     * encounter order within each segment of the pipeline, or an empty list
+     * if the pipeline was evaluated sequentially.
+     *
+     * @return an unmodifiable list of the leaf tasks
+     */
+    public synchronized List<Task> getTasks() {
+        return tasks;
+    }
+
+    /**
+     * Returns a report of the profile, listing the elements received and time
+     * spent per stage, and the leaf tasks of a parallel evaluation.  The
+     * exact presentation format is unspecified and may vary between
+     * implementations and versions.
+     *
+     * @return a report of the profile
+     */
+    @Override
+    public synchronized String toString() {
+        double total = 0;
+        for (Stage s : stages)
+            total += s.time;
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%s stream pipeline, %.3f ms elapsed%n",
+                                parallel ? "Parallel" : "Sequential",
+                                elapsedTime / 1e6));
+        sb.append(String.format("  %3s  %-16s %14s %12s %6s%n",
+                                "#", "stage", "elements", "time ms", "%"));
+        for (Stage s : stages) {
+            sb.append(String.format("  %3d  %-16s %14s %12.3f %6.1f",
+                                    s.index, s.name,
+                                    s.index == 0 ? "-" : Long.toString(s.count),
+                                    s.time / 1e6,
+                                    total > 0 ? 100 * s.time / total : 0.0));
+            if (s.barrierTime > 0)
+                sb.append(String.format("  barrier %.3f ms", s.barrierTime / 1e6));
+            sb.append(String.format("%n"));
+        }
+        if (!tasks.isEmpty()) {
+            sb.append(String.format("  %d leaf tasks%n", tasks.size()));
+            for (Task t : tasks)
+                sb.append(String.format("    %-16s %-12s %14s %12.3f  %s%n",
+                                        t.stage, t.path.isEmpty() ? "-" : t.path,
+                                        "~" + t.estimatedSize,
+                                        t.time / 1e6, t.threadName));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * A stage of a stream pipeline: its source, one of its intermediate
+     * operations, or its terminal operation.
+     */
+    public static final class Stage {
+        private final int index;
+        private final String name;
+        private final long count;
+        private final long time;
+        private final long barrierTime;
+
+        Stage(int index, String name, long count, long time, long barrierTime) {
+            this.index = index;
+            this.name = name;
+            this.count = count;
+            this.time = time;
+            this.barrierTime = barrierTime;
+        }
+
+        /**
+         * Returns the position of this stage in the pipeline, {@code 0} for
+         * the source.
+         *
+         * @return the position of this stage in the pipeline
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Returns the name of the operation of this stage, or
+         * {@code "source"} for the source.
+         *
+         * @return the name of the operation of this stage
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the number of elements received by this stage, or for the
+         * source, the number of elements it supplied.
+         *
+         * @return the number of elements received by this stage
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the time spent in this stage, excluding that of downstream
+         * stages, summed over all threads, in nanoseconds.
+         *
+         * @return the time spent in this stage
+         */
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * Returns the elapsed time of the barrier of a stateful operation in
+         * a parallel pipeline, in nanoseconds, or {@code 0} for other stages.
+         *
+         * @return the elapsed time of the barrier of this stage
+         */
+        public long getBarrierTime() {
+            return barrierTime;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s{index=%d, name=%s, count=%d, time=%d, barrierTime=%d}",
+                                 getClass().getSimpleName(), index, name,
+                                 count, time, barrierTime);
+        }
+    }
+
+    /**
+     * A leaf task of the parallel evaluation of a segment of a stream
+     * pipeline.
+     *
+     * <p>The evaluation of a segment splits its source in two, recursively,
+     * forming a binary tree of tasks whose leaves each evaluate the
+     * segment over a part of the source.  A leaf is identified by its path
+     * from the root of the tree, a string of {@code 'L'} and {@code 'R'}
+     * characters for the left, or prefix, and right, or suffix, halves of
+     * each split; the path of a root that was not split is empty.
+     */
+    public static final class Task {
+        private final int index;
+        private final String stage;
+        private final String path;
+        private final long estimatedSize;
+        private final long time;
+        private final String threadName;
+
+        Task(int index, String stage, String path, long estimatedSize, long time,
+             String threadName) {
+            this.index = index;
+            this.stage = stage;
+            this.path = path;
+            this.estimatedSize = estimatedSize;
+            this.time = time;
+            this.threadName = threadName;
+        }
+
+        /**
+         * Returns the name of the stage that receives the results of the
+         * segment evaluated by this task, which is either the terminal
+         * operation or a stateful intermediate operation.
+         *
+         * @return the name of the stage receiving the results of this task
+         */
+        public String getStage() {
+            return stage;
+        }
+
+        /**
+         * Returns the path of this task from the root of its task tree.
+         *
+         * @return the path of this task from the root of its task tree
+         */
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * Returns the estimated size of the part of the source evaluated by
+         * this task, as given by its spliterator.
+         *
+         * @return the estimated size of the part of the source of this task
+         */
+        public long getEstimatedSize() {
+            return estimatedSize;
+        }
+
+        /**
+         * Returns the elapsed time of this task, in nanoseconds.
+         *
+         * @return the elapsed time of this task
+         */
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * Returns the name of the thread that evaluated this task.
+         *
+         * @return the name of the thread that evaluated this task
+         */
+        public String getThreadName() {
+            return threadName;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s{stage=%s, path=%s, estimatedSize=%d, time=%d, thread=%s}",
+                                 getClass().getSimpleName(), stage, path,
+                                 estimatedSize, time, threadName);
+        }
+    }
+
+    // Recording
+
+    /**
+     * Returns the name of the operation implemented by a pipeline stage or
+     * terminal operation class: the method that creates it, or failing
+     * that, the class of operations it belongs to, such as {@code "sorted"}
+     * for {@code SortedOps}.
+     */
+    static String nameOf(Class<?> c) {
+        Method m = c.getEnclosingMethod();
+        if (m != null && !m.getName().startsWith("make"))
+            return m.getName();
+        for (Class<?> e; (e = c.getEnclosingClass()) != null; )
+            c = e;
+        String name = c.getSimpleName();
+        if (name.endsWith("Ops"))
+            name = name.substring(0, name.length() - 3);
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    /**
+     * Returns a new recorder, to be used by a single thread for a single
+     * traversal of a chain of sinks.
+     */
+    Recorder newRecorder() {
+        return new Recorder(this);
+    }
+
+    synchronized void merge(long[] counts, long[] times) {
+        for (int i = 0; i < counts.length; i++) {
+            this.counts[i] += counts[i];
+            this.times[i] += times[i];
+        }
+    }
+
+    synchronized void recordBarrier(int stage, long time) {
+        barrierTimes[stage] += time;
+    }
+
+    /**
+     * Records a leaf task of the evaluation of a pipeline segment.
+     *
+     * @param helper the pipeline segment evaluated by the task
+     */
+    synchronized void recordLeaf(PipelineHelper<?> helper, String path,
+                                 long estimatedSize, long time) {
+        // The results of the segment are received by the following stage
+        int stage = ((AbstractPipeline<?, ?, ?>) helper).getStageIndex() + 1;
+        leaves.add(new Task(stage, names[stage], path, estimatedSize, time,
+                            Thread.currentThread().getName()));
+    }
+
+    /**
+     * Starts the evaluation of the pipeline.
+     */
+    synchronized void start() {
+        startTime = System.nanoTime();
+    }
+
+    /**
+     * Completes the evaluation of the pipeline, after which no further
+     * measurements are included in this profile.
+     */
+    synchronized void complete() {
+        elapsedTime = System.nanoTime() - startTime;
+        Stage[] ss = new Stage[names.length];
+        for (int i = 0; i < ss.length; i++) {
+            // The source supplies the elements received by the first stage
+            long count = (i == 0 && ss.length > 1) ? counts[1] : counts[i];
+            ss[i] = new Stage(i, names[i], count, times[i], barrierTimes[i]);
+        }
+        stages = Collections.unmodifiableList(Arrays.asList(ss));
+        // Order the leaves by segment, then in encounter order
+        List<Task> ts = new ArrayList<>(leaves);
+        ts.sort((a, b) -> {
+            int c = Integer.compare(a.index, b.index);
+            return c != 0 ? c : a.path.compareTo(b.path);
+        });
+        tasks = Collections.unmodifiableList(ts);
+    }
+
+    /**
+     * Records the element counts and times of the stages of a chain of
+     * sinks, charging elapsed time to the stage currently running, and
+     * merges them into the profile on completion of the traversal.
+     */
+    static final class Recorder {
+        private final StreamProfile profile;
+        private final long[] counts;
+        private final long[] times;
+        private int current;
+        private long mark;
+
+        Recorder(StreamProfile profile) {
+            this.profile = profile;
+            this.counts = new long[profile.names.length];
+            this.times = new long[profile.names.length];
+        }
+
+        /**
+         * Returns a sink recording the elements received by a stage and
+         * pushing them to the given sink, which implements the stage.
+         *
+         * @param stage the index of the stage
+         * @param shape the shape of the elements received by the stage
+         * @param downstream the sink implementing the stage
+         */
+        @SuppressWarnings({"rawtypes", "unchecked"})
+        ProfilingSink<?> wrap(int stage, StreamShape shape, Sink downstream) {
+            switch (shape) {
+                case REFERENCE:
+                    return new ProfilingSink.OfRef<>(this, stage, downstream);
+                case INT_VALUE:
+                    return new ProfilingSink.OfInt(this, stage, downstream);
+                case LONG_VALUE:
+                    return new ProfilingSink.OfLong(this, stage, downstream);
+                case DOUBLE_VALUE:
+                    return new ProfilingSink.OfDouble(this, stage, downstream);
+                default:
+                    throw new IllegalStateException("Unknown shape " + shape);
+            }
+        }
+
+        /**
+         * Marks the outermost sink of the chain, whose {@code begin} and
+         * {@code end} bracket the traversal.
+         *
+         * @param stage the index of the stage supplying elements to the
+         *        chain, either the source or a stateful operation
+         * @param sink the outermost sink
+         */
+        Sink<?> outermost(int stage, ProfilingSink<?> sink) {
+            current = stage;
+            sink.outermost = true;
+            return sink;
+        }
+
+        void start() {
+            mark = System.nanoTime();
+        }
+
+        int enter(int stage) {
+            long now = System.nanoTime();
+            times[current] += now - mark;
+            mark = now;
+            int previous = current;
+            current = stage;
+            return previous;
+        }
+
+        void exit(int previous) {
+            long now = System.nanoTime();
+            times[current] += now - mark;
+            mark = now;
+            current = previous;
+        }
+
+        void finish() {
+            profile.merge(counts, times);
+            Arrays.fill(counts, 0L);
+            Arrays.fill(times, 0L);
+        }
+    }
+
+    /**
+     * A sink preceding the sink implementing a stage, recording the elements
+     * received by the stage and the time spent in it.
+     */
+    abstract static class ProfilingSink<T> implements Sink<T> {
+        final Recorder recorder;
+        final int stage;
+        final Sink<?> downstream;
+        boolean outermost;
+
+        ProfilingSink(Recorder recorder, int stage, Sink<?> downstream) {
+            this.recorder = recorder;
+            this.stage = stage;
+            this.downstream = Objects.requireNonNull(downstream);
+        }
+
+        @Override
+        public void begin(long size) {
+            Recorder r = recorder;
+            if (outermost)
+                r.start();
+            int previous = r.enter(stage);
+            downstream.begin(size);
+            r.exit(previous);
+        }
+
+        @Override
+        public void end() {
+            Recorder r = recorder;
+            int previous = r.enter(stage);
+            downstream.end();
+            r.exit(previous);
+            if (outermost)
+                r.finish();
+        }
+
+        @Override
+        public boolean cancellationRequested() {
+            return downstream.cancellationRequested();
+        }
+
+        static final class OfRef<T> extends ProfilingSink<T> {
+            OfRef(Recorder recorder, int stage, Sink<T> downstream) {
+                super(recorder, stage, downstream);
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public void accept(T t) {
+                Recorder r = recorder;
+                int previous = r.enter(stage);
+                r.counts[stage]++;
+                ((Sink<T>) downstream).accept(t);
+                r.exit(previous);
+            }
+        }
+
+        static final class OfInt extends ProfilingSink<Integer> implements Sink.OfInt {
+            OfInt(Recorder recorder, int stage, Sink<?> downstream) {
+                super(recorder, stage, downstream);
+            }
+
+            @Override
+            public void accept(int t) {
+                Recorder r = recorder;
+                int previous = r.enter(stage);
+                r.counts[stage]++;
+                downstream.accept(t);
+                r.exit(previous);
+            }
+        }
+
+        static final class OfLong extends ProfilingSink<Long> implements Sink.OfLong {
+            OfLong(Recorder recorder, int stage, Sink<?> downstream) {
+                super(recorder, stage, downstream);
+            }
+
+            @Override
+            public void accept(long t) {
+                Recorder r = recorder;
+                int previous = r.enter(stage);
+                r.counts[stage]++;
+                downstream.accept(t);
+                r.exit(previous);
+            }
+        }
+
+        static final class OfDouble extends ProfilingSink<Double> implements Sink.OfDouble {
+            OfDouble(Recorder recorder, int stage, Sink<?> downstream) {
+                super(recorder, stage, downstream);
+            }
+
+            @Override
+            public void accept(double t) {
+                Recorder r = recorder;
+                int previous = r.enter(stage);
+                r.counts[stage]++;
+                downstream.accept(t);
+                r.exit(previous);
+            }
+        }
+    }
+}
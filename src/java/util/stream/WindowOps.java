@@ -0,0 +1,572 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.stream;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Factory for instances of stateful intermediate operations that group
+ * consecutive elements of their input stream into windows.
+ *
+ * <p>A window starts at every {@code step}-th element of the input and spans
+ * {@code size} elements.  Batches are windows whose step equals their size,
+ * and for them the final window may be partial.  Sliding windows are always
+ * full, so input that does not fill a final window is dropped.  Batches may
+ * additionally be bounded by time, in which case a batch is closed when the
+ * next element arrives after the timeout has elapsed since the first element
+ * of the batch.
+ *
+ * <p>Sequential evaluation pushes each window downstream as soon as it is
+ * complete, buffering at most one window.  Parallel evaluation collects the
+ * input and then splits the windows along window boundaries.  All of the
+ * input is then available at once, so time bounds do not apply.
+ *
+ * @since 1.8
+ */
+final class WindowOps {
+
+    // No instances
+    private WindowOps() { }
+
+    /**
+     * Calculates the number of windows over an input of the given size.
+     *
+     * @param size the input size, or -1 if unknown
+     * @param windowSize the number of elements in a full window
+     * @param step the distance between the first elements of two windows
+     * @param partial true if a partial final window is included
+     * @return the number of windows, or -1 if unknown
+     */
+    static long windowCount(long size, int windowSize, int step, boolean partial) {
+        if (size < 0)
+            return -1;
+        else if (partial)
+            return (size + windowSize - 1) / windowSize;
+        else
+            return size < windowSize ? 0 : (size - windowSize) / step + 1;
+    }
+
+    private static void checkWindow(int size, int step, long timeout) {
+        if (size <= 0)
+            throw new IllegalArgumentException(Integer.toString(size));
+        if (step <= 0)
+            throw new IllegalArgumentException(Integer.toString(step));
+        if (timeout < 0)
+            throw new IllegalArgumentException(Long.toString(timeout));
+    }
+
+    /**
+     * Converts the time bound of a batch to nanoseconds.
+     *
+     * @throws IllegalArgumentException if {@code timeout} is not positive
+     * @throws NullPointerException if {@code unit} is null
+     */
+    static long timeoutNanos(long timeout, TimeUnit unit) {
+        Objects.requireNonNull(unit);
+        if (timeout <= 0)
+            throw new IllegalArgumentException(Long.toString(timeout));
+        return Math.max(unit.toNanos(timeout), 1L);
+    }
+
+    private static int flags() {
+        return StreamOpFlag.NOT_SIZED | StreamOpFlag.NOT_SORTED | StreamOpFlag.NOT_DISTINCT;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> IntFunction<T[]> castingArray() {
+        return size -> (T[]) new Object[size];
+    }
+
+    /**
+     * Appends a "window" operation to the provided stream.
+     *
+     * @param <T> the type of the input elements
+     * @param upstream a reference stream with element type T
+     * @param size the number of elements in a full window
+     * @param step the distance between the first elements of two windows
+     * @param partial true if a partial final window is included, which
+     *        requires {@code step == size}
+     * @param timeoutNanos the time bound of a window in nanoseconds, or 0 if
+     *        none, which requires {@code step == size}
+     * @throws IllegalArgumentException if {@code size} or {@code step} is
+     *         not positive
+     */
+    static <T> Stream<List<T>> makeRef(AbstractPipeline<?, T, ?> upstream,
+                                       int size, int step, boolean partial,
+                                       long timeoutNanos) {
+        checkWindow(size, step, timeoutNanos);
+        return new ReferencePipeline.StatefulOp<T, List<T>>(upstream, StreamShape.REFERENCE,
+                                                            flags()) {
+            @Override
+            Sink<T> opWrapSink(int flags, Sink<List<T>> sink) {
+                return new Sink.ChainedReference<T, List<T>>(sink) {
+                    final Window w = new Window(size, step, partial, timeoutNanos);
+                    Object[] ring;
+
+                    @Override
+                    public void begin(long size) {
+                        ring = new Object[w.capacity(size)];
+                        downstream.begin(w.outputSize(size));
+                    }
+
+                    @Override
+                    public void accept(T t) {
+                        if (w.expired())
+                            flush();
+                        int i = w.offer();
+                        if (i >= 0) {
+                            ring[i] = t;
+                            if (w.isFull()) {
+                                downstream.accept(window(w.size));
+                                w.advance();
+                            }
+                        }
+                    }
+
+                    @Override
+                    public void end() {
+                        if (w.partial && w.filled > 0)
+                            flush();
+                        ring = null;
+                        downstream.end();
+                    }
+
+                    private void flush() {
+                        downstream.accept(window(w.filled));
+                        w.clear();
+                    }
+
+                    @SuppressWarnings("unchecked")
+                    private List<T> window(int n) {
+                        ArrayList<T> window = new ArrayList<>(n);
+                        for (int i = 0, h = w.head; i < n; i++)
+                            window.add((T) ring[(h + i) % w.size]);
+                        return window;
+                    }
+                };
+            }
+
+            @Override
+            <P_IN> Spliterator<List<T>> opEvaluateParallelLazy(PipelineHelper<List<T>> helper,
+                                                               Spliterator<P_IN> spliterator) {
+                @SuppressWarnings("unchecked")
+                PipelineHelper<T> h = (PipelineHelper<T>) (PipelineHelper<?>) helper;
+                T[] a = h.evaluate(spliterator, true, WindowOps.<T>castingArray())
+                         .asArray(castingArray());
+                return new WindowSpliterator<List<T>>(size, step, partial, a.length) {
+                    @Override
+                    List<T> window(int from, int to) {
+                        return new ArrayList<>(Arrays.asList(a).subList(from, to));
+                    }
+                };
+            }
+
+            @Override
+            <P_IN> Node<List<T>> opEvaluateParallel(PipelineHelper<List<T>> helper,
+                                                    Spliterator<P_IN> spliterator,
+                                                    IntFunction<List<T>[]> generator) {
+                return windows(opEvaluateParallelLazy(helper, spliterator), generator);
+            }
+        };
+    }
+
+    /**
+     * Appends a "window" operation to the provided {@code IntStream}.
+     *
+     * @param upstream an int stream
+     * @param size the number of elements in a full window
+     * @param step the distance between the first elements of two windows
+     * @param partial true if a partial final window is included, which
+     *        requires {@code step == size}
+     * @param timeoutNanos the time bound of a window in nanoseconds, or 0 if
+     *        none, which requires {@code step == size}
+     * @throws IllegalArgumentException if {@code size} or {@code step} is
+     *         not positive
+     */
+    static Stream<int[]> makeInt(AbstractPipeline<?, Integer, ?> upstream,
+                                 int size, int step, boolean partial,
+                                 long timeoutNanos) {
+        checkWindow(size, step, timeoutNanos);
+        return new ReferencePipeline.StatefulOp<Integer, int[]>(upstream, StreamShape.INT_VALUE,
+                                                                flags()) {
+            @Override
+            Sink<Integer> opWrapSink(int flags, Sink<int[]> sink) {
+                return new Sink.ChainedInt<int[]>(sink) {
+                    final Window w = new Window(size, step, partial, timeoutNanos);
+                    int[] ring;
+
+                    @Override
+                    public void begin(long size) {
+                        ring = new int[w.capacity(size)];
+                        downstream.begin(w.outputSize(size));
+                    }
+
+                    @Override
+                    public void accept(int t) {
+                        if (w.expired())
+                            flush();
+                        int i = w.offer();
+                        if (i >= 0) {
+                            ring[i] = t;
+                            if (w.isFull()) {
+                                downstream.accept(window(w.size));
+                                w.advance();
+                            }
+                        }
+                    }
+
+                    @Override
+                    public void end() {
+                        if (w.partial && w.filled > 0)
+                            flush();
+                        ring = null;
+                        downstream.end();
+                    }
+
+                    private void flush() {
+                        downstream.accept(window(w.filled));
+                        w.clear();
+                    }
+
+                    private int[] window(int n) {
+                        int[] window = new int[n];
+                        int h = w.head, k = Math.min(n, w.size - h);
+                        System.arraycopy(ring, h, window, 0, k);
+                        System.arraycopy(ring, 0, window, k, n - k);
+                        return window;
+                    }
+                };
+            }
+
+            @Override
+            <P_IN> Spliterator<int[]> opEvaluateParallelLazy(PipelineHelper<int[]> helper,
+                                                             Spliterator<P_IN> spliterator) {
+                @SuppressWarnings("unchecked")
+                PipelineHelper<Integer> h = (PipelineHelper<Integer>) (PipelineHelper<?>) helper;
+                int[] a = ((Node.OfInt) h.evaluate(spliterator, true, Integer[]::new))
+                        .asPrimitiveArray();
+                return new WindowSpliterator<int[]>(size, step, partial, a.length) {
+                    @Override
+                    int[] window(int from, int to) {
+                        return Arrays.copyOfRange(a, from, to);
+                    }
+                };
+            }
+
+            @Override
+            <P_IN> Node<int[]> opEvaluateParallel(PipelineHelper<int[]> helper,
+                                                  Spliterator<P_IN> spliterator,
+                                                  IntFunction<int[][]> generator) {
+                return windows(opEvaluateParallelLazy(helper, spliterator), generator);
+            }
+        };
+    }
+
+    /**
+     * Appends a "window" operation to the provided {@code LongStream}.
+     *
+     * @param upstream a long stream
+     * @param size the number of elements in a full window
+     * @param step the distance between the first elements of two windows
+     * @param partial true if a partial final window is included, which
+     *        requires {@code step == size}
+     * @param timeoutNanos the time bound of a window in nanoseconds, or 0 if
+     *        none, which requires {@code step == size}
+     * @throws IllegalArgumentException if {@code size} or {@code step} is
+     *         not positive
+     */
+    static Stream<long[]> makeLong(AbstractPipeline<?, Long, ?> upstream,
+                                   int size, int step, boolean partial,
+                                   long timeoutNanos) {
+        checkWindow(size, step, timeoutNanos);
+        return new ReferencePipeline.StatefulOp<Long, long[]>(upstream, StreamShape.LONG_VALUE,
+                                                              flags()) {
+            @Override
+            Sink<Long> opWrapSink(int flags, Sink<long[]> sink) {
+                return new Sink.ChainedLong<long[]>(sink) {
+                    final Window w = new Window(size, step, partial, timeoutNanos);
+                    long[] ring;
+
+                    @Override
+                    public void begin(long size) {
+                        ring = new long[w.capacity(size)];
+                        downstream.begin(w.outputSize(size));
+                    }
+
+                    @Override
+                    public void accept(long t) {
+                        if (w.expired())
+                            flush();
+                        int i = w.offer();
+                        if (i >= 0) {
+                            ring[i] = t;
+                            if (w.isFull()) {
+                                downstream.accept(window(w.size));
+                                w.advance();
+                            }
+                        }
+                    }
+
+                    @Override
+                    public void end() {
+                        if (w.partial && w.filled > 0)
+                            flush();
+                        ring = null;
+                        downstream.end();
+                    }
+
+                    private void flush() {
+                        downstream.accept(window(w.filled));
+                        w.clear();
+                    }
+
+                    private long[] window(int n) {
+                        long[] window = new long[n];
+                        int h = w.head, k = Math.min(n, w.size - h);
+                        System.arraycopy(ring, h, window, 0, k);
+                        System.arraycopy(ring, 0, window, k, n - k);
+                        return window;
+                    }
+                };
+            }
+
+            @Override
+            <P_IN> Spliterator<long[]> opEvaluateParallelLazy(PipelineHelper<long[]> helper,
+                                                              Spliterator<P_IN> spliterator) {
+                @SuppressWarnings("unchecked")
+                PipelineHelper<Long> h = (PipelineHelper<Long>) (PipelineHelper<?>) helper;
+                long[] a = ((Node.OfLong) h.evaluate(spliterator, true, Long[]::new))
+                        .asPrimitiveArray();
+                return new WindowSpliterator<long[]>(size, step, partial, a.length) {
+                    @Override
+                    long[] window(int from, int to) {
+                        return Arrays.copyOfRange(a, from, to);
+                    }
+                };
+            }
+
+            @Override
+            <P_IN> Node<long[]> opEvaluateParallel(PipelineHelper<long[]> helper,
+                                                   Spliterator<P_IN> spliterator,
+                                                   IntFunction<long[][]> generator) {
+                return windows(opEvaluateParallelLazy(helper, spliterator), generator);
+            }
+        };
+    }
+
+    /**
+     * Creates the windows described by a {@code WindowSpliterator} in
+     * parallel and collects them into a node.
+     */
+    private static <W> Node<W> windows(Spliterator<W> s, IntFunction<W[]> generator) {
+        WindowSpliterator<W> ws = (WindowSpliterator<W>) s;
+        W[] windows = generator.apply((int) ws.estimateSize());
+        Arrays.parallelSetAll(windows, ws::windowAt);
+        return Nodes.node(windows);
+    }
+
+    /**
+     * The positions of the windows within the ring buffer of a sequential
+     * window sink.  The current window occupies {@code filled} slots of the
+     * ring starting at {@code head}.
+     */
+    private static final class Window {
+        final int size;
+        final int step;
+        final boolean partial;
+        final long timeoutNanos;
+        int head;
+        int filled;
+        // Number of elements to drop before the next window starts
+        long skip;
+        // Time at which the current timed window was started
+        long start;
+
+        Window(int size, int step, boolean partial, long timeoutNanos) {
+            this.size = size;
+            this.step = step;
+            this.partial = partial;
+            this.timeoutNanos = timeoutNanos;
+        }
+
+        /**
+         * Returns the ring capacity needed for an input of the given size,
+         * or of unknown size if negative.
+         */
+        int capacity(long inputSize) {
+            return (inputSize >= 0 && inputSize < size) ? (int) inputSize : size;
+        }
+
+        long outputSize(long inputSize) {
+            return timeoutNanos > 0 ? -1 : windowCount(inputSize, size, step, partial);
+        }
+
+        /**
+         * Returns true if the current window is timed, non-empty, and has
+         * expired, in which case it must be flushed before the next element
+         * is offered.
+         */
+        boolean expired() {
+            if (timeoutNanos == 0)
+                return false;
+            long now = System.nanoTime();
+            if (filled == 0) {
+                start = now;
+                return false;
+            }
+            else if (now - start >= timeoutNanos) {
+                start = now;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Accounts for the next element, returning the ring slot to store it
+         * in, or -1 if it falls between windows.
+         */
+        int offer() {
+            if (skip > 0) {
+                skip--;
+                return -1;
+            }
+            return (head + filled++) % size;
+        }
+
+        boolean isFull() {
+            return filled == size;
+        }
+
+        /**
+         * Moves to the next window after a full window has been pushed.
+         */
+        void advance() {
+            if (step >= size) {
+                head = 0;
+                filled = 0;
+                skip = step - size;
+            }
+            else {
+                head = (head + step) % size;
+                filled -= step;
+            }
+        }
+
+        /**
+         * Empties the window after a partial window has been pushed.
+         */
+        void clear() {
+            head = 0;
+            filled = 0;
+        }
+    }
+
+    /**
+     * A spliterator over the windows of an array, which splits along window
+     * boundaries.
+     *
+     * @param <W> the type of windows
+     */
+    private static abstract class WindowSpliterator<W> implements Spliterator<W> {
+        final int size;
+        final int step;
+        final int length;
+        int index;        // current window index, advanced on split or traversal
+        int fence;        // one past the last window index
+
+        WindowSpliterator(int size, int step, boolean partial, int length) {
+            this(size, step, length, 0, (int) windowCount(length, size, step, partial));
+        }
+
+        private WindowSpliterator(int size, int step, int length, int index, int fence) {
+            this.size = size;
+            this.step = step;
+            this.length = length;
+            this.index = index;
+            this.fence = fence;
+        }
+
+        /**
+         * Returns the window of the array elements {@code [from, to)}.
+         */
+        abstract W window(int from, int to);
+
+        W windowAt(int i) {
+            int from = i * step;
+            return window(from, Math.min(from + size, length));
+        }
+
+        @Override
+        public Spliterator<W> trySplit() {
+            int lo = index, mid = (lo + fence) >>> 1;
+            if (lo >= mid)
+                return null;
+            index = mid;
+            WindowSpliterator<W> outer = this;
+            return new WindowSpliterator<W>(size, step, length, lo, mid) {
+                @Override
+                W window(int from, int to) {
+                    return outer.window(from, to);
+                }
+            };
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super W> action) {
+            Objects.requireNonNull(action);
+            if (index < fence) {
+                action.accept(windowAt(index++));
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super W> action) {
+            Objects.requireNonNull(action);
+            for (int i = index, hi = fence; i < hi; i++)
+                action.accept(windowAt(i));
+            index = fence;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED |
+                   Spliterator.NONNULL | Spliterator.IMMUTABLE;
+        }
+    }
+}